@@ -26,7 +26,7 @@ public final class ChatMain {
 
             ServerConfig serverConf = new ServerConfig(config);
             CloseableMetaService metaService = ServiceFactory.createMetaService(config);
-            CloseableMessageService messageService = ServiceFactory.createMessageService(config);
+            CloseableMessageService messageService = ServiceFactory.createMessageService(config, metaService);
             ChatServer server = new ChatServer(serverConf, metaService, messageService);
             server.init();
             Runtime.getRuntime().addShutdownHook(new Thread(() -> {
@@ -2,26 +2,31 @@ package com.github.sosozhuang;
 
 
 import com.github.sosozhuang.conf.ServerConfig;
-import com.github.sosozhuang.handler.ChatHandler;
 import com.github.sosozhuang.handler.ChatInitializer;
+import com.github.sosozhuang.handler.GroupAffinity;
+import com.github.sosozhuang.handler.GroupHistory;
+import com.github.sosozhuang.handler.GroupInterest;
 import com.github.sosozhuang.protobuf.Chat;
-import com.github.sosozhuang.service.MessageRecord;
+import com.github.sosozhuang.service.HistoryService;
+import com.github.sosozhuang.service.InboxService;
+import com.github.sosozhuang.service.JournaledMessageService;
 import com.github.sosozhuang.service.MessageService;
 import com.github.sosozhuang.service.MetaService;
-import com.google.protobuf.InvalidProtocolBufferException;
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
+import io.netty.channel.WriteBufferWaterMark;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
-import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.DefaultThreadFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.InetAddress;
 import java.net.UnknownHostException;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class ChatServer {
     private static final Logger LOGGER = LoggerFactory.getLogger(ChatServer.class);
@@ -34,6 +39,10 @@ public class ChatServer {
     private volatile boolean registered;
     private MetaService metaService;
     private MessageService messageService;
+    private MessageDispatcher dispatcher;
+    private MessagePublisher publisher;
+    private GroupInterest interest;
+    private ExecutorService historyReaders;
 
     public ChatServer(ServerConfig config,
                       MetaService metaService,
@@ -60,40 +69,46 @@ public class ChatServer {
         return ip;
     }
 
-    private void receive() {
-        Iterable<MessageRecord<String, byte[]>> records;
-        try {
-            records = messageService.receive();
-        } catch (RuntimeException e) {
-            LOGGER.error("Receive messages from service error.", e);
-            return;
-        }
-        Chat.Message message = null;
-        for (MessageRecord<String, byte[]> record : records) {
-            try {
-                message = Chat.Message.parseFrom(record.getValue());
-            } catch (InvalidProtocolBufferException e) {
-                LOGGER.error("Parse record error.", e);
-                continue;
-            }
-            if (message.getServerId() == id) {
-                continue;
-            }
-            ChatHandler.receiveMessage(message);
-        }
-    }
-
     public void init() throws Exception {
         bossGroup = new NioEventLoopGroup(1);
         workerGroup = new NioEventLoopGroup();
+        InboxService inbox = null;
+        // inbox traffic is live only and skips the journal, history pages are read from the backend
+        MessageService backend = messageService instanceof JournaledMessageService ?
+                ((JournaledMessageService) messageService).getDelegate() : messageService;
+        if (config.getInterestRouting(false)) {
+            if (backend instanceof InboxService) {
+                inbox = (InboxService) backend;
+                inbox.openInbox(id);
+                interest = new GroupInterest(metaService, inbox, id, config.getInterestTtl(60000));
+            } else {
+                LOGGER.warn("Message service does not support inbox, interest routing disabled.");
+            }
+        }
+        publisher = new MessagePublisher(config, messageService, workerGroup, inbox, interest,
+                config.getSequenceEnable(false) ? metaService : null);
+        GroupAffinity affinity = config.getGroupAffinity(false) ? new GroupAffinity(workerGroup) : null;
+        GroupHistory history = config.getHistoryEnable(false) ? new GroupHistory(config.getHistoryCapacity(256),
+                config.getHistoryWindow(600000L), config.getHistoryMaxBytes(67108864L),
+                interest == null ? 0L : interest.settleTime()) : null;
+        HistoryService historyService = null;
+        if (backend instanceof HistoryService) {
+            historyService = (HistoryService) backend;
+            historyReaders = Executors.newFixedThreadPool(Math.max(1, config.getReplayReaders(2)),
+                    new DefaultThreadFactory("chat-history", true));
+        }
         bootstrap = new ServerBootstrap();
         bootstrap.group(bossGroup, workerGroup)
                 .channel(NioServerSocketChannel.class)
                 .option(ChannelOption.SO_BACKLOG, 64)
                 .childOption(ChannelOption.TCP_NODELAY, true)
                 .childOption(ChannelOption.SO_KEEPALIVE, true)
+                .childOption(ChannelOption.WRITE_BUFFER_WATER_MARK, new WriteBufferWaterMark(
+                        config.getWriteBufferLow(32768), config.getWriteBufferHigh(65536)))
                 .childHandler(new ChatInitializer(config,
-                        metaService, messageService));
+                        metaService, messageService, publisher, affinity, interest, history,
+                        historyService, historyReaders));
+        dispatcher = new MessageDispatcher(config, messageService, workerGroup, affinity, inbox, interest, history);
     }
 
     public void start() throws InterruptedException {
@@ -107,17 +122,25 @@ public class ChatServer {
             throw new RuntimeException("Server[" + id + "] already registered in meta service.");
         }
         registered = true;
+        publisher.start();
+        if (interest != null) {
+            interest.start();
+        }
         future = bootstrap.bind(config.getHost(), config.getPort()).addListener(future -> {
             if (future.isSuccess()) {
                 LOGGER.info("Chat service rocks!");
-                for (EventExecutor executor : workerGroup) {
-                    executor.scheduleAtFixedRate(this::receive, 0, config.getExecutorScheduleRate(80), TimeUnit.MILLISECONDS);
-                }
+                dispatcher.start();
             }
         }).sync();
     }
 
     public void stop() {
+        if (dispatcher != null) {
+            dispatcher.stop();
+        }
+        if (interest != null) {
+            interest.stop();
+        }
         if (future != null) {
             try {
                 future.channel().close().sync();
@@ -139,6 +162,13 @@ public class ChatServer {
                 LOGGER.error("Shut down worker group error.", cause);
             }
         }
+        if (historyReaders != null) {
+            historyReaders.shutdownNow();
+        }
+        if (publisher != null) {
+            publisher.flush();
+            publisher.stop();
+        }
         if (registered && !metaService.unRegisterServer(String.valueOf(id))) {
             LOGGER.warn("Server not registered in meta service");
         }
@@ -0,0 +1,223 @@
+package com.github.sosozhuang;
+
+import com.github.sosozhuang.conf.ServerConfigGetter;
+import com.github.sosozhuang.handler.ChatHandler;
+import com.github.sosozhuang.handler.GroupAffinity;
+import com.github.sosozhuang.handler.GroupHistory;
+import com.github.sosozhuang.handler.GroupInterest;
+import com.github.sosozhuang.protobuf.Chat;
+import com.github.sosozhuang.service.InboxService;
+import com.github.sosozhuang.service.MessageEnvelope;
+import com.github.sosozhuang.service.MessageHeaders;
+import com.github.sosozhuang.service.MessageRecord;
+import com.github.sosozhuang.service.MessageService;
+import com.google.protobuf.InvalidProtocolBufferException;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.internal.PlatformDependent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+public class MessageDispatcher {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MessageDispatcher.class);
+    private static final int MAX_DRAIN_BATCH = 256;
+    private final long serverID;
+    private final MessageService messageService;
+    private final Mailbox[] mailboxes;
+    private final Map<EventExecutor, Mailbox> executorMailboxes;
+    private final GroupAffinity affinity;
+    private final InboxService inbox;
+    private final GroupInterest interest;
+    private final GroupHistory history;
+    private final Thread[] threads;
+    private volatile boolean running;
+
+    public MessageDispatcher(ServerConfigGetter config,
+                             MessageService messageService,
+                             EventLoopGroup workerGroup,
+                             GroupAffinity affinity,
+                             InboxService inbox,
+                             GroupInterest interest,
+                             GroupHistory history) {
+        this.serverID = config.getId();
+        this.messageService = messageService;
+        int capacity = config.getDispatcherQueueCapacity(4096);
+        List<Mailbox> list = new ArrayList<>();
+        for (EventExecutor executor : workerGroup) {
+            list.add(new Mailbox(executor, capacity));
+        }
+        this.mailboxes = list.toArray(new Mailbox[list.size()]);
+        this.executorMailboxes = new IdentityHashMap<>();
+        for (Mailbox mailbox : mailboxes) {
+            executorMailboxes.put(mailbox.executor, mailbox);
+        }
+        this.affinity = affinity;
+        this.inbox = inbox;
+        this.interest = interest;
+        this.history = history;
+        this.threads = new Thread[Math.max(1, config.getDispatcherThreads(1))];
+        this.running = false;
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(this::dispatch, "chat-dispatcher-" + i);
+            threads[i].setDaemon(true);
+            threads[i].start();
+        }
+    }
+
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        for (Thread thread : threads) {
+            thread.interrupt();
+        }
+        for (Thread thread : threads) {
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private Mailbox mailboxFor(String groupID) {
+        if (affinity != null) {
+            // deliver on the loop the group is pinned to, if it has members here
+            EventExecutor executor = affinity.eventLoop(groupID);
+            Mailbox mailbox = executor == null ? null : executorMailboxes.get(executor);
+            if (mailbox != null) {
+                return mailbox;
+            }
+        }
+        return mailboxes[(groupID.hashCode() & Integer.MAX_VALUE) % mailboxes.length];
+    }
+
+    private void dispatch() {
+        while (running) {
+            Iterable<MessageRecord<String, byte[]>> records;
+            try {
+                // with an inbox only records of groups having members here arrive
+                records = inbox != null ? inbox.receiveInbox() : messageService.receive();
+            } catch (RuntimeException e) {
+                if (!running) {
+                    break;
+                }
+                LOGGER.error("Receive messages from service error.", e);
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(100));
+                continue;
+            }
+
+            Chat.Message message;
+            for (MessageRecord<String, byte[]> record : records) {
+                // headers let own and unwatched records go without parsing
+                MessageHeaders headers = record.getHeaders();
+                if (headers != null && headers.getType() == Chat.MessageType.INTEREST) {
+                    if (interest != null && headers.getServerID() != serverID) {
+                        interest.invalidate(headers.getGroupID());
+                    }
+                    continue;
+                }
+                if (headers != null && (headers.getServerID() == serverID || !ChatHandler.hasGroup(headers.getGroupID()))) {
+                    continue;
+                }
+                try {
+                    for (byte[] bytes : MessageEnvelope.unpack(record.getValue())) {
+                        message = Chat.Message.parseFrom(bytes);
+                        if (message.getServerId() == serverID) {
+                            continue;
+                        }
+                        if (history != null && message.getType() == Chat.MessageType.CHAT) {
+                            history.add(message, bytes);
+                        }
+                        mailboxFor(message.getGroupId()).offer(new Delivery(message, bytes));
+                    }
+                } catch (InvalidProtocolBufferException e) {
+                    LOGGER.error("Parse record error.", e);
+                }
+            }
+            for (Mailbox mailbox : mailboxes) {
+                mailbox.schedule();
+            }
+        }
+        LOGGER.info("Message dispatcher {} stopped.", Thread.currentThread().getName());
+    }
+
+    private final class Mailbox implements Runnable {
+        private final EventExecutor executor;
+        private final Queue<Delivery> queue;
+        private final AtomicBoolean scheduled;
+
+        Mailbox(EventExecutor executor, int capacity) {
+            this.executor = executor;
+            this.queue = PlatformDependent.newFixedMpscQueue(capacity);
+            this.scheduled = new AtomicBoolean(false);
+        }
+
+        void offer(Delivery delivery) {
+            while (!queue.offer(delivery)) {
+                // queue is full, wake the event loop and wait for it to catch up,
+                // which in turn slows down consuming from the broker.
+                schedule();
+                if (!running) {
+                    return;
+                }
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+            }
+        }
+
+        void schedule() {
+            if (queue.isEmpty() || !scheduled.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                executor.execute(this);
+            } catch (RejectedExecutionException e) {
+                scheduled.set(false);
+                queue.clear();
+            }
+        }
+
+        @Override
+        public void run() {
+            Delivery delivery;
+            for (int i = 0; i < MAX_DRAIN_BATCH && (delivery = queue.poll()) != null; i++) {
+                try {
+                    ChatHandler.receiveMessage(delivery.message, delivery.bytes);
+                } catch (Throwable cause) {
+                    LOGGER.error("Deliver message error.", cause);
+                }
+            }
+            scheduled.set(false);
+            schedule();
+        }
+    }
+
+    private static final class Delivery {
+        final Chat.Message message;
+        final byte[] bytes;
+
+        Delivery(Chat.Message message, byte[] bytes) {
+            this.message = message;
+            this.bytes = bytes;
+        }
+    }
+}
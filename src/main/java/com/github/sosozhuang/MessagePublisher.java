@@ -0,0 +1,565 @@
+package com.github.sosozhuang;
+
+import com.github.sosozhuang.conf.ServerConfigGetter;
+import com.github.sosozhuang.handler.GroupInterest;
+import com.github.sosozhuang.protobuf.Chat;
+import com.github.sosozhuang.service.InboxService;
+import com.github.sosozhuang.service.MessageEnvelope;
+import com.github.sosozhuang.service.MessageHeaders;
+import com.github.sosozhuang.service.MessageRecord;
+import com.github.sosozhuang.service.MessageService;
+import com.github.sosozhuang.service.MetaService;
+import com.github.sosozhuang.service.SendCallback;
+import io.netty.channel.Channel;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.internal.PlatformDependent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
+
+// Hands outgoing messages from the event loops to a few publisher threads, so a slow
+// broker never blocks I/O. Each loop has its own bounded lane; once a lane fills up
+// the publishing channels stop reading until the publisher has caught up.
+// Within a batch window a loop packs the messages of each group into one record.
+// With a sequencer, chat messages are numbered per group before they are delivered and sent,
+// the messages of a group drained together reserve their numbers at once and go out as a batch.
+public class MessagePublisher {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MessagePublisher.class);
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final int MAX_BATCH_MESSAGES = 256;
+    private static final int MAX_BATCH_BYTES = 64 * 1024;
+    private final long serverID;
+    private final long batchWindow;
+    private final MessageService messageService;
+    private final InboxService inbox;
+    private final GroupInterest interest;
+    private final MetaService sequencer;
+    // numbered messages waiting to be delivered and sent, by group
+    private final Map<String, GroupOrder> orders;
+    private final Lane[] lanes;
+    private final Map<EventExecutor, Lane> executorLanes;
+    private final Worker[] workers;
+    private final AtomicLong failures;
+    private volatile boolean running;
+
+    public MessagePublisher(ServerConfigGetter config,
+                            MessageService messageService,
+                            EventLoopGroup workerGroup,
+                            InboxService inbox,
+                            GroupInterest interest,
+                            MetaService sequencer) {
+        this.serverID = config.getId();
+        this.batchWindow = config.getPublisherBatchWindow(5);
+        this.messageService = messageService;
+        this.inbox = inbox;
+        this.interest = interest;
+        this.sequencer = sequencer;
+        this.orders = new ConcurrentHashMap<>();
+        int capacity = config.getPublisherQueueCapacity(4096);
+        List<Lane> list = new ArrayList<>();
+        for (EventExecutor executor : workerGroup) {
+            list.add(new Lane(executor, capacity));
+        }
+        this.lanes = list.toArray(new Lane[list.size()]);
+        this.executorLanes = new IdentityHashMap<>();
+        for (Lane lane : lanes) {
+            executorLanes.put(lane.executor, lane);
+        }
+        int threads = Math.max(1, Math.min(config.getPublisherThreads(1), lanes.length));
+        this.workers = new Worker[threads];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Worker();
+        }
+        // lanes are striped across publisher threads
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i].worker = workers[i % workers.length];
+            lanes[i].worker.lanes.add(lanes[i]);
+        }
+        this.failures = new AtomicLong();
+        this.running = false;
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        for (int i = 0; i < workers.length; i++) {
+            workers[i].thread = new Thread(workers[i], "chat-publisher-" + i);
+            workers[i].thread.setDaemon(true);
+            workers[i].thread.start();
+        }
+    }
+
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        for (Worker worker : workers) {
+            LockSupport.unpark(worker.thread);
+        }
+        for (Worker worker : workers) {
+            try {
+                worker.thread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    // hands pending batches and overflowed tasks to the publisher threads, called once the
+    // event loops have terminated, so what they queued while closing channels is kept
+    public void flush() {
+        for (Lane lane : lanes) {
+            if (!lane.executor.isTerminated()) {
+                LOGGER.warn("Event loop not terminated, its message batches are not flushed.");
+                continue;
+            }
+            // nothing runs on the loop any more, the lane is ours
+            lane.flush();
+            Task task;
+            while ((task = lane.overflow.poll()) != null) {
+                while (!lane.queue.offer(task)) {
+                    if (!running) {
+                        send(task);
+                        break;
+                    }
+                    lane.worker.wakeup();
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+            }
+            lane.worker.wakeup();
+        }
+    }
+
+    public long failures() {
+        return failures.get();
+    }
+
+    // called on the channel's event loop
+    public void publish(Channel channel, String user, Chat.Group group, MessageRecord record) {
+        Lane lane = executorLanes.get(channel.eventLoop());
+        if (lane == null) {
+            send(new Task(user, group, record));
+            return;
+        }
+        // control events are sent as they come, batches carry chat only
+        if (batchWindow > 0 && !MessageHeaders.isControl(record.getHeaders())) {
+            lane.batch(channel, user, group, record);
+        } else {
+            lane.offer(channel, new Task(user, group, record));
+        }
+    }
+
+    public boolean isSequenced() {
+        return sequencer != null;
+    }
+
+    // called on the channel's event loop, the message is handed to deliver once numbered,
+    // on a publisher thread and in sequence order within its group
+    public void publishSequenced(Channel channel, String user, Chat.Group group,
+                                 Chat.Message message, BiConsumer<Chat.Message, byte[]> deliver) {
+        Task task = new Task(user, group, message, deliver);
+        Lane lane = executorLanes.get(channel.eventLoop());
+        if (lane == null) {
+            send(task);
+        } else {
+            lane.offer(channel, task);
+        }
+    }
+
+    // tasks of one group in queue order, numbers are reserved under the group's lock, the
+    // thread finding no one else sending then delivers and sends the reserved blocks in order
+    private void sendSequenced(List<Task> tasks) {
+        String groupID = tasks.get(0).group.getId();
+        GroupOrder order;
+        while (true) {
+            order = orders.computeIfAbsent(groupID, key -> new GroupOrder());
+            synchronized (order) {
+                if (order.removed) {
+                    continue;
+                }
+                long seq = -1L;
+                try {
+                    seq = sequencer.nextSequence(groupID, tasks.size()) - tasks.size();
+                } catch (RuntimeException e) {
+                    LOGGER.error("Number messages of group {} error, sent without sequence.", groupID, e);
+                }
+                order.blocks.add(new Block(tasks, seq));
+                if (order.sending) {
+                    return;
+                }
+                order.sending = true;
+                break;
+            }
+        }
+        while (true) {
+            Block block;
+            synchronized (order) {
+                block = order.blocks.poll();
+                if (block == null) {
+                    order.sending = false;
+                    order.removed = true;
+                    orders.remove(groupID, order);
+                    return;
+                }
+            }
+            try {
+                sendBlock(block);
+            } catch (RuntimeException e) {
+                // the blocks queued behind still go out
+                failures.incrementAndGet();
+                LOGGER.error("Send numbered messages of group {} error.", groupID, e);
+            }
+        }
+    }
+
+    private void sendBlock(Block block) {
+        Task first = block.tasks.get(0);
+        String groupID = first.group.getId();
+        long seq = block.seq;
+        Batch batch = new Batch(first.user, first.group);
+        for (Task task : block.tasks) {
+            Chat.Message message = seq < 0 ? task.message : task.message.toBuilder().setSeq(++seq).build();
+            byte[] bytes = message.toByteArray();
+            task.deliver.accept(message, bytes);
+            MessageRecord record = new MessageRecord(groupID, bytes, MessageHeaders.of(message));
+            if (batchWindow <= 0) {
+                send(new Task(task.user, task.group, record));
+                continue;
+            }
+            batch.add(record);
+            if (batch.messages.size() >= MAX_BATCH_MESSAGES || batch.bytes >= MAX_BATCH_BYTES) {
+                send(batch.toTask(serverID));
+                batch = new Batch(first.user, first.group);
+            }
+        }
+        if (!batch.messages.isEmpty()) {
+            send(batch.toTask(serverID));
+        }
+    }
+
+    private void send(Task task) {
+        if (task.message != null) {
+            sendSequenced(Collections.singletonList(task));
+            return;
+        }
+        SendCallback callback = cause -> {
+            if (cause != null) {
+                failures.incrementAndGet();
+                LOGGER.error("Send message of group {} error.", task.group.getId(), cause);
+            }
+        };
+        try {
+            messageService.send(task.user, task.group, task.record, callback);
+            if (inbox != null) {
+                // live copies only go to servers having members of the group
+                for (long server : interest.servers(task.group.getId())) {
+                    if (server != serverID) {
+                        inbox.sendToInbox(server, task.group, task.record, callback);
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            failures.incrementAndGet();
+            LOGGER.error("Send message of group {} error.", task.group.getId(), e);
+        }
+    }
+
+    private final class Worker implements Runnable {
+        private final List<Lane> lanes = new ArrayList<>();
+        private final AtomicBoolean parked = new AtomicBoolean(false);
+        private volatile Thread thread;
+
+        void wakeup() {
+            if (parked.get() && parked.compareAndSet(true, false)) {
+                LockSupport.unpark(thread);
+            }
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                int sent = 0;
+                for (Lane lane : lanes) {
+                    sent += lane.drain();
+                }
+                if (sent == 0) {
+                    parked.set(true);
+                    if (isEmpty()) {
+                        LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                    }
+                    parked.set(false);
+                }
+            }
+            // flush whatever the loops managed to queue before shutting down
+            for (Lane lane : lanes) {
+                while (lane.drain() > 0) {
+                }
+            }
+            LOGGER.info("Message publisher {} stopped.", Thread.currentThread().getName());
+        }
+
+        private boolean isEmpty() {
+            for (Lane lane : lanes) {
+                if (!lane.queue.isEmpty()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private final class Lane implements Runnable {
+        private final EventExecutor executor;
+        private final int highWaterMark;
+        private final int lowWaterMark;
+        private final int overflowLimit;
+        // overflow size to warn at next, doubles with every warning
+        private int overflowAlarm;
+        private final Queue<Task> queue;
+        // owned by the event loop
+        private final Queue<Task> overflow;
+        private final Set<Channel> paused;
+        private final AtomicBoolean resuming;
+        private final Map<String, Batch> batches;
+        private final Runnable flushTask;
+        private boolean flushScheduled;
+        private volatile boolean backpressure;
+        private Worker worker;
+        // owned by the publisher thread, messages to number by group
+        private final Map<String, List<Task>> sequenced;
+
+        Lane(EventExecutor executor, int capacity) {
+            this.executor = executor;
+            this.highWaterMark = Math.max(1, capacity * 3 / 4);
+            this.lowWaterMark = capacity / 4;
+            // reads already in flight when the channels were paused, bounded by the read
+            // buffers of the paused channels, growing past this is warned about
+            this.overflowLimit = Math.max(1, capacity);
+            this.overflowAlarm = overflowLimit;
+            this.queue = PlatformDependent.newFixedMpscQueue(capacity);
+            this.overflow = new ArrayDeque<>();
+            this.paused = new LinkedHashSet<>();
+            this.resuming = new AtomicBoolean(false);
+            this.batches = new LinkedHashMap<>();
+            this.flushTask = this::flush;
+            this.flushScheduled = false;
+            this.backpressure = false;
+            this.sequenced = new LinkedHashMap<>();
+        }
+
+        void batch(Channel channel, String user, Chat.Group group, MessageRecord record) {
+            String groupID = group.getId();
+            Batch batch = batches.get(groupID);
+            if (batch == null) {
+                batch = new Batch(user, group);
+                batches.put(groupID, batch);
+            }
+            batch.add(record);
+            if (batch.messages.size() >= MAX_BATCH_MESSAGES || batch.bytes >= MAX_BATCH_BYTES) {
+                batches.remove(groupID);
+                enqueue(batch.toTask(serverID));
+            } else if (!flushScheduled) {
+                flushScheduled = true;
+                executor.schedule(flushTask, batchWindow, TimeUnit.MILLISECONDS);
+            }
+            pauseIfFull(channel);
+        }
+
+        private void flush() {
+            flushScheduled = false;
+            for (Batch batch : batches.values()) {
+                enqueue(batch.toTask(serverID));
+            }
+            batches.clear();
+        }
+
+        void offer(Channel channel, Task task) {
+            enqueue(task);
+            pauseIfFull(channel);
+        }
+
+        private void enqueue(Task task) {
+            if (!overflow.isEmpty() || !queue.offer(task)) {
+                // keep what was already read, the channel is paused below
+                overflow.add(task);
+                if (overflow.size() >= overflowAlarm) {
+                    LOGGER.warn("Publisher lane overflow holds {} messages, {} channels paused.",
+                            overflow.size(), paused.size());
+                    overflowAlarm = overflowAlarm > Integer.MAX_VALUE / 2 ? Integer.MAX_VALUE : overflowAlarm * 2;
+                }
+            }
+            worker.wakeup();
+        }
+
+        private void pauseIfFull(Channel channel) {
+            if (!overflow.isEmpty() || queue.size() >= highWaterMark) {
+                if (channel.config().isAutoRead()) {
+                    channel.config().setAutoRead(false);
+                    paused.add(channel);
+                }
+                backpressure = true;
+            }
+        }
+
+        // called by the publisher thread
+        int drain() {
+            int sent = 0;
+            Task task;
+            while ((task = queue.poll()) != null) {
+                sent++;
+                if (task.message == null) {
+                    // keeps the queue order
+                    sendNumbered();
+                    send(task);
+                    continue;
+                }
+                List<Task> tasks = sequenced.computeIfAbsent(task.group.getId(), key -> new ArrayList<>());
+                tasks.add(task);
+                if (tasks.size() >= MAX_BATCH_MESSAGES) {
+                    sendNumbered();
+                }
+            }
+            sendNumbered();
+            if (backpressure && queue.size() <= lowWaterMark && resuming.compareAndSet(false, true)) {
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    resuming.set(false);
+                }
+            }
+            return sent;
+        }
+
+        private void sendNumbered() {
+            if (sequenced.isEmpty()) {
+                return;
+            }
+            for (List<Task> tasks : sequenced.values()) {
+                sendSequenced(tasks);
+            }
+            sequenced.clear();
+        }
+
+        // resumes reading on the event loop once the lane has drained
+        @Override
+        public void run() {
+            resuming.set(false);
+            Task task;
+            while ((task = overflow.peek()) != null && queue.offer(task)) {
+                overflow.poll();
+            }
+            worker.wakeup();
+            if (overflow.isEmpty()) {
+                overflowAlarm = overflowLimit;
+            }
+            if (!overflow.isEmpty() || queue.size() >= highWaterMark) {
+                return;
+            }
+            backpressure = false;
+            for (Channel channel : paused) {
+                if (channel.isActive()) {
+                    channel.config().setAutoRead(true);
+                }
+            }
+            paused.clear();
+        }
+    }
+
+    private static final class Batch {
+        final String user;
+        final Chat.Group group;
+        final List<byte[]> messages;
+        MessageHeaders headers;
+        int bytes;
+
+        Batch(String user, Chat.Group group) {
+            this.user = user;
+            this.group = group;
+            this.messages = new ArrayList<>();
+            this.bytes = 0;
+        }
+
+        void add(MessageRecord record) {
+            byte[] message = (byte[]) record.getValue();
+            if (messages.isEmpty()) {
+                headers = record.getHeaders();
+            }
+            messages.add(message);
+            bytes += message.length;
+        }
+
+        Task toTask(long serverID) {
+            String groupID = group.getId();
+            if (messages.size() > 1) {
+                headers = new MessageHeaders(serverID, groupID, Chat.MessageType.BATCH);
+            }
+            return new Task(user, group, new MessageRecord(groupID, MessageEnvelope.pack(groupID, serverID, messages), headers));
+        }
+    }
+
+    private static final class GroupOrder {
+        final Queue<Block> blocks = new ArrayDeque<>();
+        // a thread is delivering the blocks
+        boolean sending;
+        // dropped from the map, callers look up a new one
+        boolean removed;
+    }
+
+    private static final class Block {
+        final List<Task> tasks;
+        // number before the first task, negative when numbering failed
+        final long seq;
+
+        Block(List<Task> tasks, long seq) {
+            this.tasks = tasks;
+            this.seq = seq;
+        }
+    }
+
+    private static final class Task {
+        final String user;
+        final Chat.Group group;
+        final MessageRecord record;
+        // set for messages still to be numbered
+        final Chat.Message message;
+        final BiConsumer<Chat.Message, byte[]> deliver;
+
+        Task(String user, Chat.Group group, MessageRecord record) {
+            this.user = user;
+            this.group = group;
+            this.record = record;
+            this.message = null;
+            this.deliver = null;
+        }
+
+        Task(String user, Chat.Group group, Chat.Message message, BiConsumer<Chat.Message, byte[]> deliver) {
+            this.user = user;
+            this.group = group;
+            this.record = null;
+            this.message = message;
+            this.deliver = deliver;
+        }
+    }
+}
@@ -78,4 +78,25 @@ public class ActiveMQConfig {
     public int getConsumerCommitInterval(int defaultValue) {
         return config.getInteger("activemq.consumer.commit_interval", defaultValue);
     }
+
+    public long getPresenceTtl() {
+        return getPresenceTtl(0);
+    }
+    public long getPresenceTtl(long defaultValue) {
+        return config.getLong("activemq.presence.ttl", defaultValue);
+    }
+
+    public boolean getProducerCompression() {
+        return getProducerCompression(false);
+    }
+    public boolean getProducerCompression(boolean defaultValue) {
+        return config.getBoolean("activemq.producer.compression", defaultValue);
+    }
+
+    public long getConsumerPollTimeout() {
+        return getConsumerPollTimeout(0);
+    }
+    public long getConsumerPollTimeout(long defaultValue) {
+        return config.getLong("activemq.consumer.poll_timeout", defaultValue);
+    }
 }
@@ -0,0 +1,64 @@
+package com.github.sosozhuang.conf;
+
+public class FileConfig {
+    private Configuration config;
+    public FileConfig(Configuration config) {
+        this.config = config;
+    }
+
+    public String getDir() {
+        return getDir(null);
+    }
+    public String getDir(String defaultValue) {
+        return config.getString("file.dir", defaultValue);
+    }
+
+    public int getSegmentSize() {
+        return getSegmentSize(0);
+    }
+    public int getSegmentSize(int defaultValue) {
+        return config.getInteger("file.segment_size", defaultValue);
+    }
+
+    public long getRetention() {
+        return getRetention(0);
+    }
+    public long getRetention(long defaultValue) {
+        return config.getLong("file.retention", defaultValue);
+    }
+
+    public long getFlushInterval() {
+        return getFlushInterval(0);
+    }
+    public long getFlushInterval(long defaultValue) {
+        return config.getLong("file.flush_interval", defaultValue);
+    }
+
+    public int getBatch() {
+        return getBatch(0);
+    }
+    public int getBatch(int defaultValue) {
+        return config.getInteger("file.batch", defaultValue);
+    }
+
+    public long getPollTimeout() {
+        return getPollTimeout(0);
+    }
+    public long getPollTimeout(long defaultValue) {
+        return config.getLong("file.poll_timeout", defaultValue);
+    }
+
+    public long getIdleTimeout() {
+        return getIdleTimeout(0);
+    }
+    public long getIdleTimeout(long defaultValue) {
+        return config.getLong("file.idle_timeout", defaultValue);
+    }
+
+    public int getIndexMaxEntries() {
+        return getIndexMaxEntries(0);
+    }
+    public int getIndexMaxEntries(int defaultValue) {
+        return config.getInteger("file.index.max_entries", defaultValue);
+    }
+}
@@ -0,0 +1,57 @@
+package com.github.sosozhuang.conf;
+
+public class JournalConfig {
+    private Configuration config;
+    public JournalConfig(Configuration config) {
+        this.config = config;
+    }
+
+    public boolean getEnable() {
+        return getEnable(false);
+    }
+    public boolean getEnable(boolean defaultValue) {
+        return config.getBoolean("journal.enable", defaultValue);
+    }
+
+    public String getDir() {
+        return getDir(null);
+    }
+    public String getDir(String defaultValue) {
+        return config.getString("journal.dir", defaultValue);
+    }
+
+    public int getSegmentSize() {
+        return getSegmentSize(0);
+    }
+    public int getSegmentSize(int defaultValue) {
+        return config.getInteger("journal.segment_size", defaultValue);
+    }
+
+    public int getBatch() {
+        return getBatch(0);
+    }
+    public int getBatch(int defaultValue) {
+        return config.getInteger("journal.batch", defaultValue);
+    }
+
+    public long getRetryBackoff() {
+        return getRetryBackoff(0);
+    }
+    public long getRetryBackoff(long defaultValue) {
+        return config.getLong("journal.retry_backoff", defaultValue);
+    }
+
+    public long getMaxRetryBackoff() {
+        return getMaxRetryBackoff(0);
+    }
+    public long getMaxRetryBackoff(long defaultValue) {
+        return config.getLong("journal.max_retry_backoff", defaultValue);
+    }
+
+    public long getFlushInterval() {
+        return getFlushInterval(0);
+    }
+    public long getFlushInterval(long defaultValue) {
+        return config.getLong("journal.flush_interval", defaultValue);
+    }
+}
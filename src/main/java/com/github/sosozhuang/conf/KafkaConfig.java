@@ -34,6 +34,27 @@ public class KafkaConfig {
         return config.getInteger("kafka.topic.count", defaultValue);
     }
 
+    public long getRoutingDelay() {
+        return getRoutingDelay(0);
+    }
+    public long getRoutingDelay(long defaultValue) {
+        return config.getLong("kafka.routing.delay", defaultValue);
+    }
+
+    public long getRoutingMigrateWindow() {
+        return getRoutingMigrateWindow(0);
+    }
+    public long getRoutingMigrateWindow(long defaultValue) {
+        return config.getLong("kafka.routing.migrate_window", defaultValue);
+    }
+
+    public long getRoutingRefreshInterval() {
+        return getRoutingRefreshInterval(0);
+    }
+    public long getRoutingRefreshInterval(long defaultValue) {
+        return config.getLong("kafka.routing.refresh_interval", defaultValue);
+    }
+
     public int getTopicPartition() {
         return getTopicPartition(0);
     }
@@ -48,6 +69,34 @@ public class KafkaConfig {
         return config.getShort("kafka.topic.replica", defaultValue);
     }
 
+    public int getInboxPartition() {
+        return getInboxPartition(0);
+    }
+    public int getInboxPartition(int defaultValue) {
+        return config.getInteger("kafka.inbox.partition", defaultValue);
+    }
+
+    public long getInboxRetention() {
+        return getInboxRetention(0);
+    }
+    public long getInboxRetention(long defaultValue) {
+        return config.getLong("kafka.inbox.retention", defaultValue);
+    }
+
+    public int getPresencePartition() {
+        return getPresencePartition(0);
+    }
+    public int getPresencePartition(int defaultValue) {
+        return config.getInteger("kafka.presence.partition", defaultValue);
+    }
+
+    public long getPresenceRetention() {
+        return getPresenceRetention(0);
+    }
+    public long getPresenceRetention(long defaultValue) {
+        return config.getLong("kafka.presence.retention", defaultValue);
+    }
+
     public String getConsumerGroupId() {
         return getConsumerGroupId(null);
     }
@@ -68,4 +117,74 @@ public class KafkaConfig {
     public long getConsumerCloseTimeout(long defaultValue) {
         return config.getLong("kafka.consumer.close_timeout", defaultValue);
     }
+
+    public int getReplayReaders() {
+        return getReplayReaders(0);
+    }
+    public int getReplayReaders(int defaultValue) {
+        return config.getInteger("kafka.replay.readers", defaultValue);
+    }
+
+    public int getReplayBufferSize() {
+        return getReplayBufferSize(0);
+    }
+    public int getReplayBufferSize(int defaultValue) {
+        return config.getInteger("kafka.replay.buffer_size", defaultValue);
+    }
+
+    public long getReplayIdleTimeout() {
+        return getReplayIdleTimeout(0);
+    }
+    public long getReplayIdleTimeout(long defaultValue) {
+        return config.getLong("kafka.replay.idle_timeout", defaultValue);
+    }
+
+    public String getProducerCompression() {
+        return getProducerCompression(null);
+    }
+    public String getProducerCompression(String defaultValue) {
+        return config.getString("kafka.producer.compression", defaultValue);
+    }
+
+    public int getProducerBatchSize() {
+        return getProducerBatchSize(0);
+    }
+    public int getProducerBatchSize(int defaultValue) {
+        return config.getInteger("kafka.producer.batch_size", defaultValue);
+    }
+
+    public long getProducerLinger() {
+        return getProducerLinger(0);
+    }
+    public long getProducerLinger(long defaultValue) {
+        return config.getLong("kafka.producer.linger", defaultValue);
+    }
+
+    public boolean getIndexEnable() {
+        return getIndexEnable(false);
+    }
+    public boolean getIndexEnable(boolean defaultValue) {
+        return config.getBoolean("kafka.index.enable", defaultValue);
+    }
+
+    public String getIndexDir() {
+        return getIndexDir(null);
+    }
+    public String getIndexDir(String defaultValue) {
+        return config.getString("kafka.index.dir", defaultValue);
+    }
+
+    public int getIndexRetentionDays() {
+        return getIndexRetentionDays(0);
+    }
+    public int getIndexRetentionDays(int defaultValue) {
+        return config.getInteger("kafka.index.retention_days", defaultValue);
+    }
+
+    public int getIndexMaxGroups() {
+        return getIndexMaxGroups(0);
+    }
+    public int getIndexMaxGroups(int defaultValue) {
+        return config.getInteger("kafka.index.max_groups", defaultValue);
+    }
 }
@@ -0,0 +1,36 @@
+package com.github.sosozhuang.conf;
+
+public class MemoryConfig {
+    private Configuration config;
+    public MemoryConfig(Configuration config) {
+        this.config = config;
+    }
+
+    public int getCapacity() {
+        return getCapacity(0);
+    }
+    public int getCapacity(int defaultValue) {
+        return config.getInteger("memory.capacity", defaultValue);
+    }
+
+    public int getBatch() {
+        return getBatch(0);
+    }
+    public int getBatch(int defaultValue) {
+        return config.getInteger("memory.batch", defaultValue);
+    }
+
+    public long getPollTimeout() {
+        return getPollTimeout(0);
+    }
+    public long getPollTimeout(long defaultValue) {
+        return config.getLong("memory.poll_timeout", defaultValue);
+    }
+
+    public long getIdleTimeout() {
+        return getIdleTimeout(0);
+    }
+    public long getIdleTimeout(long defaultValue) {
+        return config.getLong("memory.idle_timeout", defaultValue);
+    }
+}
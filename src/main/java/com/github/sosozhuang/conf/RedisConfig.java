@@ -76,4 +76,60 @@ public class RedisConfig {
         return config.getString("redis.key.separator", defaultValue);
     }
 
+    public int getStreamShard() {
+        return getStreamShard(0);
+    }
+    public int getStreamShard(int defaultValue) {
+        return config.getInteger("redis.stream.shard", defaultValue);
+    }
+
+    public long getStreamLiveLength() {
+        return getStreamLiveLength(0);
+    }
+    public long getStreamLiveLength(long defaultValue) {
+        return config.getLong("redis.stream.live_length", defaultValue);
+    }
+
+    public long getStreamHistoryLength() {
+        return getStreamHistoryLength(0);
+    }
+    public long getStreamHistoryLength(long defaultValue) {
+        return config.getLong("redis.stream.history_length", defaultValue);
+    }
+
+    public long getStreamRetention() {
+        return getStreamRetention(0);
+    }
+    public long getStreamRetention(long defaultValue) {
+        return config.getLong("redis.stream.retention", defaultValue);
+    }
+
+    public int getStreamBatch() {
+        return getStreamBatch(0);
+    }
+    public int getStreamBatch(int defaultValue) {
+        return config.getInteger("redis.stream.batch", defaultValue);
+    }
+
+    public long getStreamPollTimeout() {
+        return getStreamPollTimeout(0);
+    }
+    public long getStreamPollTimeout(long defaultValue) {
+        return config.getLong("redis.stream.poll_timeout", defaultValue);
+    }
+
+    public long getStreamBlockTimeout() {
+        return getStreamBlockTimeout(0);
+    }
+    public long getStreamBlockTimeout(long defaultValue) {
+        return config.getLong("redis.stream.block_timeout", defaultValue);
+    }
+
+    public long getStreamIdleTimeout() {
+        return getStreamIdleTimeout(0);
+    }
+    public long getStreamIdleTimeout(long defaultValue) {
+        return config.getLong("redis.stream.idle_timeout", defaultValue);
+    }
+
 }
@@ -35,8 +35,24 @@ public class ServerConfig implements ServerConfigGetter {
         return config.getString("server.key", defaultValue);
     }
 
-    public long getExecutorScheduleRate(long defaultValue) {
-        return config.getLong("server.executor.schedule_rate", defaultValue);
+    public int getDispatcherThreads(int defaultValue) {
+        return config.getInteger("server.dispatcher.threads", defaultValue);
+    }
+
+    public int getDispatcherQueueCapacity(int defaultValue) {
+        return config.getInteger("server.dispatcher.queue_capacity", defaultValue);
+    }
+
+    public int getPublisherThreads(int defaultValue) {
+        return config.getInteger("server.publisher.threads", defaultValue);
+    }
+
+    public int getPublisherQueueCapacity(int defaultValue) {
+        return config.getInteger("server.publisher.queue_capacity", defaultValue);
+    }
+
+    public long getPublisherBatchWindow(long defaultValue) {
+        return config.getLong("server.publisher.batch_window", defaultValue);
     }
 
     public boolean getIdleClose(boolean defaultValue) {
@@ -64,6 +80,91 @@ public class ServerConfig implements ServerConfigGetter {
         return config.getLong("server.traffic.limit", defaultValue);
     }
 
+    @Override
+    public String getCompressionMode(String defaultValue) {
+        return config.getString("server.compression.mode", defaultValue);
+    }
+
+    @Override
+    public int getCompressionLevel(int defaultValue) {
+        return config.getInteger("server.compression.level", defaultValue);
+    }
+
+    @Override
+    public boolean getBroadcastPreFramed(boolean defaultValue) {
+        return config.getBoolean("server.broadcast.pre_framed", defaultValue);
+    }
+
+    @Override
+    public boolean getGroupAffinity(boolean defaultValue) {
+        return config.getBoolean("server.group.affinity", defaultValue);
+    }
+
+    @Override
+    public boolean getInterestRouting(boolean defaultValue) {
+        return config.getBoolean("server.interest.routing", defaultValue);
+    }
+
+    @Override
+    public long getInterestTtl(long defaultValue) {
+        return config.getLong("server.interest.ttl", defaultValue);
+    }
+
+    @Override
+    public boolean getHistoryEnable(boolean defaultValue) {
+        return config.getBoolean("server.history.enable", defaultValue);
+    }
+
+    @Override
+    public int getHistoryCapacity(int defaultValue) {
+        return config.getInteger("server.history.capacity", defaultValue);
+    }
+
+    @Override
+    public long getHistoryWindow(long defaultValue) {
+        return config.getLong("server.history.window", defaultValue);
+    }
+
+    @Override
+    public long getHistoryMaxBytes(long defaultValue) {
+        return config.getLong("server.history.max_bytes", defaultValue);
+    }
+
+    @Override
+    public boolean getSequenceEnable(boolean defaultValue) {
+        return config.getBoolean("server.sequence.enable", defaultValue);
+    }
+
+    @Override
+    public long getSequenceResumeSlack(long defaultValue) {
+        return config.getLong("server.sequence.resume_slack", defaultValue);
+    }
+
+    @Override
+    public int getReplayRecent(int defaultValue) {
+        return config.getInteger("server.replay.recent", defaultValue);
+    }
+
+    @Override
+    public int getReplayMaxPage(int defaultValue) {
+        return config.getInteger("server.replay.max_page", defaultValue);
+    }
+
+    @Override
+    public int getReplayReaders(int defaultValue) {
+        return config.getInteger("server.replay.readers", defaultValue);
+    }
+
+    @Override
+    public int getWriteBufferLow(int defaultValue) {
+        return config.getInteger("server.write_buffer.low", defaultValue);
+    }
+
+    @Override
+    public int getWriteBufferHigh(int defaultValue) {
+        return config.getInteger("server.write_buffer.high", defaultValue);
+    }
+
     @Override
     public String toString() {
         return config.toString();
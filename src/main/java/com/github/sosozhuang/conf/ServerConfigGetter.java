@@ -35,10 +35,30 @@ public interface ServerConfigGetter {
     }
     public String getKey(String defaultValue);
 
-    default public long getExecutorScheduleRate() {
-        return getExecutorScheduleRate(0);
+    default public int getDispatcherThreads() {
+        return getDispatcherThreads(1);
     }
-    public long getExecutorScheduleRate(long defaultValue);
+    public int getDispatcherThreads(int defaultValue);
+
+    default public int getDispatcherQueueCapacity() {
+        return getDispatcherQueueCapacity(4096);
+    }
+    public int getDispatcherQueueCapacity(int defaultValue);
+
+    default public int getPublisherThreads() {
+        return getPublisherThreads(1);
+    }
+    public int getPublisherThreads(int defaultValue);
+
+    default public int getPublisherQueueCapacity() {
+        return getPublisherQueueCapacity(4096);
+    }
+    public int getPublisherQueueCapacity(int defaultValue);
+
+    default public long getPublisherBatchWindow() {
+        return getPublisherBatchWindow(5);
+    }
+    public long getPublisherBatchWindow(long defaultValue);
 
     default public boolean getIdleClose() {
         return getIdleClose(false);
@@ -69,4 +89,89 @@ public interface ServerConfigGetter {
         return getTrafficLimit(0);
     }
     public long getTrafficLimit(long defaultValue);
+
+    default public String getCompressionMode() {
+        return getCompressionMode(null);
+    }
+    public String getCompressionMode(String defaultValue);
+
+    default public int getCompressionLevel() {
+        return getCompressionLevel(6);
+    }
+    public int getCompressionLevel(int defaultValue);
+
+    default public boolean getBroadcastPreFramed() {
+        return getBroadcastPreFramed(false);
+    }
+    public boolean getBroadcastPreFramed(boolean defaultValue);
+
+    default public boolean getInterestRouting() {
+        return getInterestRouting(false);
+    }
+    public boolean getInterestRouting(boolean defaultValue);
+
+    default public long getInterestTtl() {
+        return getInterestTtl(60000);
+    }
+    public long getInterestTtl(long defaultValue);
+
+    default public boolean getGroupAffinity() {
+        return getGroupAffinity(false);
+    }
+    public boolean getGroupAffinity(boolean defaultValue);
+
+    default public boolean getHistoryEnable() {
+        return getHistoryEnable(false);
+    }
+    public boolean getHistoryEnable(boolean defaultValue);
+
+    default public int getHistoryCapacity() {
+        return getHistoryCapacity(256);
+    }
+    public int getHistoryCapacity(int defaultValue);
+
+    default public long getHistoryWindow() {
+        return getHistoryWindow(600000);
+    }
+    public long getHistoryWindow(long defaultValue);
+
+    default public long getHistoryMaxBytes() {
+        return getHistoryMaxBytes(67108864);
+    }
+    public long getHistoryMaxBytes(long defaultValue);
+
+    default public boolean getSequenceEnable() {
+        return getSequenceEnable(false);
+    }
+    public boolean getSequenceEnable(boolean defaultValue);
+
+    default public long getSequenceResumeSlack() {
+        return getSequenceResumeSlack(60000);
+    }
+    public long getSequenceResumeSlack(long defaultValue);
+
+    default public int getReplayRecent() {
+        return getReplayRecent(50);
+    }
+    public int getReplayRecent(int defaultValue);
+
+    default public int getReplayMaxPage() {
+        return getReplayMaxPage(100);
+    }
+    public int getReplayMaxPage(int defaultValue);
+
+    default public int getReplayReaders() {
+        return getReplayReaders(2);
+    }
+    public int getReplayReaders(int defaultValue);
+
+    default public int getWriteBufferLow() {
+        return getWriteBufferLow(32768);
+    }
+    public int getWriteBufferLow(int defaultValue);
+
+    default public int getWriteBufferHigh() {
+        return getWriteBufferHigh(65536);
+    }
+    public int getWriteBufferHigh(int defaultValue);
 }
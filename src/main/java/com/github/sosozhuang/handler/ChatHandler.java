@@ -1,59 +1,150 @@
 package com.github.sosozhuang.handler;
 
+import com.github.sosozhuang.MessagePublisher;
 import com.github.sosozhuang.protobuf.Chat;
+import com.github.sosozhuang.service.HistoryService;
+import com.github.sosozhuang.service.MessageEnvelope;
+import com.github.sosozhuang.service.MessageHeaders;
 import com.github.sosozhuang.service.MessageRecord;
 import com.github.sosozhuang.service.MessageService;
 import com.github.sosozhuang.service.MetaService;
 import com.google.protobuf.InvalidProtocolBufferException;
-import com.google.protobuf.Message;
-import com.googlecode.protobuf.format.JsonFormat;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.EventLoop;
 import io.netty.channel.SimpleChannelInboundHandler;
-import io.netty.channel.group.ChannelGroup;
-import io.netty.channel.group.DefaultChannelGroup;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
 import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
 import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketServerProtocolHandler;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketExtensionEncoder;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.timeout.IdleStateHandler;
+import io.netty.handler.traffic.ChannelTrafficShapingHandler;
+import io.netty.util.AttributeKey;
 import io.netty.util.concurrent.Future;
 import io.netty.util.concurrent.GenericFutureListener;
-import io.netty.util.concurrent.GlobalEventExecutor;
 import io.netty.util.internal.StringUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 
 public class ChatHandler extends SimpleChannelInboundHandler<WebSocketFrame> {
     private static final Logger LOGGER = LoggerFactory.getLogger(ChatHandler.class);
-    private static final Map<String, ChannelGroup> CHANNEL_GROUP_MAP = new ConcurrentHashMap<>();
-    private static final JsonFormat JSON_FORMAT = new JsonFormat();
-    private ChannelGroup channels;
+    public static final String JSON_SUBPROTOCOL = "chat.json";
+    public static final String PROTOBUF_SUBPROTOCOL = "chat.protobuf";
+    public static final String SUBPROTOCOLS = PROTOBUF_SUBPROTOCOL + "," + JSON_SUBPROTOCOL;
+    private static final AttributeKey<Boolean> BINARY = AttributeKey.valueOf("chat.binary");
+    private static final AttributeKey<SharedDeflateEncoder> DEFLATE = AttributeKey.valueOf("chat.deflate");
+    private static final AttributeKey<ChannelHandlerContext> WIRE = AttributeKey.valueOf("chat.wire");
+    private static final String WEBSOCKET_ENCODER = "wsencoder";
+    // ":history <before> [size]" asks for a page of messages created before the time,
+    // ":history <time>:<skip> [size]" for one created at or before it, less the newest skip
+    // created at the time, which the client has already
+    private static final String HISTORY_COMMAND = ":history";
+    // replayed frames are flushed every this many bytes
+    private static final int REPLAY_FLUSH_BYTES = 16 * 1024;
+    private static final long REPLAY_POLL_INTERVAL = 80;
+    // a message is stored a little after it is created, history is read from this much later
+    private static final long HISTORY_STORE_SLACK = 5000L;
+    // older pages read to count unread messages on login, beyond them the count is a lower bound
+    private static final int UNREAD_COUNT_PAGES = 4;
+    private static final GroupRegistry GROUP_REGISTRY = new GroupRegistry();
+    private ShardedChannelGroup channels;
+    private long groupKey;
     private Chat.Group group;
     private String user;
     private final long serverID;
     private final MetaService metaService;
     private final MessageService messageService;
-    private int i;
+    private final MessagePublisher publisher;
+    private final boolean preFramed;
+    private final GroupAffinity affinity;
+    private final GroupInterest interest;
+    private final GroupHistory history;
+    private final long resumeSlack;
+    private final HistoryService historyService;
+    // reads history pages off the event loop
+    private final Executor historyReaders;
+    private final int replayRecent;
+    private final int maxPage;
+    // sequence of the last message the client has, 0 to replay by last login time
+    private long resumeSeq;
+    private Replay replay;
+    private boolean bound;
 
-    public ChatHandler(long serverID, MetaService metaService, MessageService messageService) {
+    public ChatHandler(long serverID, MetaService metaService, MessageService messageService,
+                       MessagePublisher publisher, boolean preFramed,
+                       GroupAffinity affinity, GroupInterest interest, GroupHistory history,
+                       long resumeSlack, HistoryService historyService, Executor historyReaders,
+                       int replayRecent, int maxPage) {
         this.serverID = serverID;
         this.metaService = metaService;
         this.messageService = messageService;
+        this.publisher = publisher;
+        this.preFramed = preFramed;
+        this.affinity = affinity;
+        this.interest = interest;
+        this.history = history;
+        this.resumeSlack = resumeSlack;
+        this.historyService = historyService;
+        this.historyReaders = historyReaders;
+        this.replayRecent = replayRecent;
+        this.maxPage = Math.max(1, maxPage);
+        this.bound = false;
     }
 
-    public static void receiveMessage(Chat.Message message) {
-        ChannelGroup channelGroup = CHANNEL_GROUP_MAP.get(message.getGroupId());
+    public static void receiveMessage(Chat.Message message, byte[] bytes) {
+        long key = GroupRegistry.groupKey(message.getGroupId());
+        ShardedChannelGroup channelGroup = key < 0 ? null : GROUP_REGISTRY.get(key);
         if (channelGroup == null) {
             return;
         }
-        WebSocketFrame out = messageToWebSocketFrame(message);
-        for (Channel c : channelGroup) {
-            c.writeAndFlush(out.retainedDuplicate());
+        channelGroup.broadcast(message, bytes, null);
+    }
+
+    static GroupRegistry groupRegistry() {
+        return GROUP_REGISTRY;
+    }
+
+    public static boolean hasGroup(String groupID) {
+        long key = GroupRegistry.groupKey(groupID);
+        return key >= 0 && GROUP_REGISTRY.get(key) != null;
+    }
+
+    static boolean isBinary(Channel channel) {
+        return Boolean.TRUE.equals(channel.attr(BINARY).get());
+    }
+
+    static SharedDeflateEncoder deflateEncoder(Channel channel) {
+        return channel.attr(DEFLATE).get();
+    }
+
+    static ChannelHandlerContext wireContext(Channel channel) {
+        return channel.attr(WIRE).get();
+    }
+
+    private WebSocketFrame toFrame(ChannelHandlerContext ctx, Chat.Message message, byte[] bytes) {
+        if (isBinary(ctx.channel())) {
+            return messageToBinaryFrame(bytes == null ? message.toByteArray() : bytes);
         }
-        out.release();
+        return messageToWebSocketFrame(message);
     }
 
     private void userLogin(ChannelHandlerContext ctx) {
@@ -63,70 +154,8 @@ public class ChatHandler extends SimpleChannelInboundHandler<WebSocketFrame> {
             return;
         }
 
-        long[] chat = new long[1];
-        long[] lastLoginTime = new long[1];
-        ctx.channel().eventLoop().scheduleAtFixedRate(() -> {
-            if (lastLoginTime[0] == 0L) {
-                String value = metaService.lastLoginTime(groupID, user);
-                if (StringUtil.isNullOrEmpty(value)) {
-                    throw new NoMoreMessageException();
-                }
-
-                try {
-                    lastLoginTime[0] = Math.max(Long.parseLong(value), System.currentTimeMillis() - 30 * 24 * 60 * 60 * 1000L);
-                } catch (NumberFormatException e) {
-                    LOGGER.error("Parse last login time {} error.", value, e);
-                    throw new NoMoreMessageException(e);
-                }
-            }
-
-            Iterable<MessageRecord<String, byte[]>> records = records = messageService.receive(user, group, lastLoginTime[0]);
-            if (records == null) {
-                throw new NoMoreMessageException("time to stop task.");
-            }
-
-            Chat.Message message;
-            long count = 0;
-            for (MessageRecord<String, byte[]> record : records) {
-                count++;
-                try {
-                    message = Chat.Message.parseFrom(record.getValue());
-                } catch (InvalidProtocolBufferException e) {
-                    LOGGER.error("Parse record to message error.", e);
-                    continue;
-                }
-
-                if (Chat.MessageType.CHAT == message.getType() && groupID.equals(message.getGroupId())) {
-                    chat[0]++;
-                    ctx.write(messageToWebSocketFrame(message));
-                }
-            }
-            if (count <= 0) {
-                throw new NoMoreMessageException("time to stop task.");
-            }
-        }, 0, 80, TimeUnit.MILLISECONDS).addListener(future -> {
-            Throwable cause = future.cause();
-            if (cause != null) {
-                if (cause instanceof NoMoreMessageException) {
-                    if (chat[0] > 0) {
-                        Chat.Message.Builder builder = Chat.Message.newBuilder();
-                        builder.setType(Chat.MessageType.UNREAD);
-                        builder.setServerId(serverID);
-                        builder.setGroupId(groupID);
-                        builder.setFromUser("");
-                        builder.setContent(String.valueOf(chat[0]));
-                        builder.setCreateAt(lastLoginTime[0]);
-                        ctx.writeAndFlush(messageToWebSocketFrame(builder.build()));
-                    }
-                    LOGGER.info("Poll unread messages task completed.");
-                    channels.add(ctx.channel());
-                    metaService.setLastLoginTime(groupID, user, String.valueOf(System.currentTimeMillis()));
-                } else {
-                    ctx.fireExceptionCaught(cause);
-                }
-            }
-
-        });
+        replay = new Replay(ctx, groupID);
+        ctx.channel().eventLoop().execute(replay);
 
         Iterable<String> members = metaService.groupMembers(groupID);
         Chat.Message.Builder builder = Chat.Message.newBuilder();
@@ -137,7 +166,7 @@ public class ChatHandler extends SimpleChannelInboundHandler<WebSocketFrame> {
         builder.setContent("");
         builder.setCreateAt(0);
         builder.addAllMembers(members);
-        ctx.writeAndFlush(messageToWebSocketFrame(builder.build()));
+        ctx.writeAndFlush(toFrame(ctx, builder.build(), null));
 
         Instant timestamp = Instant.now();
         builder.clear();
@@ -147,22 +176,261 @@ public class ChatHandler extends SimpleChannelInboundHandler<WebSocketFrame> {
         builder.setFromUser(user);
         builder.setCreateAt(timestamp.toEpochMilli());
         Chat.Message message = builder.build();
+        byte[] bytes = message.toByteArray();
 
-        WebSocketFrame frame = messageToWebSocketFrame(message);
-        for (Channel c : channels) {
-            c.writeAndFlush(frame.retainedDuplicate());
-        }
-        frame.release();
-        messageService.send(user, group, new MessageRecord(group.getId(), message.toByteArray()));
+        channels.broadcast(message, bytes, null);
+        publisher.publish(ctx.channel(), user, group, new MessageRecord(group.getId(), bytes, MessageHeaders.of(message)));
 
         builder.setType(Chat.MessageType.CONFIRM);
         message = builder.build();
-        ctx.writeAndFlush(messageToWebSocketFrame(message));
+        ctx.writeAndFlush(toFrame(ctx, message, null));
+
+    }
+
+    // the group's last limit chat messages from the history service created before the time,
+    // oldest first. The service pages by the time it stored a record, so reading starts a little
+    // later and goes on, from the millisecond the previous read stopped at, until enough messages
+    // have been created before the time, the service runs out, or it is back before since.
+    private List<GroupHistory.Entry> readHistory(String groupID, long before, long since, int limit,
+                                                 Predicate<Chat.Message> filter) {
+        ArrayDeque<GroupHistory.Entry> entries = new ArrayDeque<>();
+        long stored = before >= Long.MAX_VALUE - HISTORY_STORE_SLACK ? Long.MAX_VALUE : before + HISTORY_STORE_SLACK;
+        // records stored at stored - 1 which were read already
+        int skip = 0;
+        while (entries.size() < limit) {
+            List<MessageRecord<String, byte[]>> records = historyService.history(groupID, stored, limit + skip);
+            int end = records.size();
+            for (int read = skip; read > 0 && end > 0 && records.get(end - 1).getTimestamp() == stored - 1; read--) {
+                end--;
+            }
+            for (int i = end - 1; i >= 0 && entries.size() < limit; i--) {
+                addHistory(groupID, records.get(i), before, filter, entries, limit);
+            }
+            long oldest = end == 0 ? 0L : records.get(0).getTimestamp();
+            if (records.size() < limit + skip || oldest <= 0 || oldest < since) {
+                break;
+            }
+            int count = 0;
+            for (int i = 0; i < end && records.get(i).getTimestamp() == oldest; i++) {
+                count++;
+            }
+            skip = oldest == stored - 1 ? skip + count : count;
+            stored = oldest + 1;
+        }
+        return new ArrayList<>(entries);
+    }
+
+    // puts the record's messages in front of the newer ones, newest first until limit
+    private static void addHistory(String groupID, MessageRecord<String, byte[]> record, long before,
+                                   Predicate<Chat.Message> filter, ArrayDeque<GroupHistory.Entry> entries, int limit) {
+        MessageHeaders headers = record.getHeaders();
+        if (headers != null && (!groupID.equals(headers.getGroupID()) || MessageHeaders.isControl(headers))) {
+            return;
+        }
+        try {
+            List<byte[]> messages = MessageEnvelope.unpack(record.getValue());
+            for (int i = messages.size() - 1; i >= 0 && entries.size() < limit; i--) {
+                byte[] bytes = messages.get(i);
+                Chat.Message message = Chat.Message.parseFrom(bytes);
+                if (Chat.MessageType.CHAT == message.getType() && groupID.equals(message.getGroupId())
+                        && message.getCreateAt() < before && filter.test(message)) {
+                    entries.addFirst(new GroupHistory.Entry(message, bytes));
+                }
+            }
+        } catch (InvalidProtocolBufferException e) {
+            LOGGER.error("Parse record to message error.", e);
+        }
+    }
+
+    // up to limit messages created at or before the time, oldest first, less the newest skip
+    // created at the time, a page ending at the same millisecond as the previous one goes on
+    // right where that one stopped. A filter reads from the history service only, which
+    // stops at messages stored before since.
+    private List<GroupHistory.Entry> readPage(String groupID, long before, int skip, int limit,
+                                              long since, Predicate<Chat.Message> filter) {
+        long bound = before == Long.MAX_VALUE ? before : before + 1;
+        List<GroupHistory.Entry> entries = filter == null && history != null ? history.before(groupID, bound, limit + skip) : null;
+        if (entries == null) {
+            entries = historyService == null ? new ArrayList<>()
+                    : readHistory(groupID, bound, since, limit + skip, filter == null ? message -> true : filter);
+        }
+        int end = entries.size();
+        while (skip > 0 && end > 0 && entries.get(end - 1).message.getCreateAt() == before) {
+            end--;
+            skip--;
+        }
+        return entries.subList(Math.max(0, end - limit), end);
+    }
+
+    private static int countAt(List<GroupHistory.Entry> entries, long createAt) {
+        int count = 0;
+        for (GroupHistory.Entry entry : entries) {
+            if (entry.message.getCreateAt() == createAt) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // answers a page request with the messages, then a HISTORY message holding their count
+    // and the time of the oldest one, which is where the next page starts
+    private void sendHistory(ChannelHandlerContext ctx, String arguments) {
+        String[] parts = arguments.split("\\s+");
+        long before;
+        int skip = 0;
+        int size = maxPage;
+        try {
+            int colon = parts[0].indexOf(':');
+            if (parts[0].isEmpty()) {
+                before = Long.MAX_VALUE;
+            } else if (colon < 0) {
+                before = Long.parseLong(parts[0]) - 1;
+            } else {
+                before = Long.parseLong(parts[0].substring(0, colon));
+                skip = Math.max(0, Integer.parseInt(parts[0].substring(colon + 1)));
+            }
+            if (parts.length > 1) {
+                size = Math.min(maxPage, Math.max(1, Integer.parseInt(parts[1])));
+            }
+        } catch (NumberFormatException e) {
+            LOGGER.warn("Invalid history request {}.", arguments);
+            return;
+        }
+        String groupID = group.getId();
+        if (historyService == null || historyReaders == null) {
+            writeHistory(ctx, groupID, readPage(groupID, before, skip, size, 0L, null));
+            return;
+        }
+        long cursor = before;
+        int skipped = skip;
+        int limit = size;
+        try {
+            historyReaders.execute(() -> {
+                List<GroupHistory.Entry> page;
+                try {
+                    page = readPage(groupID, cursor, skipped, limit, 0L, null);
+                } catch (RuntimeException e) {
+                    LOGGER.error("Read history of group {} error.", groupID, e);
+                    page = Collections.emptyList();
+                }
+                List<GroupHistory.Entry> result = page;
+                try {
+                    ctx.channel().eventLoop().execute(() -> writeHistory(ctx, groupID, result));
+                } catch (RejectedExecutionException e) {
+                    LOGGER.debug("Event loop shut down, history page of group {} dropped.", groupID);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            LOGGER.warn("History readers shut down, page of group {} not read.", groupID);
+        }
+    }
+
+    private void writeHistory(ChannelHandlerContext ctx, String groupID, List<GroupHistory.Entry> page) {
+        for (GroupHistory.Entry entry : page) {
+            ctx.write(toFrame(ctx, entry.message, entry.bytes));
+        }
+        Chat.Message.Builder builder = Chat.Message.newBuilder();
+        builder.setType(Chat.MessageType.HISTORY);
+        builder.setServerId(serverID);
+        builder.setGroupId(groupID);
+        builder.setFromUser("");
+        builder.setContent(String.valueOf(page.size()));
+        builder.setCreateAt(page.isEmpty() ? 0 : page.get(0).message.getCreateAt());
+        ctx.writeAndFlush(toFrame(ctx, builder.build(), null));
+    }
+
+    // moves the channel onto the event loop its group is pinned to before logging in
+    private void bindThenLogin(ChannelHandlerContext ctx) {
+        EventLoop loop = affinity.bind(group.getId());
+        bound = true;
+        Channel channel = ctx.channel();
+        if (loop == channel.eventLoop()) {
+            userLogin(ctx);
+            return;
+        }
+        boolean autoRead = channel.config().isAutoRead();
+        channel.config().setAutoRead(false);
+        List<Timer> timers = detachTimers(channel.pipeline());
+        ctx.deregister().addListener(future -> {
+            if (!future.isSuccess()) {
+                ctx.fireExceptionCaught(future.cause());
+                return;
+            }
+            loop.register(channel).addListener(registered -> {
+                if (!registered.isSuccess()) {
+                    LOGGER.error("Register channel to group event loop error.", registered.cause());
+                    channel.unsafe().closeForcibly();
+                    return;
+                }
+                attachTimers(channel.pipeline(), timers);
+                channel.config().setAutoRead(autoRead);
+                userLogin(ctx);
+            });
+        });
+    }
+
+    // Handlers scheduling timers on the channel's loop are taken out before a rebind, which
+    // cancels their timers on the old loop, and fresh copies go back in place on the new one.
+    // Tls has no timer left, the websocket upgrade follows its handshake.
+    private static List<Timer> detachTimers(ChannelPipeline pipeline) {
+        List<Timer> timers = new ArrayList<>(2);
+        String previous = null;
+        for (String name : pipeline.names()) {
+            ChannelHandler handler = pipeline.get(name);
+            if (handler == null) {
+                continue;
+            }
+            ChannelHandler replacement = null;
+            if (handler instanceof IdleStateHandler) {
+                IdleStateHandler idle = (IdleStateHandler) handler;
+                replacement = new IdleStateHandler(idle.getReaderIdleTimeInMillis(), idle.getWriterIdleTimeInMillis(),
+                        idle.getAllIdleTimeInMillis(), TimeUnit.MILLISECONDS);
+            } else if (handler instanceof ChannelTrafficShapingHandler) {
+                ChannelTrafficShapingHandler shaping = (ChannelTrafficShapingHandler) handler;
+                replacement = new ChannelTrafficShapingHandler(shaping.getWriteLimit(), shaping.getReadLimit(),
+                        shaping.getCheckInterval(), shaping.getMaxTimeWait());
+            }
+            if (replacement != null) {
+                pipeline.remove(handler);
+                timers.add(new Timer(previous, name, replacement));
+            }
+            previous = name;
+        }
+        return timers;
+    }
 
+    // in pipeline order, so a replacement placed after another one finds it
+    private static void attachTimers(ChannelPipeline pipeline, List<Timer> timers) {
+        for (Timer timer : timers) {
+            if (timer.previous == null) {
+                pipeline.addFirst(timer.name, timer.handler);
+            } else {
+                pipeline.addAfter(timer.previous, timer.name, timer.handler);
+            }
+        }
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        if (replay != null && ctx.channel().isWritable()) {
+            replay.resume();
+        }
+        super.channelWritabilityChanged(ctx);
     }
 
     @Override
     public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        if (replay != null) {
+            // a replay parked on an unwritable channel never hears of writability again
+            replay.resume();
+        }
+        if (channels != null && GROUP_REGISTRY.release(groupKey) && interest != null) {
+            interest.unwatch(group.getId());
+        }
+        if (bound) {
+            bound = false;
+            affinity.unbind(group.getId());
+        }
         if (group != null && !StringUtil.isNullOrEmpty(user)) {
             String groupID = group.getId();
             if (!metaService.leaveGroup(groupID, user)) {
@@ -178,28 +446,72 @@ public class ChatHandler extends SimpleChannelInboundHandler<WebSocketFrame> {
             builder.setFromUser(user);
             builder.setCreateAt(timestamp.toEpochMilli());
             Chat.Message message = builder.build();
+            byte[] bytes = message.toByteArray();
 
-            WebSocketFrame out = messageToWebSocketFrame(message);
-            for (Channel c : channels) {
-                if (c != ctx.channel()) {
-                    c.writeAndFlush(out.retainedDuplicate());
-                }
+            channels.broadcast(message, bytes, ctx.channel());
+            publisher.publish(ctx.channel(), user, group, new MessageRecord(group.getId(), bytes, MessageHeaders.of(message)));
+        }
+    }
+
+    static WebSocketFrame messageToWebSocketFrame(Chat.Message message) {
+        return new TextWebSocketFrame(JsonMessageEncoder.encode(ByteBufAllocator.DEFAULT, message));
+    }
+
+    static WebSocketFrame messageToBinaryFrame(byte[] bytes) {
+        return new BinaryWebSocketFrame(Unpooled.wrappedBuffer(bytes));
+    }
+
+    @Override
+    public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+        if (evt instanceof WebSocketServerProtocolHandler.HandshakeComplete) {
+            String subprotocol = ((WebSocketServerProtocolHandler.HandshakeComplete) evt).selectedSubprotocol();
+            ctx.channel().attr(BINARY).set(PROTOBUF_SUBPROTOCOL.equals(subprotocol));
+            ctx.channel().attr(DEFLATE).set(ctx.pipeline().get(SharedDeflateEncoder.class));
+            if (preFramed) {
+                ctx.channel().attr(WIRE).set(findWireContext(ctx));
             }
-            out.release();
+        }
+        super.userEventTriggered(ctx, evt);
+    }
 
-            messageService.send(user, group, new MessageRecord(group.getId(), message.toByteArray()));
+    // the context broadcast bytes are written from, skipping the frame and extension encoders;
+    // tls and per-connection compression fall back to writing frames
+    private static ChannelHandlerContext findWireContext(ChannelHandlerContext ctx) {
+        for (Map.Entry<String, ChannelHandler> entry : ctx.pipeline()) {
+            ChannelHandler handler = entry.getValue();
+            if (handler instanceof SslHandler) {
+                return null;
+            }
+            if (handler instanceof WebSocketExtensionEncoder && !(handler instanceof SharedDeflateEncoder)) {
+                return null;
+            }
         }
+        return ctx.pipeline().context(WEBSOCKET_ENCODER);
     }
 
-    private static WebSocketFrame messageToWebSocketFrame(Message message) {
-        return new TextWebSocketFrame(JSON_FORMAT.printToString(message));
+    private static String frameContent(WebSocketFrame frame) throws IOException {
+        if (frame instanceof TextWebSocketFrame) {
+            return ((TextWebSocketFrame) frame).text();
+        }
+        // binary clients send a Chat.Message, only its content is taken
+        return Chat.Message.parseFrom(new ByteBufInputStream(frame.content())).getContent();
     }
 
     @Override
     protected void channelRead0(ChannelHandlerContext ctx, WebSocketFrame frame) throws Exception {
-        if (frame instanceof TextWebSocketFrame) {
-            String content = ((TextWebSocketFrame) frame).text();
+        if (frame instanceof TextWebSocketFrame || frame instanceof BinaryWebSocketFrame) {
+            String content = frameContent(frame);
             if (channels == null) {
+                // "<token>" or "<token> <seq>" to resume after a message
+                int space = content.indexOf(' ');
+                if (space > 0) {
+                    try {
+                        resumeSeq = Math.max(0L, Long.parseLong(content.substring(space + 1).trim()));
+                    } catch (NumberFormatException e) {
+                        LOGGER.warn("Invalid resume sequence {}.", content.substring(space + 1));
+                    }
+                    content = content.substring(0, space);
+                }
                 Chat.Access access = metaService.getTokenThenDelete(content.getBytes());
                 if (access == null) {
                     ctx.close();
@@ -207,15 +519,31 @@ public class ChatHandler extends SimpleChannelInboundHandler<WebSocketFrame> {
                 }
                 user = access.getUser();
                 group = metaService.groupInfo(access.getGroupId());
-                channels = CHANNEL_GROUP_MAP.computeIfAbsent(group.getId(), key -> {
-                    return new DefaultChannelGroup(GlobalEventExecutor.INSTANCE);
-                });
-                userLogin(ctx);
+                groupKey = GroupRegistry.groupKey(group.getId());
+                if (groupKey < 0) {
+                    LOGGER.warn("Invalid group id {}.", group.getId());
+                    ctx.close();
+                    return;
+                }
+                channels = GROUP_REGISTRY.acquire(groupKey);
+                if (interest != null) {
+                    interest.watch(group.getId());
+                }
+                if (history != null) {
+                    history.open(groupKey, channels);
+                }
+                if (affinity != null) {
+                    bindThenLogin(ctx);
+                } else {
+                    userLogin(ctx);
+                }
                 return;
             }
 
             if (":quit!".equals(content.toLowerCase())) {
                 ctx.close();
+            } else if (content.startsWith(HISTORY_COMMAND)) {
+                sendHistory(ctx, content.substring(HISTORY_COMMAND.length()).trim());
             } else {
                 Instant timestamp = Instant.now();
                 Chat.Message.Builder builder = Chat.Message.newBuilder();
@@ -226,16 +554,24 @@ public class ChatHandler extends SimpleChannelInboundHandler<WebSocketFrame> {
                 builder.setFromUser(user);
                 builder.setCreateAt(timestamp.toEpochMilli());
                 Chat.Message message = builder.build();
-                WebSocketFrame out = messageToWebSocketFrame(message);
-
-                for (Channel c : channels) {
-                    if (c != ctx.channel()) {
-                        c.writeAndFlush(out.retainedDuplicate());
-                    }
+                if (publisher.isSequenced()) {
+                    // the sender gets its message back too, numbered like everyone else's
+                    ShardedChannelGroup members = channels;
+                    publisher.publishSequenced(ctx.channel(), user, group, message, (m, b) -> {
+                        members.broadcast(m, b, null);
+                        if (history != null) {
+                            history.add(m, b);
+                        }
+                    });
+                    return;
                 }
-                out.release();
+                byte[] bytes = message.toByteArray();
 
-                messageService.send(user, group, new MessageRecord(group.getId(), message.toByteArray()));
+                channels.broadcast(message, bytes, ctx.channel());
+                if (history != null) {
+                    history.add(message, bytes);
+                }
+                publisher.publish(ctx.channel(), user, group, new MessageRecord(group.getId(), bytes, MessageHeaders.of(message)));
             }
         } else {
             String message = "unsupported frame type: " + frame.getClass().getName();
@@ -249,21 +585,301 @@ public class ChatHandler extends SimpleChannelInboundHandler<WebSocketFrame> {
         ctx.close();
     }
 
-    private static class NoMoreMessageException extends RuntimeException {
-        public NoMoreMessageException(String message, Throwable cause) {
-            super(message, cause);
+    private static final class Timer {
+        final String previous;
+        final String name;
+        final ChannelHandler handler;
+
+        Timer(String previous, String name, ChannelHandler handler) {
+            this.previous = previous;
+            this.name = name;
+            this.handler = handler;
+        }
+    }
+
+    // Streams the unread messages of a login. Records are only pulled while the channel is
+    // writable, so a slow client holds at most a write buffer of them, and the stream goes on
+    // from channelWritabilityChanged once the buffer has drained.
+    private final class Replay implements Runnable {
+        private final ChannelHandlerContext ctx;
+        private final String groupID;
+        // parsed but not written yet
+        private final ArrayDeque<GroupHistory.Entry> pending;
+        // with a recent limit only the latest unread messages are written, older ones are paged in
+        private final ArrayDeque<GroupHistory.Entry> tail;
+        private long chat;
+        // more unread messages than counted
+        private boolean more;
+        // lowest sequence written, a resume reports what is missing before it
+        private long firstSeq;
+        private long lastLoginTime;
+        private int unflushed;
+        // everything is read, pending holds the rest
+        private boolean drained;
+        // unread messages are being read off the loop, it resumes the replay when done
+        private boolean reading;
+        // a run is queued
+        private boolean running;
+        private boolean finished;
+
+        Replay(ChannelHandlerContext ctx, String groupID) {
+            this.ctx = ctx;
+            this.groupID = groupID;
+            this.pending = new ArrayDeque<>();
+            this.tail = replayRecent > 0 ? new ArrayDeque<>() : null;
+            this.running = true;
+        }
+
+        void resume() {
+            if (!running && !finished && !reading) {
+                running = true;
+                ctx.channel().eventLoop().execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            running = false;
+            if (finished) {
+                return;
+            }
+            Channel channel = ctx.channel();
+            // once closed, the replay reads on to the end without writing, so the message
+            // service releases its cursor, channelInactive resumes it if it was parked
+            boolean active = channel.isActive();
+            int pulls = 0;
+            try {
+                while (!active || channel.isWritable()) {
+                    GroupHistory.Entry entry = pending.pollFirst();
+                    if (entry != null) {
+                        if (active) {
+                            write(entry);
+                        }
+                    } else if (drained) {
+                        finish(active);
+                        return;
+                    } else if (pulls++ > 0) {
+                        // one read per run, the other channels of the loop get their turn
+                        flush();
+                        running = true;
+                        channel.eventLoop().execute(this);
+                        return;
+                    } else if (!pull()) {
+                        flush();
+                        if (!reading) {
+                            running = true;
+                            channel.eventLoop().schedule(this, REPLAY_POLL_INTERVAL, TimeUnit.MILLISECONDS);
+                        }
+                        return;
+                    }
+                }
+                // goes on once writable again
+                unflushed = 0;
+                ctx.flush();
+            } catch (RuntimeException e) {
+                finished = true;
+                ctx.fireExceptionCaught(e);
+            }
+        }
+
+        private void write(GroupHistory.Entry entry) {
+            long seq = entry.message.getSeq();
+            if (seq > 0 && (firstSeq == 0 || seq < firstSeq)) {
+                firstSeq = seq;
+            }
+            WebSocketFrame frame = toFrame(ctx, entry.message, entry.bytes);
+            unflushed += frame.content().readableBytes();
+            ctx.write(frame);
+            if (unflushed >= REPLAY_FLUSH_BYTES) {
+                flush();
+            }
         }
 
-        public NoMoreMessageException(String message) {
-            super(message);
+        private void flush() {
+            if (unflushed > 0) {
+                unflushed = 0;
+                ctx.flush();
+            }
         }
 
-        public NoMoreMessageException(Throwable cause) {
-            super(cause);
+        // reads the next records into pending, false when none is ready yet
+        private boolean pull() {
+            if (lastLoginTime == 0L) {
+                String value = metaService.lastLoginTime(groupID, user);
+                if (StringUtil.isNullOrEmpty(value)) {
+                    drained = true;
+                    return true;
+                }
+
+                try {
+                    lastLoginTime = Math.max(Long.parseLong(value), System.currentTimeMillis() - 30 * 24 * 60 * 60 * 1000L);
+                } catch (NumberFormatException e) {
+                    LOGGER.error("Parse last login time {} error.", value, e);
+                    drained = true;
+                    return true;
+                }
+
+                // recent enough to replay from memory, no need to ask message service
+                List<GroupHistory.Entry> recent = null;
+                if (history != null) {
+                    recent = resumeSeq > 0 ? history.after(groupID, resumeSeq) : history.since(groupID, lastLoginTime);
+                }
+                if (recent != null) {
+                    chat = recent.size();
+                    pending.addAll(tail == null ? recent : recent.subList(Math.max(0, recent.size() - replayRecent), recent.size()));
+                    drained = true;
+                    return true;
+                }
+                if (resumeSeq > 0) {
+                    // the message service locates by time, sequences pick what is missing and
+                    // what it does not reach is reported as a gap
+                    lastLoginTime = Math.max(0L, lastLoginTime - resumeSlack);
+                }
+                if (tail != null && historyService != null && historyReaders != null) {
+                    long since = lastLoginTime;
+                    readUnread(since, message -> message.getCreateAt() >= since
+                            && (resumeSeq == 0 || message.getSeq() == 0 || message.getSeq() > resumeSeq));
+                    return !reading;
+                }
+            }
+
+            Iterable<MessageRecord<String, byte[]>> records = messageService.receive(user, group, lastLoginTime);
+            if (records == null) {
+                if (tail != null) {
+                    pending.addAll(tail);
+                    tail.clear();
+                }
+                drained = true;
+                return true;
+            }
+
+            boolean pulled = false;
+            Chat.Message message;
+            for (MessageRecord<String, byte[]> record : records) {
+                pulled = true;
+                MessageHeaders headers = record.getHeaders();
+                if (headers != null && (!groupID.equals(headers.getGroupID())
+                        || (headers.getType() != Chat.MessageType.CHAT && headers.getType() != Chat.MessageType.BATCH))) {
+                    continue;
+                }
+                try {
+                    for (byte[] bytes : MessageEnvelope.unpack(record.getValue())) {
+                        message = Chat.Message.parseFrom(bytes);
+                        if (Chat.MessageType.CHAT == message.getType() && groupID.equals(message.getGroupId())
+                                && (resumeSeq == 0 || message.getSeq() == 0 || message.getSeq() > resumeSeq)) {
+                            chat++;
+                            if (tail == null) {
+                                pending.addLast(new GroupHistory.Entry(message, bytes));
+                            } else {
+                                tail.addLast(new GroupHistory.Entry(message, bytes));
+                                if (tail.size() > replayRecent) {
+                                    tail.pollFirst();
+                                }
+                            }
+                        }
+                    }
+                } catch (InvalidProtocolBufferException e) {
+                    LOGGER.error("Parse record to message error.", e);
+                }
+            }
+            return pulled;
+        }
+
+        // reads the newest page of unread messages and counts the older ones page by page,
+        // on failure the replay goes on from the message service
+        private void readUnread(long since, Predicate<Chat.Message> unread) {
+            Channel channel = ctx.channel();
+            reading = true;
+            try {
+                historyReaders.execute(() -> {
+                    List<GroupHistory.Entry> page = null;
+                    long count = 0;
+                    boolean capped = false;
+                    try {
+                        page = readPage(groupID, Long.MAX_VALUE, 0, replayRecent, since, unread);
+                        count = page.size();
+                        long last = page.isEmpty() ? 0L : page.get(page.size() - 1).message.getSeq();
+                        if (page.size() == replayRecent && resumeSeq > 0 && last > resumeSeq) {
+                            // numbered, what is missing follows from the sequences
+                            count = Math.max(count, last - resumeSeq);
+                        } else if (page.size() == replayRecent) {
+                            long before = page.get(0).message.getCreateAt();
+                            int skip = countAt(page, before);
+                            List<GroupHistory.Entry> older;
+                            int pages = 0;
+                            do {
+                                if (pages++ == UNREAD_COUNT_PAGES) {
+                                    capped = true;
+                                    break;
+                                }
+                                older = readPage(groupID, before, skip, maxPage, since, unread);
+                                count += older.size();
+                                if (older.isEmpty()) {
+                                    break;
+                                }
+                                long oldest = older.get(0).message.getCreateAt();
+                                skip = countAt(older, oldest) + (oldest == before ? skip : 0);
+                                before = oldest;
+                            } while (older.size() == maxPage);
+                        }
+                    } catch (RuntimeException e) {
+                        LOGGER.error("Read unread messages of group {} error.", groupID, e);
+                        page = null;
+                    }
+                    List<GroupHistory.Entry> result = page;
+                    long total = count;
+                    boolean lowerBound = capped;
+                    try {
+                        channel.eventLoop().execute(() -> {
+                            reading = false;
+                            if (result != null) {
+                                chat = total;
+                                more = lowerBound;
+                                pending.addAll(result);
+                                drained = true;
+                            }
+                            resume();
+                        });
+                    } catch (RejectedExecutionException e) {
+                        LOGGER.debug("Event loop shut down, unread messages of group {} dropped.", groupID);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                reading = false;
+            }
         }
 
-        public NoMoreMessageException() {
-            super();
+        private void finish(boolean active) {
+            finished = true;
+            LOGGER.info("Poll unread messages task completed.");
+            if (!active) {
+                return;
+            }
+            if (chat > 0) {
+                Chat.Message.Builder builder = Chat.Message.newBuilder();
+                builder.setType(Chat.MessageType.UNREAD);
+                builder.setServerId(serverID);
+                builder.setGroupId(groupID);
+                builder.setFromUser("");
+                builder.setContent(more ? chat + "+" : String.valueOf(chat));
+                builder.setCreateAt(lastLoginTime);
+                ctx.write(toFrame(ctx, builder.build(), null));
+            }
+            if (resumeSeq > 0 && firstSeq > resumeSeq + 1) {
+                Chat.Message.Builder builder = Chat.Message.newBuilder();
+                builder.setType(Chat.MessageType.GAP);
+                builder.setServerId(serverID);
+                builder.setGroupId(groupID);
+                builder.setFromUser("");
+                builder.setContent(String.valueOf(resumeSeq + 1));
+                builder.setSeq(firstSeq - 1);
+                builder.setCreateAt(System.currentTimeMillis());
+                ctx.write(toFrame(ctx, builder.build(), null));
+            }
+            unflushed = 0;
+            ctx.flush();
+            channels.add(ctx.channel());
+            metaService.setLastLoginTime(groupID, user, String.valueOf(System.currentTimeMillis()));
         }
     }
 }
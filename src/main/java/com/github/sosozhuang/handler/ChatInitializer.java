@@ -1,6 +1,8 @@
 package com.github.sosozhuang.handler;
 
+import com.github.sosozhuang.MessagePublisher;
 import com.github.sosozhuang.conf.ServerConfigGetter;
+import com.github.sosozhuang.service.HistoryService;
 import com.github.sosozhuang.service.MessageService;
 import com.github.sosozhuang.service.MetaService;
 import io.netty.channel.ChannelInitializer;
@@ -9,6 +11,7 @@ import io.netty.channel.socket.SocketChannel;
 import io.netty.handler.codec.http.HttpObjectAggregator;
 import io.netty.handler.codec.http.HttpServerCodec;
 import io.netty.handler.codec.http.websocketx.WebSocketServerProtocolHandler;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketServerExtensionHandler;
 import io.netty.handler.codec.http.websocketx.extensions.compression.WebSocketServerCompressionHandler;
 import io.netty.handler.ssl.SslContext;
 import io.netty.handler.ssl.SslContextBuilder;
@@ -17,21 +20,38 @@ import io.netty.handler.stream.ChunkedWriteHandler;
 import io.netty.handler.timeout.IdleStateHandler;
 import io.netty.handler.traffic.ChannelTrafficShapingHandler;
 import io.netty.util.internal.StringUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.security.cert.CertificateException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 
 
 public class ChatInitializer extends ChannelInitializer<SocketChannel> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChatInitializer.class);
     private ServerConfigGetter config;
     private SslContext sslCtx;
     private MetaService metaService;
     private MessageService messageService;
+    private MessagePublisher publisher;
+    private GroupAffinity affinity;
+    private GroupInterest interest;
+    private GroupHistory history;
+    private HistoryService historyService;
+    private Executor historyReaders;
+    private int replayRecent;
 
     public ChatInitializer(ServerConfigGetter config,
                            MetaService metaService,
-                           MessageService messageService) throws Exception {
+                           MessageService messageService,
+                           MessagePublisher publisher,
+                           GroupAffinity affinity,
+                           GroupInterest interest,
+                           GroupHistory history,
+                           HistoryService historyService,
+                           Executor historyReaders) throws Exception {
         if (config.getSsl()) {
             SelfSignedCertificate ssc = new SelfSignedCertificate();
             String cert = config.getCert();
@@ -45,6 +65,18 @@ public class ChatInitializer extends ChannelInitializer<SocketChannel> {
         this.config = config;
         this.metaService = metaService;
         this.messageService = messageService;
+        this.publisher = publisher;
+        this.affinity = affinity;
+        this.interest = interest;
+        this.history = history;
+        this.historyService = historyService;
+        this.historyReaders = historyReaders;
+        this.replayRecent = config.getReplayRecent(50);
+        if (replayRecent > 0 && historyService == null) {
+            // older unread messages could never be paged in
+            LOGGER.warn("Message service does not serve history, every unread message is replayed.");
+            replayRecent = 0;
+        }
         HttpHandler.addStaticFiles(config.getStaticFiles());
     }
 
@@ -66,11 +98,24 @@ public class ChatInitializer extends ChannelInitializer<SocketChannel> {
         if (sslCtx != null) {
             p.addLast(new ChunkedWriteHandler());
         }
-        p.addLast(new WebSocketServerCompressionHandler());
+        switch (config.getCompressionMode("channel").trim().toLowerCase()) {
+            case "shared":
+                p.addLast(new WebSocketServerExtensionHandler(
+                        new SharedDeflateServerExtensionHandshaker(config.getCompressionLevel(6))));
+                break;
+            case "channel":
+                p.addLast(new WebSocketServerCompressionHandler());
+                break;
+            default:
+                break;
+        }
         p.addLast(new WebSocketServerProtocolHandler(config.getWebsocketPath("/websocket"),
-                null, true));
+                ChatHandler.SUBPROTOCOLS, true));
         p.addLast(new HttpHandler(metaService));
         p.addLast(new StaticFileHandler());
-        p.addLast(new ChatHandler(config.getId(), metaService, messageService));
+        p.addLast(new ChatHandler(config.getId(), metaService, messageService, publisher,
+                config.getBroadcastPreFramed(), affinity, interest, history,
+                config.getSequenceResumeSlack(60000L), historyService, historyReaders,
+                replayRecent, config.getReplayMaxPage(100)));
     }
 }
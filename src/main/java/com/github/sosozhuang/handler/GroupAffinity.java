@@ -0,0 +1,85 @@
+package com.github.sosozhuang.handler;
+
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.concurrent.EventExecutor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Pins every group to one event loop while it has members on this server, so all of
+// its channels, broadcasts and deliveries run on a single thread. A new group goes to
+// the loop its id hashes to unless that loop already carries noticeably more members
+// than the others, in which case the least loaded loop takes it.
+public class GroupAffinity {
+    private static final double MAX_IMBALANCE = 1.25;
+    private static final int MIN_LOAD = 64;
+    private final EventLoop[] loops;
+    private final AtomicInteger[] loads;
+    private final Map<String, Binding> bindings;
+
+    public GroupAffinity(EventLoopGroup group) {
+        List<EventLoop> list = new ArrayList<>();
+        for (EventExecutor executor : group) {
+            list.add((EventLoop) executor);
+        }
+        this.loops = list.toArray(new EventLoop[list.size()]);
+        this.loads = new AtomicInteger[loops.length];
+        for (int i = 0; i < loads.length; i++) {
+            loads[i] = new AtomicInteger();
+        }
+        this.bindings = new ConcurrentHashMap<>();
+    }
+
+    public EventLoop bind(String groupID) {
+        Binding binding = bindings.compute(groupID, (key, value) -> {
+            if (value == null) {
+                value = new Binding(select(key));
+            }
+            value.members++;
+            return value;
+        });
+        loads[binding.index].incrementAndGet();
+        return loops[binding.index];
+    }
+
+    public void unbind(String groupID) {
+        bindings.computeIfPresent(groupID, (key, value) -> {
+            loads[value.index].decrementAndGet();
+            return --value.members == 0 ? null : value;
+        });
+    }
+
+    public EventLoop eventLoop(String groupID) {
+        Binding binding = bindings.get(groupID);
+        return binding == null ? null : loops[binding.index];
+    }
+
+    private int select(String groupID) {
+        int index = (groupID.hashCode() & Integer.MAX_VALUE) % loops.length;
+        long total = 0;
+        int least = index;
+        for (int i = 0; i < loads.length; i++) {
+            int load = loads[i].get();
+            total += load;
+            if (load < loads[least].get()) {
+                least = i;
+            }
+        }
+        double limit = Math.max(MIN_LOAD, (double) total / loads.length * MAX_IMBALANCE);
+        return loads[index].get() <= limit ? index : least;
+    }
+
+    private static final class Binding {
+        private final int index;
+        private int members;
+
+        Binding(int index) {
+            this.index = index;
+            this.members = 0;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.github.sosozhuang.handler;
+
+import com.github.sosozhuang.protobuf.Chat;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketExtension;
+import io.netty.util.AbstractReferenceCounted;
+import io.netty.util.ReferenceCounted;
+
+// One message on its way to every member of a group. Frames are built once per kind
+// and shared by the event loops taking part; the last one to finish releases them.
+public class GroupBroadcast extends AbstractReferenceCounted {
+    private static final int BINARY_FRAME = 1;
+    private static final int DEFLATE_FRAME = 2;
+    private final Chat.Message message;
+    private final byte[] bytes;
+    private final Channel except;
+    private final WebSocketFrame[] frames;
+    private final ByteBuf[] wires;
+
+    public GroupBroadcast(Chat.Message message, byte[] bytes, Channel except) {
+        this.message = message;
+        this.bytes = bytes;
+        this.except = except;
+        this.frames = new WebSocketFrame[4];
+        this.wires = new ByteBuf[4];
+    }
+
+    // called on the event loop owning the channels
+    public void writeTo(Iterable<Channel> channels) {
+        WebSocketFrame[] localFrames = new WebSocketFrame[4];
+        ByteBuf[] localWires = new ByteBuf[4];
+        for (Channel c : channels) {
+            if (c == except) {
+                continue;
+            }
+            SharedDeflateEncoder encoder = ChatHandler.deflateEncoder(c);
+            int kind = (ChatHandler.isBinary(c) ? BINARY_FRAME : 0) | (encoder != null ? DEFLATE_FRAME : 0);
+            if (localFrames[kind] == null) {
+                localFrames[kind] = frame(kind, encoder);
+            }
+            ChannelHandlerContext wire = ChatHandler.wireContext(c);
+            if (wire != null && !wire.isRemoved()) {
+                if (localWires[kind] == null) {
+                    localWires[kind] = wire(kind);
+                }
+                wire.writeAndFlush(localWires[kind].retainedDuplicate());
+            } else {
+                c.writeAndFlush(localFrames[kind].retainedDuplicate());
+            }
+        }
+    }
+
+    private synchronized WebSocketFrame frame(int kind, SharedDeflateEncoder encoder) {
+        if (frames[kind] == null) {
+            frames[kind] = newFrame(kind, encoder);
+        }
+        return frames[kind];
+    }
+
+    private synchronized ByteBuf wire(int kind) {
+        if (wires[kind] == null) {
+            wires[kind] = WebSocketWireFormat.encode(ByteBufAllocator.DEFAULT, frames[kind]);
+        }
+        return wires[kind];
+    }
+
+    private WebSocketFrame newFrame(int kind, SharedDeflateEncoder encoder) {
+        boolean binary = (kind & BINARY_FRAME) != 0;
+        if ((kind & DEFLATE_FRAME) == 0) {
+            return binary ? ChatHandler.messageToBinaryFrame(bytes == null ? message.toByteArray() : bytes)
+                    : ChatHandler.messageToWebSocketFrame(message);
+        }
+        ByteBuf content;
+        if (binary) {
+            content = Unpooled.wrappedBuffer(bytes == null ? message.toByteArray() : bytes);
+        } else {
+            content = ByteBufAllocator.DEFAULT.heapBuffer();
+            JsonMessageEncoder.encode(content, message);
+        }
+        try {
+            ByteBuf compressed = encoder.deflate(ByteBufAllocator.DEFAULT, content);
+            return binary ? new BinaryWebSocketFrame(true, WebSocketExtension.RSV1, compressed)
+                    : new TextWebSocketFrame(true, WebSocketExtension.RSV1, compressed);
+        } finally {
+            content.release();
+        }
+    }
+
+    @Override
+    protected synchronized void deallocate() {
+        for (int i = 0; i < frames.length; i++) {
+            if (frames[i] != null) {
+                frames[i].release();
+                frames[i] = null;
+            }
+            if (wires[i] != null) {
+                wires[i].release();
+                wires[i] = null;
+            }
+        }
+    }
+
+    @Override
+    public ReferenceCounted touch(Object hint) {
+        return this;
+    }
+}
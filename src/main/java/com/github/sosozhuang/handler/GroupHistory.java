@@ -0,0 +1,254 @@
+package com.github.sosozhuang.handler;
+
+import com.github.sosozhuang.protobuf.Chat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Recent chat messages of groups having local members, so a login shortly after a disconnect
+// replays from memory. A ring is only complete while its group stays in the registry, every
+// message of the group reaches this server then, it is bound to the registry entry it was
+// opened under and starts over once the group has been released and acquired again.
+// Interest takes a while to reach the consumers, so a ring only covers time from the first
+// message it actually receives, and with interest routing not before the other servers are
+// sure to route the group here, until then callers fall back to the message service.
+public class GroupHistory {
+    private static final Logger LOGGER = LoggerFactory.getLogger(GroupHistory.class);
+    // rough per message overhead on top of the encoded bytes
+    private static final int ENTRY_OVERHEAD = 64;
+    private final int capacity;
+    private final long window;
+    private final long maxBytes;
+    // time after opening until every message of the group reaches this server
+    private final long settle;
+    private final Map<Long, Ring> rings;
+    private final AtomicLong bytes;
+    private final ReentrantLock evictLock;
+
+    public GroupHistory(int capacity, long window, long maxBytes, long settle) {
+        this.capacity = Math.max(1, capacity);
+        this.window = window;
+        this.maxBytes = maxBytes;
+        this.settle = Math.max(0L, settle);
+        this.rings = new ConcurrentHashMap<>();
+        this.bytes = new AtomicLong();
+        this.evictLock = new ReentrantLock();
+    }
+
+    // called once the group is acquired in the registry
+    public void open(long key, ShardedChannelGroup owner) {
+        rings.compute(key, (k, ring) -> {
+            if (ring != null && ring.owner == owner) {
+                return ring;
+            }
+            if (ring != null) {
+                bytes.addAndGet(-ring.clear());
+            }
+            return new Ring(owner, System.currentTimeMillis() + settle);
+        });
+    }
+
+    public void add(Chat.Message message, byte[] bytes) {
+        long key = GroupRegistry.groupKey(message.getGroupId());
+        Ring ring = key < 0 ? null : rings.get(key);
+        // not opened, or opened under a registry entry that has gone since
+        if (ring == null || ring.owner != ChatHandler.groupRegistry().get(key)) {
+            return;
+        }
+        long size = this.bytes.addAndGet(ring.add(message, bytes));
+        if (rings.get(key) != ring) {
+            // evicted meanwhile
+            size = this.bytes.addAndGet(-ring.clear());
+        }
+        if (size > maxBytes) {
+            evict();
+        }
+    }
+
+    // messages created at or after the timestamp, null when the ring does not cover it
+    public List<Entry> since(String groupID, long timestamp) {
+        long key = GroupRegistry.groupKey(groupID);
+        Ring ring = key < 0 ? null : rings.get(key);
+        if (ring == null || ring.owner != ChatHandler.groupRegistry().get(key)) {
+            return null;
+        }
+        return ring.since(timestamp);
+    }
+
+    // messages numbered after the sequence, null when the ring does not cover it
+    public List<Entry> after(String groupID, long seq) {
+        long key = GroupRegistry.groupKey(groupID);
+        Ring ring = key < 0 ? null : rings.get(key);
+        if (ring == null || ring.owner != ChatHandler.groupRegistry().get(key)) {
+            return null;
+        }
+        return ring.after(seq);
+    }
+
+    // the last limit messages created before the timestamp, null unless the ring holds a full page
+    public List<Entry> before(String groupID, long timestamp, int limit) {
+        long key = GroupRegistry.groupKey(groupID);
+        Ring ring = key < 0 ? null : rings.get(key);
+        if (ring == null || ring.owner != ChatHandler.groupRegistry().get(key)) {
+            return null;
+        }
+        return ring.before(timestamp, limit);
+    }
+
+    // drops least recently written groups down to 90 percent of the budget
+    private void evict() {
+        if (!evictLock.tryLock()) {
+            return;
+        }
+        try {
+            List<Map.Entry<Long, Ring>> entries = new ArrayList<>(rings.entrySet());
+            entries.sort(Comparator.comparingLong(entry -> entry.getValue().lastWrite));
+            long target = maxBytes / 10 * 9;
+            int evicted = 0;
+            for (Map.Entry<Long, Ring> entry : entries) {
+                if (bytes.get() <= target) {
+                    break;
+                }
+                if (rings.remove(entry.getKey(), entry.getValue())) {
+                    bytes.addAndGet(-entry.getValue().clear());
+                    evicted++;
+                }
+            }
+            LOGGER.info("Evicted history of {} groups, {} bytes kept.", evicted, bytes.get());
+        } finally {
+            evictLock.unlock();
+        }
+    }
+
+    public static final class Entry {
+        final Chat.Message message;
+        final byte[] bytes;
+
+        Entry(Chat.Message message, byte[] bytes) {
+            this.message = message;
+            this.bytes = bytes;
+        }
+    }
+
+    private final class Ring {
+        final ShardedChannelGroup owner;
+        final ArrayDeque<Entry> entries;
+        // messages created before this may be missing
+        long coveredFrom;
+        // no message received yet, nothing is covered
+        boolean empty;
+        // messages numbered before this may be missing, 0 until a numbered one arrives
+        long coveredSeq;
+        long bytes;
+        volatile long lastWrite;
+
+        Ring(ShardedChannelGroup owner, long coveredFrom) {
+            this.owner = owner;
+            this.entries = new ArrayDeque<>();
+            this.coveredFrom = coveredFrom;
+            this.empty = true;
+        }
+
+        // returns the change in size
+        synchronized long add(Chat.Message message, byte[] data) {
+            long before = bytes;
+            entries.addLast(new Entry(message, data));
+            if (empty) {
+                empty = false;
+                coveredFrom = Math.max(coveredFrom, message.getCreateAt());
+            }
+            if (coveredSeq == 0 && message.hasSeq()) {
+                coveredSeq = message.getSeq();
+            }
+            bytes += data.length + ENTRY_OVERHEAD;
+            lastWrite = System.currentTimeMillis();
+            while (entries.size() > capacity) {
+                drop();
+            }
+            expire();
+            return bytes - before;
+        }
+
+        synchronized List<Entry> since(long timestamp) {
+            GroupHistory.this.bytes.addAndGet(-expire());
+            if (empty || timestamp < coveredFrom) {
+                return null;
+            }
+            List<Entry> list = new ArrayList<>();
+            for (Entry entry : entries) {
+                if (entry.message.getCreateAt() >= timestamp) {
+                    list.add(entry);
+                }
+            }
+            return list;
+        }
+
+        synchronized List<Entry> after(long seq) {
+            GroupHistory.this.bytes.addAndGet(-expire());
+            if (coveredSeq == 0 || seq + 1 < coveredSeq) {
+                return null;
+            }
+            List<Entry> list = new ArrayList<>();
+            for (Entry entry : entries) {
+                // unnumbered ones failed numbering, they are not known to be delivered
+                if (entry.message.getSeq() == 0 || entry.message.getSeq() > seq) {
+                    list.add(entry);
+                }
+            }
+            return list;
+        }
+
+        synchronized List<Entry> before(long timestamp, int limit) {
+            GroupHistory.this.bytes.addAndGet(-expire());
+            ArrayDeque<Entry> page = new ArrayDeque<>();
+            for (Entry entry : entries) {
+                if (entry.message.getCreateAt() >= timestamp) {
+                    continue;
+                }
+                page.addLast(entry);
+                if (page.size() > limit) {
+                    page.pollFirst();
+                }
+            }
+            return page.size() < limit ? null : new ArrayList<>(page);
+        }
+
+        // returns the bytes released
+        synchronized long clear() {
+            long released = bytes;
+            entries.clear();
+            bytes = 0;
+            coveredFrom = Long.MAX_VALUE;
+            coveredSeq = Long.MAX_VALUE;
+            return released;
+        }
+
+        // returns the bytes released
+        private long expire() {
+            long before = bytes;
+            long oldest = System.currentTimeMillis() - window;
+            while (!entries.isEmpty() && entries.peekFirst().message.getCreateAt() < oldest) {
+                drop();
+            }
+            coveredFrom = Math.max(coveredFrom, oldest);
+            return before - bytes;
+        }
+
+        private void drop() {
+            Entry entry = entries.pollFirst();
+            bytes -= entry.bytes.length + ENTRY_OVERHEAD;
+            coveredFrom = Math.max(coveredFrom, entry.message.getCreateAt() + 1);
+            if (entry.message.hasSeq()) {
+                coveredSeq = Math.max(coveredSeq, entry.message.getSeq() + 1);
+            }
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.github.sosozhuang.handler;
+
+import com.github.sosozhuang.protobuf.Chat;
+import com.github.sosozhuang.service.InboxService;
+import com.github.sosozhuang.service.MessageHeaders;
+import com.github.sosozhuang.service.MessageRecord;
+import com.github.sosozhuang.service.MetaService;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Publishes which groups have members on this server and looks up the servers
+// interested in a group. Entries expire in the meta service unless refreshed, so a
+// crashed server drops out by itself and a lost update is repaired by the next refresh.
+// When a group gets its first member here, the other servers of the group are told to
+// drop their cached lookup, so they start sending to this one without waiting it out.
+public class GroupInterest {
+    private static final Logger LOGGER = LoggerFactory.getLogger(GroupInterest.class);
+    private static final long CACHE_TTL = 1000L;
+    private final MetaService metaService;
+    private final InboxService inbox;
+    private final long id;
+    private final String serverID;
+    private final long ttl;
+    private final GroupRegistry registry;
+    private final Map<String, Servers> cache;
+    private final Set<String> watched;
+    private final ScheduledExecutorService refresher;
+
+    public GroupInterest(MetaService metaService, InboxService inbox, long serverID, long ttl) {
+        this.metaService = metaService;
+        this.inbox = inbox;
+        this.id = serverID;
+        this.serverID = Long.toUnsignedString(serverID);
+        this.ttl = Math.max(3000L, ttl);
+        this.registry = ChatHandler.groupRegistry();
+        this.cache = new ConcurrentHashMap<>();
+        this.watched = ConcurrentHashMap.newKeySet();
+        this.refresher = Executors.newSingleThreadScheduledExecutor(new DefaultThreadFactory("group-interest", true));
+    }
+
+    public void start() {
+        long period = ttl / 3;
+        refresher.scheduleWithFixedDelay(this::refresh, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    public void stop() {
+        refresher.shutdownNow();
+        registry.forEachKey(key -> unwatch(Long.toString(key)));
+    }
+
+    public void watch(String groupID) {
+        try {
+            metaService.addGroupServer(groupID, serverID, System.currentTimeMillis() + ttl);
+        } catch (RuntimeException e) {
+            LOGGER.error("Publish interest of group {} error.", groupID, e);
+        }
+        cache.remove(groupID);
+        if (watched.add(groupID)) {
+            try {
+                refresher.execute(() -> notifyServers(groupID));
+            } catch (RejectedExecutionException e) {
+                LOGGER.warn("Interest of group {} not announced, stopping.", groupID);
+            }
+        }
+    }
+
+    // time after watch until every server routes the group here, a failed publish is
+    // repaired by the next refresh, then the cached lookups of other servers expire
+    public long settleTime() {
+        return ttl / 3 + CACHE_TTL;
+    }
+
+    // another server got its first member of the group
+    public void invalidate(String groupID) {
+        cache.remove(groupID);
+    }
+
+    public void unwatch(String groupID) {
+        watched.remove(groupID);
+        try {
+            metaService.removeGroupServer(groupID, serverID);
+        } catch (RuntimeException e) {
+            LOGGER.error("Withdraw interest of group {} error.", groupID, e);
+        }
+    }
+
+    // servers having members of the group, this one included
+    public long[] servers(String groupID) {
+        long now = System.currentTimeMillis();
+        Servers servers = cache.get(groupID);
+        if (servers != null && servers.expireAt > now) {
+            return servers.ids;
+        }
+        List<Long> list = new ArrayList<>();
+        try {
+            for (String id : metaService.groupServers(groupID)) {
+                try {
+                    list.add(Long.parseUnsignedLong(id));
+                } catch (NumberFormatException e) {
+                    LOGGER.warn("Invalid server id {} of group {}.", id, groupID);
+                }
+            }
+        } catch (RuntimeException e) {
+            LOGGER.error("Look up servers of group {} error.", groupID, e);
+            // keep routing with what was known before
+            return servers == null ? new long[0] : servers.ids;
+        }
+        long[] ids = new long[list.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = list.get(i);
+        }
+        cache.put(groupID, new Servers(ids, now + CACHE_TTL));
+        return ids;
+    }
+
+    private void notifyServers(String groupID) {
+        Chat.Message message = Chat.Message.newBuilder()
+                .setType(Chat.MessageType.INTEREST)
+                .setGroupId(groupID)
+                .setServerId(id)
+                .setFromUser("")
+                .setCreateAt(System.currentTimeMillis())
+                .build();
+        MessageRecord<String, byte[]> record = new MessageRecord<>(groupID, message.toByteArray(),
+                MessageHeaders.of(message));
+        Chat.Group group = Chat.Group.newBuilder().setId(groupID).buildPartial();
+        try {
+            for (String server : metaService.groupServers(groupID)) {
+                if (serverID.equals(server)) {
+                    continue;
+                }
+                try {
+                    inbox.sendToInbox(Long.parseUnsignedLong(server), group, record, cause -> {
+                        if (cause != null) {
+                            LOGGER.warn("Announce interest of group {} to server {} error.", groupID, server, cause);
+                        }
+                    });
+                } catch (NumberFormatException e) {
+                    LOGGER.warn("Invalid server id {} of group {}.", server, groupID);
+                }
+            }
+        } catch (RuntimeException e) {
+            LOGGER.error("Announce interest of group {} error.", groupID, e);
+        }
+    }
+
+    private void refresh() {
+        try {
+            long expireAt = System.currentTimeMillis() + ttl;
+            registry.forEachKey(key -> metaService.addGroupServer(Long.toString(key), serverID, expireAt));
+            long now = System.currentTimeMillis();
+            cache.values().removeIf(servers -> servers.expireAt <= now);
+        } catch (RuntimeException e) {
+            LOGGER.error("Refresh group interest error.", e);
+        }
+    }
+
+    private static final class Servers {
+        private final long[] ids;
+        private final long expireAt;
+
+        Servers(long[] ids, long expireAt) {
+            this.ids = ids;
+            this.expireAt = expireAt;
+        }
+    }
+}
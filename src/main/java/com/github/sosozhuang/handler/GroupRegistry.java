@@ -0,0 +1,110 @@
+package com.github.sosozhuang.handler;
+
+import io.netty.util.collection.LongObjectHashMap;
+import io.netty.util.collection.LongObjectMap;
+
+import java.util.function.LongConsumer;
+
+// Local channel groups keyed by their numeric id. The table is split into stripes,
+// each a primitive map guarded by its own lock. A group is reference counted by the
+// connections that logged into it and removed once the last one has gone, so a login
+// racing with the last logout either keeps the group alive or creates a fresh one.
+// Lookups read a copy of the stripe's groups without locking, the copy is only
+// replaced when a group is created or removed.
+public class GroupRegistry {
+    private static final int STRIPES = 64;
+    private static final int STRIPE_SHIFT = Long.SIZE - Integer.numberOfTrailingZeros(STRIPES);
+    private final Stripe[] stripes;
+
+    public GroupRegistry() {
+        this.stripes = new Stripe[STRIPES];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    // group ids come from an INCR counter, anything else is not a valid key
+    public static long groupKey(String groupID) {
+        if (groupID == null || groupID.isEmpty()) {
+            return -1L;
+        }
+        try {
+            return Long.parseLong(groupID);
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+
+    private Stripe stripe(long key) {
+        return stripes[(int) ((key * 0x9E3779B97F4A7C15L) >>> STRIPE_SHIFT)];
+    }
+
+    public ShardedChannelGroup get(long key) {
+        return stripe(key).groups.get(key);
+    }
+
+    public ShardedChannelGroup acquire(long key) {
+        Stripe stripe = stripe(key);
+        synchronized (stripe) {
+            Entry entry = stripe.entries.get(key);
+            if (entry == null) {
+                entry = new Entry();
+                stripe.entries.put(key, entry);
+                LongObjectHashMap<ShardedChannelGroup> groups = stripe.copy();
+                groups.put(key, entry.group);
+                stripe.groups = groups;
+            }
+            entry.refs++;
+            return entry.group;
+        }
+    }
+
+    // returns true when the group was removed
+    public boolean release(long key) {
+        Stripe stripe = stripe(key);
+        synchronized (stripe) {
+            Entry entry = stripe.entries.get(key);
+            if (entry != null && --entry.refs == 0) {
+                stripe.entries.remove(key);
+                LongObjectHashMap<ShardedChannelGroup> groups = stripe.copy();
+                groups.remove(key);
+                stripe.groups = groups;
+                return true;
+            }
+            return false;
+        }
+    }
+
+    public void forEachKey(LongConsumer consumer) {
+        for (Stripe stripe : stripes) {
+            for (LongObjectMap.PrimitiveEntry<ShardedChannelGroup> entry : stripe.groups.entries()) {
+                consumer.accept(entry.key());
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.groups.size();
+        }
+        return size;
+    }
+
+    private static final class Stripe {
+        private final LongObjectHashMap<Entry> entries = new LongObjectHashMap<>();
+        // never modified once published
+        private volatile LongObjectHashMap<ShardedChannelGroup> groups = new LongObjectHashMap<>();
+
+        LongObjectHashMap<ShardedChannelGroup> copy() {
+            LongObjectHashMap<ShardedChannelGroup> groups = new LongObjectHashMap<>(Math.max(8, this.groups.size() + 1));
+            groups.putAll(this.groups);
+            return groups;
+        }
+    }
+
+    private static final class Entry {
+        private final ShardedChannelGroup group = new ShardedChannelGroup();
+        private int refs;
+    }
+}
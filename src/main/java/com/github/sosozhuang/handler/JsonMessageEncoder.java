@@ -0,0 +1,179 @@
+package com.github.sosozhuang.handler;
+
+import com.github.sosozhuang.protobuf.Chat;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+
+// Writes a Chat.Message in the exact layout protobuf-java-format's JsonFormat prints,
+// straight into a direct buffer and without any intermediate String.
+public final class JsonMessageEncoder {
+    private static final byte[] HEX = "0123456789abcdef".getBytes();
+    private static final byte[] TYPE = "{\"type\": \"".getBytes();
+    private static final byte[] GROUP_ID = "\",\"group_id\": ".getBytes();
+    private static final byte[] SERVER_ID = ",\"server_id\": ".getBytes();
+    private static final byte[] FROM_USER = ",\"from_user\": ".getBytes();
+    private static final byte[] TO_USER = ",\"to_user\": ".getBytes();
+    private static final byte[] CONTENT = ",\"content\": ".getBytes();
+    private static final byte[] CREATE_AT = ",\"create_at\": ".getBytes();
+    private static final byte[] MEMBERS = ",\"members\": [".getBytes();
+    private static final byte[] SEQ = ",\"seq\": ".getBytes();
+    private static final byte[][] TYPE_NAMES;
+
+    static {
+        Chat.MessageType[] types = Chat.MessageType.values();
+        TYPE_NAMES = new byte[types.length][];
+        for (int i = 0; i < types.length; i++) {
+            TYPE_NAMES[i] = types[i].name().getBytes();
+        }
+    }
+
+    private JsonMessageEncoder() {}
+
+    public static ByteBuf encode(ByteBufAllocator alloc, Chat.Message message) {
+        int estimate = 96 + message.getGroupId().length() + message.getFromUser().length();
+        if (message.hasToUser()) {
+            estimate += 16 + message.getToUser().length();
+        }
+        if (message.hasContent()) {
+            estimate += 16 + message.getContent().length() * 3 / 2;
+        }
+        int members = message.getMembersCount();
+        if (members > 0) {
+            estimate += 16 + members * 16;
+        }
+        if (message.hasSeq()) {
+            estimate += 32;
+        }
+        ByteBuf buf = alloc.directBuffer(estimate);
+        try {
+            encode(buf, message);
+        } catch (RuntimeException e) {
+            buf.release();
+            throw e;
+        }
+        return buf;
+    }
+
+    public static void encode(ByteBuf buf, Chat.Message message) {
+        buf.writeBytes(TYPE);
+        buf.writeBytes(TYPE_NAMES[message.getType().ordinal()]);
+        buf.writeBytes(GROUP_ID);
+        writeString(buf, message.getGroupId());
+        buf.writeBytes(SERVER_ID);
+        writeUnsignedLong(buf, message.getServerId());
+        buf.writeBytes(FROM_USER);
+        writeString(buf, message.getFromUser());
+        if (message.hasToUser()) {
+            buf.writeBytes(TO_USER);
+            writeString(buf, message.getToUser());
+        }
+        if (message.hasContent()) {
+            buf.writeBytes(CONTENT);
+            writeString(buf, message.getContent());
+        }
+        buf.writeBytes(CREATE_AT);
+        writeUnsignedLong(buf, message.getCreateAt());
+        int members = message.getMembersCount();
+        if (members > 0) {
+            buf.writeBytes(MEMBERS);
+            for (int i = 0; i < members; i++) {
+                if (i > 0) {
+                    buf.writeByte(',');
+                }
+                writeString(buf, message.getMembers(i));
+            }
+            buf.writeByte(']');
+        }
+        if (message.hasSeq()) {
+            buf.writeBytes(SEQ);
+            writeUnsignedLong(buf, message.getSeq());
+        }
+        buf.writeByte('}');
+    }
+
+    private static void writeUnsignedLong(ByteBuf buf, long value) {
+        if (value < 0) {
+            // beyond Long.MAX_VALUE, rare enough to take the slow path
+            String s = Long.toUnsignedString(value);
+            for (int i = 0; i < s.length(); i++) {
+                buf.writeByte(s.charAt(i));
+            }
+            return;
+        }
+        int digits = 1;
+        for (long v = value / 10; v > 0; v /= 10) {
+            digits++;
+        }
+        buf.ensureWritable(digits);
+        int index = buf.writerIndex() + digits;
+        long v = value;
+        do {
+            buf.setByte(--index, (int) ('0' + v % 10));
+            v /= 10;
+        } while (v > 0);
+        buf.writerIndex(buf.writerIndex() + digits);
+    }
+
+    private static void writeEscapedUnicode(ByteBuf buf, char c) {
+        buf.writeByte('\\');
+        buf.writeByte('u');
+        buf.writeByte(HEX[(c >> 12) & 0xF]);
+        buf.writeByte(HEX[(c >> 8) & 0xF]);
+        buf.writeByte(HEX[(c >> 4) & 0xF]);
+        buf.writeByte(HEX[c & 0xF]);
+    }
+
+    private static void writeString(ByteBuf buf, String s) {
+        buf.writeByte('"');
+        int length = s.length();
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '\b':
+                    buf.writeByte('\\').writeByte('b');
+                    break;
+                case '\f':
+                    buf.writeByte('\\').writeByte('f');
+                    break;
+                case '\n':
+                    buf.writeByte('\\').writeByte('n');
+                    break;
+                case '\r':
+                    buf.writeByte('\\').writeByte('r');
+                    break;
+                case '\t':
+                    buf.writeByte('\\').writeByte('t');
+                    break;
+                case '\\':
+                    buf.writeByte('\\').writeByte('\\');
+                    break;
+                case '"':
+                    buf.writeByte('\\').writeByte('"');
+                    break;
+                default:
+                    if (c < 0x20) {
+                        writeEscapedUnicode(buf, c);
+                    } else if (c < 0x80) {
+                        buf.writeByte(c);
+                    } else if (c < 0x800) {
+                        buf.writeByte(0xC0 | (c >> 6));
+                        buf.writeByte(0x80 | (c & 0x3F));
+                    } else if (Character.isHighSurrogate(c)) {
+                        // JsonFormat escapes surrogate pairs as two \\u sequences
+                        writeEscapedUnicode(buf, c);
+                        if (++i >= length) {
+                            throw new IllegalArgumentException("invalid unicode string: unexpected high surrogate pair value without corresponding low value.");
+                        }
+                        writeEscapedUnicode(buf, s.charAt(i));
+                    } else if (Character.isLowSurrogate(c)) {
+                        buf.writeByte('?');
+                    } else {
+                        buf.writeByte(0xE0 | (c >> 12));
+                        buf.writeByte(0x80 | ((c >> 6) & 0x3F));
+                        buf.writeByte(0x80 | (c & 0x3F));
+                    }
+            }
+        }
+        buf.writeByte('"');
+    }
+}
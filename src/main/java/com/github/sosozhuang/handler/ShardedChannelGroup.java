@@ -0,0 +1,118 @@
+package com.github.sosozhuang.handler;
+
+import com.github.sosozhuang.protobuf.Chat;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.util.concurrent.EventExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Members of a group sharded by the event loop their channel is registered to.
+// A shard is only touched from its own loop, so a broadcast costs one task per loop
+// instead of one cross-thread write per member.
+public class ShardedChannelGroup {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ShardedChannelGroup.class);
+    private final Map<EventExecutor, Shard> shards;
+    private final AtomicInteger size;
+    private final ChannelFutureListener remover;
+
+    public ShardedChannelGroup() {
+        this.shards = new ConcurrentHashMap<>();
+        this.size = new AtomicInteger();
+        this.remover = future -> remove(future.channel());
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    public boolean isEmpty() {
+        return size.get() == 0;
+    }
+
+    public void add(Channel channel) {
+        Shard shard = shards.computeIfAbsent(channel.eventLoop(), Shard::new);
+        shard.execute(() -> {
+            if (shard.channels.add(channel)) {
+                shard.size++;
+                size.incrementAndGet();
+                // fires right away if the channel is already closed
+                channel.closeFuture().addListener(remover);
+            }
+        });
+    }
+
+    public void remove(Channel channel) {
+        Shard shard = shards.get(channel.eventLoop());
+        if (shard == null) {
+            return;
+        }
+        shard.execute(() -> {
+            if (shard.channels.remove(channel)) {
+                shard.size--;
+                size.decrementAndGet();
+                channel.closeFuture().removeListener(remover);
+            }
+        });
+    }
+
+    public void broadcast(Chat.Message message, byte[] bytes, Channel except) {
+        GroupBroadcast broadcast = new GroupBroadcast(message, bytes, except);
+        try {
+            for (Shard shard : shards.values()) {
+                if (shard.size == 0) {
+                    continue;
+                }
+                broadcast.retain();
+                shard.execute(() -> {
+                    try {
+                        broadcast.writeTo(shard.channels);
+                    } finally {
+                        broadcast.release();
+                    }
+                }, broadcast);
+            }
+        } finally {
+            broadcast.release();
+        }
+    }
+
+    private static final class Shard {
+        private final EventExecutor executor;
+        private final Set<Channel> channels;
+        // written by the owning loop only, read by broadcasters to skip empty shards
+        private volatile int size;
+
+        Shard(EventExecutor executor) {
+            this.executor = executor;
+            this.channels = new LinkedHashSet<>();
+            this.size = 0;
+        }
+
+        void execute(Runnable task) {
+            execute(task, null);
+        }
+
+        void execute(Runnable task, GroupBroadcast broadcast) {
+            if (executor.inEventLoop()) {
+                task.run();
+                return;
+            }
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                LOGGER.warn("Event loop rejected group task.", e);
+                if (broadcast != null) {
+                    broadcast.release();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.github.sosozhuang.handler;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.CodecException;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketExtension;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketExtensionEncoder;
+import io.netty.util.concurrent.FastThreadLocal;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+public class SharedDeflateEncoder extends WebSocketExtensionEncoder {
+    private static final int FRAME_TAIL_LENGTH = 4;
+    private static final FastThreadLocal<Map<Integer, Deflater>> DEFLATERS = new FastThreadLocal<Map<Integer, Deflater>>() {
+        @Override
+        protected Map<Integer, Deflater> initialValue() throws Exception {
+            return new HashMap<>(2);
+        }
+
+        @Override
+        protected void onRemoval(Map<Integer, Deflater> deflaters) throws Exception {
+            deflaters.values().forEach(Deflater::end);
+        }
+    };
+    private final int compressionLevel;
+
+    public SharedDeflateEncoder(int compressionLevel) {
+        this.compressionLevel = compressionLevel;
+    }
+
+    public ByteBuf deflate(ByteBufAllocator alloc, ByteBuf content) {
+        byte[] input;
+        int offset;
+        int length = content.readableBytes();
+        if (content.hasArray()) {
+            input = content.array();
+            offset = content.arrayOffset() + content.readerIndex();
+        } else {
+            input = ByteBufUtil.getBytes(content);
+            offset = 0;
+        }
+        Deflater deflater = DEFLATERS.get().computeIfAbsent(compressionLevel, level -> new Deflater(level, true));
+        deflater.reset();
+        deflater.setInput(input, offset, length);
+
+        ByteBuf out = alloc.heapBuffer(length / 2 + 64);
+        try {
+            for (;;) {
+                int writable = out.writableBytes();
+                int n = deflater.deflate(out.array(), out.arrayOffset() + out.writerIndex(), writable, Deflater.SYNC_FLUSH);
+                out.writerIndex(out.writerIndex() + n);
+                if (n < writable && deflater.needsInput()) {
+                    break;
+                }
+                out.ensureWritable(Math.max(64, length / 4));
+            }
+            if (out.readableBytes() < FRAME_TAIL_LENGTH) {
+                throw new CodecException("cannot read compressed buffer");
+            }
+            // drop the 00 00 ff ff tail of the sync flush block, see RFC 7692 7.2.1
+            out.writerIndex(out.writerIndex() - FRAME_TAIL_LENGTH);
+            return out;
+        } catch (RuntimeException e) {
+            out.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean acceptOutboundMessage(Object msg) throws Exception {
+        // frames with rsv1 set were compressed once for a whole group already
+        return (msg instanceof TextWebSocketFrame || msg instanceof BinaryWebSocketFrame)
+                && (((WebSocketFrame) msg).rsv() & WebSocketExtension.RSV1) == 0;
+    }
+
+    @Override
+    protected void encode(ChannelHandlerContext ctx, WebSocketFrame msg, List<Object> out) throws Exception {
+        ByteBuf compressed = deflate(ctx.alloc(), msg.content());
+        int rsv = msg.rsv() | WebSocketExtension.RSV1;
+        if (msg instanceof TextWebSocketFrame) {
+            out.add(new TextWebSocketFrame(msg.isFinalFragment(), rsv, compressed));
+        } else {
+            out.add(new BinaryWebSocketFrame(msg.isFinalFragment(), rsv, compressed));
+        }
+    }
+}
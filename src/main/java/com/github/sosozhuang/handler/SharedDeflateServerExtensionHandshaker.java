@@ -0,0 +1,69 @@
+package com.github.sosozhuang.handler;
+
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketExtensionData;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketExtensionDecoder;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketExtensionEncoder;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketServerExtension;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketServerExtensionHandshaker;
+import io.netty.handler.codec.http.websocketx.extensions.compression.PerMessageDeflateServerExtensionHandshaker;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// permessage-deflate that always answers with server_no_context_takeover,
+// so one compressed payload is valid for every connection it is written to.
+public class SharedDeflateServerExtensionHandshaker implements WebSocketServerExtensionHandshaker {
+    private static final String PERMESSAGE_DEFLATE_EXTENSION = "permessage-deflate";
+    private static final String SERVER_NO_CONTEXT = "server_no_context_takeover";
+    private final int compressionLevel;
+    private final PerMessageDeflateServerExtensionHandshaker handshaker;
+
+    public SharedDeflateServerExtensionHandshaker(int compressionLevel) {
+        this.compressionLevel = compressionLevel;
+        this.handshaker = new PerMessageDeflateServerExtensionHandshaker(compressionLevel,
+                false, PerMessageDeflateServerExtensionHandshaker.MAX_WINDOW_SIZE, true, false);
+    }
+
+    @Override
+    public WebSocketServerExtension handshakeExtension(WebSocketExtensionData extensionData) {
+        if (!PERMESSAGE_DEFLATE_EXTENSION.equals(extensionData.name())) {
+            return null;
+        }
+        Map<String, String> parameters = new HashMap<>(extensionData.parameters());
+        parameters.put(SERVER_NO_CONTEXT, null);
+        WebSocketServerExtension extension = handshaker.handshakeExtension(
+                new WebSocketExtensionData(extensionData.name(), parameters));
+        if (extension == null) {
+            return null;
+        }
+        return new SharedDeflateExtension(extension);
+    }
+
+    private class SharedDeflateExtension implements WebSocketServerExtension {
+        private final WebSocketServerExtension extension;
+
+        SharedDeflateExtension(WebSocketServerExtension extension) {
+            this.extension = extension;
+        }
+
+        @Override
+        public int rsv() {
+            return extension.rsv();
+        }
+
+        @Override
+        public WebSocketExtensionEncoder newExtensionEncoder() {
+            return new SharedDeflateEncoder(compressionLevel);
+        }
+
+        @Override
+        public WebSocketExtensionDecoder newExtensionDecoder() {
+            return extension.newExtensionDecoder();
+        }
+
+        @Override
+        public WebSocketExtensionData newReponseData() {
+            return extension.newReponseData();
+        }
+    }
+}
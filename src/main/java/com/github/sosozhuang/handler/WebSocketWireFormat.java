@@ -0,0 +1,49 @@
+package com.github.sosozhuang.handler;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+
+// Encodes a server frame (never masked) the way WebSocket08FrameEncoder does,
+// so the bytes can be shared by every connection of a broadcast.
+public final class WebSocketWireFormat {
+    private static final int OPCODE_TEXT = 0x1;
+    private static final int OPCODE_BINARY = 0x2;
+
+    private WebSocketWireFormat() {}
+
+    public static ByteBuf encode(ByteBufAllocator alloc, WebSocketFrame frame) {
+        int opcode;
+        if (frame instanceof TextWebSocketFrame) {
+            opcode = OPCODE_TEXT;
+        } else if (frame instanceof BinaryWebSocketFrame) {
+            opcode = OPCODE_BINARY;
+        } else {
+            throw new UnsupportedOperationException("Cannot encode frame of type: " + frame.getClass().getName());
+        }
+        ByteBuf data = frame.content();
+        int length = data.readableBytes();
+        int b0 = (frame.isFinalFragment() ? 0x80 : 0) | (frame.rsv() % 8 << 4) | opcode;
+
+        ByteBuf buf;
+        if (length <= 125) {
+            buf = alloc.directBuffer(2 + length);
+            buf.writeByte(b0);
+            buf.writeByte(length);
+        } else if (length <= 0xFFFF) {
+            buf = alloc.directBuffer(4 + length);
+            buf.writeByte(b0);
+            buf.writeByte(126);
+            buf.writeShort(length);
+        } else {
+            buf = alloc.directBuffer(10 + length);
+            buf.writeByte(b0);
+            buf.writeByte(127);
+            buf.writeLong(length);
+        }
+        buf.writeBytes(data, data.readerIndex(), length);
+        return buf;
+    }
+}
@@ -43,6 +43,34 @@ public final class Chat {
      * <code>MEMBERS = 5;</code>
      */
     MEMBERS(5),
+    /**
+     * <code>BATCH = 6;</code>
+     */
+    BATCH(6),
+    /**
+     * <pre>
+     * end of a history page
+     * </pre>
+     *
+     * <code>HISTORY = 7;</code>
+     */
+    HISTORY(7),
+    /**
+     * <pre>
+     * a server got its first member of the group
+     * </pre>
+     *
+     * <code>INTEREST = 8;</code>
+     */
+    INTEREST(8),
+    /**
+     * <pre>
+     * numbered messages from content up to seq could not be replayed
+     * </pre>
+     *
+     * <code>GAP = 9;</code>
+     */
+    GAP(9),
     ;
 
     /**
@@ -69,6 +97,34 @@ public final class Chat {
      * <code>MEMBERS = 5;</code>
      */
     public static final int MEMBERS_VALUE = 5;
+    /**
+     * <code>BATCH = 6;</code>
+     */
+    public static final int BATCH_VALUE = 6;
+    /**
+     * <pre>
+     * end of a history page
+     * </pre>
+     *
+     * <code>HISTORY = 7;</code>
+     */
+    public static final int HISTORY_VALUE = 7;
+    /**
+     * <pre>
+     * a server got its first member of the group
+     * </pre>
+     *
+     * <code>INTEREST = 8;</code>
+     */
+    public static final int INTEREST_VALUE = 8;
+    /**
+     * <pre>
+     * numbered messages from content up to seq could not be replayed
+     * </pre>
+     *
+     * <code>GAP = 9;</code>
+     */
+    public static final int GAP_VALUE = 9;
 
 
     public final int getNumber() {
@@ -91,6 +147,10 @@ public final class Chat {
         case 3: return UNREAD;
         case 4: return CONFIRM;
         case 5: return MEMBERS;
+        case 6: return BATCH;
+        case 7: return HISTORY;
+        case 8: return INTEREST;
+        case 9: return GAP;
         default: return null;
       }
     }
@@ -344,6 +404,23 @@ public final class Chat {
      */
     com.google.protobuf.ByteString
         getMembersBytes(int index);
+
+    /**
+     * <pre>
+     * per group sequence of chat messages, 9 is taken by MessageBatch
+     * </pre>
+     *
+     * <code>optional uint64 seq = 10;</code>
+     */
+    boolean hasSeq();
+    /**
+     * <pre>
+     * per group sequence of chat messages, 9 is taken by MessageBatch
+     * </pre>
+     *
+     * <code>optional uint64 seq = 10;</code>
+     */
+    long getSeq();
   }
   /**
    * Protobuf type {@code Message}
@@ -366,6 +443,7 @@ public final class Chat {
       content_ = "";
       createAt_ = 0L;
       members_ = com.google.protobuf.LazyStringArrayList.EMPTY;
+      seq_ = 0L;
     }
 
     @java.lang.Override
@@ -450,6 +528,11 @@ public final class Chat {
               members_.add(bs);
               break;
             }
+            case 80: {
+              bitField0_ |= 0x00000080;
+              seq_ = input.readUInt64();
+              break;
+            }
           }
         }
       } catch (com.google.protobuf.InvalidProtocolBufferException e) {
@@ -721,6 +804,29 @@ public final class Chat {
       return members_.getByteString(index);
     }
 
+    public static final int SEQ_FIELD_NUMBER = 10;
+    private long seq_;
+    /**
+     * <pre>
+     * per group sequence of chat messages, 9 is taken by MessageBatch
+     * </pre>
+     *
+     * <code>optional uint64 seq = 10;</code>
+     */
+    public boolean hasSeq() {
+      return ((bitField0_ & 0x00000080) == 0x00000080);
+    }
+    /**
+     * <pre>
+     * per group sequence of chat messages, 9 is taken by MessageBatch
+     * </pre>
+     *
+     * <code>optional uint64 seq = 10;</code>
+     */
+    public long getSeq() {
+      return seq_;
+    }
+
     private byte memoizedIsInitialized = -1;
     public final boolean isInitialized() {
       byte isInitialized = memoizedIsInitialized;
@@ -777,6 +883,9 @@ public final class Chat {
       for (int i = 0; i < members_.size(); i++) {
         com.google.protobuf.GeneratedMessageV3.writeString(output, 8, members_.getRaw(i));
       }
+      if (((bitField0_ & 0x00000080) == 0x00000080)) {
+        output.writeUInt64(10, seq_);
+      }
       unknownFields.writeTo(output);
     }
 
@@ -817,6 +926,10 @@ public final class Chat {
         size += dataSize;
         size += 1 * getMembersList().size();
       }
+      if (((bitField0_ & 0x00000080) == 0x00000080)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeUInt64Size(10, seq_);
+      }
       size += unknownFields.getSerializedSize();
       memoizedSize = size;
       return size;
@@ -869,6 +982,11 @@ public final class Chat {
       }
       result = result && getMembersList()
           .equals(other.getMembersList());
+      result = result && (hasSeq() == other.hasSeq());
+      if (hasSeq()) {
+        result = result && (getSeq()
+            == other.getSeq());
+      }
       result = result && unknownFields.equals(other.unknownFields);
       return result;
     }
@@ -914,6 +1032,11 @@ public final class Chat {
         hash = (37 * hash) + MEMBERS_FIELD_NUMBER;
         hash = (53 * hash) + getMembersList().hashCode();
       }
+      if (hasSeq()) {
+        hash = (37 * hash) + SEQ_FIELD_NUMBER;
+        hash = (53 * hash) + com.google.protobuf.Internal.hashLong(
+            getSeq());
+      }
       hash = (29 * hash) + unknownFields.hashCode();
       memoizedHashCode = hash;
       return hash;
@@ -1059,6 +1182,8 @@ public final class Chat {
         bitField0_ = (bitField0_ & ~0x00000040);
         members_ = com.google.protobuf.LazyStringArrayList.EMPTY;
         bitField0_ = (bitField0_ & ~0x00000080);
+        seq_ = 0L;
+        bitField0_ = (bitField0_ & ~0x00000100);
         return this;
       }
 
@@ -1116,6 +1241,10 @@ public final class Chat {
           bitField0_ = (bitField0_ & ~0x00000080);
         }
         result.members_ = members_;
+        if (((from_bitField0_ & 0x00000100) == 0x00000100)) {
+          to_bitField0_ |= 0x00000080;
+        }
+        result.seq_ = seq_;
         result.bitField0_ = to_bitField0_;
         onBuilt();
         return result;
@@ -1197,6 +1326,9 @@ public final class Chat {
           }
           onChanged();
         }
+        if (other.hasSeq()) {
+          setSeq(other.getSeq());
+        }
         this.mergeUnknownFields(other.unknownFields);
         onChanged();
         return this;
@@ -1736,6 +1868,54 @@ public final class Chat {
         onChanged();
         return this;
       }
+
+      private long seq_ ;
+      /**
+       * <pre>
+       * per group sequence of chat messages, 9 is taken by MessageBatch
+       * </pre>
+       *
+       * <code>optional uint64 seq = 10;</code>
+       */
+      public boolean hasSeq() {
+        return ((bitField0_ & 0x00000100) == 0x00000100);
+      }
+      /**
+       * <pre>
+       * per group sequence of chat messages, 9 is taken by MessageBatch
+       * </pre>
+       *
+       * <code>optional uint64 seq = 10;</code>
+       */
+      public long getSeq() {
+        return seq_;
+      }
+      /**
+       * <pre>
+       * per group sequence of chat messages, 9 is taken by MessageBatch
+       * </pre>
+       *
+       * <code>optional uint64 seq = 10;</code>
+       */
+      public Builder setSeq(long value) {
+        bitField0_ |= 0x00000100;
+        seq_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <pre>
+       * per group sequence of chat messages, 9 is taken by MessageBatch
+       * </pre>
+       *
+       * <code>optional uint64 seq = 10;</code>
+       */
+      public Builder clearSeq() {
+        bitField0_ = (bitField0_ & ~0x00000100);
+        seq_ = 0L;
+        onChanged();
+        return this;
+      }
       public final Builder setUnknownFields(
           final com.google.protobuf.UnknownFieldSet unknownFields) {
         return super.setUnknownFields(unknownFields);
@@ -1785,78 +1965,87 @@ public final class Chat {
 
   }
 
-  public interface GroupOrBuilder extends
-      // @@protoc_insertion_point(interface_extends:Group)
+  public interface MessageBatchOrBuilder extends
+      // @@protoc_insertion_point(interface_extends:MessageBatch)
       com.google.protobuf.MessageOrBuilder {
 
     /**
-     * <code>required string id = 1;</code>
-     */
-    boolean hasId();
-    /**
-     * <code>required string id = 1;</code>
+     * <code>required .MessageType type = 1;</code>
      */
-    java.lang.String getId();
+    boolean hasType();
     /**
-     * <code>required string id = 1;</code>
+     * <code>required .MessageType type = 1;</code>
      */
-    com.google.protobuf.ByteString
-        getIdBytes();
+    com.github.sosozhuang.protobuf.Chat.MessageType getType();
 
     /**
-     * <code>required string token = 2;</code>
+     * <code>required string group_id = 2;</code>
      */
-    boolean hasToken();
+    boolean hasGroupId();
     /**
-     * <code>required string token = 2;</code>
+     * <code>required string group_id = 2;</code>
      */
-    java.lang.String getToken();
+    java.lang.String getGroupId();
     /**
-     * <code>required string token = 2;</code>
+     * <code>required string group_id = 2;</code>
      */
     com.google.protobuf.ByteString
-        getTokenBytes();
+        getGroupIdBytes();
 
     /**
-     * <code>required string owner = 3;</code>
-     */
-    boolean hasOwner();
-    /**
-     * <code>required string owner = 3;</code>
+     * <code>required uint64 server_id = 3;</code>
      */
-    java.lang.String getOwner();
+    boolean hasServerId();
     /**
-     * <code>required string owner = 3;</code>
+     * <code>required uint64 server_id = 3;</code>
      */
-    com.google.protobuf.ByteString
-        getOwnerBytes();
+    long getServerId();
 
     /**
-     * <code>required uint64 create_at = 4;</code>
+     * <code>required uint64 create_at = 7;</code>
      */
     boolean hasCreateAt();
     /**
-     * <code>required uint64 create_at = 4;</code>
+     * <code>required uint64 create_at = 7;</code>
      */
     long getCreateAt();
+
+    /**
+     * <code>repeated bytes messages = 9;</code>
+     */
+    java.util.List<com.google.protobuf.ByteString> getMessagesList();
+    /**
+     * <code>repeated bytes messages = 9;</code>
+     */
+    int getMessagesCount();
+    /**
+     * <code>repeated bytes messages = 9;</code>
+     */
+    com.google.protobuf.ByteString getMessages(int index);
   }
   /**
-   * Protobuf type {@code Group}
+   * <pre>
+   * messages of one group sent as a single broker record, fields share
+   * numbers with Message so the type can be checked before parsing
+   * </pre>
+   *
+   * Protobuf type {@code MessageBatch}
    */
-  public  static final class Group extends
+  public  static final class MessageBatch extends
       com.google.protobuf.GeneratedMessageV3 implements
-      // @@protoc_insertion_point(message_implements:Group)
-      GroupOrBuilder {
+      // @@protoc_insertion_point(message_implements:MessageBatch)
+      MessageBatchOrBuilder {
   private static final long serialVersionUID = 0L;
-    // Use Group.newBuilder() to construct.
-    private Group(com.google.protobuf.GeneratedMessageV3.Builder<?> builder) {
+    // Use MessageBatch.newBuilder() to construct.
+    private MessageBatch(com.google.protobuf.GeneratedMessageV3.Builder<?> builder) {
       super(builder);
     }
-    private Group() {
-      id_ = "";
-      token_ = "";
-      owner_ = "";
+    private MessageBatch() {
+      type_ = 0;
+      groupId_ = "";
+      serverId_ = 0L;
       createAt_ = 0L;
+      messages_ = java.util.Collections.emptyList();
     }
 
     @java.lang.Override
@@ -1864,7 +2053,7 @@ public final class Chat {
     getUnknownFields() {
       return this.unknownFields;
     }
-    private Group(
+    private MessageBatch(
         com.google.protobuf.CodedInputStream input,
         com.google.protobuf.ExtensionRegistryLite extensionRegistry)
         throws com.google.protobuf.InvalidProtocolBufferException {
@@ -1887,29 +2076,41 @@ public final class Chat {
               }
               break;
             }
-            case 10: {
-              com.google.protobuf.ByteString bs = input.readBytes();
-              bitField0_ |= 0x00000001;
-              id_ = bs;
+            case 8: {
+              int rawValue = input.readEnum();
+              com.github.sosozhuang.protobuf.Chat.MessageType value = com.github.sosozhuang.protobuf.Chat.MessageType.valueOf(rawValue);
+              if (value == null) {
+                unknownFields.mergeVarintField(1, rawValue);
+              } else {
+                bitField0_ |= 0x00000001;
+                type_ = rawValue;
+              }
               break;
             }
             case 18: {
               com.google.protobuf.ByteString bs = input.readBytes();
               bitField0_ |= 0x00000002;
-              token_ = bs;
+              groupId_ = bs;
               break;
             }
-            case 26: {
-              com.google.protobuf.ByteString bs = input.readBytes();
+            case 24: {
               bitField0_ |= 0x00000004;
-              owner_ = bs;
+              serverId_ = input.readUInt64();
               break;
             }
-            case 32: {
+            case 56: {
               bitField0_ |= 0x00000008;
               createAt_ = input.readUInt64();
               break;
             }
+            case 74: {
+              if (!((mutable_bitField0_ & 0x00000010) == 0x00000010)) {
+                messages_ = new java.util.ArrayList<com.google.protobuf.ByteString>();
+                mutable_bitField0_ |= 0x00000010;
+              }
+              messages_.add(input.readBytes());
+              break;
+            }
           }
         }
       } catch (com.google.protobuf.InvalidProtocolBufferException e) {
@@ -1918,78 +2119,55 @@ public final class Chat {
         throw new com.google.protobuf.InvalidProtocolBufferException(
             e).setUnfinishedMessage(this);
       } finally {
+        if (((mutable_bitField0_ & 0x00000010) == 0x00000010)) {
+          messages_ = java.util.Collections.unmodifiableList(messages_);
+        }
         this.unknownFields = unknownFields.build();
         makeExtensionsImmutable();
       }
     }
     public static final com.google.protobuf.Descriptors.Descriptor
         getDescriptor() {
-      return com.github.sosozhuang.protobuf.Chat.internal_static_Group_descriptor;
+      return com.github.sosozhuang.protobuf.Chat.internal_static_MessageBatch_descriptor;
     }
 
     protected com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
         internalGetFieldAccessorTable() {
-      return com.github.sosozhuang.protobuf.Chat.internal_static_Group_fieldAccessorTable
+      return com.github.sosozhuang.protobuf.Chat.internal_static_MessageBatch_fieldAccessorTable
           .ensureFieldAccessorsInitialized(
-              com.github.sosozhuang.protobuf.Chat.Group.class, com.github.sosozhuang.protobuf.Chat.Group.Builder.class);
+              com.github.sosozhuang.protobuf.Chat.MessageBatch.class, com.github.sosozhuang.protobuf.Chat.MessageBatch.Builder.class);
     }
 
     private int bitField0_;
-    public static final int ID_FIELD_NUMBER = 1;
-    private volatile java.lang.Object id_;
+    public static final int TYPE_FIELD_NUMBER = 1;
+    private int type_;
     /**
-     * <code>required string id = 1;</code>
+     * <code>required .MessageType type = 1;</code>
      */
-    public boolean hasId() {
+    public boolean hasType() {
       return ((bitField0_ & 0x00000001) == 0x00000001);
     }
     /**
-     * <code>required string id = 1;</code>
-     */
-    public java.lang.String getId() {
-      java.lang.Object ref = id_;
-      if (ref instanceof java.lang.String) {
-        return (java.lang.String) ref;
-      } else {
-        com.google.protobuf.ByteString bs = 
-            (com.google.protobuf.ByteString) ref;
-        java.lang.String s = bs.toStringUtf8();
-        if (bs.isValidUtf8()) {
-          id_ = s;
-        }
-        return s;
-      }
-    }
-    /**
-     * <code>required string id = 1;</code>
+     * <code>required .MessageType type = 1;</code>
      */
-    public com.google.protobuf.ByteString
-        getIdBytes() {
-      java.lang.Object ref = id_;
-      if (ref instanceof java.lang.String) {
-        com.google.protobuf.ByteString b = 
-            com.google.protobuf.ByteString.copyFromUtf8(
-                (java.lang.String) ref);
-        id_ = b;
-        return b;
-      } else {
-        return (com.google.protobuf.ByteString) ref;
-      }
+    public com.github.sosozhuang.protobuf.Chat.MessageType getType() {
+      com.github.sosozhuang.protobuf.Chat.MessageType result = com.github.sosozhuang.protobuf.Chat.MessageType.valueOf(type_);
+      return result == null ? com.github.sosozhuang.protobuf.Chat.MessageType.CHAT : result;
     }
 
-    public static final int TOKEN_FIELD_NUMBER = 2;
-    private volatile java.lang.Object token_;
+    public static final int GROUP_ID_FIELD_NUMBER = 2;
+    private volatile java.lang.Object groupId_;
     /**
-     * <code>required string token = 2;</code>
+     * <code>required string group_id = 2;</code>
      */
-    public boolean hasToken() {
+    public boolean hasGroupId() {
       return ((bitField0_ & 0x00000002) == 0x00000002);
     }
     /**
-     * <code>required string token = 2;</code>
+     * <code>required string group_id = 2;</code>
      */
-    public java.lang.String getToken() {
-      java.lang.Object ref = token_;
+    public java.lang.String getGroupId() {
+      java.lang.Object ref = groupId_;
       if (ref instanceof java.lang.String) {
         return (java.lang.String) ref;
       } else {
@@ -1997,100 +2175,95 @@ public final class Chat {
             (com.google.protobuf.ByteString) ref;
         java.lang.String s = bs.toStringUtf8();
         if (bs.isValidUtf8()) {
-          token_ = s;
+          groupId_ = s;
         }
         return s;
       }
     }
     /**
-     * <code>required string token = 2;</code>
+     * <code>required string group_id = 2;</code>
      */
     public com.google.protobuf.ByteString
-        getTokenBytes() {
-      java.lang.Object ref = token_;
+        getGroupIdBytes() {
+      java.lang.Object ref = groupId_;
       if (ref instanceof java.lang.String) {
         com.google.protobuf.ByteString b = 
             com.google.protobuf.ByteString.copyFromUtf8(
                 (java.lang.String) ref);
-        token_ = b;
+        groupId_ = b;
         return b;
       } else {
         return (com.google.protobuf.ByteString) ref;
       }
     }
 
-    public static final int OWNER_FIELD_NUMBER = 3;
-    private volatile java.lang.Object owner_;
+    public static final int SERVER_ID_FIELD_NUMBER = 3;
+    private long serverId_;
     /**
-     * <code>required string owner = 3;</code>
+     * <code>required uint64 server_id = 3;</code>
      */
-    public boolean hasOwner() {
+    public boolean hasServerId() {
       return ((bitField0_ & 0x00000004) == 0x00000004);
     }
     /**
-     * <code>required string owner = 3;</code>
+     * <code>required uint64 server_id = 3;</code>
      */
-    public java.lang.String getOwner() {
-      java.lang.Object ref = owner_;
-      if (ref instanceof java.lang.String) {
-        return (java.lang.String) ref;
-      } else {
-        com.google.protobuf.ByteString bs = 
-            (com.google.protobuf.ByteString) ref;
-        java.lang.String s = bs.toStringUtf8();
-        if (bs.isValidUtf8()) {
-          owner_ = s;
-        }
-        return s;
-      }
+    public long getServerId() {
+      return serverId_;
     }
+
+    public static final int CREATE_AT_FIELD_NUMBER = 7;
+    private long createAt_;
     /**
-     * <code>required string owner = 3;</code>
-     */
-    public com.google.protobuf.ByteString
-        getOwnerBytes() {
-      java.lang.Object ref = owner_;
-      if (ref instanceof java.lang.String) {
-        com.google.protobuf.ByteString b = 
-            com.google.protobuf.ByteString.copyFromUtf8(
-                (java.lang.String) ref);
-        owner_ = b;
-        return b;
-      } else {
-        return (com.google.protobuf.ByteString) ref;
-      }
-    }
-
-    public static final int CREATE_AT_FIELD_NUMBER = 4;
-    private long createAt_;
-    /**
-     * <code>required uint64 create_at = 4;</code>
+     * <code>required uint64 create_at = 7;</code>
      */
     public boolean hasCreateAt() {
       return ((bitField0_ & 0x00000008) == 0x00000008);
     }
     /**
-     * <code>required uint64 create_at = 4;</code>
+     * <code>required uint64 create_at = 7;</code>
      */
     public long getCreateAt() {
       return createAt_;
     }
 
+    public static final int MESSAGES_FIELD_NUMBER = 9;
+    private java.util.List<com.google.protobuf.ByteString> messages_;
+    /**
+     * <code>repeated bytes messages = 9;</code>
+     */
+    public java.util.List<com.google.protobuf.ByteString>
+        getMessagesList() {
+      return messages_;
+    }
+    /**
+     * <code>repeated bytes messages = 9;</code>
+     */
+    public int getMessagesCount() {
+      return messages_.size();
+    }
+    /**
+     * <code>repeated bytes messages = 9;</code>
+     */
+    public com.google.protobuf.ByteString getMessages(int index) {
+      return messages_.get(index);
+    }
+
     private byte memoizedIsInitialized = -1;
     public final boolean isInitialized() {
       byte isInitialized = memoizedIsInitialized;
       if (isInitialized == 1) return true;
       if (isInitialized == 0) return false;
 
-      if (!hasId()) {
+      if (!hasType()) {
         memoizedIsInitialized = 0;
         return false;
       }
-      if (!hasToken()) {
+      if (!hasGroupId()) {
         memoizedIsInitialized = 0;
         return false;
       }
-      if (!hasOwner()) {
+      if (!hasServerId()) {
         memoizedIsInitialized = 0;
         return false;
       }
@@ -2105,16 +2278,19 @@ public final class Chat {
     public void writeTo(com.google.protobuf.CodedOutputStream output)
                         throws java.io.IOException {
       if (((bitField0_ & 0x00000001) == 0x00000001)) {
-        com.google.protobuf.GeneratedMessageV3.writeString(output, 1, id_);
+        output.writeEnum(1, type_);
       }
       if (((bitField0_ & 0x00000002) == 0x00000002)) {
-        com.google.protobuf.GeneratedMessageV3.writeString(output, 2, token_);
+        com.google.protobuf.GeneratedMessageV3.writeString(output, 2, groupId_);
       }
       if (((bitField0_ & 0x00000004) == 0x00000004)) {
-        com.google.protobuf.GeneratedMessageV3.writeString(output, 3, owner_);
+        output.writeUInt64(3, serverId_);
       }
       if (((bitField0_ & 0x00000008) == 0x00000008)) {
-        output.writeUInt64(4, createAt_);
+        output.writeUInt64(7, createAt_);
+      }
+      for (int i = 0; i < messages_.size(); i++) {
+        output.writeBytes(9, messages_.get(i));
       }
       unknownFields.writeTo(output);
     }
@@ -2125,17 +2301,28 @@ public final class Chat {
 
       size = 0;
       if (((bitField0_ & 0x00000001) == 0x00000001)) {
-        size += com.google.protobuf.GeneratedMessageV3.computeStringSize(1, id_);
+        size += com.google.protobuf.CodedOutputStream
+          .computeEnumSize(1, type_);
       }
       if (((bitField0_ & 0x00000002) == 0x00000002)) {
-        size += com.google.protobuf.GeneratedMessageV3.computeStringSize(2, token_);
+        size += com.google.protobuf.GeneratedMessageV3.computeStringSize(2, groupId_);
       }
       if (((bitField0_ & 0x00000004) == 0x00000004)) {
-        size += com.google.protobuf.GeneratedMessageV3.computeStringSize(3, owner_);
+        size += com.google.protobuf.CodedOutputStream
+          .computeUInt64Size(3, serverId_);
       }
       if (((bitField0_ & 0x00000008) == 0x00000008)) {
         size += com.google.protobuf.CodedOutputStream
-          .computeUInt64Size(4, createAt_);
+          .computeUInt64Size(7, createAt_);
+      }
+      {
+        int dataSize = 0;
+        for (int i = 0; i < messages_.size(); i++) {
+          dataSize += com.google.protobuf.CodedOutputStream
+            .computeBytesSizeNoTag(messages_.get(i));
+        }
+        size += dataSize;
+        size += 1 * getMessagesList().size();
       }
       size += unknownFields.getSerializedSize();
       memoizedSize = size;
@@ -2147,32 +2334,33 @@ public final class Chat {
       if (obj == this) {
        return true;
       }
-      if (!(obj instanceof com.github.sosozhuang.protobuf.Chat.Group)) {
+      if (!(obj instanceof com.github.sosozhuang.protobuf.Chat.MessageBatch)) {
         return super.equals(obj);
       }
-      com.github.sosozhuang.protobuf.Chat.Group other = (com.github.sosozhuang.protobuf.Chat.Group) obj;
+      com.github.sosozhuang.protobuf.Chat.MessageBatch other = (com.github.sosozhuang.protobuf.Chat.MessageBatch) obj;
 
       boolean result = true;
-      result = result && (hasId() == other.hasId());
-      if (hasId()) {
-        result = result && getId()
-            .equals(other.getId());
+      result = result && (hasType() == other.hasType());
+      if (hasType()) {
+        result = result && type_ == other.type_;
       }
-      result = result && (hasToken() == other.hasToken());
-      if (hasToken()) {
-        result = result && getToken()
-            .equals(other.getToken());
+      result = result && (hasGroupId() == other.hasGroupId());
+      if (hasGroupId()) {
+        result = result && getGroupId()
+            .equals(other.getGroupId());
       }
-      result = result && (hasOwner() == other.hasOwner());
-      if (hasOwner()) {
-        result = result && getOwner()
-            .equals(other.getOwner());
+      result = result && (hasServerId() == other.hasServerId());
+      if (hasServerId()) {
+        result = result && (getServerId()
+            == other.getServerId());
       }
       result = result && (hasCreateAt() == other.hasCreateAt());
       if (hasCreateAt()) {
         result = result && (getCreateAt()
             == other.getCreateAt());
       }
+      result = result && getMessagesList()
+          .equals(other.getMessagesList());
       result = result && unknownFields.equals(other.unknownFields);
       return result;
     }
@@ -2184,91 +2372,96 @@ public final class Chat {
       }
       int hash = 41;
       hash = (19 * hash) + getDescriptor().hashCode();
-      if (hasId()) {
-        hash = (37 * hash) + ID_FIELD_NUMBER;
-        hash = (53 * hash) + getId().hashCode();
+      if (hasType()) {
+        hash = (37 * hash) + TYPE_FIELD_NUMBER;
+        hash = (53 * hash) + type_;
       }
-      if (hasToken()) {
-        hash = (37 * hash) + TOKEN_FIELD_NUMBER;
-        hash = (53 * hash) + getToken().hashCode();
+      if (hasGroupId()) {
+        hash = (37 * hash) + GROUP_ID_FIELD_NUMBER;
+        hash = (53 * hash) + getGroupId().hashCode();
       }
-      if (hasOwner()) {
-        hash = (37 * hash) + OWNER_FIELD_NUMBER;
-        hash = (53 * hash) + getOwner().hashCode();
+      if (hasServerId()) {
+        hash = (37 * hash) + SERVER_ID_FIELD_NUMBER;
+        hash = (53 * hash) + com.google.protobuf.Internal.hashLong(
+            getServerId());
       }
       if (hasCreateAt()) {
         hash = (37 * hash) + CREATE_AT_FIELD_NUMBER;
         hash = (53 * hash) + com.google.protobuf.Internal.hashLong(
             getCreateAt());
       }
+      if (getMessagesCount() > 0) {
+        hash = (37 * hash) + MESSAGES_FIELD_NUMBER;
+        hash = (53 * hash) + getMessagesList().hashCode();
+      }
       hash = (29 * hash) + unknownFields.hashCode();
       memoizedHashCode = hash;
       return hash;
     }
 
-    public static com.github.sosozhuang.protobuf.Chat.Group parseFrom(
+    public static com.github.sosozhuang.protobuf.Chat.MessageBatch parseFrom(
         java.nio.ByteBuffer data)
         throws com.google.protobuf.InvalidProtocolBufferException {
       return PARSER.parseFrom(data);
     }
-    public static com.github.sosozhuang.protobuf.Chat.Group parseFrom(
+    public static com.github.sosozhuang.protobuf.Chat.MessageBatch parseFrom(
         java.nio.ByteBuffer data,
         com.google.protobuf.ExtensionRegistryLite extensionRegistry)
         throws com.google.protobuf.InvalidProtocolBufferException {
       return PARSER.parseFrom(data, extensionRegistry);
     }
-    public static com.github.sosozhuang.protobuf.Chat.Group parseFrom(
+    public static com.github.sosozhuang.protobuf.Chat.MessageBatch parseFrom(
         com.google.protobuf.ByteString data)
         throws com.google.protobuf.InvalidProtocolBufferException {
       return PARSER.parseFrom(data);
     }
-    public static com.github.sosozhuang.protobuf.Chat.Group parseFrom(
+    public static com.github.sosozhuang.protobuf.Chat.MessageBatch parseFrom(
         com.google.protobuf.ByteString data,
         com.google.protobuf.ExtensionRegistryLite extensionRegistry)
         throws com.google.protobuf.InvalidProtocolBufferException {
       return PARSER.parseFrom(data, extensionRegistry);
     }
-    public static com.github.sosozhuang.protobuf.Chat.Group parseFrom(byte[] data)
+    public static com.github.sosozhuang.protobuf.Chat.MessageBatch parseFrom(byte[] data)
         throws com.google.protobuf.InvalidProtocolBufferException {
       return PARSER.parseFrom(data);
     }
-    public static com.github.sosozhuang.protobuf.Chat.Group parseFrom(
+    public static com.github.sosozhuang.protobuf.Chat.MessageBatch parseFrom(
         byte[] data,
         com.google.protobuf.ExtensionRegistryLite extensionRegistry)
         throws com.google.protobuf.InvalidProtocolBufferException {
       return PARSER.parseFrom(data, extensionRegistry);
     }
-    public static com.github.sosozhuang.protobuf.Chat.Group parseFrom(java.io.InputStream input)
+    public static com.github.sosozhuang.protobuf.Chat.MessageBatch parseFrom(java.io.InputStream input)
         throws java.io.IOException {
       return com.google.protobuf.GeneratedMessageV3
           .parseWithIOException(PARSER, input);
     }
-    public static com.github.sosozhuang.protobuf.Chat.Group parseFrom(
+    public static com.github.sosozhuang.protobuf.Chat.MessageBatch parseFrom(
         java.io.InputStream input,
         com.google.protobuf.ExtensionRegistryLite extensionRegistry)
         throws java.io.IOException {
       return com.google.protobuf.GeneratedMessageV3
           .parseWithIOException(PARSER, input, extensionRegistry);
     }
-    public static com.github.sosozhuang.protobuf.Chat.Group parseDelimitedFrom(java.io.InputStream input)
+    public static com.github.sosozhuang.protobuf.Chat.MessageBatch parseDelimitedFrom(java.io.InputStream input)
         throws java.io.IOException {
       return com.google.protobuf.GeneratedMessageV3
           .parseDelimitedWithIOException(PARSER, input);
     }
-    public static com.github.sosozhuang.protobuf.Chat.Group parseDelimitedFrom(
+    public static com.github.sosozhuang.protobuf.Chat.MessageBatch parseDelimitedFrom(
         java.io.InputStream input,
         com.google.protobuf.ExtensionRegistryLite extensionRegistry)
         throws java.io.IOException {
       return com.google.protobuf.GeneratedMessageV3
           .parseDelimitedWithIOException(PARSER, input, extensionRegistry);
     }
-    public static com.github.sosozhuang.protobuf.Chat.Group parseFrom(
+    public static com.github.sosozhuang.protobuf.Chat.MessageBatch parseFrom(
         com.google.protobuf.CodedInputStream input)
         throws java.io.IOException {
       return com.google.protobuf.GeneratedMessageV3
           .parseWithIOException(PARSER, input);
     }
-    public static com.github.sosozhuang.protobuf.Chat.Group parseFrom(
+    public static com.github.sosozhuang.protobuf.Chat.MessageBatch parseFrom(
         com.google.protobuf.CodedInputStream input,
         com.google.protobuf.ExtensionRegistryLite extensionRegistry)
         throws java.io.IOException {
@@ -2280,7 +2473,7 @@ public final class Chat {
     public static Builder newBuilder() {
       return DEFAULT_INSTANCE.toBuilder();
     }
-    public static Builder newBuilder(com.github.sosozhuang.protobuf.Chat.Group prototype) {
+    public static Builder newBuilder(com.github.sosozhuang.protobuf.Chat.MessageBatch prototype) {
       return DEFAULT_INSTANCE.toBuilder().mergeFrom(prototype);
     }
     public Builder toBuilder() {
@@ -2295,25 +2488,30 @@ public final class Chat {
       return builder;
     }
     /**
-     * Protobuf type {@code Group}
+     * <pre>
+     * messages of one group sent as a single broker record, fields share
+     * numbers with Message so the type can be checked before parsing
+     * </pre>
+     *
+     * Protobuf type {@code MessageBatch}
      */
     public static final class Builder extends
         com.google.protobuf.GeneratedMessageV3.Builder<Builder> implements
-        // @@protoc_insertion_point(builder_implements:Group)
-        com.github.sosozhuang.protobuf.Chat.GroupOrBuilder {
+        // @@protoc_insertion_point(builder_implements:MessageBatch)
+        com.github.sosozhuang.protobuf.Chat.MessageBatchOrBuilder {
       public static final com.google.protobuf.Descriptors.Descriptor
           getDescriptor() {
-        return com.github.sosozhuang.protobuf.Chat.internal_static_Group_descriptor;
+        return com.github.sosozhuang.protobuf.Chat.internal_static_MessageBatch_descriptor;
       }
 
       protected com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
           internalGetFieldAccessorTable() {
-        return com.github.sosozhuang.protobuf.Chat.internal_static_Group_fieldAccessorTable
+        return com.github.sosozhuang.protobuf.Chat.internal_static_MessageBatch_fieldAccessorTable
             .ensureFieldAccessorsInitialized(
-                com.github.sosozhuang.protobuf.Chat.Group.class, com.github.sosozhuang.protobuf.Chat.Group.Builder.class);
+                com.github.sosozhuang.protobuf.Chat.MessageBatch.class, com.github.sosozhuang.protobuf.Chat.MessageBatch.Builder.class);
       }
 
-      // Construct using com.github.sosozhuang.protobuf.Chat.Group.newBuilder()
+      // Construct using com.github.sosozhuang.protobuf.Chat.MessageBatch.newBuilder()
       private Builder() {
         maybeForceBuilderInitialization();
       }
@@ -2330,54 +2528,61 @@ public final class Chat {
       }
       public Builder clear() {
         super.clear();
-        id_ = "";
+        type_ = 0;
         bitField0_ = (bitField0_ & ~0x00000001);
-        token_ = "";
+        groupId_ = "";
         bitField0_ = (bitField0_ & ~0x00000002);
-        owner_ = "";
+        serverId_ = 0L;
         bitField0_ = (bitField0_ & ~0x00000004);
         createAt_ = 0L;
         bitField0_ = (bitField0_ & ~0x00000008);
+        messages_ = java.util.Collections.emptyList();
+        bitField0_ = (bitField0_ & ~0x00000010);
         return this;
       }
 
       public com.google.protobuf.Descriptors.Descriptor
           getDescriptorForType() {
-        return com.github.sosozhuang.protobuf.Chat.internal_static_Group_descriptor;
+        return com.github.sosozhuang.protobuf.Chat.internal_static_MessageBatch_descriptor;
       }
 
-      public com.github.sosozhuang.protobuf.Chat.Group getDefaultInstanceForType() {
-        return com.github.sosozhuang.protobuf.Chat.Group.getDefaultInstance();
+      public com.github.sosozhuang.protobuf.Chat.MessageBatch getDefaultInstanceForType() {
+        return com.github.sosozhuang.protobuf.Chat.MessageBatch.getDefaultInstance();
       }
 
-      public com.github.sosozhuang.protobuf.Chat.Group build() {
-        com.github.sosozhuang.protobuf.Chat.Group result = buildPartial();
+      public com.github.sosozhuang.protobuf.Chat.MessageBatch build() {
+        com.github.sosozhuang.protobuf.Chat.MessageBatch result = buildPartial();
         if (!result.isInitialized()) {
           throw newUninitializedMessageException(result);
         }
         return result;
       }
 
-      public com.github.sosozhuang.protobuf.Chat.Group buildPartial() {
-        com.github.sosozhuang.protobuf.Chat.Group result = new com.github.sosozhuang.protobuf.Chat.Group(this);
+      public com.github.sosozhuang.protobuf.Chat.MessageBatch buildPartial() {
+        com.github.sosozhuang.protobuf.Chat.MessageBatch result = new com.github.sosozhuang.protobuf.Chat.MessageBatch(this);
         int from_bitField0_ = bitField0_;
         int to_bitField0_ = 0;
         if (((from_bitField0_ & 0x00000001) == 0x00000001)) {
           to_bitField0_ |= 0x00000001;
         }
-        result.id_ = id_;
+        result.type_ = type_;
         if (((from_bitField0_ & 0x00000002) == 0x00000002)) {
           to_bitField0_ |= 0x00000002;
         }
-        result.token_ = token_;
+        result.groupId_ = groupId_;
         if (((from_bitField0_ & 0x00000004) == 0x00000004)) {
           to_bitField0_ |= 0x00000004;
         }
-        result.owner_ = owner_;
+        result.serverId_ = serverId_;
         if (((from_bitField0_ & 0x00000008) == 0x00000008)) {
           to_bitField0_ |= 0x00000008;
         }
         result.createAt_ = createAt_;
+        if (((bitField0_ & 0x00000010) == 0x00000010)) {
+          messages_ = java.util.Collections.unmodifiableList(messages_);
+          bitField0_ = (bitField0_ & ~0x00000010);
+        }
+        result.messages_ = messages_;
         result.bitField0_ = to_bitField0_;
         onBuilt();
         return result;
@@ -2410,47 +2615,53 @@ public final class Chat {
         return (Builder) super.addRepeatedField(field, value);
       }
       public Builder mergeFrom(com.google.protobuf.Message other) {
-        if (other instanceof com.github.sosozhuang.protobuf.Chat.Group) {
-          return mergeFrom((com.github.sosozhuang.protobuf.Chat.Group)other);
+        if (other instanceof com.github.sosozhuang.protobuf.Chat.MessageBatch) {
+          return mergeFrom((com.github.sosozhuang.protobuf.Chat.MessageBatch)other);
         } else {
           super.mergeFrom(other);
           return this;
         }
       }
 
-      public Builder mergeFrom(com.github.sosozhuang.protobuf.Chat.Group other) {
-        if (other == com.github.sosozhuang.protobuf.Chat.Group.getDefaultInstance()) return this;
-        if (other.hasId()) {
-          bitField0_ |= 0x00000001;
-          id_ = other.id_;
-          onChanged();
+      public Builder mergeFrom(com.github.sosozhuang.protobuf.Chat.MessageBatch other) {
+        if (other == com.github.sosozhuang.protobuf.Chat.MessageBatch.getDefaultInstance()) return this;
+        if (other.hasType()) {
+          setType(other.getType());
         }
-        if (other.hasToken()) {
+        if (other.hasGroupId()) {
           bitField0_ |= 0x00000002;
-          token_ = other.token_;
+          groupId_ = other.groupId_;
           onChanged();
         }
-        if (other.hasOwner()) {
-          bitField0_ |= 0x00000004;
-          owner_ = other.owner_;
-          onChanged();
+        if (other.hasServerId()) {
+          setServerId(other.getServerId());
         }
         if (other.hasCreateAt()) {
           setCreateAt(other.getCreateAt());
         }
+        if (!other.messages_.isEmpty()) {
+          if (messages_.isEmpty()) {
+            messages_ = other.messages_;
+            bitField0_ = (bitField0_ & ~0x00000010);
+          } else {
+            ensureMessagesIsMutable();
+            messages_.addAll(other.messages_);
+          }
+          onChanged();
+        }
         this.mergeUnknownFields(other.unknownFields);
         onChanged();
         return this;
       }
 
       public final boolean isInitialized() {
-        if (!hasId()) {
+        if (!hasType()) {
           return false;
         }
-        if (!hasToken()) {
+        if (!hasGroupId()) {
           return false;
         }
-        if (!hasOwner()) {
+        if (!hasServerId()) {
           return false;
         }
         if (!hasCreateAt()) {
@@ -2463,11 +2674,11 @@ public final class Chat {
           com.google.protobuf.CodedInputStream input,
           com.google.protobuf.ExtensionRegistryLite extensionRegistry)
           throws java.io.IOException {
-        com.github.sosozhuang.protobuf.Chat.Group parsedMessage = null;
+        com.github.sosozhuang.protobuf.Chat.MessageBatch parsedMessage = null;
         try {
           parsedMessage = PARSER.parsePartialFrom(input, extensionRegistry);
         } catch (com.google.protobuf.InvalidProtocolBufferException e) {
-          parsedMessage = (com.github.sosozhuang.protobuf.Chat.Group) e.getUnfinishedMessage();
+          parsedMessage = (com.github.sosozhuang.protobuf.Chat.MessageBatch) e.getUnfinishedMessage();
           throw e.unwrapIOException();
         } finally {
           if (parsedMessage != null) {
@@ -2478,24 +2689,60 @@ public final class Chat {
       }
       private int bitField0_;
 
-      private java.lang.Object id_ = "";
+      private int type_ = 0;
       /**
-       * <code>required string id = 1;</code>
+       * <code>required .MessageType type = 1;</code>
        */
-      public boolean hasId() {
+      public boolean hasType() {
         return ((bitField0_ & 0x00000001) == 0x00000001);
       }
       /**
-       * <code>required string id = 1;</code>
+       * <code>required .MessageType type = 1;</code>
        */
-      public java.lang.String getId() {
-        java.lang.Object ref = id_;
+      public com.github.sosozhuang.protobuf.Chat.MessageType getType() {
+        com.github.sosozhuang.protobuf.Chat.MessageType result = com.github.sosozhuang.protobuf.Chat.MessageType.valueOf(type_);
+        return result == null ? com.github.sosozhuang.protobuf.Chat.MessageType.CHAT : result;
+      }
+      /**
+       * <code>required .MessageType type = 1;</code>
+       */
+      public Builder setType(com.github.sosozhuang.protobuf.Chat.MessageType value) {
+        if (value == null) {
+          throw new NullPointerException();
+        }
+        bitField0_ |= 0x00000001;
+        type_ = value.getNumber();
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>required .MessageType type = 1;</code>
+       */
+      public Builder clearType() {
+        bitField0_ = (bitField0_ & ~0x00000001);
+        type_ = 0;
+        onChanged();
+        return this;
+      }
+
+      private java.lang.Object groupId_ = "";
+      /**
+       * <code>required string group_id = 2;</code>
+       */
+      public boolean hasGroupId() {
+        return ((bitField0_ & 0x00000002) == 0x00000002);
+      }
+      /**
+       * <code>required string group_id = 2;</code>
+       */
+      public java.lang.String getGroupId() {
+        java.lang.Object ref = groupId_;
         if (!(ref instanceof java.lang.String)) {
           com.google.protobuf.ByteString bs =
               (com.google.protobuf.ByteString) ref;
           java.lang.String s = bs.toStringUtf8();
           if (bs.isValidUtf8()) {
-            id_ = s;
+            groupId_ = s;
           }
           return s;
         } else {
@@ -2503,75 +2750,2084 @@ public final class Chat {
         }
       }
       /**
-       * <code>required string id = 1;</code>
+       * <code>required string group_id = 2;</code>
        */
       public com.google.protobuf.ByteString
-          getIdBytes() {
-        java.lang.Object ref = id_;
+          getGroupIdBytes() {
+        java.lang.Object ref = groupId_;
         if (ref instanceof String) {
           com.google.protobuf.ByteString b = 
               com.google.protobuf.ByteString.copyFromUtf8(
                   (java.lang.String) ref);
-          id_ = b;
+          groupId_ = b;
           return b;
         } else {
           return (com.google.protobuf.ByteString) ref;
         }
       }
       /**
-       * <code>required string id = 1;</code>
+       * <code>required string group_id = 2;</code>
        */
-      public Builder setId(
+      public Builder setGroupId(
           java.lang.String value) {
         if (value == null) {
     throw new NullPointerException();
   }
-  bitField0_ |= 0x00000001;
-        id_ = value;
+  bitField0_ |= 0x00000002;
+        groupId_ = value;
         onChanged();
         return this;
       }
       /**
-       * <code>required string id = 1;</code>
+       * <code>required string group_id = 2;</code>
        */
-      public Builder clearId() {
-        bitField0_ = (bitField0_ & ~0x00000001);
-        id_ = getDefaultInstance().getId();
+      public Builder clearGroupId() {
+        bitField0_ = (bitField0_ & ~0x00000002);
+        groupId_ = getDefaultInstance().getGroupId();
         onChanged();
         return this;
       }
       /**
-       * <code>required string id = 1;</code>
+       * <code>required string group_id = 2;</code>
        */
-      public Builder setIdBytes(
+      public Builder setGroupIdBytes(
           com.google.protobuf.ByteString value) {
         if (value == null) {
     throw new NullPointerException();
   }
-  bitField0_ |= 0x00000001;
-        id_ = value;
+  bitField0_ |= 0x00000002;
+        groupId_ = value;
         onChanged();
         return this;
       }
 
-      private java.lang.Object token_ = "";
+      private long serverId_ ;
       /**
-       * <code>required string token = 2;</code>
+       * <code>required uint64 server_id = 3;</code>
        */
-      public boolean hasToken() {
-        return ((bitField0_ & 0x00000002) == 0x00000002);
+      public boolean hasServerId() {
+        return ((bitField0_ & 0x00000004) == 0x00000004);
+      }
+      /**
+       * <code>required uint64 server_id = 3;</code>
+       */
+      public long getServerId() {
+        return serverId_;
+      }
+      /**
+       * <code>required uint64 server_id = 3;</code>
+       */
+      public Builder setServerId(long value) {
+        bitField0_ |= 0x00000004;
+        serverId_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>required uint64 server_id = 3;</code>
+       */
+      public Builder clearServerId() {
+        bitField0_ = (bitField0_ & ~0x00000004);
+        serverId_ = 0L;
+        onChanged();
+        return this;
+      }
+
+      private long createAt_ ;
+      /**
+       * <code>required uint64 create_at = 7;</code>
+       */
+      public boolean hasCreateAt() {
+        return ((bitField0_ & 0x00000008) == 0x00000008);
+      }
+      /**
+       * <code>required uint64 create_at = 7;</code>
+       */
+      public long getCreateAt() {
+        return createAt_;
+      }
+      /**
+       * <code>required uint64 create_at = 7;</code>
+       */
+      public Builder setCreateAt(long value) {
+        bitField0_ |= 0x00000008;
+        createAt_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>required uint64 create_at = 7;</code>
+       */
+      public Builder clearCreateAt() {
+        bitField0_ = (bitField0_ & ~0x00000008);
+        createAt_ = 0L;
+        onChanged();
+        return this;
+      }
+
+      private java.util.List<com.google.protobuf.ByteString> messages_ = java.util.Collections.emptyList();
+      private void ensureMessagesIsMutable() {
+        if (!((bitField0_ & 0x00000010) == 0x00000010)) {
+          messages_ = new java.util.ArrayList<com.google.protobuf.ByteString>(messages_);
+          bitField0_ |= 0x00000010;
+         }
+      }
+      /**
+       * <code>repeated bytes messages = 9;</code>
+       */
+      public java.util.List<com.google.protobuf.ByteString>
+          getMessagesList() {
+        return java.util.Collections.unmodifiableList(messages_);
+      }
+      /**
+       * <code>repeated bytes messages = 9;</code>
+       */
+      public int getMessagesCount() {
+        return messages_.size();
+      }
+      /**
+       * <code>repeated bytes messages = 9;</code>
+       */
+      public com.google.protobuf.ByteString getMessages(int index) {
+        return messages_.get(index);
+      }
+      /**
+       * <code>repeated bytes messages = 9;</code>
+       */
+      public Builder setMessages(
+          int index, com.google.protobuf.ByteString value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  ensureMessagesIsMutable();
+        messages_.set(index, value);
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>repeated bytes messages = 9;</code>
+       */
+      public Builder addMessages(com.google.protobuf.ByteString value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  ensureMessagesIsMutable();
+        messages_.add(value);
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>repeated bytes messages = 9;</code>
+       */
+      public Builder addAllMessages(
+          java.lang.Iterable<? extends com.google.protobuf.ByteString> values) {
+        ensureMessagesIsMutable();
+        com.google.protobuf.AbstractMessageLite.Builder.addAll(
+            values, messages_);
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>repeated bytes messages = 9;</code>
+       */
+      public Builder clearMessages() {
+        messages_ = java.util.Collections.emptyList();
+        bitField0_ = (bitField0_ & ~0x00000010);
+        onChanged();
+        return this;
+      }
+      public final Builder setUnknownFields(
+          final com.google.protobuf.UnknownFieldSet unknownFields) {
+        return super.setUnknownFields(unknownFields);
+      }
+
+      public final Builder mergeUnknownFields(
+          final com.google.protobuf.UnknownFieldSet unknownFields) {
+        return super.mergeUnknownFields(unknownFields);
+      }
+
+
+      // @@protoc_insertion_point(builder_scope:MessageBatch)
+    }
+
+    // @@protoc_insertion_point(class_scope:MessageBatch)
+    private static final com.github.sosozhuang.protobuf.Chat.MessageBatch DEFAULT_INSTANCE;
+    static {
+      DEFAULT_INSTANCE = new com.github.sosozhuang.protobuf.Chat.MessageBatch();
+    }
+
+    public static com.github.sosozhuang.protobuf.Chat.MessageBatch getDefaultInstance() {
+      return DEFAULT_INSTANCE;
+    }
+
+    @java.lang.Deprecated public static final com.google.protobuf.Parser<MessageBatch>
+        PARSER = new com.google.protobuf.AbstractParser<MessageBatch>() {
+      public MessageBatch parsePartialFrom(
+          com.google.protobuf.CodedInputStream input,
+          com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+          throws com.google.protobuf.InvalidProtocolBufferException {
+          return new MessageBatch(input, extensionRegistry);
+      }
+    };
+
+    public static com.google.protobuf.Parser<MessageBatch> parser() {
+      return PARSER;
+    }
+
+    @java.lang.Override
+    public com.google.protobuf.Parser<MessageBatch> getParserForType() {
+      return PARSER;
+    }
+
+    public com.github.sosozhuang.protobuf.Chat.MessageBatch getDefaultInstanceForType() {
+      return DEFAULT_INSTANCE;
+    }
+
+  }
+
+  public interface GroupOrBuilder extends
+      // @@protoc_insertion_point(interface_extends:Group)
+      com.google.protobuf.MessageOrBuilder {
+
+    /**
+     * <code>required string id = 1;</code>
+     */
+    boolean hasId();
+    /**
+     * <code>required string id = 1;</code>
+     */
+    java.lang.String getId();
+    /**
+     * <code>required string id = 1;</code>
+     */
+    com.google.protobuf.ByteString
+        getIdBytes();
+
+    /**
+     * <code>required string token = 2;</code>
+     */
+    boolean hasToken();
+    /**
+     * <code>required string token = 2;</code>
+     */
+    java.lang.String getToken();
+    /**
+     * <code>required string token = 2;</code>
+     */
+    com.google.protobuf.ByteString
+        getTokenBytes();
+
+    /**
+     * <code>required string owner = 3;</code>
+     */
+    boolean hasOwner();
+    /**
+     * <code>required string owner = 3;</code>
+     */
+    java.lang.String getOwner();
+    /**
+     * <code>required string owner = 3;</code>
+     */
+    com.google.protobuf.ByteString
+        getOwnerBytes();
+
+    /**
+     * <code>required uint64 create_at = 4;</code>
+     */
+    boolean hasCreateAt();
+    /**
+     * <code>required uint64 create_at = 4;</code>
+     */
+    long getCreateAt();
+  }
+  /**
+   * Protobuf type {@code Group}
+   */
+  public  static final class Group extends
+      com.google.protobuf.GeneratedMessageV3 implements
+      // @@protoc_insertion_point(message_implements:Group)
+      GroupOrBuilder {
+  private static final long serialVersionUID = 0L;
+    // Use Group.newBuilder() to construct.
+    private Group(com.google.protobuf.GeneratedMessageV3.Builder<?> builder) {
+      super(builder);
+    }
+    private Group() {
+      id_ = "";
+      token_ = "";
+      owner_ = "";
+      createAt_ = 0L;
+    }
+
+    @java.lang.Override
+    public final com.google.protobuf.UnknownFieldSet
+    getUnknownFields() {
+      return this.unknownFields;
+    }
+    private Group(
+        com.google.protobuf.CodedInputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      this();
+      int mutable_bitField0_ = 0;
+      com.google.protobuf.UnknownFieldSet.Builder unknownFields =
+          com.google.protobuf.UnknownFieldSet.newBuilder();
+      try {
+        boolean done = false;
+        while (!done) {
+          int tag = input.readTag();
+          switch (tag) {
+            case 0:
+              done = true;
+              break;
+            default: {
+              if (!parseUnknownField(
+                  input, unknownFields, extensionRegistry, tag)) {
+                done = true;
+              }
+              break;
+            }
+            case 10: {
+              com.google.protobuf.ByteString bs = input.readBytes();
+              bitField0_ |= 0x00000001;
+              id_ = bs;
+              break;
+            }
+            case 18: {
+              com.google.protobuf.ByteString bs = input.readBytes();
+              bitField0_ |= 0x00000002;
+              token_ = bs;
+              break;
+            }
+            case 26: {
+              com.google.protobuf.ByteString bs = input.readBytes();
+              bitField0_ |= 0x00000004;
+              owner_ = bs;
+              break;
+            }
+            case 32: {
+              bitField0_ |= 0x00000008;
+              createAt_ = input.readUInt64();
+              break;
+            }
+          }
+        }
+      } catch (com.google.protobuf.InvalidProtocolBufferException e) {
+        throw e.setUnfinishedMessage(this);
+      } catch (java.io.IOException e) {
+        throw new com.google.protobuf.InvalidProtocolBufferException(
+            e).setUnfinishedMessage(this);
+      } finally {
+        this.unknownFields = unknownFields.build();
+        makeExtensionsImmutable();
+      }
+    }
+    public static final com.google.protobuf.Descriptors.Descriptor
+        getDescriptor() {
+      return com.github.sosozhuang.protobuf.Chat.internal_static_Group_descriptor;
+    }
+
+    protected com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
+        internalGetFieldAccessorTable() {
+      return com.github.sosozhuang.protobuf.Chat.internal_static_Group_fieldAccessorTable
+          .ensureFieldAccessorsInitialized(
+              com.github.sosozhuang.protobuf.Chat.Group.class, com.github.sosozhuang.protobuf.Chat.Group.Builder.class);
+    }
+
+    private int bitField0_;
+    public static final int ID_FIELD_NUMBER = 1;
+    private volatile java.lang.Object id_;
+    /**
+     * <code>required string id = 1;</code>
+     */
+    public boolean hasId() {
+      return ((bitField0_ & 0x00000001) == 0x00000001);
+    }
+    /**
+     * <code>required string id = 1;</code>
+     */
+    public java.lang.String getId() {
+      java.lang.Object ref = id_;
+      if (ref instanceof java.lang.String) {
+        return (java.lang.String) ref;
+      } else {
+        com.google.protobuf.ByteString bs = 
+            (com.google.protobuf.ByteString) ref;
+        java.lang.String s = bs.toStringUtf8();
+        if (bs.isValidUtf8()) {
+          id_ = s;
+        }
+        return s;
+      }
+    }
+    /**
+     * <code>required string id = 1;</code>
+     */
+    public com.google.protobuf.ByteString
+        getIdBytes() {
+      java.lang.Object ref = id_;
+      if (ref instanceof java.lang.String) {
+        com.google.protobuf.ByteString b = 
+            com.google.protobuf.ByteString.copyFromUtf8(
+                (java.lang.String) ref);
+        id_ = b;
+        return b;
+      } else {
+        return (com.google.protobuf.ByteString) ref;
+      }
+    }
+
+    public static final int TOKEN_FIELD_NUMBER = 2;
+    private volatile java.lang.Object token_;
+    /**
+     * <code>required string token = 2;</code>
+     */
+    public boolean hasToken() {
+      return ((bitField0_ & 0x00000002) == 0x00000002);
+    }
+    /**
+     * <code>required string token = 2;</code>
+     */
+    public java.lang.String getToken() {
+      java.lang.Object ref = token_;
+      if (ref instanceof java.lang.String) {
+        return (java.lang.String) ref;
+      } else {
+        com.google.protobuf.ByteString bs = 
+            (com.google.protobuf.ByteString) ref;
+        java.lang.String s = bs.toStringUtf8();
+        if (bs.isValidUtf8()) {
+          token_ = s;
+        }
+        return s;
+      }
+    }
+    /**
+     * <code>required string token = 2;</code>
+     */
+    public com.google.protobuf.ByteString
+        getTokenBytes() {
+      java.lang.Object ref = token_;
+      if (ref instanceof java.lang.String) {
+        com.google.protobuf.ByteString b = 
+            com.google.protobuf.ByteString.copyFromUtf8(
+                (java.lang.String) ref);
+        token_ = b;
+        return b;
+      } else {
+        return (com.google.protobuf.ByteString) ref;
+      }
+    }
+
+    public static final int OWNER_FIELD_NUMBER = 3;
+    private volatile java.lang.Object owner_;
+    /**
+     * <code>required string owner = 3;</code>
+     */
+    public boolean hasOwner() {
+      return ((bitField0_ & 0x00000004) == 0x00000004);
+    }
+    /**
+     * <code>required string owner = 3;</code>
+     */
+    public java.lang.String getOwner() {
+      java.lang.Object ref = owner_;
+      if (ref instanceof java.lang.String) {
+        return (java.lang.String) ref;
+      } else {
+        com.google.protobuf.ByteString bs = 
+            (com.google.protobuf.ByteString) ref;
+        java.lang.String s = bs.toStringUtf8();
+        if (bs.isValidUtf8()) {
+          owner_ = s;
+        }
+        return s;
+      }
+    }
+    /**
+     * <code>required string owner = 3;</code>
+     */
+    public com.google.protobuf.ByteString
+        getOwnerBytes() {
+      java.lang.Object ref = owner_;
+      if (ref instanceof java.lang.String) {
+        com.google.protobuf.ByteString b = 
+            com.google.protobuf.ByteString.copyFromUtf8(
+                (java.lang.String) ref);
+        owner_ = b;
+        return b;
+      } else {
+        return (com.google.protobuf.ByteString) ref;
+      }
+    }
+
+    public static final int CREATE_AT_FIELD_NUMBER = 4;
+    private long createAt_;
+    /**
+     * <code>required uint64 create_at = 4;</code>
+     */
+    public boolean hasCreateAt() {
+      return ((bitField0_ & 0x00000008) == 0x00000008);
+    }
+    /**
+     * <code>required uint64 create_at = 4;</code>
+     */
+    public long getCreateAt() {
+      return createAt_;
+    }
+
+    private byte memoizedIsInitialized = -1;
+    public final boolean isInitialized() {
+      byte isInitialized = memoizedIsInitialized;
+      if (isInitialized == 1) return true;
+      if (isInitialized == 0) return false;
+
+      if (!hasId()) {
+        memoizedIsInitialized = 0;
+        return false;
+      }
+      if (!hasToken()) {
+        memoizedIsInitialized = 0;
+        return false;
+      }
+      if (!hasOwner()) {
+        memoizedIsInitialized = 0;
+        return false;
+      }
+      if (!hasCreateAt()) {
+        memoizedIsInitialized = 0;
+        return false;
+      }
+      memoizedIsInitialized = 1;
+      return true;
+    }
+
+    public void writeTo(com.google.protobuf.CodedOutputStream output)
+                        throws java.io.IOException {
+      if (((bitField0_ & 0x00000001) == 0x00000001)) {
+        com.google.protobuf.GeneratedMessageV3.writeString(output, 1, id_);
+      }
+      if (((bitField0_ & 0x00000002) == 0x00000002)) {
+        com.google.protobuf.GeneratedMessageV3.writeString(output, 2, token_);
+      }
+      if (((bitField0_ & 0x00000004) == 0x00000004)) {
+        com.google.protobuf.GeneratedMessageV3.writeString(output, 3, owner_);
+      }
+      if (((bitField0_ & 0x00000008) == 0x00000008)) {
+        output.writeUInt64(4, createAt_);
+      }
+      unknownFields.writeTo(output);
+    }
+
+    public int getSerializedSize() {
+      int size = memoizedSize;
+      if (size != -1) return size;
+
+      size = 0;
+      if (((bitField0_ & 0x00000001) == 0x00000001)) {
+        size += com.google.protobuf.GeneratedMessageV3.computeStringSize(1, id_);
+      }
+      if (((bitField0_ & 0x00000002) == 0x00000002)) {
+        size += com.google.protobuf.GeneratedMessageV3.computeStringSize(2, token_);
+      }
+      if (((bitField0_ & 0x00000004) == 0x00000004)) {
+        size += com.google.protobuf.GeneratedMessageV3.computeStringSize(3, owner_);
+      }
+      if (((bitField0_ & 0x00000008) == 0x00000008)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeUInt64Size(4, createAt_);
+      }
+      size += unknownFields.getSerializedSize();
+      memoizedSize = size;
+      return size;
+    }
+
+    @java.lang.Override
+    public boolean equals(final java.lang.Object obj) {
+      if (obj == this) {
+       return true;
+      }
+      if (!(obj instanceof com.github.sosozhuang.protobuf.Chat.Group)) {
+        return super.equals(obj);
+      }
+      com.github.sosozhuang.protobuf.Chat.Group other = (com.github.sosozhuang.protobuf.Chat.Group) obj;
+
+      boolean result = true;
+      result = result && (hasId() == other.hasId());
+      if (hasId()) {
+        result = result && getId()
+            .equals(other.getId());
+      }
+      result = result && (hasToken() == other.hasToken());
+      if (hasToken()) {
+        result = result && getToken()
+            .equals(other.getToken());
+      }
+      result = result && (hasOwner() == other.hasOwner());
+      if (hasOwner()) {
+        result = result && getOwner()
+            .equals(other.getOwner());
+      }
+      result = result && (hasCreateAt() == other.hasCreateAt());
+      if (hasCreateAt()) {
+        result = result && (getCreateAt()
+            == other.getCreateAt());
+      }
+      result = result && unknownFields.equals(other.unknownFields);
+      return result;
+    }
+
+    @java.lang.Override
+    public int hashCode() {
+      if (memoizedHashCode != 0) {
+        return memoizedHashCode;
+      }
+      int hash = 41;
+      hash = (19 * hash) + getDescriptor().hashCode();
+      if (hasId()) {
+        hash = (37 * hash) + ID_FIELD_NUMBER;
+        hash = (53 * hash) + getId().hashCode();
+      }
+      if (hasToken()) {
+        hash = (37 * hash) + TOKEN_FIELD_NUMBER;
+        hash = (53 * hash) + getToken().hashCode();
+      }
+      if (hasOwner()) {
+        hash = (37 * hash) + OWNER_FIELD_NUMBER;
+        hash = (53 * hash) + getOwner().hashCode();
+      }
+      if (hasCreateAt()) {
+        hash = (37 * hash) + CREATE_AT_FIELD_NUMBER;
+        hash = (53 * hash) + com.google.protobuf.Internal.hashLong(
+            getCreateAt());
+      }
+      hash = (29 * hash) + unknownFields.hashCode();
+      memoizedHashCode = hash;
+      return hash;
+    }
+
+    public static com.github.sosozhuang.protobuf.Chat.Group parseFrom(
+        java.nio.ByteBuffer data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data);
+    }
+    public static com.github.sosozhuang.protobuf.Chat.Group parseFrom(
+        java.nio.ByteBuffer data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data, extensionRegistry);
+    }
+    public static com.github.sosozhuang.protobuf.Chat.Group parseFrom(
+        com.google.protobuf.ByteString data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data);
+    }
+    public static com.github.sosozhuang.protobuf.Chat.Group parseFrom(
+        com.google.protobuf.ByteString data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data, extensionRegistry);
+    }
+    public static com.github.sosozhuang.protobuf.Chat.Group parseFrom(byte[] data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data);
+    }
+    public static com.github.sosozhuang.protobuf.Chat.Group parseFrom(
+        byte[] data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data, extensionRegistry);
+    }
+    public static com.github.sosozhuang.protobuf.Chat.Group parseFrom(java.io.InputStream input)
+        throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3
+          .parseWithIOException(PARSER, input);
+    }
+    public static com.github.sosozhuang.protobuf.Chat.Group parseFrom(
+        java.io.InputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3
+          .parseWithIOException(PARSER, input, extensionRegistry);
+    }
+    public static com.github.sosozhuang.protobuf.Chat.Group parseDelimitedFrom(java.io.InputStream input)
+        throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3
+          .parseDelimitedWithIOException(PARSER, input);
+    }
+    public static com.github.sosozhuang.protobuf.Chat.Group parseDelimitedFrom(
+        java.io.InputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3
+          .parseDelimitedWithIOException(PARSER, input, extensionRegistry);
+    }
+    public static com.github.sosozhuang.protobuf.Chat.Group parseFrom(
+        com.google.protobuf.CodedInputStream input)
+        throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3
+          .parseWithIOException(PARSER, input);
+    }
+    public static com.github.sosozhuang.protobuf.Chat.Group parseFrom(
+        com.google.protobuf.CodedInputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3
+          .parseWithIOException(PARSER, input, extensionRegistry);
+    }
+
+    public Builder newBuilderForType() { return newBuilder(); }
+    public static Builder newBuilder() {
+      return DEFAULT_INSTANCE.toBuilder();
+    }
+    public static Builder newBuilder(com.github.sosozhuang.protobuf.Chat.Group prototype) {
+      return DEFAULT_INSTANCE.toBuilder().mergeFrom(prototype);
+    }
+    public Builder toBuilder() {
+      return this == DEFAULT_INSTANCE
+          ? new Builder() : new Builder().mergeFrom(this);
+    }
+
+    @java.lang.Override
+    protected Builder newBuilderForType(
+        com.google.protobuf.GeneratedMessageV3.BuilderParent parent) {
+      Builder builder = new Builder(parent);
+      return builder;
+    }
+    /**
+     * Protobuf type {@code Group}
+     */
+    public static final class Builder extends
+        com.google.protobuf.GeneratedMessageV3.Builder<Builder> implements
+        // @@protoc_insertion_point(builder_implements:Group)
+        com.github.sosozhuang.protobuf.Chat.GroupOrBuilder {
+      public static final com.google.protobuf.Descriptors.Descriptor
+          getDescriptor() {
+        return com.github.sosozhuang.protobuf.Chat.internal_static_Group_descriptor;
+      }
+
+      protected com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
+          internalGetFieldAccessorTable() {
+        return com.github.sosozhuang.protobuf.Chat.internal_static_Group_fieldAccessorTable
+            .ensureFieldAccessorsInitialized(
+                com.github.sosozhuang.protobuf.Chat.Group.class, com.github.sosozhuang.protobuf.Chat.Group.Builder.class);
+      }
+
+      // Construct using com.github.sosozhuang.protobuf.Chat.Group.newBuilder()
+      private Builder() {
+        maybeForceBuilderInitialization();
+      }
+
+      private Builder(
+          com.google.protobuf.GeneratedMessageV3.BuilderParent parent) {
+        super(parent);
+        maybeForceBuilderInitialization();
+      }
+      private void maybeForceBuilderInitialization() {
+        if (com.google.protobuf.GeneratedMessageV3
+                .alwaysUseFieldBuilders) {
+        }
+      }
+      public Builder clear() {
+        super.clear();
+        id_ = "";
+        bitField0_ = (bitField0_ & ~0x00000001);
+        token_ = "";
+        bitField0_ = (bitField0_ & ~0x00000002);
+        owner_ = "";
+        bitField0_ = (bitField0_ & ~0x00000004);
+        createAt_ = 0L;
+        bitField0_ = (bitField0_ & ~0x00000008);
+        return this;
+      }
+
+      public com.google.protobuf.Descriptors.Descriptor
+          getDescriptorForType() {
+        return com.github.sosozhuang.protobuf.Chat.internal_static_Group_descriptor;
+      }
+
+      public com.github.sosozhuang.protobuf.Chat.Group getDefaultInstanceForType() {
+        return com.github.sosozhuang.protobuf.Chat.Group.getDefaultInstance();
+      }
+
+      public com.github.sosozhuang.protobuf.Chat.Group build() {
+        com.github.sosozhuang.protobuf.Chat.Group result = buildPartial();
+        if (!result.isInitialized()) {
+          throw newUninitializedMessageException(result);
+        }
+        return result;
+      }
+
+      public com.github.sosozhuang.protobuf.Chat.Group buildPartial() {
+        com.github.sosozhuang.protobuf.Chat.Group result = new com.github.sosozhuang.protobuf.Chat.Group(this);
+        int from_bitField0_ = bitField0_;
+        int to_bitField0_ = 0;
+        if (((from_bitField0_ & 0x00000001) == 0x00000001)) {
+          to_bitField0_ |= 0x00000001;
+        }
+        result.id_ = id_;
+        if (((from_bitField0_ & 0x00000002) == 0x00000002)) {
+          to_bitField0_ |= 0x00000002;
+        }
+        result.token_ = token_;
+        if (((from_bitField0_ & 0x00000004) == 0x00000004)) {
+          to_bitField0_ |= 0x00000004;
+        }
+        result.owner_ = owner_;
+        if (((from_bitField0_ & 0x00000008) == 0x00000008)) {
+          to_bitField0_ |= 0x00000008;
+        }
+        result.createAt_ = createAt_;
+        result.bitField0_ = to_bitField0_;
+        onBuilt();
+        return result;
+      }
+
+      public Builder clone() {
+        return (Builder) super.clone();
+      }
+      public Builder setField(
+          com.google.protobuf.Descriptors.FieldDescriptor field,
+          java.lang.Object value) {
+        return (Builder) super.setField(field, value);
+      }
+      public Builder clearField(
+          com.google.protobuf.Descriptors.FieldDescriptor field) {
+        return (Builder) super.clearField(field);
+      }
+      public Builder clearOneof(
+          com.google.protobuf.Descriptors.OneofDescriptor oneof) {
+        return (Builder) super.clearOneof(oneof);
+      }
+      public Builder setRepeatedField(
+          com.google.protobuf.Descriptors.FieldDescriptor field,
+          int index, java.lang.Object value) {
+        return (Builder) super.setRepeatedField(field, index, value);
+      }
+      public Builder addRepeatedField(
+          com.google.protobuf.Descriptors.FieldDescriptor field,
+          java.lang.Object value) {
+        return (Builder) super.addRepeatedField(field, value);
+      }
+      public Builder mergeFrom(com.google.protobuf.Message other) {
+        if (other instanceof com.github.sosozhuang.protobuf.Chat.Group) {
+          return mergeFrom((com.github.sosozhuang.protobuf.Chat.Group)other);
+        } else {
+          super.mergeFrom(other);
+          return this;
+        }
+      }
+
+      public Builder mergeFrom(com.github.sosozhuang.protobuf.Chat.Group other) {
+        if (other == com.github.sosozhuang.protobuf.Chat.Group.getDefaultInstance()) return this;
+        if (other.hasId()) {
+          bitField0_ |= 0x00000001;
+          id_ = other.id_;
+          onChanged();
+        }
+        if (other.hasToken()) {
+          bitField0_ |= 0x00000002;
+          token_ = other.token_;
+          onChanged();
+        }
+        if (other.hasOwner()) {
+          bitField0_ |= 0x00000004;
+          owner_ = other.owner_;
+          onChanged();
+        }
+        if (other.hasCreateAt()) {
+          setCreateAt(other.getCreateAt());
+        }
+        this.mergeUnknownFields(other.unknownFields);
+        onChanged();
+        return this;
+      }
+
+      public final boolean isInitialized() {
+        if (!hasId()) {
+          return false;
+        }
+        if (!hasToken()) {
+          return false;
+        }
+        if (!hasOwner()) {
+          return false;
+        }
+        if (!hasCreateAt()) {
+          return false;
+        }
+        return true;
+      }
+
+      public Builder mergeFrom(
+          com.google.protobuf.CodedInputStream input,
+          com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+          throws java.io.IOException {
+        com.github.sosozhuang.protobuf.Chat.Group parsedMessage = null;
+        try {
+          parsedMessage = PARSER.parsePartialFrom(input, extensionRegistry);
+        } catch (com.google.protobuf.InvalidProtocolBufferException e) {
+          parsedMessage = (com.github.sosozhuang.protobuf.Chat.Group) e.getUnfinishedMessage();
+          throw e.unwrapIOException();
+        } finally {
+          if (parsedMessage != null) {
+            mergeFrom(parsedMessage);
+          }
+        }
+        return this;
+      }
+      private int bitField0_;
+
+      private java.lang.Object id_ = "";
+      /**
+       * <code>required string id = 1;</code>
+       */
+      public boolean hasId() {
+        return ((bitField0_ & 0x00000001) == 0x00000001);
+      }
+      /**
+       * <code>required string id = 1;</code>
+       */
+      public java.lang.String getId() {
+        java.lang.Object ref = id_;
+        if (!(ref instanceof java.lang.String)) {
+          com.google.protobuf.ByteString bs =
+              (com.google.protobuf.ByteString) ref;
+          java.lang.String s = bs.toStringUtf8();
+          if (bs.isValidUtf8()) {
+            id_ = s;
+          }
+          return s;
+        } else {
+          return (java.lang.String) ref;
+        }
+      }
+      /**
+       * <code>required string id = 1;</code>
+       */
+      public com.google.protobuf.ByteString
+          getIdBytes() {
+        java.lang.Object ref = id_;
+        if (ref instanceof String) {
+          com.google.protobuf.ByteString b = 
+              com.google.protobuf.ByteString.copyFromUtf8(
+                  (java.lang.String) ref);
+          id_ = b;
+          return b;
+        } else {
+          return (com.google.protobuf.ByteString) ref;
+        }
+      }
+      /**
+       * <code>required string id = 1;</code>
+       */
+      public Builder setId(
+          java.lang.String value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  bitField0_ |= 0x00000001;
+        id_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>required string id = 1;</code>
+       */
+      public Builder clearId() {
+        bitField0_ = (bitField0_ & ~0x00000001);
+        id_ = getDefaultInstance().getId();
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>required string id = 1;</code>
+       */
+      public Builder setIdBytes(
+          com.google.protobuf.ByteString value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  bitField0_ |= 0x00000001;
+        id_ = value;
+        onChanged();
+        return this;
+      }
+
+      private java.lang.Object token_ = "";
+      /**
+       * <code>required string token = 2;</code>
+       */
+      public boolean hasToken() {
+        return ((bitField0_ & 0x00000002) == 0x00000002);
+      }
+      /**
+       * <code>required string token = 2;</code>
+       */
+      public java.lang.String getToken() {
+        java.lang.Object ref = token_;
+        if (!(ref instanceof java.lang.String)) {
+          com.google.protobuf.ByteString bs =
+              (com.google.protobuf.ByteString) ref;
+          java.lang.String s = bs.toStringUtf8();
+          if (bs.isValidUtf8()) {
+            token_ = s;
+          }
+          return s;
+        } else {
+          return (java.lang.String) ref;
+        }
+      }
+      /**
+       * <code>required string token = 2;</code>
+       */
+      public com.google.protobuf.ByteString
+          getTokenBytes() {
+        java.lang.Object ref = token_;
+        if (ref instanceof String) {
+          com.google.protobuf.ByteString b = 
+              com.google.protobuf.ByteString.copyFromUtf8(
+                  (java.lang.String) ref);
+          token_ = b;
+          return b;
+        } else {
+          return (com.google.protobuf.ByteString) ref;
+        }
+      }
+      /**
+       * <code>required string token = 2;</code>
+       */
+      public Builder setToken(
+          java.lang.String value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  bitField0_ |= 0x00000002;
+        token_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>required string token = 2;</code>
+       */
+      public Builder clearToken() {
+        bitField0_ = (bitField0_ & ~0x00000002);
+        token_ = getDefaultInstance().getToken();
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>required string token = 2;</code>
+       */
+      public Builder setTokenBytes(
+          com.google.protobuf.ByteString value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  bitField0_ |= 0x00000002;
+        token_ = value;
+        onChanged();
+        return this;
+      }
+
+      private java.lang.Object owner_ = "";
+      /**
+       * <code>required string owner = 3;</code>
+       */
+      public boolean hasOwner() {
+        return ((bitField0_ & 0x00000004) == 0x00000004);
+      }
+      /**
+       * <code>required string owner = 3;</code>
+       */
+      public java.lang.String getOwner() {
+        java.lang.Object ref = owner_;
+        if (!(ref instanceof java.lang.String)) {
+          com.google.protobuf.ByteString bs =
+              (com.google.protobuf.ByteString) ref;
+          java.lang.String s = bs.toStringUtf8();
+          if (bs.isValidUtf8()) {
+            owner_ = s;
+          }
+          return s;
+        } else {
+          return (java.lang.String) ref;
+        }
+      }
+      /**
+       * <code>required string owner = 3;</code>
+       */
+      public com.google.protobuf.ByteString
+          getOwnerBytes() {
+        java.lang.Object ref = owner_;
+        if (ref instanceof String) {
+          com.google.protobuf.ByteString b = 
+              com.google.protobuf.ByteString.copyFromUtf8(
+                  (java.lang.String) ref);
+          owner_ = b;
+          return b;
+        } else {
+          return (com.google.protobuf.ByteString) ref;
+        }
+      }
+      /**
+       * <code>required string owner = 3;</code>
+       */
+      public Builder setOwner(
+          java.lang.String value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  bitField0_ |= 0x00000004;
+        owner_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>required string owner = 3;</code>
+       */
+      public Builder clearOwner() {
+        bitField0_ = (bitField0_ & ~0x00000004);
+        owner_ = getDefaultInstance().getOwner();
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>required string owner = 3;</code>
+       */
+      public Builder setOwnerBytes(
+          com.google.protobuf.ByteString value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  bitField0_ |= 0x00000004;
+        owner_ = value;
+        onChanged();
+        return this;
+      }
+
+      private long createAt_ ;
+      /**
+       * <code>required uint64 create_at = 4;</code>
+       */
+      public boolean hasCreateAt() {
+        return ((bitField0_ & 0x00000008) == 0x00000008);
+      }
+      /**
+       * <code>required uint64 create_at = 4;</code>
+       */
+      public long getCreateAt() {
+        return createAt_;
+      }
+      /**
+       * <code>required uint64 create_at = 4;</code>
+       */
+      public Builder setCreateAt(long value) {
+        bitField0_ |= 0x00000008;
+        createAt_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>required uint64 create_at = 4;</code>
+       */
+      public Builder clearCreateAt() {
+        bitField0_ = (bitField0_ & ~0x00000008);
+        createAt_ = 0L;
+        onChanged();
+        return this;
+      }
+      public final Builder setUnknownFields(
+          final com.google.protobuf.UnknownFieldSet unknownFields) {
+        return super.setUnknownFields(unknownFields);
+      }
+
+      public final Builder mergeUnknownFields(
+          final com.google.protobuf.UnknownFieldSet unknownFields) {
+        return super.mergeUnknownFields(unknownFields);
+      }
+
+
+      // @@protoc_insertion_point(builder_scope:Group)
+    }
+
+    // @@protoc_insertion_point(class_scope:Group)
+    private static final com.github.sosozhuang.protobuf.Chat.Group DEFAULT_INSTANCE;
+    static {
+      DEFAULT_INSTANCE = new com.github.sosozhuang.protobuf.Chat.Group();
+    }
+
+    public static com.github.sosozhuang.protobuf.Chat.Group getDefaultInstance() {
+      return DEFAULT_INSTANCE;
+    }
+
+    @java.lang.Deprecated public static final com.google.protobuf.Parser<Group>
+        PARSER = new com.google.protobuf.AbstractParser<Group>() {
+      public Group parsePartialFrom(
+          com.google.protobuf.CodedInputStream input,
+          com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+          throws com.google.protobuf.InvalidProtocolBufferException {
+          return new Group(input, extensionRegistry);
+      }
+    };
+
+    public static com.google.protobuf.Parser<Group> parser() {
+      return PARSER;
+    }
+
+    @java.lang.Override
+    public com.google.protobuf.Parser<Group> getParserForType() {
+      return PARSER;
+    }
+
+    public com.github.sosozhuang.protobuf.Chat.Group getDefaultInstanceForType() {
+      return DEFAULT_INSTANCE;
+    }
+
+  }
+
+  public interface ServerOrBuilder extends
+      // @@protoc_insertion_point(interface_extends:Server)
+      com.google.protobuf.MessageOrBuilder {
+
+    /**
+     * <code>required string id = 1;</code>
+     */
+    boolean hasId();
+    /**
+     * <code>required string id = 1;</code>
+     */
+    java.lang.String getId();
+    /**
+     * <code>required string id = 1;</code>
+     */
+    com.google.protobuf.ByteString
+        getIdBytes();
+
+    /**
+     * <code>required string host = 2;</code>
+     */
+    boolean hasHost();
+    /**
+     * <code>required string host = 2;</code>
+     */
+    java.lang.String getHost();
+    /**
+     * <code>required string host = 2;</code>
+     */
+    com.google.protobuf.ByteString
+        getHostBytes();
+
+    /**
+     * <code>required uint32 port = 3;</code>
+     */
+    boolean hasPort();
+    /**
+     * <code>required uint32 port = 3;</code>
+     */
+    int getPort();
+
+    /**
+     * <code>required uint64 start_at = 4;</code>
+     */
+    boolean hasStartAt();
+    /**
+     * <code>required uint64 start_at = 4;</code>
+     */
+    long getStartAt();
+
+    /**
+     * <code>optional string config = 5;</code>
+     */
+    boolean hasConfig();
+    /**
+     * <code>optional string config = 5;</code>
+     */
+    java.lang.String getConfig();
+    /**
+     * <code>optional string config = 5;</code>
+     */
+    com.google.protobuf.ByteString
+        getConfigBytes();
+  }
+  /**
+   * Protobuf type {@code Server}
+   */
+  public  static final class Server extends
+      com.google.protobuf.GeneratedMessageV3 implements
+      // @@protoc_insertion_point(message_implements:Server)
+      ServerOrBuilder {
+  private static final long serialVersionUID = 0L;
+    // Use Server.newBuilder() to construct.
+    private Server(com.google.protobuf.GeneratedMessageV3.Builder<?> builder) {
+      super(builder);
+    }
+    private Server() {
+      id_ = "";
+      host_ = "";
+      port_ = 0;
+      startAt_ = 0L;
+      config_ = "";
+    }
+
+    @java.lang.Override
+    public final com.google.protobuf.UnknownFieldSet
+    getUnknownFields() {
+      return this.unknownFields;
+    }
+    private Server(
+        com.google.protobuf.CodedInputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      this();
+      int mutable_bitField0_ = 0;
+      com.google.protobuf.UnknownFieldSet.Builder unknownFields =
+          com.google.protobuf.UnknownFieldSet.newBuilder();
+      try {
+        boolean done = false;
+        while (!done) {
+          int tag = input.readTag();
+          switch (tag) {
+            case 0:
+              done = true;
+              break;
+            default: {
+              if (!parseUnknownField(
+                  input, unknownFields, extensionRegistry, tag)) {
+                done = true;
+              }
+              break;
+            }
+            case 10: {
+              com.google.protobuf.ByteString bs = input.readBytes();
+              bitField0_ |= 0x00000001;
+              id_ = bs;
+              break;
+            }
+            case 18: {
+              com.google.protobuf.ByteString bs = input.readBytes();
+              bitField0_ |= 0x00000002;
+              host_ = bs;
+              break;
+            }
+            case 24: {
+              bitField0_ |= 0x00000004;
+              port_ = input.readUInt32();
+              break;
+            }
+            case 32: {
+              bitField0_ |= 0x00000008;
+              startAt_ = input.readUInt64();
+              break;
+            }
+            case 42: {
+              com.google.protobuf.ByteString bs = input.readBytes();
+              bitField0_ |= 0x00000010;
+              config_ = bs;
+              break;
+            }
+          }
+        }
+      } catch (com.google.protobuf.InvalidProtocolBufferException e) {
+        throw e.setUnfinishedMessage(this);
+      } catch (java.io.IOException e) {
+        throw new com.google.protobuf.InvalidProtocolBufferException(
+            e).setUnfinishedMessage(this);
+      } finally {
+        this.unknownFields = unknownFields.build();
+        makeExtensionsImmutable();
+      }
+    }
+    public static final com.google.protobuf.Descriptors.Descriptor
+        getDescriptor() {
+      return com.github.sosozhuang.protobuf.Chat.internal_static_Server_descriptor;
+    }
+
+    protected com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
+        internalGetFieldAccessorTable() {
+      return com.github.sosozhuang.protobuf.Chat.internal_static_Server_fieldAccessorTable
+          .ensureFieldAccessorsInitialized(
+              com.github.sosozhuang.protobuf.Chat.Server.class, com.github.sosozhuang.protobuf.Chat.Server.Builder.class);
+    }
+
+    private int bitField0_;
+    public static final int ID_FIELD_NUMBER = 1;
+    private volatile java.lang.Object id_;
+    /**
+     * <code>required string id = 1;</code>
+     */
+    public boolean hasId() {
+      return ((bitField0_ & 0x00000001) == 0x00000001);
+    }
+    /**
+     * <code>required string id = 1;</code>
+     */
+    public java.lang.String getId() {
+      java.lang.Object ref = id_;
+      if (ref instanceof java.lang.String) {
+        return (java.lang.String) ref;
+      } else {
+        com.google.protobuf.ByteString bs = 
+            (com.google.protobuf.ByteString) ref;
+        java.lang.String s = bs.toStringUtf8();
+        if (bs.isValidUtf8()) {
+          id_ = s;
+        }
+        return s;
+      }
+    }
+    /**
+     * <code>required string id = 1;</code>
+     */
+    public com.google.protobuf.ByteString
+        getIdBytes() {
+      java.lang.Object ref = id_;
+      if (ref instanceof java.lang.String) {
+        com.google.protobuf.ByteString b = 
+            com.google.protobuf.ByteString.copyFromUtf8(
+                (java.lang.String) ref);
+        id_ = b;
+        return b;
+      } else {
+        return (com.google.protobuf.ByteString) ref;
+      }
+    }
+
+    public static final int HOST_FIELD_NUMBER = 2;
+    private volatile java.lang.Object host_;
+    /**
+     * <code>required string host = 2;</code>
+     */
+    public boolean hasHost() {
+      return ((bitField0_ & 0x00000002) == 0x00000002);
+    }
+    /**
+     * <code>required string host = 2;</code>
+     */
+    public java.lang.String getHost() {
+      java.lang.Object ref = host_;
+      if (ref instanceof java.lang.String) {
+        return (java.lang.String) ref;
+      } else {
+        com.google.protobuf.ByteString bs = 
+            (com.google.protobuf.ByteString) ref;
+        java.lang.String s = bs.toStringUtf8();
+        if (bs.isValidUtf8()) {
+          host_ = s;
+        }
+        return s;
+      }
+    }
+    /**
+     * <code>required string host = 2;</code>
+     */
+    public com.google.protobuf.ByteString
+        getHostBytes() {
+      java.lang.Object ref = host_;
+      if (ref instanceof java.lang.String) {
+        com.google.protobuf.ByteString b = 
+            com.google.protobuf.ByteString.copyFromUtf8(
+                (java.lang.String) ref);
+        host_ = b;
+        return b;
+      } else {
+        return (com.google.protobuf.ByteString) ref;
+      }
+    }
+
+    public static final int PORT_FIELD_NUMBER = 3;
+    private int port_;
+    /**
+     * <code>required uint32 port = 3;</code>
+     */
+    public boolean hasPort() {
+      return ((bitField0_ & 0x00000004) == 0x00000004);
+    }
+    /**
+     * <code>required uint32 port = 3;</code>
+     */
+    public int getPort() {
+      return port_;
+    }
+
+    public static final int START_AT_FIELD_NUMBER = 4;
+    private long startAt_;
+    /**
+     * <code>required uint64 start_at = 4;</code>
+     */
+    public boolean hasStartAt() {
+      return ((bitField0_ & 0x00000008) == 0x00000008);
+    }
+    /**
+     * <code>required uint64 start_at = 4;</code>
+     */
+    public long getStartAt() {
+      return startAt_;
+    }
+
+    public static final int CONFIG_FIELD_NUMBER = 5;
+    private volatile java.lang.Object config_;
+    /**
+     * <code>optional string config = 5;</code>
+     */
+    public boolean hasConfig() {
+      return ((bitField0_ & 0x00000010) == 0x00000010);
+    }
+    /**
+     * <code>optional string config = 5;</code>
+     */
+    public java.lang.String getConfig() {
+      java.lang.Object ref = config_;
+      if (ref instanceof java.lang.String) {
+        return (java.lang.String) ref;
+      } else {
+        com.google.protobuf.ByteString bs = 
+            (com.google.protobuf.ByteString) ref;
+        java.lang.String s = bs.toStringUtf8();
+        if (bs.isValidUtf8()) {
+          config_ = s;
+        }
+        return s;
+      }
+    }
+    /**
+     * <code>optional string config = 5;</code>
+     */
+    public com.google.protobuf.ByteString
+        getConfigBytes() {
+      java.lang.Object ref = config_;
+      if (ref instanceof java.lang.String) {
+        com.google.protobuf.ByteString b = 
+            com.google.protobuf.ByteString.copyFromUtf8(
+                (java.lang.String) ref);
+        config_ = b;
+        return b;
+      } else {
+        return (com.google.protobuf.ByteString) ref;
+      }
+    }
+
+    private byte memoizedIsInitialized = -1;
+    public final boolean isInitialized() {
+      byte isInitialized = memoizedIsInitialized;
+      if (isInitialized == 1) return true;
+      if (isInitialized == 0) return false;
+
+      if (!hasId()) {
+        memoizedIsInitialized = 0;
+        return false;
+      }
+      if (!hasHost()) {
+        memoizedIsInitialized = 0;
+        return false;
+      }
+      if (!hasPort()) {
+        memoizedIsInitialized = 0;
+        return false;
+      }
+      if (!hasStartAt()) {
+        memoizedIsInitialized = 0;
+        return false;
+      }
+      memoizedIsInitialized = 1;
+      return true;
+    }
+
+    public void writeTo(com.google.protobuf.CodedOutputStream output)
+                        throws java.io.IOException {
+      if (((bitField0_ & 0x00000001) == 0x00000001)) {
+        com.google.protobuf.GeneratedMessageV3.writeString(output, 1, id_);
+      }
+      if (((bitField0_ & 0x00000002) == 0x00000002)) {
+        com.google.protobuf.GeneratedMessageV3.writeString(output, 2, host_);
+      }
+      if (((bitField0_ & 0x00000004) == 0x00000004)) {
+        output.writeUInt32(3, port_);
+      }
+      if (((bitField0_ & 0x00000008) == 0x00000008)) {
+        output.writeUInt64(4, startAt_);
+      }
+      if (((bitField0_ & 0x00000010) == 0x00000010)) {
+        com.google.protobuf.GeneratedMessageV3.writeString(output, 5, config_);
+      }
+      unknownFields.writeTo(output);
+    }
+
+    public int getSerializedSize() {
+      int size = memoizedSize;
+      if (size != -1) return size;
+
+      size = 0;
+      if (((bitField0_ & 0x00000001) == 0x00000001)) {
+        size += com.google.protobuf.GeneratedMessageV3.computeStringSize(1, id_);
+      }
+      if (((bitField0_ & 0x00000002) == 0x00000002)) {
+        size += com.google.protobuf.GeneratedMessageV3.computeStringSize(2, host_);
+      }
+      if (((bitField0_ & 0x00000004) == 0x00000004)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeUInt32Size(3, port_);
+      }
+      if (((bitField0_ & 0x00000008) == 0x00000008)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeUInt64Size(4, startAt_);
+      }
+      if (((bitField0_ & 0x00000010) == 0x00000010)) {
+        size += com.google.protobuf.GeneratedMessageV3.computeStringSize(5, config_);
+      }
+      size += unknownFields.getSerializedSize();
+      memoizedSize = size;
+      return size;
+    }
+
+    @java.lang.Override
+    public boolean equals(final java.lang.Object obj) {
+      if (obj == this) {
+       return true;
+      }
+      if (!(obj instanceof com.github.sosozhuang.protobuf.Chat.Server)) {
+        return super.equals(obj);
+      }
+      com.github.sosozhuang.protobuf.Chat.Server other = (com.github.sosozhuang.protobuf.Chat.Server) obj;
+
+      boolean result = true;
+      result = result && (hasId() == other.hasId());
+      if (hasId()) {
+        result = result && getId()
+            .equals(other.getId());
+      }
+      result = result && (hasHost() == other.hasHost());
+      if (hasHost()) {
+        result = result && getHost()
+            .equals(other.getHost());
+      }
+      result = result && (hasPort() == other.hasPort());
+      if (hasPort()) {
+        result = result && (getPort()
+            == other.getPort());
+      }
+      result = result && (hasStartAt() == other.hasStartAt());
+      if (hasStartAt()) {
+        result = result && (getStartAt()
+            == other.getStartAt());
+      }
+      result = result && (hasConfig() == other.hasConfig());
+      if (hasConfig()) {
+        result = result && getConfig()
+            .equals(other.getConfig());
+      }
+      result = result && unknownFields.equals(other.unknownFields);
+      return result;
+    }
+
+    @java.lang.Override
+    public int hashCode() {
+      if (memoizedHashCode != 0) {
+        return memoizedHashCode;
+      }
+      int hash = 41;
+      hash = (19 * hash) + getDescriptor().hashCode();
+      if (hasId()) {
+        hash = (37 * hash) + ID_FIELD_NUMBER;
+        hash = (53 * hash) + getId().hashCode();
+      }
+      if (hasHost()) {
+        hash = (37 * hash) + HOST_FIELD_NUMBER;
+        hash = (53 * hash) + getHost().hashCode();
+      }
+      if (hasPort()) {
+        hash = (37 * hash) + PORT_FIELD_NUMBER;
+        hash = (53 * hash) + getPort();
+      }
+      if (hasStartAt()) {
+        hash = (37 * hash) + START_AT_FIELD_NUMBER;
+        hash = (53 * hash) + com.google.protobuf.Internal.hashLong(
+            getStartAt());
+      }
+      if (hasConfig()) {
+        hash = (37 * hash) + CONFIG_FIELD_NUMBER;
+        hash = (53 * hash) + getConfig().hashCode();
+      }
+      hash = (29 * hash) + unknownFields.hashCode();
+      memoizedHashCode = hash;
+      return hash;
+    }
+
+    public static com.github.sosozhuang.protobuf.Chat.Server parseFrom(
+        java.nio.ByteBuffer data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data);
+    }
+    public static com.github.sosozhuang.protobuf.Chat.Server parseFrom(
+        java.nio.ByteBuffer data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data, extensionRegistry);
+    }
+    public static com.github.sosozhuang.protobuf.Chat.Server parseFrom(
+        com.google.protobuf.ByteString data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data);
+    }
+    public static com.github.sosozhuang.protobuf.Chat.Server parseFrom(
+        com.google.protobuf.ByteString data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data, extensionRegistry);
+    }
+    public static com.github.sosozhuang.protobuf.Chat.Server parseFrom(byte[] data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data);
+    }
+    public static com.github.sosozhuang.protobuf.Chat.Server parseFrom(
+        byte[] data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data, extensionRegistry);
+    }
+    public static com.github.sosozhuang.protobuf.Chat.Server parseFrom(java.io.InputStream input)
+        throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3
+          .parseWithIOException(PARSER, input);
+    }
+    public static com.github.sosozhuang.protobuf.Chat.Server parseFrom(
+        java.io.InputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3
+          .parseWithIOException(PARSER, input, extensionRegistry);
+    }
+    public static com.github.sosozhuang.protobuf.Chat.Server parseDelimitedFrom(java.io.InputStream input)
+        throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3
+          .parseDelimitedWithIOException(PARSER, input);
+    }
+    public static com.github.sosozhuang.protobuf.Chat.Server parseDelimitedFrom(
+        java.io.InputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3
+          .parseDelimitedWithIOException(PARSER, input, extensionRegistry);
+    }
+    public static com.github.sosozhuang.protobuf.Chat.Server parseFrom(
+        com.google.protobuf.CodedInputStream input)
+        throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3
+          .parseWithIOException(PARSER, input);
+    }
+    public static com.github.sosozhuang.protobuf.Chat.Server parseFrom(
+        com.google.protobuf.CodedInputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3
+          .parseWithIOException(PARSER, input, extensionRegistry);
+    }
+
+    public Builder newBuilderForType() { return newBuilder(); }
+    public static Builder newBuilder() {
+      return DEFAULT_INSTANCE.toBuilder();
+    }
+    public static Builder newBuilder(com.github.sosozhuang.protobuf.Chat.Server prototype) {
+      return DEFAULT_INSTANCE.toBuilder().mergeFrom(prototype);
+    }
+    public Builder toBuilder() {
+      return this == DEFAULT_INSTANCE
+          ? new Builder() : new Builder().mergeFrom(this);
+    }
+
+    @java.lang.Override
+    protected Builder newBuilderForType(
+        com.google.protobuf.GeneratedMessageV3.BuilderParent parent) {
+      Builder builder = new Builder(parent);
+      return builder;
+    }
+    /**
+     * Protobuf type {@code Server}
+     */
+    public static final class Builder extends
+        com.google.protobuf.GeneratedMessageV3.Builder<Builder> implements
+        // @@protoc_insertion_point(builder_implements:Server)
+        com.github.sosozhuang.protobuf.Chat.ServerOrBuilder {
+      public static final com.google.protobuf.Descriptors.Descriptor
+          getDescriptor() {
+        return com.github.sosozhuang.protobuf.Chat.internal_static_Server_descriptor;
+      }
+
+      protected com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
+          internalGetFieldAccessorTable() {
+        return com.github.sosozhuang.protobuf.Chat.internal_static_Server_fieldAccessorTable
+            .ensureFieldAccessorsInitialized(
+                com.github.sosozhuang.protobuf.Chat.Server.class, com.github.sosozhuang.protobuf.Chat.Server.Builder.class);
+      }
+
+      // Construct using com.github.sosozhuang.protobuf.Chat.Server.newBuilder()
+      private Builder() {
+        maybeForceBuilderInitialization();
+      }
+
+      private Builder(
+          com.google.protobuf.GeneratedMessageV3.BuilderParent parent) {
+        super(parent);
+        maybeForceBuilderInitialization();
+      }
+      private void maybeForceBuilderInitialization() {
+        if (com.google.protobuf.GeneratedMessageV3
+                .alwaysUseFieldBuilders) {
+        }
+      }
+      public Builder clear() {
+        super.clear();
+        id_ = "";
+        bitField0_ = (bitField0_ & ~0x00000001);
+        host_ = "";
+        bitField0_ = (bitField0_ & ~0x00000002);
+        port_ = 0;
+        bitField0_ = (bitField0_ & ~0x00000004);
+        startAt_ = 0L;
+        bitField0_ = (bitField0_ & ~0x00000008);
+        config_ = "";
+        bitField0_ = (bitField0_ & ~0x00000010);
+        return this;
+      }
+
+      public com.google.protobuf.Descriptors.Descriptor
+          getDescriptorForType() {
+        return com.github.sosozhuang.protobuf.Chat.internal_static_Server_descriptor;
+      }
+
+      public com.github.sosozhuang.protobuf.Chat.Server getDefaultInstanceForType() {
+        return com.github.sosozhuang.protobuf.Chat.Server.getDefaultInstance();
+      }
+
+      public com.github.sosozhuang.protobuf.Chat.Server build() {
+        com.github.sosozhuang.protobuf.Chat.Server result = buildPartial();
+        if (!result.isInitialized()) {
+          throw newUninitializedMessageException(result);
+        }
+        return result;
+      }
+
+      public com.github.sosozhuang.protobuf.Chat.Server buildPartial() {
+        com.github.sosozhuang.protobuf.Chat.Server result = new com.github.sosozhuang.protobuf.Chat.Server(this);
+        int from_bitField0_ = bitField0_;
+        int to_bitField0_ = 0;
+        if (((from_bitField0_ & 0x00000001) == 0x00000001)) {
+          to_bitField0_ |= 0x00000001;
+        }
+        result.id_ = id_;
+        if (((from_bitField0_ & 0x00000002) == 0x00000002)) {
+          to_bitField0_ |= 0x00000002;
+        }
+        result.host_ = host_;
+        if (((from_bitField0_ & 0x00000004) == 0x00000004)) {
+          to_bitField0_ |= 0x00000004;
+        }
+        result.port_ = port_;
+        if (((from_bitField0_ & 0x00000008) == 0x00000008)) {
+          to_bitField0_ |= 0x00000008;
+        }
+        result.startAt_ = startAt_;
+        if (((from_bitField0_ & 0x00000010) == 0x00000010)) {
+          to_bitField0_ |= 0x00000010;
+        }
+        result.config_ = config_;
+        result.bitField0_ = to_bitField0_;
+        onBuilt();
+        return result;
+      }
+
+      public Builder clone() {
+        return (Builder) super.clone();
+      }
+      public Builder setField(
+          com.google.protobuf.Descriptors.FieldDescriptor field,
+          java.lang.Object value) {
+        return (Builder) super.setField(field, value);
+      }
+      public Builder clearField(
+          com.google.protobuf.Descriptors.FieldDescriptor field) {
+        return (Builder) super.clearField(field);
+      }
+      public Builder clearOneof(
+          com.google.protobuf.Descriptors.OneofDescriptor oneof) {
+        return (Builder) super.clearOneof(oneof);
+      }
+      public Builder setRepeatedField(
+          com.google.protobuf.Descriptors.FieldDescriptor field,
+          int index, java.lang.Object value) {
+        return (Builder) super.setRepeatedField(field, index, value);
+      }
+      public Builder addRepeatedField(
+          com.google.protobuf.Descriptors.FieldDescriptor field,
+          java.lang.Object value) {
+        return (Builder) super.addRepeatedField(field, value);
+      }
+      public Builder mergeFrom(com.google.protobuf.Message other) {
+        if (other instanceof com.github.sosozhuang.protobuf.Chat.Server) {
+          return mergeFrom((com.github.sosozhuang.protobuf.Chat.Server)other);
+        } else {
+          super.mergeFrom(other);
+          return this;
+        }
+      }
+
+      public Builder mergeFrom(com.github.sosozhuang.protobuf.Chat.Server other) {
+        if (other == com.github.sosozhuang.protobuf.Chat.Server.getDefaultInstance()) return this;
+        if (other.hasId()) {
+          bitField0_ |= 0x00000001;
+          id_ = other.id_;
+          onChanged();
+        }
+        if (other.hasHost()) {
+          bitField0_ |= 0x00000002;
+          host_ = other.host_;
+          onChanged();
+        }
+        if (other.hasPort()) {
+          setPort(other.getPort());
+        }
+        if (other.hasStartAt()) {
+          setStartAt(other.getStartAt());
+        }
+        if (other.hasConfig()) {
+          bitField0_ |= 0x00000010;
+          config_ = other.config_;
+          onChanged();
+        }
+        this.mergeUnknownFields(other.unknownFields);
+        onChanged();
+        return this;
+      }
+
+      public final boolean isInitialized() {
+        if (!hasId()) {
+          return false;
+        }
+        if (!hasHost()) {
+          return false;
+        }
+        if (!hasPort()) {
+          return false;
+        }
+        if (!hasStartAt()) {
+          return false;
+        }
+        return true;
+      }
+
+      public Builder mergeFrom(
+          com.google.protobuf.CodedInputStream input,
+          com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+          throws java.io.IOException {
+        com.github.sosozhuang.protobuf.Chat.Server parsedMessage = null;
+        try {
+          parsedMessage = PARSER.parsePartialFrom(input, extensionRegistry);
+        } catch (com.google.protobuf.InvalidProtocolBufferException e) {
+          parsedMessage = (com.github.sosozhuang.protobuf.Chat.Server) e.getUnfinishedMessage();
+          throw e.unwrapIOException();
+        } finally {
+          if (parsedMessage != null) {
+            mergeFrom(parsedMessage);
+          }
+        }
+        return this;
       }
+      private int bitField0_;
+
+      private java.lang.Object id_ = "";
       /**
-       * <code>required string token = 2;</code>
+       * <code>required string id = 1;</code>
+       */
+      public boolean hasId() {
+        return ((bitField0_ & 0x00000001) == 0x00000001);
+      }
+      /**
+       * <code>required string id = 1;</code>
+       */
+      public java.lang.String getId() {
+        java.lang.Object ref = id_;
+        if (!(ref instanceof java.lang.String)) {
+          com.google.protobuf.ByteString bs =
+              (com.google.protobuf.ByteString) ref;
+          java.lang.String s = bs.toStringUtf8();
+          if (bs.isValidUtf8()) {
+            id_ = s;
+          }
+          return s;
+        } else {
+          return (java.lang.String) ref;
+        }
+      }
+      /**
+       * <code>required string id = 1;</code>
+       */
+      public com.google.protobuf.ByteString
+          getIdBytes() {
+        java.lang.Object ref = id_;
+        if (ref instanceof String) {
+          com.google.protobuf.ByteString b = 
+              com.google.protobuf.ByteString.copyFromUtf8(
+                  (java.lang.String) ref);
+          id_ = b;
+          return b;
+        } else {
+          return (com.google.protobuf.ByteString) ref;
+        }
+      }
+      /**
+       * <code>required string id = 1;</code>
+       */
+      public Builder setId(
+          java.lang.String value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  bitField0_ |= 0x00000001;
+        id_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>required string id = 1;</code>
+       */
+      public Builder clearId() {
+        bitField0_ = (bitField0_ & ~0x00000001);
+        id_ = getDefaultInstance().getId();
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>required string id = 1;</code>
+       */
+      public Builder setIdBytes(
+          com.google.protobuf.ByteString value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  bitField0_ |= 0x00000001;
+        id_ = value;
+        onChanged();
+        return this;
+      }
+
+      private java.lang.Object host_ = "";
+      /**
+       * <code>required string host = 2;</code>
+       */
+      public boolean hasHost() {
+        return ((bitField0_ & 0x00000002) == 0x00000002);
+      }
+      /**
+       * <code>required string host = 2;</code>
        */
-      public java.lang.String getToken() {
-        java.lang.Object ref = token_;
+      public java.lang.String getHost() {
+        java.lang.Object ref = host_;
         if (!(ref instanceof java.lang.String)) {
           com.google.protobuf.ByteString bs =
               (com.google.protobuf.ByteString) ref;
           java.lang.String s = bs.toStringUtf8();
           if (bs.isValidUtf8()) {
-            token_ = s;
+            host_ = s;
           }
           return s;
         } else {
@@ -2579,75 +4835,139 @@ public final class Chat {
         }
       }
       /**
-       * <code>required string token = 2;</code>
+       * <code>required string host = 2;</code>
        */
       public com.google.protobuf.ByteString
-          getTokenBytes() {
-        java.lang.Object ref = token_;
+          getHostBytes() {
+        java.lang.Object ref = host_;
         if (ref instanceof String) {
           com.google.protobuf.ByteString b = 
               com.google.protobuf.ByteString.copyFromUtf8(
                   (java.lang.String) ref);
-          token_ = b;
+          host_ = b;
           return b;
         } else {
           return (com.google.protobuf.ByteString) ref;
         }
       }
       /**
-       * <code>required string token = 2;</code>
+       * <code>required string host = 2;</code>
        */
-      public Builder setToken(
+      public Builder setHost(
           java.lang.String value) {
         if (value == null) {
     throw new NullPointerException();
   }
   bitField0_ |= 0x00000002;
-        token_ = value;
+        host_ = value;
         onChanged();
         return this;
       }
       /**
-       * <code>required string token = 2;</code>
+       * <code>required string host = 2;</code>
        */
-      public Builder clearToken() {
+      public Builder clearHost() {
         bitField0_ = (bitField0_ & ~0x00000002);
-        token_ = getDefaultInstance().getToken();
+        host_ = getDefaultInstance().getHost();
         onChanged();
         return this;
       }
       /**
-       * <code>required string token = 2;</code>
+       * <code>required string host = 2;</code>
        */
-      public Builder setTokenBytes(
+      public Builder setHostBytes(
           com.google.protobuf.ByteString value) {
         if (value == null) {
     throw new NullPointerException();
   }
   bitField0_ |= 0x00000002;
-        token_ = value;
+        host_ = value;
         onChanged();
         return this;
       }
 
-      private java.lang.Object owner_ = "";
+      private int port_ ;
       /**
-       * <code>required string owner = 3;</code>
+       * <code>required uint32 port = 3;</code>
        */
-      public boolean hasOwner() {
+      public boolean hasPort() {
         return ((bitField0_ & 0x00000004) == 0x00000004);
       }
       /**
-       * <code>required string owner = 3;</code>
+       * <code>required uint32 port = 3;</code>
        */
-      public java.lang.String getOwner() {
-        java.lang.Object ref = owner_;
+      public int getPort() {
+        return port_;
+      }
+      /**
+       * <code>required uint32 port = 3;</code>
+       */
+      public Builder setPort(int value) {
+        bitField0_ |= 0x00000004;
+        port_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>required uint32 port = 3;</code>
+       */
+      public Builder clearPort() {
+        bitField0_ = (bitField0_ & ~0x00000004);
+        port_ = 0;
+        onChanged();
+        return this;
+      }
+
+      private long startAt_ ;
+      /**
+       * <code>required uint64 start_at = 4;</code>
+       */
+      public boolean hasStartAt() {
+        return ((bitField0_ & 0x00000008) == 0x00000008);
+      }
+      /**
+       * <code>required uint64 start_at = 4;</code>
+       */
+      public long getStartAt() {
+        return startAt_;
+      }
+      /**
+       * <code>required uint64 start_at = 4;</code>
+       */
+      public Builder setStartAt(long value) {
+        bitField0_ |= 0x00000008;
+        startAt_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>required uint64 start_at = 4;</code>
+       */
+      public Builder clearStartAt() {
+        bitField0_ = (bitField0_ & ~0x00000008);
+        startAt_ = 0L;
+        onChanged();
+        return this;
+      }
+
+      private java.lang.Object config_ = "";
+      /**
+       * <code>optional string config = 5;</code>
+       */
+      public boolean hasConfig() {
+        return ((bitField0_ & 0x00000010) == 0x00000010);
+      }
+      /**
+       * <code>optional string config = 5;</code>
+       */
+      public java.lang.String getConfig() {
+        java.lang.Object ref = config_;
         if (!(ref instanceof java.lang.String)) {
           com.google.protobuf.ByteString bs =
               (com.google.protobuf.ByteString) ref;
           java.lang.String s = bs.toStringUtf8();
           if (bs.isValidUtf8()) {
-            owner_ = s;
+            config_ = s;
           }
           return s;
         } else {
@@ -2655,85 +4975,53 @@ public final class Chat {
         }
       }
       /**
-       * <code>required string owner = 3;</code>
+       * <code>optional string config = 5;</code>
        */
       public com.google.protobuf.ByteString
-          getOwnerBytes() {
-        java.lang.Object ref = owner_;
+          getConfigBytes() {
+        java.lang.Object ref = config_;
         if (ref instanceof String) {
           com.google.protobuf.ByteString b = 
               com.google.protobuf.ByteString.copyFromUtf8(
                   (java.lang.String) ref);
-          owner_ = b;
+          config_ = b;
           return b;
         } else {
           return (com.google.protobuf.ByteString) ref;
         }
       }
       /**
-       * <code>required string owner = 3;</code>
+       * <code>optional string config = 5;</code>
        */
-      public Builder setOwner(
+      public Builder setConfig(
           java.lang.String value) {
         if (value == null) {
     throw new NullPointerException();
   }
-  bitField0_ |= 0x00000004;
-        owner_ = value;
+  bitField0_ |= 0x00000010;
+        config_ = value;
         onChanged();
         return this;
       }
       /**
-       * <code>required string owner = 3;</code>
+       * <code>optional string config = 5;</code>
        */
-      public Builder clearOwner() {
-        bitField0_ = (bitField0_ & ~0x00000004);
-        owner_ = getDefaultInstance().getOwner();
+      public Builder clearConfig() {
+        bitField0_ = (bitField0_ & ~0x00000010);
+        config_ = getDefaultInstance().getConfig();
         onChanged();
         return this;
       }
       /**
-       * <code>required string owner = 3;</code>
+       * <code>optional string config = 5;</code>
        */
-      public Builder setOwnerBytes(
+      public Builder setConfigBytes(
           com.google.protobuf.ByteString value) {
         if (value == null) {
     throw new NullPointerException();
   }
-  bitField0_ |= 0x00000004;
-        owner_ = value;
-        onChanged();
-        return this;
-      }
-
-      private long createAt_ ;
-      /**
-       * <code>required uint64 create_at = 4;</code>
-       */
-      public boolean hasCreateAt() {
-        return ((bitField0_ & 0x00000008) == 0x00000008);
-      }
-      /**
-       * <code>required uint64 create_at = 4;</code>
-       */
-      public long getCreateAt() {
-        return createAt_;
-      }
-      /**
-       * <code>required uint64 create_at = 4;</code>
-       */
-      public Builder setCreateAt(long value) {
-        bitField0_ |= 0x00000008;
-        createAt_ = value;
-        onChanged();
-        return this;
-      }
-      /**
-       * <code>required uint64 create_at = 4;</code>
-       */
-      public Builder clearCreateAt() {
-        bitField0_ = (bitField0_ & ~0x00000008);
-        createAt_ = 0L;
+  bitField0_ |= 0x00000010;
+        config_ = value;
         onChanged();
         return this;
       }
@@ -2748,126 +5036,106 @@ public final class Chat {
       }
 
 
-      // @@protoc_insertion_point(builder_scope:Group)
+      // @@protoc_insertion_point(builder_scope:Server)
     }
 
-    // @@protoc_insertion_point(class_scope:Group)
-    private static final com.github.sosozhuang.protobuf.Chat.Group DEFAULT_INSTANCE;
+    // @@protoc_insertion_point(class_scope:Server)
+    private static final com.github.sosozhuang.protobuf.Chat.Server DEFAULT_INSTANCE;
     static {
-      DEFAULT_INSTANCE = new com.github.sosozhuang.protobuf.Chat.Group();
+      DEFAULT_INSTANCE = new com.github.sosozhuang.protobuf.Chat.Server();
     }
 
-    public static com.github.sosozhuang.protobuf.Chat.Group getDefaultInstance() {
+    public static com.github.sosozhuang.protobuf.Chat.Server getDefaultInstance() {
       return DEFAULT_INSTANCE;
     }
 
-    @java.lang.Deprecated public static final com.google.protobuf.Parser<Group>
-        PARSER = new com.google.protobuf.AbstractParser<Group>() {
-      public Group parsePartialFrom(
+    @java.lang.Deprecated public static final com.google.protobuf.Parser<Server>
+        PARSER = new com.google.protobuf.AbstractParser<Server>() {
+      public Server parsePartialFrom(
           com.google.protobuf.CodedInputStream input,
           com.google.protobuf.ExtensionRegistryLite extensionRegistry)
           throws com.google.protobuf.InvalidProtocolBufferException {
-          return new Group(input, extensionRegistry);
+          return new Server(input, extensionRegistry);
       }
     };
 
-    public static com.google.protobuf.Parser<Group> parser() {
+    public static com.google.protobuf.Parser<Server> parser() {
       return PARSER;
     }
 
     @java.lang.Override
-    public com.google.protobuf.Parser<Group> getParserForType() {
+    public com.google.protobuf.Parser<Server> getParserForType() {
       return PARSER;
     }
 
-    public com.github.sosozhuang.protobuf.Chat.Group getDefaultInstanceForType() {
+    public com.github.sosozhuang.protobuf.Chat.Server getDefaultInstanceForType() {
       return DEFAULT_INSTANCE;
     }
 
   }
 
-  public interface ServerOrBuilder extends
-      // @@protoc_insertion_point(interface_extends:Server)
+  public interface RouteOrBuilder extends
+      // @@protoc_insertion_point(interface_extends:Route)
       com.google.protobuf.MessageOrBuilder {
 
     /**
-     * <code>required string id = 1;</code>
-     */
-    boolean hasId();
-    /**
-     * <code>required string id = 1;</code>
-     */
-    java.lang.String getId();
-    /**
-     * <code>required string id = 1;</code>
-     */
-    com.google.protobuf.ByteString
-        getIdBytes();
-
-    /**
-     * <code>required string host = 2;</code>
-     */
-    boolean hasHost();
-    /**
-     * <code>required string host = 2;</code>
+     * <code>required uint32 version = 1;</code>
      */
-    java.lang.String getHost();
+    boolean hasVersion();
     /**
-     * <code>required string host = 2;</code>
+     * <code>required uint32 version = 1;</code>
      */
-    com.google.protobuf.ByteString
-        getHostBytes();
+    int getVersion();
 
     /**
-     * <code>required uint32 port = 3;</code>
+     * <code>required uint32 topic_count = 2;</code>
      */
-    boolean hasPort();
+    boolean hasTopicCount();
     /**
-     * <code>required uint32 port = 3;</code>
+     * <code>required uint32 topic_count = 2;</code>
      */
-    int getPort();
+    int getTopicCount();
 
     /**
-     * <code>required uint64 start_at = 4;</code>
+     * <code>required uint64 start_at = 3;</code>
      */
     boolean hasStartAt();
     /**
-     * <code>required uint64 start_at = 4;</code>
+     * <code>required uint64 start_at = 3;</code>
      */
     long getStartAt();
 
     /**
-     * <code>optional string config = 5;</code>
-     */
-    boolean hasConfig();
-    /**
-     * <code>optional string config = 5;</code>
+     * <code>optional uint64 migrate_window = 4;</code>
      */
-    java.lang.String getConfig();
+    boolean hasMigrateWindow();
     /**
-     * <code>optional string config = 5;</code>
+     * <code>optional uint64 migrate_window = 4;</code>
      */
-    com.google.protobuf.ByteString
-        getConfigBytes();
+    long getMigrateWindow();
   }
   /**
-   * Protobuf type {@code Server}
+   * <pre>
+   * version of the group to topic routing table, a group moves to it at
+   * start_at plus its own offset within migrate_window
+   * </pre>
+   *
+   * Protobuf type {@code Route}
    */
-  public  static final class Server extends
+  public  static final class Route extends
       com.google.protobuf.GeneratedMessageV3 implements
-      // @@protoc_insertion_point(message_implements:Server)
-      ServerOrBuilder {
+      // @@protoc_insertion_point(message_implements:Route)
+      RouteOrBuilder {
   private static final long serialVersionUID = 0L;
-    // Use Server.newBuilder() to construct.
-    private Server(com.google.protobuf.GeneratedMessageV3.Builder<?> builder) {
+    // Use Route.newBuilder() to construct.
+    private Route(com.google.protobuf.GeneratedMessageV3.Builder<?> builder) {
       super(builder);
     }
-    private Server() {
-      id_ = "";
-      host_ = "";
-      port_ = 0;
+    private Route() {
+      version_ = 0;
+      topicCount_ = 0;
       startAt_ = 0L;
-      config_ = "";
+      migrateWindow_ = 0L;
     }
 
     @java.lang.Override
@@ -2875,7 +5143,7 @@ public final class Chat {
     getUnknownFields() {
       return this.unknownFields;
     }
-    private Server(
+    private Route(
         com.google.protobuf.CodedInputStream input,
         com.google.protobuf.ExtensionRegistryLite extensionRegistry)
         throws com.google.protobuf.InvalidProtocolBufferException {
@@ -2898,32 +5166,24 @@ public final class Chat {
               }
               break;
             }
-            case 10: {
-              com.google.protobuf.ByteString bs = input.readBytes();
+            case 8: {
               bitField0_ |= 0x00000001;
-              id_ = bs;
+              version_ = input.readUInt32();
               break;
             }
-            case 18: {
-              com.google.protobuf.ByteString bs = input.readBytes();
+            case 16: {
               bitField0_ |= 0x00000002;
-              host_ = bs;
+              topicCount_ = input.readUInt32();
               break;
             }
             case 24: {
               bitField0_ |= 0x00000004;
-              port_ = input.readUInt32();
+              startAt_ = input.readUInt64();
               break;
             }
             case 32: {
               bitField0_ |= 0x00000008;
-              startAt_ = input.readUInt64();
-              break;
-            }
-            case 42: {
-              com.google.protobuf.ByteString bs = input.readBytes();
-              bitField0_ |= 0x00000010;
-              config_ = bs;
+              migrateWindow_ = input.readUInt64();
               break;
             }
           }
@@ -2940,171 +5200,75 @@ public final class Chat {
     }
     public static final com.google.protobuf.Descriptors.Descriptor
         getDescriptor() {
-      return com.github.sosozhuang.protobuf.Chat.internal_static_Server_descriptor;
+      return com.github.sosozhuang.protobuf.Chat.internal_static_Route_descriptor;
     }
 
     protected com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
         internalGetFieldAccessorTable() {
-      return com.github.sosozhuang.protobuf.Chat.internal_static_Server_fieldAccessorTable
+      return com.github.sosozhuang.protobuf.Chat.internal_static_Route_fieldAccessorTable
           .ensureFieldAccessorsInitialized(
-              com.github.sosozhuang.protobuf.Chat.Server.class, com.github.sosozhuang.protobuf.Chat.Server.Builder.class);
+              com.github.sosozhuang.protobuf.Chat.Route.class, com.github.sosozhuang.protobuf.Chat.Route.Builder.class);
     }
 
     private int bitField0_;
-    public static final int ID_FIELD_NUMBER = 1;
-    private volatile java.lang.Object id_;
+    public static final int VERSION_FIELD_NUMBER = 1;
+    private int version_;
     /**
-     * <code>required string id = 1;</code>
+     * <code>required uint32 version = 1;</code>
      */
-    public boolean hasId() {
+    public boolean hasVersion() {
       return ((bitField0_ & 0x00000001) == 0x00000001);
     }
     /**
-     * <code>required string id = 1;</code>
-     */
-    public java.lang.String getId() {
-      java.lang.Object ref = id_;
-      if (ref instanceof java.lang.String) {
-        return (java.lang.String) ref;
-      } else {
-        com.google.protobuf.ByteString bs = 
-            (com.google.protobuf.ByteString) ref;
-        java.lang.String s = bs.toStringUtf8();
-        if (bs.isValidUtf8()) {
-          id_ = s;
-        }
-        return s;
-      }
-    }
-    /**
-     * <code>required string id = 1;</code>
+     * <code>required uint32 version = 1;</code>
      */
-    public com.google.protobuf.ByteString
-        getIdBytes() {
-      java.lang.Object ref = id_;
-      if (ref instanceof java.lang.String) {
-        com.google.protobuf.ByteString b = 
-            com.google.protobuf.ByteString.copyFromUtf8(
-                (java.lang.String) ref);
-        id_ = b;
-        return b;
-      } else {
-        return (com.google.protobuf.ByteString) ref;
-      }
+    public int getVersion() {
+      return version_;
     }
 
-    public static final int HOST_FIELD_NUMBER = 2;
-    private volatile java.lang.Object host_;
+    public static final int TOPIC_COUNT_FIELD_NUMBER = 2;
+    private int topicCount_;
     /**
-     * <code>required string host = 2;</code>
+     * <code>required uint32 topic_count = 2;</code>
      */
-    public boolean hasHost() {
+    public boolean hasTopicCount() {
       return ((bitField0_ & 0x00000002) == 0x00000002);
     }
     /**
-     * <code>required string host = 2;</code>
-     */
-    public java.lang.String getHost() {
-      java.lang.Object ref = host_;
-      if (ref instanceof java.lang.String) {
-        return (java.lang.String) ref;
-      } else {
-        com.google.protobuf.ByteString bs = 
-            (com.google.protobuf.ByteString) ref;
-        java.lang.String s = bs.toStringUtf8();
-        if (bs.isValidUtf8()) {
-          host_ = s;
-        }
-        return s;
-      }
-    }
-    /**
-     * <code>required string host = 2;</code>
-     */
-    public com.google.protobuf.ByteString
-        getHostBytes() {
-      java.lang.Object ref = host_;
-      if (ref instanceof java.lang.String) {
-        com.google.protobuf.ByteString b = 
-            com.google.protobuf.ByteString.copyFromUtf8(
-                (java.lang.String) ref);
-        host_ = b;
-        return b;
-      } else {
-        return (com.google.protobuf.ByteString) ref;
-      }
-    }
-
-    public static final int PORT_FIELD_NUMBER = 3;
-    private int port_;
-    /**
-     * <code>required uint32 port = 3;</code>
-     */
-    public boolean hasPort() {
-      return ((bitField0_ & 0x00000004) == 0x00000004);
-    }
-    /**
-     * <code>required uint32 port = 3;</code>
+     * <code>required uint32 topic_count = 2;</code>
      */
-    public int getPort() {
-      return port_;
+    public int getTopicCount() {
+      return topicCount_;
     }
 
-    public static final int START_AT_FIELD_NUMBER = 4;
+    public static final int START_AT_FIELD_NUMBER = 3;
     private long startAt_;
     /**
-     * <code>required uint64 start_at = 4;</code>
+     * <code>required uint64 start_at = 3;</code>
      */
     public boolean hasStartAt() {
-      return ((bitField0_ & 0x00000008) == 0x00000008);
+      return ((bitField0_ & 0x00000004) == 0x00000004);
     }
     /**
-     * <code>required uint64 start_at = 4;</code>
+     * <code>required uint64 start_at = 3;</code>
      */
     public long getStartAt() {
       return startAt_;
     }
 
-    public static final int CONFIG_FIELD_NUMBER = 5;
-    private volatile java.lang.Object config_;
+    public static final int MIGRATE_WINDOW_FIELD_NUMBER = 4;
+    private long migrateWindow_;
     /**
-     * <code>optional string config = 5;</code>
-     */
-    public boolean hasConfig() {
-      return ((bitField0_ & 0x00000010) == 0x00000010);
-    }
-    /**
-     * <code>optional string config = 5;</code>
+     * <code>optional uint64 migrate_window = 4;</code>
      */
-    public java.lang.String getConfig() {
-      java.lang.Object ref = config_;
-      if (ref instanceof java.lang.String) {
-        return (java.lang.String) ref;
-      } else {
-        com.google.protobuf.ByteString bs = 
-            (com.google.protobuf.ByteString) ref;
-        java.lang.String s = bs.toStringUtf8();
-        if (bs.isValidUtf8()) {
-          config_ = s;
-        }
-        return s;
-      }
+    public boolean hasMigrateWindow() {
+      return ((bitField0_ & 0x00000008) == 0x00000008);
     }
     /**
-     * <code>optional string config = 5;</code>
+     * <code>optional uint64 migrate_window = 4;</code>
      */
-    public com.google.protobuf.ByteString
-        getConfigBytes() {
-      java.lang.Object ref = config_;
-      if (ref instanceof java.lang.String) {
-        com.google.protobuf.ByteString b = 
-            com.google.protobuf.ByteString.copyFromUtf8(
-                (java.lang.String) ref);
-        config_ = b;
-        return b;
-      } else {
-        return (com.google.protobuf.ByteString) ref;
-      }
+    public long getMigrateWindow() {
+      return migrateWindow_;
     }
 
     private byte memoizedIsInitialized = -1;
@@ -3113,15 +5277,11 @@ public final class Chat {
       if (isInitialized == 1) return true;
       if (isInitialized == 0) return false;
 
-      if (!hasId()) {
-        memoizedIsInitialized = 0;
-        return false;
-      }
-      if (!hasHost()) {
+      if (!hasVersion()) {
         memoizedIsInitialized = 0;
         return false;
       }
-      if (!hasPort()) {
+      if (!hasTopicCount()) {
         memoizedIsInitialized = 0;
         return false;
       }
@@ -3136,19 +5296,16 @@ public final class Chat {
     public void writeTo(com.google.protobuf.CodedOutputStream output)
                         throws java.io.IOException {
       if (((bitField0_ & 0x00000001) == 0x00000001)) {
-        com.google.protobuf.GeneratedMessageV3.writeString(output, 1, id_);
+        output.writeUInt32(1, version_);
       }
       if (((bitField0_ & 0x00000002) == 0x00000002)) {
-        com.google.protobuf.GeneratedMessageV3.writeString(output, 2, host_);
+        output.writeUInt32(2, topicCount_);
       }
       if (((bitField0_ & 0x00000004) == 0x00000004)) {
-        output.writeUInt32(3, port_);
+        output.writeUInt64(3, startAt_);
       }
       if (((bitField0_ & 0x00000008) == 0x00000008)) {
-        output.writeUInt64(4, startAt_);
-      }
-      if (((bitField0_ & 0x00000010) == 0x00000010)) {
-        com.google.protobuf.GeneratedMessageV3.writeString(output, 5, config_);
+        output.writeUInt64(4, migrateWindow_);
       }
       unknownFields.writeTo(output);
     }
@@ -3159,21 +5316,20 @@ public final class Chat {
 
       size = 0;
       if (((bitField0_ & 0x00000001) == 0x00000001)) {
-        size += com.google.protobuf.GeneratedMessageV3.computeStringSize(1, id_);
+        size += com.google.protobuf.CodedOutputStream
+          .computeUInt32Size(1, version_);
       }
       if (((bitField0_ & 0x00000002) == 0x00000002)) {
-        size += com.google.protobuf.GeneratedMessageV3.computeStringSize(2, host_);
+        size += com.google.protobuf.CodedOutputStream
+          .computeUInt32Size(2, topicCount_);
       }
       if (((bitField0_ & 0x00000004) == 0x00000004)) {
         size += com.google.protobuf.CodedOutputStream
-          .computeUInt32Size(3, port_);
+          .computeUInt64Size(3, startAt_);
       }
       if (((bitField0_ & 0x00000008) == 0x00000008)) {
         size += com.google.protobuf.CodedOutputStream
-          .computeUInt64Size(4, startAt_);
-      }
-      if (((bitField0_ & 0x00000010) == 0x00000010)) {
-        size += com.google.protobuf.GeneratedMessageV3.computeStringSize(5, config_);
+          .computeUInt64Size(4, migrateWindow_);
       }
       size += unknownFields.getSerializedSize();
       memoizedSize = size;
@@ -3185,36 +5341,31 @@ public final class Chat {
       if (obj == this) {
        return true;
       }
-      if (!(obj instanceof com.github.sosozhuang.protobuf.Chat.Server)) {
+      if (!(obj instanceof com.github.sosozhuang.protobuf.Chat.Route)) {
         return super.equals(obj);
       }
-      com.github.sosozhuang.protobuf.Chat.Server other = (com.github.sosozhuang.protobuf.Chat.Server) obj;
+      com.github.sosozhuang.protobuf.Chat.Route other = (com.github.sosozhuang.protobuf.Chat.Route) obj;
 
       boolean result = true;
-      result = result && (hasId() == other.hasId());
-      if (hasId()) {
-        result = result && getId()
-            .equals(other.getId());
-      }
-      result = result && (hasHost() == other.hasHost());
-      if (hasHost()) {
-        result = result && getHost()
-            .equals(other.getHost());
+      result = result && (hasVersion() == other.hasVersion());
+      if (hasVersion()) {
+        result = result && (getVersion()
+            == other.getVersion());
       }
-      result = result && (hasPort() == other.hasPort());
-      if (hasPort()) {
-        result = result && (getPort()
-            == other.getPort());
+      result = result && (hasTopicCount() == other.hasTopicCount());
+      if (hasTopicCount()) {
+        result = result && (getTopicCount()
+            == other.getTopicCount());
       }
       result = result && (hasStartAt() == other.hasStartAt());
       if (hasStartAt()) {
         result = result && (getStartAt()
             == other.getStartAt());
       }
-      result = result && (hasConfig() == other.hasConfig());
-      if (hasConfig()) {
-        result = result && getConfig()
-            .equals(other.getConfig());
+      result = result && (hasMigrateWindow() == other.hasMigrateWindow());
+      if (hasMigrateWindow()) {
+        result = result && (getMigrateWindow()
+            == other.getMigrateWindow());
       }
       result = result && unknownFields.equals(other.unknownFields);
       return result;
@@ -3227,95 +5378,92 @@ public final class Chat {
       }
       int hash = 41;
       hash = (19 * hash) + getDescriptor().hashCode();
-      if (hasId()) {
-        hash = (37 * hash) + ID_FIELD_NUMBER;
-        hash = (53 * hash) + getId().hashCode();
-      }
-      if (hasHost()) {
-        hash = (37 * hash) + HOST_FIELD_NUMBER;
-        hash = (53 * hash) + getHost().hashCode();
+      if (hasVersion()) {
+        hash = (37 * hash) + VERSION_FIELD_NUMBER;
+        hash = (53 * hash) + getVersion();
       }
-      if (hasPort()) {
-        hash = (37 * hash) + PORT_FIELD_NUMBER;
-        hash = (53 * hash) + getPort();
+      if (hasTopicCount()) {
+        hash = (37 * hash) + TOPIC_COUNT_FIELD_NUMBER;
+        hash = (53 * hash) + getTopicCount();
       }
       if (hasStartAt()) {
         hash = (37 * hash) + START_AT_FIELD_NUMBER;
         hash = (53 * hash) + com.google.protobuf.Internal.hashLong(
             getStartAt());
       }
-      if (hasConfig()) {
-        hash = (37 * hash) + CONFIG_FIELD_NUMBER;
-        hash = (53 * hash) + getConfig().hashCode();
+      if (hasMigrateWindow()) {
+        hash = (37 * hash) + MIGRATE_WINDOW_FIELD_NUMBER;
+        hash = (53 * hash) + com.google.protobuf.Internal.hashLong(
+            getMigrateWindow());
       }
       hash = (29 * hash) + unknownFields.hashCode();
       memoizedHashCode = hash;
       return hash;
     }
 
-    public static com.github.sosozhuang.protobuf.Chat.Server parseFrom(
+    public static com.github.sosozhuang.protobuf.Chat.Route parseFrom(
         java.nio.ByteBuffer data)
         throws com.google.protobuf.InvalidProtocolBufferException {
       return PARSER.parseFrom(data);
     }
-    public static com.github.sosozhuang.protobuf.Chat.Server parseFrom(
+    public static com.github.sosozhuang.protobuf.Chat.Route parseFrom(
         java.nio.ByteBuffer data,
         com.google.protobuf.ExtensionRegistryLite extensionRegistry)
         throws com.google.protobuf.InvalidProtocolBufferException {
       return PARSER.parseFrom(data, extensionRegistry);
     }
-    public static com.github.sosozhuang.protobuf.Chat.Server parseFrom(
+    public static com.github.sosozhuang.protobuf.Chat.Route parseFrom(
         com.google.protobuf.ByteString data)
         throws com.google.protobuf.InvalidProtocolBufferException {
       return PARSER.parseFrom(data);
     }
-    public static com.github.sosozhuang.protobuf.Chat.Server parseFrom(
+    public static com.github.sosozhuang.protobuf.Chat.Route parseFrom(
         com.google.protobuf.ByteString data,
         com.google.protobuf.ExtensionRegistryLite extensionRegistry)
         throws com.google.protobuf.InvalidProtocolBufferException {
       return PARSER.parseFrom(data, extensionRegistry);
     }
-    public static com.github.sosozhuang.protobuf.Chat.Server parseFrom(byte[] data)
+    public static com.github.sosozhuang.protobuf.Chat.Route parseFrom(byte[] data)
         throws com.google.protobuf.InvalidProtocolBufferException {
       return PARSER.parseFrom(data);
     }
-    public static com.github.sosozhuang.protobuf.Chat.Server parseFrom(
+    public static com.github.sosozhuang.protobuf.Chat.Route parseFrom(
         byte[] data,
         com.google.protobuf.ExtensionRegistryLite extensionRegistry)
         throws com.google.protobuf.InvalidProtocolBufferException {
       return PARSER.parseFrom(data, extensionRegistry);
     }
-    public static com.github.sosozhuang.protobuf.Chat.Server parseFrom(java.io.InputStream input)
+    public static com.github.sosozhuang.protobuf.Chat.Route parseFrom(java.io.InputStream input)
         throws java.io.IOException {
       return com.google.protobuf.GeneratedMessageV3
           .parseWithIOException(PARSER, input);
     }
-    public static com.github.sosozhuang.protobuf.Chat.Server parseFrom(
+    public static com.github.sosozhuang.protobuf.Chat.Route parseFrom(
         java.io.InputStream input,
         com.google.protobuf.ExtensionRegistryLite extensionRegistry)
         throws java.io.IOException {
       return com.google.protobuf.GeneratedMessageV3
           .parseWithIOException(PARSER, input, extensionRegistry);
     }
-    public static com.github.sosozhuang.protobuf.Chat.Server parseDelimitedFrom(java.io.InputStream input)
+    public static com.github.sosozhuang.protobuf.Chat.Route parseDelimitedFrom(java.io.InputStream input)
         throws java.io.IOException {
       return com.google.protobuf.GeneratedMessageV3
           .parseDelimitedWithIOException(PARSER, input);
     }
-    public static com.github.sosozhuang.protobuf.Chat.Server parseDelimitedFrom(
+    public static com.github.sosozhuang.protobuf.Chat.Route parseDelimitedFrom(
         java.io.InputStream input,
         com.google.protobuf.ExtensionRegistryLite extensionRegistry)
         throws java.io.IOException {
       return com.google.protobuf.GeneratedMessageV3
           .parseDelimitedWithIOException(PARSER, input, extensionRegistry);
     }
-    public static com.github.sosozhuang.protobuf.Chat.Server parseFrom(
+    public static com.github.sosozhuang.protobuf.Chat.Route parseFrom(
         com.google.protobuf.CodedInputStream input)
         throws java.io.IOException {
       return com.google.protobuf.GeneratedMessageV3
           .parseWithIOException(PARSER, input);
     }
-    public static com.github.sosozhuang.protobuf.Chat.Server parseFrom(
+    public static com.github.sosozhuang.protobuf.Chat.Route parseFrom(
         com.google.protobuf.CodedInputStream input,
         com.google.protobuf.ExtensionRegistryLite extensionRegistry)
         throws java.io.IOException {
@@ -3327,7 +5475,7 @@ public final class Chat {
     public static Builder newBuilder() {
       return DEFAULT_INSTANCE.toBuilder();
     }
-    public static Builder newBuilder(com.github.sosozhuang.protobuf.Chat.Server prototype) {
+    public static Builder newBuilder(com.github.sosozhuang.protobuf.Chat.Route prototype) {
       return DEFAULT_INSTANCE.toBuilder().mergeFrom(prototype);
     }
     public Builder toBuilder() {
@@ -3342,25 +5490,30 @@ public final class Chat {
       return builder;
     }
     /**
-     * Protobuf type {@code Server}
+     * <pre>
+     * version of the group to topic routing table, a group moves to it at
+     * start_at plus its own offset within migrate_window
+     * </pre>
+     *
+     * Protobuf type {@code Route}
      */
     public static final class Builder extends
         com.google.protobuf.GeneratedMessageV3.Builder<Builder> implements
-        // @@protoc_insertion_point(builder_implements:Server)
-        com.github.sosozhuang.protobuf.Chat.ServerOrBuilder {
+        // @@protoc_insertion_point(builder_implements:Route)
+        com.github.sosozhuang.protobuf.Chat.RouteOrBuilder {
       public static final com.google.protobuf.Descriptors.Descriptor
           getDescriptor() {
-        return com.github.sosozhuang.protobuf.Chat.internal_static_Server_descriptor;
+        return com.github.sosozhuang.protobuf.Chat.internal_static_Route_descriptor;
       }
 
       protected com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
           internalGetFieldAccessorTable() {
-        return com.github.sosozhuang.protobuf.Chat.internal_static_Server_fieldAccessorTable
+        return com.github.sosozhuang.protobuf.Chat.internal_static_Route_fieldAccessorTable
             .ensureFieldAccessorsInitialized(
-                com.github.sosozhuang.protobuf.Chat.Server.class, com.github.sosozhuang.protobuf.Chat.Server.Builder.class);
+                com.github.sosozhuang.protobuf.Chat.Route.class, com.github.sosozhuang.protobuf.Chat.Route.Builder.class);
       }
 
-      // Construct using com.github.sosozhuang.protobuf.Chat.Server.newBuilder()
+      // Construct using com.github.sosozhuang.protobuf.Chat.Route.newBuilder()
       private Builder() {
         maybeForceBuilderInitialization();
       }
@@ -3377,60 +5530,54 @@ public final class Chat {
       }
       public Builder clear() {
         super.clear();
-        id_ = "";
+        version_ = 0;
         bitField0_ = (bitField0_ & ~0x00000001);
-        host_ = "";
+        topicCount_ = 0;
         bitField0_ = (bitField0_ & ~0x00000002);
-        port_ = 0;
-        bitField0_ = (bitField0_ & ~0x00000004);
         startAt_ = 0L;
+        bitField0_ = (bitField0_ & ~0x00000004);
+        migrateWindow_ = 0L;
         bitField0_ = (bitField0_ & ~0x00000008);
-        config_ = "";
-        bitField0_ = (bitField0_ & ~0x00000010);
         return this;
       }
 
       public com.google.protobuf.Descriptors.Descriptor
           getDescriptorForType() {
-        return com.github.sosozhuang.protobuf.Chat.internal_static_Server_descriptor;
+        return com.github.sosozhuang.protobuf.Chat.internal_static_Route_descriptor;
       }
 
-      public com.github.sosozhuang.protobuf.Chat.Server getDefaultInstanceForType() {
-        return com.github.sosozhuang.protobuf.Chat.Server.getDefaultInstance();
+      public com.github.sosozhuang.protobuf.Chat.Route getDefaultInstanceForType() {
+        return com.github.sosozhuang.protobuf.Chat.Route.getDefaultInstance();
       }
 
-      public com.github.sosozhuang.protobuf.Chat.Server build() {
-        com.github.sosozhuang.protobuf.Chat.Server result = buildPartial();
+      public com.github.sosozhuang.protobuf.Chat.Route build() {
+        com.github.sosozhuang.protobuf.Chat.Route result = buildPartial();
         if (!result.isInitialized()) {
           throw newUninitializedMessageException(result);
         }
         return result;
       }
 
-      public com.github.sosozhuang.protobuf.Chat.Server buildPartial() {
-        com.github.sosozhuang.protobuf.Chat.Server result = new com.github.sosozhuang.protobuf.Chat.Server(this);
+      public com.github.sosozhuang.protobuf.Chat.Route buildPartial() {
+        com.github.sosozhuang.protobuf.Chat.Route result = new com.github.sosozhuang.protobuf.Chat.Route(this);
         int from_bitField0_ = bitField0_;
         int to_bitField0_ = 0;
         if (((from_bitField0_ & 0x00000001) == 0x00000001)) {
           to_bitField0_ |= 0x00000001;
         }
-        result.id_ = id_;
+        result.version_ = version_;
         if (((from_bitField0_ & 0x00000002) == 0x00000002)) {
           to_bitField0_ |= 0x00000002;
         }
-        result.host_ = host_;
+        result.topicCount_ = topicCount_;
         if (((from_bitField0_ & 0x00000004) == 0x00000004)) {
           to_bitField0_ |= 0x00000004;
         }
-        result.port_ = port_;
+        result.startAt_ = startAt_;
         if (((from_bitField0_ & 0x00000008) == 0x00000008)) {
           to_bitField0_ |= 0x00000008;
         }
-        result.startAt_ = startAt_;
-        if (((from_bitField0_ & 0x00000010) == 0x00000010)) {
-          to_bitField0_ |= 0x00000010;
-        }
-        result.config_ = config_;
+        result.migrateWindow_ = migrateWindow_;
         result.bitField0_ = to_bitField0_;
         onBuilt();
         return result;
@@ -3463,50 +5610,38 @@ public final class Chat {
         return (Builder) super.addRepeatedField(field, value);
       }
       public Builder mergeFrom(com.google.protobuf.Message other) {
-        if (other instanceof com.github.sosozhuang.protobuf.Chat.Server) {
-          return mergeFrom((com.github.sosozhuang.protobuf.Chat.Server)other);
+        if (other instanceof com.github.sosozhuang.protobuf.Chat.Route) {
+          return mergeFrom((com.github.sosozhuang.protobuf.Chat.Route)other);
         } else {
           super.mergeFrom(other);
           return this;
         }
       }
 
-      public Builder mergeFrom(com.github.sosozhuang.protobuf.Chat.Server other) {
-        if (other == com.github.sosozhuang.protobuf.Chat.Server.getDefaultInstance()) return this;
-        if (other.hasId()) {
-          bitField0_ |= 0x00000001;
-          id_ = other.id_;
-          onChanged();
-        }
-        if (other.hasHost()) {
-          bitField0_ |= 0x00000002;
-          host_ = other.host_;
-          onChanged();
+      public Builder mergeFrom(com.github.sosozhuang.protobuf.Chat.Route other) {
+        if (other == com.github.sosozhuang.protobuf.Chat.Route.getDefaultInstance()) return this;
+        if (other.hasVersion()) {
+          setVersion(other.getVersion());
         }
-        if (other.hasPort()) {
-          setPort(other.getPort());
+        if (other.hasTopicCount()) {
+          setTopicCount(other.getTopicCount());
         }
         if (other.hasStartAt()) {
           setStartAt(other.getStartAt());
         }
-        if (other.hasConfig()) {
-          bitField0_ |= 0x00000010;
-          config_ = other.config_;
-          onChanged();
-        }
+        if (other.hasMigrateWindow()) {
+          setMigrateWindow(other.getMigrateWindow());
+        }
         this.mergeUnknownFields(other.unknownFields);
         onChanged();
         return this;
       }
 
       public final boolean isInitialized() {
-        if (!hasId()) {
-          return false;
-        }
-        if (!hasHost()) {
+        if (!hasVersion()) {
           return false;
         }
-        if (!hasPort()) {
+        if (!hasTopicCount()) {
           return false;
         }
         if (!hasStartAt()) {
@@ -3519,11 +5654,11 @@ public final class Chat {
           com.google.protobuf.CodedInputStream input,
           com.google.protobuf.ExtensionRegistryLite extensionRegistry)
           throws java.io.IOException {
-        com.github.sosozhuang.protobuf.Chat.Server parsedMessage = null;
+        com.github.sosozhuang.protobuf.Chat.Route parsedMessage = null;
         try {
           parsedMessage = PARSER.parsePartialFrom(input, extensionRegistry);
         } catch (com.google.protobuf.InvalidProtocolBufferException e) {
-          parsedMessage = (com.github.sosozhuang.protobuf.Chat.Server) e.getUnfinishedMessage();
+          parsedMessage = (com.github.sosozhuang.protobuf.Chat.Route) e.getUnfinishedMessage();
           throw e.unwrapIOException();
         } finally {
           if (parsedMessage != null) {
@@ -3534,294 +5669,130 @@ public final class Chat {
       }
       private int bitField0_;
 
-      private java.lang.Object id_ = "";
+      private int version_ ;
       /**
-       * <code>required string id = 1;</code>
+       * <code>required uint32 version = 1;</code>
        */
-      public boolean hasId() {
+      public boolean hasVersion() {
         return ((bitField0_ & 0x00000001) == 0x00000001);
       }
       /**
-       * <code>required string id = 1;</code>
-       */
-      public java.lang.String getId() {
-        java.lang.Object ref = id_;
-        if (!(ref instanceof java.lang.String)) {
-          com.google.protobuf.ByteString bs =
-              (com.google.protobuf.ByteString) ref;
-          java.lang.String s = bs.toStringUtf8();
-          if (bs.isValidUtf8()) {
-            id_ = s;
-          }
-          return s;
-        } else {
-          return (java.lang.String) ref;
-        }
-      }
-      /**
-       * <code>required string id = 1;</code>
+       * <code>required uint32 version = 1;</code>
        */
-      public com.google.protobuf.ByteString
-          getIdBytes() {
-        java.lang.Object ref = id_;
-        if (ref instanceof String) {
-          com.google.protobuf.ByteString b = 
-              com.google.protobuf.ByteString.copyFromUtf8(
-                  (java.lang.String) ref);
-          id_ = b;
-          return b;
-        } else {
-          return (com.google.protobuf.ByteString) ref;
-        }
+      public int getVersion() {
+        return version_;
       }
       /**
-       * <code>required string id = 1;</code>
+       * <code>required uint32 version = 1;</code>
        */
-      public Builder setId(
-          java.lang.String value) {
-        if (value == null) {
-    throw new NullPointerException();
-  }
-  bitField0_ |= 0x00000001;
-        id_ = value;
+      public Builder setVersion(int value) {
+        bitField0_ |= 0x00000001;
+        version_ = value;
         onChanged();
         return this;
       }
       /**
-       * <code>required string id = 1;</code>
+       * <code>required uint32 version = 1;</code>
        */
-      public Builder clearId() {
+      public Builder clearVersion() {
         bitField0_ = (bitField0_ & ~0x00000001);
-        id_ = getDefaultInstance().getId();
-        onChanged();
-        return this;
-      }
-      /**
-       * <code>required string id = 1;</code>
-       */
-      public Builder setIdBytes(
-          com.google.protobuf.ByteString value) {
-        if (value == null) {
-    throw new NullPointerException();
-  }
-  bitField0_ |= 0x00000001;
-        id_ = value;
+        version_ = 0;
         onChanged();
         return this;
       }
 
-      private java.lang.Object host_ = "";
+      private int topicCount_ ;
       /**
-       * <code>required string host = 2;</code>
+       * <code>required uint32 topic_count = 2;</code>
        */
-      public boolean hasHost() {
+      public boolean hasTopicCount() {
         return ((bitField0_ & 0x00000002) == 0x00000002);
       }
       /**
-       * <code>required string host = 2;</code>
-       */
-      public java.lang.String getHost() {
-        java.lang.Object ref = host_;
-        if (!(ref instanceof java.lang.String)) {
-          com.google.protobuf.ByteString bs =
-              (com.google.protobuf.ByteString) ref;
-          java.lang.String s = bs.toStringUtf8();
-          if (bs.isValidUtf8()) {
-            host_ = s;
-          }
-          return s;
-        } else {
-          return (java.lang.String) ref;
-        }
-      }
-      /**
-       * <code>required string host = 2;</code>
+       * <code>required uint32 topic_count = 2;</code>
        */
-      public com.google.protobuf.ByteString
-          getHostBytes() {
-        java.lang.Object ref = host_;
-        if (ref instanceof String) {
-          com.google.protobuf.ByteString b = 
-              com.google.protobuf.ByteString.copyFromUtf8(
-                  (java.lang.String) ref);
-          host_ = b;
-          return b;
-        } else {
-          return (com.google.protobuf.ByteString) ref;
-        }
+      public int getTopicCount() {
+        return topicCount_;
       }
       /**
-       * <code>required string host = 2;</code>
+       * <code>required uint32 topic_count = 2;</code>
        */
-      public Builder setHost(
-          java.lang.String value) {
-        if (value == null) {
-    throw new NullPointerException();
-  }
-  bitField0_ |= 0x00000002;
-        host_ = value;
+      public Builder setTopicCount(int value) {
+        bitField0_ |= 0x00000002;
+        topicCount_ = value;
         onChanged();
         return this;
       }
       /**
-       * <code>required string host = 2;</code>
+       * <code>required uint32 topic_count = 2;</code>
        */
-      public Builder clearHost() {
+      public Builder clearTopicCount() {
         bitField0_ = (bitField0_ & ~0x00000002);
-        host_ = getDefaultInstance().getHost();
-        onChanged();
-        return this;
-      }
-      /**
-       * <code>required string host = 2;</code>
-       */
-      public Builder setHostBytes(
-          com.google.protobuf.ByteString value) {
-        if (value == null) {
-    throw new NullPointerException();
-  }
-  bitField0_ |= 0x00000002;
-        host_ = value;
-        onChanged();
-        return this;
-      }
-
-      private int port_ ;
-      /**
-       * <code>required uint32 port = 3;</code>
-       */
-      public boolean hasPort() {
-        return ((bitField0_ & 0x00000004) == 0x00000004);
-      }
-      /**
-       * <code>required uint32 port = 3;</code>
-       */
-      public int getPort() {
-        return port_;
-      }
-      /**
-       * <code>required uint32 port = 3;</code>
-       */
-      public Builder setPort(int value) {
-        bitField0_ |= 0x00000004;
-        port_ = value;
-        onChanged();
-        return this;
-      }
-      /**
-       * <code>required uint32 port = 3;</code>
-       */
-      public Builder clearPort() {
-        bitField0_ = (bitField0_ & ~0x00000004);
-        port_ = 0;
+        topicCount_ = 0;
         onChanged();
         return this;
       }
 
       private long startAt_ ;
       /**
-       * <code>required uint64 start_at = 4;</code>
+       * <code>required uint64 start_at = 3;</code>
        */
       public boolean hasStartAt() {
-        return ((bitField0_ & 0x00000008) == 0x00000008);
+        return ((bitField0_ & 0x00000004) == 0x00000004);
       }
       /**
-       * <code>required uint64 start_at = 4;</code>
+       * <code>required uint64 start_at = 3;</code>
        */
       public long getStartAt() {
         return startAt_;
       }
       /**
-       * <code>required uint64 start_at = 4;</code>
+       * <code>required uint64 start_at = 3;</code>
        */
       public Builder setStartAt(long value) {
-        bitField0_ |= 0x00000008;
+        bitField0_ |= 0x00000004;
         startAt_ = value;
         onChanged();
         return this;
       }
       /**
-       * <code>required uint64 start_at = 4;</code>
+       * <code>required uint64 start_at = 3;</code>
        */
       public Builder clearStartAt() {
-        bitField0_ = (bitField0_ & ~0x00000008);
+        bitField0_ = (bitField0_ & ~0x00000004);
         startAt_ = 0L;
         onChanged();
         return this;
       }
 
-      private java.lang.Object config_ = "";
-      /**
-       * <code>optional string config = 5;</code>
-       */
-      public boolean hasConfig() {
-        return ((bitField0_ & 0x00000010) == 0x00000010);
-      }
-      /**
-       * <code>optional string config = 5;</code>
-       */
-      public java.lang.String getConfig() {
-        java.lang.Object ref = config_;
-        if (!(ref instanceof java.lang.String)) {
-          com.google.protobuf.ByteString bs =
-              (com.google.protobuf.ByteString) ref;
-          java.lang.String s = bs.toStringUtf8();
-          if (bs.isValidUtf8()) {
-            config_ = s;
-          }
-          return s;
-        } else {
-          return (java.lang.String) ref;
-        }
-      }
+      private long migrateWindow_ ;
       /**
-       * <code>optional string config = 5;</code>
+       * <code>optional uint64 migrate_window = 4;</code>
        */
-      public com.google.protobuf.ByteString
-          getConfigBytes() {
-        java.lang.Object ref = config_;
-        if (ref instanceof String) {
-          com.google.protobuf.ByteString b = 
-              com.google.protobuf.ByteString.copyFromUtf8(
-                  (java.lang.String) ref);
-          config_ = b;
-          return b;
-        } else {
-          return (com.google.protobuf.ByteString) ref;
-        }
+      public boolean hasMigrateWindow() {
+        return ((bitField0_ & 0x00000008) == 0x00000008);
       }
       /**
-       * <code>optional string config = 5;</code>
+       * <code>optional uint64 migrate_window = 4;</code>
        */
-      public Builder setConfig(
-          java.lang.String value) {
-        if (value == null) {
-    throw new NullPointerException();
-  }
-  bitField0_ |= 0x00000010;
-        config_ = value;
-        onChanged();
-        return this;
+      public long getMigrateWindow() {
+        return migrateWindow_;
       }
       /**
-       * <code>optional string config = 5;</code>
+       * <code>optional uint64 migrate_window = 4;</code>
        */
-      public Builder clearConfig() {
-        bitField0_ = (bitField0_ & ~0x00000010);
-        config_ = getDefaultInstance().getConfig();
+      public Builder setMigrateWindow(long value) {
+        bitField0_ |= 0x00000008;
+        migrateWindow_ = value;
         onChanged();
         return this;
       }
       /**
-       * <code>optional string config = 5;</code>
+       * <code>optional uint64 migrate_window = 4;</code>
        */
-      public Builder setConfigBytes(
-          com.google.protobuf.ByteString value) {
-        if (value == null) {
-    throw new NullPointerException();
-  }
-  bitField0_ |= 0x00000010;
-        config_ = value;
+      public Builder clearMigrateWindow() {
+        bitField0_ = (bitField0_ & ~0x00000008);
+        migrateWindow_ = 0L;
         onChanged();
         return this;
       }
@@ -3836,39 +5807,39 @@ public final class Chat {
       }
 
 
-      // @@protoc_insertion_point(builder_scope:Server)
+      // @@protoc_insertion_point(builder_scope:Route)
     }
 
-    // @@protoc_insertion_point(class_scope:Server)
-    private static final com.github.sosozhuang.protobuf.Chat.Server DEFAULT_INSTANCE;
+    // @@protoc_insertion_point(class_scope:Route)
+    private static final com.github.sosozhuang.protobuf.Chat.Route DEFAULT_INSTANCE;
     static {
-      DEFAULT_INSTANCE = new com.github.sosozhuang.protobuf.Chat.Server();
+      DEFAULT_INSTANCE = new com.github.sosozhuang.protobuf.Chat.Route();
     }
 
-    public static com.github.sosozhuang.protobuf.Chat.Server getDefaultInstance() {
+    public static com.github.sosozhuang.protobuf.Chat.Route getDefaultInstance() {
       return DEFAULT_INSTANCE;
     }
 
-    @java.lang.Deprecated public static final com.google.protobuf.Parser<Server>
-        PARSER = new com.google.protobuf.AbstractParser<Server>() {
-      public Server parsePartialFrom(
+    @java.lang.Deprecated public static final com.google.protobuf.Parser<Route>
+        PARSER = new com.google.protobuf.AbstractParser<Route>() {
+      public Route parsePartialFrom(
           com.google.protobuf.CodedInputStream input,
           com.google.protobuf.ExtensionRegistryLite extensionRegistry)
           throws com.google.protobuf.InvalidProtocolBufferException {
-          return new Server(input, extensionRegistry);
+          return new Route(input, extensionRegistry);
       }
     };
 
-    public static com.google.protobuf.Parser<Server> parser() {
+    public static com.google.protobuf.Parser<Route> parser() {
       return PARSER;
     }
 
     @java.lang.Override
-    public com.google.protobuf.Parser<Server> getParserForType() {
+    public com.google.protobuf.Parser<Route> getParserForType() {
       return PARSER;
     }
 
-    public com.github.sosozhuang.protobuf.Chat.Server getDefaultInstanceForType() {
+    public com.github.sosozhuang.protobuf.Chat.Route getDefaultInstanceForType() {
       return DEFAULT_INSTANCE;
     }
 
@@ -5787,6 +7758,11 @@ public final class Chat {
   private static final 
     com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
       internal_static_Message_fieldAccessorTable;
+  private static final com.google.protobuf.Descriptors.Descriptor
+    internal_static_MessageBatch_descriptor;
+  private static final 
+    com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
+      internal_static_MessageBatch_fieldAccessorTable;
   private static final com.google.protobuf.Descriptors.Descriptor
     internal_static_Group_descriptor;
   private static final 
@@ -5797,6 +7773,11 @@ public final class Chat {
   private static final 
     com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
       internal_static_Server_fieldAccessorTable;
+  private static final com.google.protobuf.Descriptors.Descriptor
+    internal_static_Route_descriptor;
+  private static final 
+    com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
+      internal_static_Route_fieldAccessorTable;
   private static final com.google.protobuf.Descriptors.Descriptor
     internal_static_Access_descriptor;
   private static final 
@@ -5816,23 +7797,30 @@ public final class Chat {
       descriptor;
   static {
     java.lang.String[] descriptorData = {
-      "\n\nchat.proto\"\243\001\n\007Message\022\032\n\004type\030\001 \002(\0162\014" +
+      "\n\nchat.proto\"\260\001\n\007Message\022\032\n\004type\030\001 \002(\0162\014" +
       ".MessageType\022\020\n\010group_id\030\002 \002(\t\022\021\n\tserver" +
       "_id\030\003 \002(\004\022\021\n\tfrom_user\030\004 \002(\t\022\017\n\007to_user\030" +
       "\005 \001(\t\022\017\n\007content\030\006 \001(\t\022\021\n\tcreate_at\030\007 \002(" +
-      "\004\022\017\n\007members\030\010 \003(\t\"D\n\005Group\022\n\n\002id\030\001 \002(\t\022" +
-      "\r\n\005token\030\002 \002(\t\022\r\n\005owner\030\003 \002(\t\022\021\n\tcreate_" +
-      "at\030\004 \002(\004\"R\n\006Server\022\n\n\002id\030\001 \002(\t\022\014\n\004host\030\002" +
-      " \002(\t\022\014\n\004port\030\003 \002(\r\022\020\n\010start_at\030\004 \002(\004\022\016\n\006" +
-      "config\030\005 \001(\t\";\n\006Access\022\020\n\010group_id\030\001 \002(\t" +
-      "\022\014\n\004user\030\002 \002(\t\022\021\n\ttimestamp\030\003 \001(\004\"a\n\004Use",
-      "r\022\014\n\004name\030\001 \002(\t\022\027\n\006gender\030\002 \002(\0162\007.Gender" +
-      "\022\016\n\006avatar\030\003 \001(\t\022\r\n\005birth\030\004 \001(\t\022\023\n\013descr" +
-      "iption\030\005 \001(\014*T\n\013MessageType\022\010\n\004CHAT\020\000\022\t\n" +
-      "\005LOGIN\020\001\022\n\n\006LOGOUT\020\002\022\n\n\006UNREAD\020\003\022\013\n\007CONF" +
-      "IRM\020\004\022\013\n\007MEMBERS\020\005*+\n\006Gender\022\013\n\007UNKNOWN\020" +
-      "\000\022\010\n\004MALE\020\001\022\n\n\006FEMALE\020\002B&\n\036com.github.so" +
-      "sozhuang.protobufB\004Chat"
+      "\004\022\017\n\007members\030\010 \003(\t\022\013\n\003seq\030\n \001(\004\"t\n\014Messa" +
+      "geBatch\022\032\n\004type\030\001 \002(\0162\014.MessageType\022\020\n\010g" +
+      "roup_id\030\002 \002(\t\022\021\n\tserver_id\030\003 \002(\004\022\021\n\tcrea" +
+      "te_at\030\007 \002(\004\022\020\n\010messages\030\t \003(\014\"D\n\005Group\022\n" +
+      "\n\002id\030\001 \002(\t\022\r\n\005token\030\002 \002(\t\022\r\n\005owner\030\003 \002(\t" +
+      "\022\021\n\tcreate_at\030\004 \002(\004\"R\n\006Server\022\n\n\002id\030\001 \002(",
+      "\t\022\014\n\004host\030\002 \002(\t\022\014\n\004port\030\003 \002(\r\022\020\n\010start_a" +
+      "t\030\004 \002(\004\022\016\n\006config\030\005 \001(\t\"W\n\005Route\022\017\n\007vers" +
+      "ion\030\001 \002(\r\022\023\n\013topic_count\030\002 \002(\r\022\020\n\010start_" +
+      "at\030\003 \002(\004\022\026\n\016migrate_window\030\004 \001(\004\";\n\006Acce" +
+      "ss\022\020\n\010group_id\030\001 \002(\t\022\014\n\004user\030\002 \002(\t\022\021\n\tti" +
+      "mestamp\030\003 \001(\004\"a\n\004User\022\014\n\004name\030\001 \002(\t\022\027\n\006g" +
+      "ender\030\002 \002(\0162\007.Gender\022\016\n\006avatar\030\003 \001(\t\022\r\n\005" +
+      "birth\030\004 \001(\t\022\023\n\013description\030\005 \001(\014*\203\001\n\013Mes" +
+      "sageType\022\010\n\004CHAT\020\000\022\t\n\005LOGIN\020\001\022\n\n\006LOGOUT\020" +
+      "\002\022\n\n\006UNREAD\020\003\022\013\n\007CONFIRM\020\004\022\013\n\007MEMBERS\020\005\022",
+      "\t\n\005BATCH\020\006\022\013\n\007HISTORY\020\007\022\014\n\010INTEREST\020\010\022\007\n" +
+      "\003GAP\020\t*+\n\006Gender\022\013\n\007UNKNOWN\020\000\022\010\n\004MALE\020\001\022" +
+      "\n\n\006FEMALE\020\002B&\n\036com.github.sosozhuang.pro" +
+      "tobufB\004Chat"
     };
     com.google.protobuf.Descriptors.FileDescriptor.InternalDescriptorAssigner assigner =
         new com.google.protobuf.Descriptors.FileDescriptor.    InternalDescriptorAssigner() {
@@ -5851,27 +7839,39 @@ public final class Chat {
     internal_static_Message_fieldAccessorTable = new
       com.google.protobuf.GeneratedMessageV3.FieldAccessorTable(
         internal_static_Message_descriptor,
-        new java.lang.String[] { "Type", "GroupId", "ServerId", "FromUser", "ToUser", "Content", "CreateAt", "Members", });
-    internal_static_Group_descriptor =
+        new java.lang.String[] { "Type", "GroupId", "ServerId", "FromUser", "ToUser", "Content", "CreateAt", "Members", "Seq", });
+    internal_static_MessageBatch_descriptor =
       getDescriptor().getMessageTypes().get(1);
+    internal_static_MessageBatch_fieldAccessorTable = new
+      com.google.protobuf.GeneratedMessageV3.FieldAccessorTable(
+        internal_static_MessageBatch_descriptor,
+        new java.lang.String[] { "Type", "GroupId", "ServerId", "CreateAt", "Messages", });
+    internal_static_Group_descriptor =
+      getDescriptor().getMessageTypes().get(2);
     internal_static_Group_fieldAccessorTable = new
       com.google.protobuf.GeneratedMessageV3.FieldAccessorTable(
         internal_static_Group_descriptor,
         new java.lang.String[] { "Id", "Token", "Owner", "CreateAt", });
     internal_static_Server_descriptor =
-      getDescriptor().getMessageTypes().get(2);
+      getDescriptor().getMessageTypes().get(3);
     internal_static_Server_fieldAccessorTable = new
       com.google.protobuf.GeneratedMessageV3.FieldAccessorTable(
         internal_static_Server_descriptor,
         new java.lang.String[] { "Id", "Host", "Port", "StartAt", "Config", });
+    internal_static_Route_descriptor =
+      getDescriptor().getMessageTypes().get(4);
+    internal_static_Route_fieldAccessorTable = new
+      com.google.protobuf.GeneratedMessageV3.FieldAccessorTable(
+        internal_static_Route_descriptor,
+        new java.lang.String[] { "Version", "TopicCount", "StartAt", "MigrateWindow", });
     internal_static_Access_descriptor =
-      getDescriptor().getMessageTypes().get(3);
+      getDescriptor().getMessageTypes().get(5);
     internal_static_Access_fieldAccessorTable = new
       com.google.protobuf.GeneratedMessageV3.FieldAccessorTable(
         internal_static_Access_descriptor,
         new java.lang.String[] { "GroupId", "User", "Timestamp", });
     internal_static_User_descriptor =
-      getDescriptor().getMessageTypes().get(4);
+      getDescriptor().getMessageTypes().get(6);
     internal_static_User_fieldAccessorTable = new
       com.google.protobuf.GeneratedMessageV3.FieldAccessorTable(
         internal_static_User_descriptor,
@@ -13,6 +13,9 @@ import javax.jms.*;
 import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -25,13 +28,18 @@ public class ActiveMQMessageService implements CloseableMessageService {
     private Connection connection;
     private List<ActiveMQTopic> topics;
     private List<InternalService> serviceList;
-    private ThreadLocal<InternalService> services;
+    private List<InternalService> consumerServiceList;
+    private ThreadLocal<InternalService> producerServices;
+    private ThreadLocal<InternalService> consumerServices;
     private Map<Chat.Access, InternalTempService> tempServices;
+    private ScheduledExecutorService committer;
 
     public ActiveMQMessageService(ActiveMQConfig config) throws JMSException {
         this.config = config;
         connectionFactory = new ActiveMQConnectionFactory(config.getUserName(), config.getPassword(), config.getBrokerURL());
         connectionFactory.setUseAsyncSend(true);
+        // deflates message bodies, consumers inflate them transparently
+        connectionFactory.setUseCompression(config.getProducerCompression(false));
 
         connection = connectionFactory.createConnection();
         connection.setClientID(config.getClientIDPrefix("chat") + "-offline");
@@ -39,8 +47,34 @@ public class ActiveMQMessageService implements CloseableMessageService {
 
         topics = IntStream.range(0, config.getTopicCount()).mapToObj(this::createTopic).collect(Collectors.toList());
         serviceList = new ArrayList<>(8);
-        services = new ThreadLocal<>();
+        consumerServiceList = new ArrayList<>(2);
+        producerServices = new ThreadLocal<>();
+        consumerServices = new ThreadLocal<>();
         tempServices = new ConcurrentHashMap<>();
+        committer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "activemq-committer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        int interval = Math.max(1, config.getProducerCommitInterval(1000));
+        committer.scheduleWithFixedDelay(this::commitProducers, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    private void commitProducers() {
+        List<InternalService> list;
+        synchronized (this) {
+            if (serviceList == null) {
+                return;
+            }
+            list = new ArrayList<>(serviceList);
+        }
+        for (InternalService service : list) {
+            try {
+                service.commitIfExpired();
+            } catch (JMSException e) {
+                LOGGER.error("Commit activemq producer session error.", e);
+            }
+        }
     }
 
     private ActiveMQTopic createTopic(int topic) {
@@ -49,28 +83,33 @@ public class ActiveMQMessageService implements CloseableMessageService {
 
     private void rebalance() throws JMSException {
         int size = topics.size();
-        int n = serviceList.size();
+        int n = consumerServiceList.size();
         long parts = Math.round(size / (float) n);
         if (parts == 0L) {
-            serviceList.get(0).setTopics(topics);
+            consumerServiceList.get(0).setTopics(topics);
             return;
         }
         for (int i = 0; i < n - 1 && i * parts < size; i++) {
-            serviceList.get(i).setTopics(topics.subList((int) (i * parts), (int) ((i + 1) * parts)));
+            consumerServiceList.get(i).setTopics(topics.subList((int) (i * parts), (int) ((i + 1) * parts)));
         }
         parts *= n - 1;
         if (size > parts) {
-            serviceList.get(n - 1).setTopics(topics.subList((int) parts, size));
+            consumerServiceList.get(n - 1).setTopics(topics.subList((int) parts, size));
         }
     }
 
-    private InternalService createService() {
+    private InternalService createService(boolean consume) {
         try {
             InternalService service = new InternalService();
-            services.set(service);
             synchronized (this) {
                 serviceList.add(service);
-                rebalance();
+                if (consume) {
+                    consumerServices.set(service);
+                    consumerServiceList.add(service);
+                    rebalance();
+                } else {
+                    producerServices.set(service);
+                }
             }
             return service;
         } catch (JMSException e) {
@@ -81,13 +120,19 @@ public class ActiveMQMessageService implements CloseableMessageService {
     private static <K, V> MessageRecord<K, V> messageMapper(BytesMessage message) {
         try {
             String key = message.getStringProperty(MESSAGE_KEY_PROPERTY);
+            MessageHeaders headers = null;
+            if (message.propertyExists(MessageHeaders.SERVER_ID)) {
+                headers = MessageHeaders.parse(message.getStringProperty(MessageHeaders.SERVER_ID),
+                        message.getStringProperty(MessageHeaders.GROUP_ID),
+                        message.getStringProperty(MessageHeaders.TYPE));
+            }
             byte[] bytes = new byte[1024];
             int n = -1;
             ByteArrayOutputStream os = new ByteArrayOutputStream();
             while ((n = message.readBytes(bytes)) != -1) {
                 os.write(bytes, 0, n);
             }
-            return new MessageRecord(key, os.toByteArray());
+            return new MessageRecord(key, os.toByteArray(), headers);
         } catch (JMSException e) {
             LOGGER.error("Create message record error.", e);
         }
@@ -96,9 +141,9 @@ public class ActiveMQMessageService implements CloseableMessageService {
 
     @Override
     public <K, V> Iterable<MessageRecord<K, V>> receive() {
-        InternalService service = services.get();
+        InternalService service = consumerServices.get();
         if (service == null) {
-            service = createService();
+            service = createService(true);
         }
         List<BytesMessage> messages = null;
         try {
@@ -116,7 +161,9 @@ public class ActiveMQMessageService implements CloseableMessageService {
         try {
             Session session = connection.createSession(true, Session.AUTO_ACKNOWLEDGE);
             String id = access.getGroupId();
-            String selector = String.format("%s = '%s'", MESSAGE_KEY_PROPERTY, id);
+            // history only, control events are left out of replay
+            String selector = String.format("%s = '%s' AND (%s IS NULL OR %s IN ('%s', '%s'))", MESSAGE_KEY_PROPERTY, id,
+                    MessageHeaders.TYPE, MessageHeaders.TYPE, Chat.MessageType.CHAT.name(), Chat.MessageType.BATCH.name());
             TopicSubscriber subscriber = session.createDurableSubscriber(topics.get(mapGroupIDToIndex(id)), id + ":" + access.getUser(), selector, false);
             return new InternalTempService(access.getTimestamp(), session, subscriber);
         } catch (JMSException e) {
@@ -144,7 +191,7 @@ public class ActiveMQMessageService implements CloseableMessageService {
             LOGGER.info("No more message to poll.");
             service.close();
             tempServices.remove(access, service);
-            return Collections.emptyList();
+            return null;
         }
 
         return messages.stream().map(message -> (MessageRecord<K, V>) ActiveMQMessageService.messageMapper(message)).filter(Objects::nonNull).collect(Collectors.toList());
@@ -156,16 +203,27 @@ public class ActiveMQMessageService implements CloseableMessageService {
 
     @Override
     public void send(String user, Chat.Group group, MessageRecord record) {
-        InternalService service = services.get();
+        InternalService service = producerServices.get();
         if (service == null) {
-            service = createService();
+            service = createService(false);
         }
         ActiveMQBytesMessage message = new ActiveMQBytesMessage();
         try {
             message.setJMSTimestamp(System.currentTimeMillis());
             message.setStringProperty(MESSAGE_KEY_PROPERTY, (String) record.getKey());
+            MessageHeaders headers = record.getHeaders();
+            if (headers != null) {
+                message.setStringProperty(MessageHeaders.SERVER_ID, Long.toUnsignedString(headers.getServerID()));
+                message.setStringProperty(MessageHeaders.GROUP_ID, headers.getGroupID());
+                message.setStringProperty(MessageHeaders.TYPE, headers.getType().name());
+            }
             message.writeBytes((byte[]) record.getValue());
-            service.send(topics.get(mapGroupIDToIndex(group.getId())), message);
+            if (MessageHeaders.isControl(headers)) {
+                // control events only matter to live members, never store them
+                service.send(topics.get(mapGroupIDToIndex(group.getId())), message, DeliveryMode.NON_PERSISTENT, config.getPresenceTtl(600000L));
+            } else {
+                service.send(topics.get(mapGroupIDToIndex(group.getId())), message);
+            }
         } catch (JMSException e) {
             throw new RuntimeException(e);
         }
@@ -173,9 +231,13 @@ public class ActiveMQMessageService implements CloseableMessageService {
 
     @Override
     public void close() throws IOException {
-        if (serviceList != null) {
-            serviceList.forEach(service -> service.close());
-            serviceList = null;
+        committer.shutdownNow();
+        synchronized (this) {
+            if (serviceList != null) {
+                serviceList.forEach(service -> service.close());
+                serviceList = null;
+                consumerServiceList = null;
+            }
         }
         tempServices.values().forEach(service -> service.close());
         try {
@@ -198,6 +260,8 @@ public class ActiveMQMessageService implements CloseableMessageService {
         int producerCommitInterval;
         int consumerCommitCount;
         int consumerCommitInterval;
+        long consumerPollTimeout;
+        int nextSubscriber;
 
         int sentCount;
         long producerLastCommit;
@@ -218,13 +282,18 @@ public class ActiveMQMessageService implements CloseableMessageService {
             producerCommitInterval = config.getProducerCommitInterval();
             consumerCommitCount = config.getConsumerCommitCount();
             consumerCommitInterval = config.getConsumerCommitInterval();
+            consumerPollTimeout = config.getConsumerPollTimeout(100);
 
             sentCount = receivedCount = 0;
             producerLastCommit = consumerLastCommit = System.currentTimeMillis();
         }
 
-        void send(Destination destination, Message message) throws JMSException {
-            producer.send(destination, message);
+        synchronized void send(Destination destination, Message message) throws JMSException {
+            send(destination, message, DeliveryMode.PERSISTENT, Message.DEFAULT_TIME_TO_LIVE);
+        }
+
+        synchronized void send(Destination destination, Message message, int deliveryMode, long timeToLive) throws JMSException {
+            producer.send(destination, message, deliveryMode, Message.DEFAULT_PRIORITY, timeToLive);
             sentCount++;
             long now = System.currentTimeMillis();
             if (sentCount > producerCommitCount || now - producerLastCommit >= producerCommitInterval) {
@@ -234,14 +303,17 @@ public class ActiveMQMessageService implements CloseableMessageService {
             }
         }
 
-        synchronized List<BytesMessage> receive() throws JMSException {
+        synchronized void commitIfExpired() throws JMSException {
             long now = System.currentTimeMillis();
-            if (now - producerLastCommit >= producerCommitInterval) {
+            if (sentCount > 0 && now - producerLastCommit >= producerCommitInterval) {
                 producerSession.commit();
                 sentCount = 0;
                 producerLastCommit = now;
             }
-            if (subscribers == null) {
+        }
+
+        synchronized List<BytesMessage> receive() throws JMSException {
+            if (subscribers == null || subscribers.length == 0) {
                 return null;
             }
             List<BytesMessage> messages = new ArrayList<>((int) (100 * .6) * subscribers.length);
@@ -256,7 +328,22 @@ public class ActiveMQMessageService implements CloseableMessageService {
                     receivedCount++;
                 }
             }
-            now = System.currentTimeMillis();
+            if (messages.isEmpty()) {
+                // nothing available, block on one subscriber in turn instead of spinning
+                nextSubscriber = (nextSubscriber + 1) % subscribers.length;
+                long timeout = Math.max(1L, consumerPollTimeout / subscribers.length);
+                message = (BytesMessage) subscribers[nextSubscriber].receive(timeout);
+                if (message != null) {
+                    messages.add(message);
+                    receivedCount++;
+                }
+            }
+            commitConsumers();
+            return messages;
+        }
+
+        void commitConsumers() throws JMSException {
+            long now = System.currentTimeMillis();
             if (receivedCount > consumerCommitCount || now - consumerLastCommit >= consumerCommitInterval) {
                 for (Session session : subscriberSessions) {
                     session.commit();
@@ -264,7 +351,6 @@ public class ActiveMQMessageService implements CloseableMessageService {
                 receivedCount = 0;
                 consumerLastCommit = now;
             }
-            return messages;
         }
 
         synchronized void setTopics(List<ActiveMQTopic> topics) throws JMSException {
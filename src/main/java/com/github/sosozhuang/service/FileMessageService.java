@@ -0,0 +1,577 @@
+package com.github.sosozhuang.service;
+
+import com.github.sosozhuang.conf.FileConfig;
+import com.github.sosozhuang.protobuf.Chat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Message service on a local append only log, for single node deployments without a broker.
+// The log is a run of memory-mapped segment files, positions are byte offsets over the
+// whole log and a segment is named after the position it starts at.
+// Record layout: size(4) timestamp(8) server_id(8) type(1) key length(4) key value,
+// type is the message type ordinal plus one, zero when the record has no headers.
+// Each group keeps (timestamp, position) pairs of its chat records, rebuilt by scanning
+// the segments on start, so replay seeks by time and reads only the group's records.
+// A record with an unknown type ends its segment, like a torn write does.
+public class FileMessageService implements CloseableMessageService, HistoryService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(FileMessageService.class);
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String LOCK_FILE = ".lock";
+    private static final int HEADER_SIZE = 4 + 8 + 8 + 1 + 4;
+    private static final Chat.MessageType[] TYPES = Chat.MessageType.values();
+    private final File dir;
+    private final int segmentSize;
+    private final long retention;
+    private final int batchSize;
+    private final long pollTimeout;
+    private final long idleTimeout;
+    private final int maxEntries;
+    private final FileChannel lockChannel;
+    private final FileLock lock;
+    private volatile Segment[] segments;
+    private volatile long end;
+    private long lastTimestamp;
+    private final Map<Long, GroupIndex> groups;
+    private final Map<Chat.Access, Cursor> cursors;
+    private final ReentrantLock readLock;
+    private final Condition appended;
+    private volatile boolean waiting;
+    private long livePosition;
+    private final ScheduledExecutorService scheduler;
+
+    public FileMessageService(FileConfig config) throws IOException {
+        dir = new File(config.getDir("data"));
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Unable to create log directory " + dir.getAbsolutePath());
+        }
+        segmentSize = config.getSegmentSize(64 * 1024 * 1024);
+        retention = config.getRetention(TimeUnit.DAYS.toMillis(7));
+        batchSize = Math.max(1, config.getBatch(256));
+        pollTimeout = config.getPollTimeout(100L);
+        idleTimeout = Math.max(1000L, config.getIdleTimeout(60000L));
+        maxEntries = Math.max(16, config.getIndexMaxEntries(100000));
+        lockChannel = FileChannel.open(new File(dir, LOCK_FILE).toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        lock = lockChannel.tryLock();
+        if (lock == null) {
+            lockChannel.close();
+            throw new IOException("Log directory " + dir.getAbsolutePath() + " is used by another process.");
+        }
+        groups = new ConcurrentHashMap<>();
+        cursors = new ConcurrentHashMap<>();
+        readLock = new ReentrantLock();
+        appended = readLock.newCondition();
+        load();
+        // live delivery starts from the current tail
+        livePosition = end;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "file-log");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long flushInterval = config.getFlushInterval(1000L);
+        if (flushInterval > 0) {
+            scheduler.scheduleWithFixedDelay(this::flush, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+        }
+        scheduler.scheduleWithFixedDelay(this::trim, 1, 1, TimeUnit.MINUTES);
+        scheduler.scheduleWithFixedDelay(this::expire, idleTimeout, idleTimeout / 2, TimeUnit.MILLISECONDS);
+    }
+
+    private static long parseGroupID(String key) {
+        if (key == null || key.isEmpty()) {
+            return -1L;
+        }
+        try {
+            return Long.parseLong(key);
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+
+    private void load() throws IOException {
+        File[] files = dir.listFiles((d, name) -> name.endsWith(SEGMENT_SUFFIX));
+        List<Segment> list = new ArrayList<>();
+        if (files != null) {
+            Arrays.sort(files);
+            for (File file : files) {
+                long base;
+                try {
+                    base = Long.parseLong(file.getName().substring(0, file.getName().length() - SEGMENT_SUFFIX.length()));
+                } catch (NumberFormatException e) {
+                    LOGGER.warn("Skip unknown log file {}.", file);
+                    continue;
+                }
+                list.add(new Segment(base, file, Math.max((int) file.length(), segmentSize)));
+            }
+        }
+        if (list.isEmpty()) {
+            list.add(newSegment(0L));
+        }
+        segments = list.toArray(new Segment[list.size()]);
+        // a segment starts where the previous one ends
+        for (Segment segment : segments) {
+            segment.limit = scan(segment);
+            end = segment.base + segment.limit;
+        }
+        LOGGER.info("Loaded {} log segments, {} groups indexed.", segments.length, groups.size());
+    }
+
+    // indexes the records of the segment, returns the position behind the last one
+    private int scan(Segment segment) {
+        ByteBuffer buffer = segment.buffer;
+        int position = 0;
+        while (position + HEADER_SIZE <= buffer.capacity()) {
+            int size = buffer.getInt(position);
+            if (size < HEADER_SIZE - 4 || position + 4 + size > buffer.capacity()) {
+                break;
+            }
+            long timestamp = buffer.getLong(position + 4);
+            int type = buffer.get(position + 20) & 0xff;
+            if (type > TYPES.length) {
+                LOGGER.warn("Unknown record type {} at {} of log segment {}, truncated.", type, position, segment.file);
+                break;
+            }
+            if (isHistory(type)) {
+                index(readKey(buffer, position), timestamp, segment.base + position);
+            }
+            lastTimestamp = Math.max(lastTimestamp, timestamp);
+            segment.lastTimestamp = timestamp;
+            position += 4 + size;
+        }
+        return position;
+    }
+
+    private static boolean isHistory(int type) {
+        return type == 0 || TYPES[type - 1] == Chat.MessageType.CHAT || TYPES[type - 1] == Chat.MessageType.BATCH;
+    }
+
+    private static String readKey(ByteBuffer buffer, int position) {
+        byte[] key = new byte[buffer.getInt(position + 21)];
+        ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position(position + HEADER_SIZE);
+        duplicate.get(key);
+        return new String(key, StandardCharsets.UTF_8);
+    }
+
+    private void index(String key, long timestamp, long position) {
+        long groupID = parseGroupID(key);
+        if (groupID < 0) {
+            return;
+        }
+        groups.compute(groupID, (id, index) -> {
+            if (index == null) {
+                index = new GroupIndex(maxEntries);
+            }
+            index.add(timestamp, position);
+            return index;
+        });
+    }
+
+    private Segment newSegment(long base) throws IOException {
+        return new Segment(base, new File(dir, String.format("%020d%s", base, SEGMENT_SUFFIX)), segmentSize);
+    }
+
+    // segment holding the position, null if it has been deleted
+    private Segment segment(long position) {
+        Segment[] segments = this.segments;
+        int low = 0, high = segments.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (segments[mid].base <= position) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return high < 0 ? null : segments[high];
+    }
+
+    @Override
+    public void send(String user, Chat.Group group, MessageRecord record) {
+        byte[] key = ((String) record.getKey()).getBytes(StandardCharsets.UTF_8);
+        byte[] value = (byte[]) record.getValue();
+        MessageHeaders headers = record.getHeaders();
+        int total = HEADER_SIZE + key.length + value.length;
+        if (total > segmentSize) {
+            throw new IllegalArgumentException("Record of " + total + " bytes exceeds segment size " + segmentSize);
+        }
+        long position, timestamp;
+        synchronized (this) {
+            Segment segment = segments[segments.length - 1];
+            if (segment.limit + total > segment.buffer.capacity()) {
+                try {
+                    segment = roll();
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+            // timestamps never go back, replay seeks on them
+            timestamp = lastTimestamp = Math.max(lastTimestamp,
+                    record.getTimestamp() > 0 ? record.getTimestamp() : System.currentTimeMillis());
+            ByteBuffer buffer = segment.buffer;
+            int offset = segment.limit;
+            buffer.putLong(offset + 4, timestamp);
+            buffer.putLong(offset + 12, headers == null ? 0L : headers.getServerID());
+            buffer.put(offset + 20, (byte) (headers == null ? 0 : headers.getType().ordinal() + 1));
+            buffer.putInt(offset + 21, key.length);
+            ByteBuffer duplicate = buffer.duplicate();
+            duplicate.position(offset + HEADER_SIZE);
+            duplicate.put(key);
+            duplicate.put(value);
+            buffer.putInt(offset, total - 4);
+            segment.limit += total;
+            segment.lastTimestamp = timestamp;
+            position = segment.base + offset;
+            if (!MessageHeaders.isControl(headers)) {
+                // indexed in log order
+                index((String) record.getKey(), timestamp, position);
+            }
+            end = segment.base + segment.limit;
+        }
+        if (waiting) {
+            readLock.lock();
+            try {
+                appended.signalAll();
+            } finally {
+                readLock.unlock();
+            }
+        }
+    }
+
+    // called with the monitor held
+    private Segment roll() throws IOException {
+        Segment last = segments[segments.length - 1];
+        Segment segment = newSegment(last.base + last.limit);
+        last.buffer.force();
+        Segment[] rolled = Arrays.copyOf(segments, segments.length + 1);
+        rolled[rolled.length - 1] = segment;
+        segments = rolled;
+        return segment;
+    }
+
+    private <K, V> MessageRecord<K, V> read(long position) {
+        Segment segment = segment(position);
+        if (segment == null) {
+            return null;
+        }
+        ByteBuffer buffer = segment.buffer.duplicate();
+        int offset = (int) (position - segment.base);
+        int size = buffer.getInt(offset);
+        int type = buffer.get(offset + 20) & 0xff;
+        int keyLength = buffer.getInt(offset + 21);
+        byte[] key = new byte[keyLength];
+        byte[] value = new byte[size + 4 - HEADER_SIZE - keyLength];
+        buffer.position(offset + HEADER_SIZE);
+        buffer.get(key);
+        buffer.get(value);
+        String groupID = new String(key, StandardCharsets.UTF_8);
+        MessageHeaders headers = type == 0 || type > TYPES.length ? null : new MessageHeaders(buffer.getLong(offset + 12), groupID, TYPES[type - 1]);
+        MessageRecord<K, V> record = new MessageRecord<>((K) groupID, (V) value, headers);
+        record.setTimestamp(buffer.getLong(offset + 4));
+        return record;
+    }
+
+    private long next(long position) {
+        Segment segment = segment(position);
+        long next = position + 4 + segment.buffer.getInt((int) (position - segment.base));
+        if (next == segment.base + segment.limit) {
+            // a truncated segment ends before the next one begins
+            for (Segment following : segments) {
+                if (following.base > segment.base) {
+                    return following.base;
+                }
+            }
+        }
+        return next;
+    }
+
+    @Override
+    public <K, V> Iterable<MessageRecord<K, V>> receive() {
+        readLock.lock();
+        try {
+            if (livePosition == end) {
+                // announced before the recheck, an append either sees it or is seen here
+                waiting = true;
+                try {
+                    if (livePosition == end) {
+                        appended.await(pollTimeout, TimeUnit.MILLISECONDS);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    waiting = false;
+                }
+            }
+            long limit = end;
+            List<MessageRecord<K, V>> records = new ArrayList<>(Math.min(batchSize, 64));
+            Segment first = segments[0];
+            if (livePosition < first.base) {
+                livePosition = first.base;
+            }
+            while (livePosition < limit && records.size() < batchSize) {
+                MessageRecord<K, V> record = read(livePosition);
+                if (record == null) {
+                    // fell behind retention
+                    livePosition = segments[0].base;
+                    continue;
+                }
+                records.add(record);
+                livePosition = next(livePosition);
+            }
+            return records;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public <K, V> Iterable<MessageRecord<K, V>> receive(String user, Chat.Group group, long timestamp) {
+        Chat.Access.Builder builder = Chat.Access.newBuilder();
+        builder.setUser(user);
+        builder.setGroupId(group.getId());
+        builder.setTimestamp(timestamp);
+        Chat.Access access = builder.build();
+        GroupIndex index = groups.get(parseGroupID(group.getId()));
+        if (index == null) {
+            cursors.remove(access);
+            return null;
+        }
+        // replay stops at the end of log when it began, later messages arrive live
+        Cursor cursor = cursors.computeIfAbsent(access, key -> new Cursor(index.position(timestamp), end));
+        cursor.accessAt = System.currentTimeMillis();
+        long[] positions = index.positions(cursor.next, cursor.end, batchSize);
+        if (positions.length == 0) {
+            LOGGER.info("No more message to poll.");
+            cursors.remove(access, cursor);
+            return null;
+        }
+        List<MessageRecord<K, V>> records = new ArrayList<>(positions.length);
+        for (long position : positions) {
+            MessageRecord<K, V> record = read(position);
+            if (record != null) {
+                records.add(record);
+            }
+        }
+        cursor.next = positions[positions.length - 1] + 1;
+        return records;
+    }
+
+    private void flush() {
+        for (Segment segment : segments) {
+            if (segment.dirty()) {
+                segment.buffer.force();
+            }
+        }
+    }
+
+    // deletes segments whose newest record is older than retention, never the active one
+    private void trim() {
+        long oldest = System.currentTimeMillis() - retention;
+        int expired = 0;
+        Segment[] current = segments;
+        while (expired < current.length - 1 && current[expired].lastTimestamp < oldest) {
+            expired++;
+        }
+        if (expired == 0) {
+            return;
+        }
+        synchronized (this) {
+            current = segments;
+            segments = Arrays.copyOfRange(current, expired, current.length);
+        }
+        long first = current[expired].base;
+        groups.keySet().forEach(groupID -> groups.computeIfPresent(groupID, (id, index) -> index.trim(first) ? null : index));
+        for (int i = 0; i < expired; i++) {
+            // the mapping stays valid for readers still holding it
+            current[i].close();
+            if (!current[i].file.delete()) {
+                LOGGER.warn("Delete expired log segment {} error.", current[i].file);
+            }
+        }
+        LOGGER.info("Deleted {} expired log segments.", expired);
+    }
+
+    // drops cursors of replays abandoned before reading to the end
+    private void expire() {
+        long now = System.currentTimeMillis();
+        cursors.values().removeIf(cursor -> now - cursor.accessAt > idleTimeout);
+    }
+
+    @Override
+    public void close() throws IOException {
+        scheduler.shutdownNow();
+        cursors.clear();
+        synchronized (this) {
+            for (Segment segment : segments) {
+                segment.buffer.force();
+                segment.close();
+            }
+        }
+        lock.release();
+        lockChannel.close();
+    }
+
+    @Override
+    public <K, V> List<MessageRecord<K, V>> history(String groupID, long before, int limit) {
+        GroupIndex index = groups.get(parseGroupID(groupID));
+        if (index == null) {
+            return Collections.emptyList();
+        }
+        long[] positions = index.before(before, limit);
+        List<MessageRecord<K, V>> records = new ArrayList<>(positions.length);
+        for (long position : positions) {
+            MessageRecord<K, V> record = read(position);
+            if (record != null) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
+    private static final class Segment {
+        final long base;
+        final File file;
+        final FileChannel channel;
+        final MappedByteBuffer buffer;
+        // written under the service monitor, only the last segment grows
+        int limit;
+        volatile long lastTimestamp;
+        private int flushed;
+
+        Segment(long base, File file, int size) throws IOException {
+            this.base = base;
+            this.file = file;
+            this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+
+        // called by the flusher only
+        boolean dirty() {
+            int current = limit;
+            if (current == flushed) {
+                return false;
+            }
+            flushed = current;
+            return true;
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                LOGGER.warn("Close log segment {} error.", file, e);
+            }
+        }
+    }
+
+    // chat record positions of a group in log order, with their timestamps,
+    // the older half is dropped when full
+    private static final class GroupIndex {
+        final int maxEntries;
+        long[] timestamps = new long[8];
+        long[] positions = new long[8];
+        int size;
+
+        GroupIndex(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        synchronized void add(long timestamp, long position) {
+            if (size == maxEntries) {
+                drop(size >>> 1);
+            }
+            if (size == positions.length) {
+                timestamps = Arrays.copyOf(timestamps, size << 1);
+                positions = Arrays.copyOf(positions, size << 1);
+            }
+            timestamps[size] = timestamp;
+            positions[size] = position;
+            size++;
+        }
+
+        // position of the first record at or after the timestamp
+        synchronized long position(long timestamp) {
+            int i = search(timestamps, timestamp);
+            return i < size ? positions[i] : Long.MAX_VALUE;
+        }
+
+        // up to max positions within [from, to)
+        synchronized long[] positions(long from, long to, int max) {
+            int i = search(positions, from);
+            int j = i;
+            while (j < size && j - i < max && positions[j] < to) {
+                j++;
+            }
+            return Arrays.copyOfRange(positions, i, j);
+        }
+
+        // up to max positions of the records before the timestamp, in log order
+        synchronized long[] before(long timestamp, int max) {
+            int j = search(timestamps, timestamp);
+            return Arrays.copyOfRange(positions, Math.max(0, j - max), j);
+        }
+
+        // drops positions before first, returns true when nothing is left
+        synchronized boolean trim(long first) {
+            drop(search(positions, first));
+            if (size > 8 && size < positions.length >>> 2) {
+                timestamps = Arrays.copyOf(timestamps, size << 1);
+                positions = Arrays.copyOf(positions, size << 1);
+            }
+            return size == 0;
+        }
+
+        private void drop(int count) {
+            if (count > 0) {
+                System.arraycopy(timestamps, count, timestamps, 0, size - count);
+                System.arraycopy(positions, count, positions, 0, size - count);
+                size -= count;
+            }
+        }
+
+        // first index whose value is not less than the key
+        private int search(long[] values, long key) {
+            int low = 0, high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (values[mid] < key) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+
+    private static final class Cursor {
+        final long end;
+        volatile long next;
+        volatile long accessAt;
+
+        Cursor(long next, long end) {
+            this.next = next;
+            this.end = end;
+            this.accessAt = System.currentTimeMillis();
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.github.sosozhuang.service;
+
+import com.github.sosozhuang.protobuf.Chat;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+// Versioned group to topic routing table kept in the meta service. Every version
+// holds a topic count; a group moves to a new version at its start time plus an
+// offset derived from the group id, so groups migrate gradually over the window
+// instead of all at once. Older versions stay in the table for replay.
+public class GroupRouter implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(GroupRouter.class);
+    private final MetaService metaService;
+    private final ScheduledExecutorService refresher;
+    private final IntConsumer topicCountListener;
+    private volatile Chat.Route[] routes;
+
+    public GroupRouter(MetaService metaService, int topicCount, long delay, long migrateWindow,
+                       long refreshInterval, IntConsumer topicCountListener) throws IOException {
+        this.metaService = metaService;
+        this.topicCountListener = topicCountListener;
+        load();
+        if (routes.length == 0) {
+            // the first version maps groups exactly as the fixed modulo did
+            metaService.addRoute(newRoute(1, topicCount, 0L, 0L));
+            load();
+        }
+        Chat.Route latest = latest();
+        if (latest != null && topicCount > latest.getTopicCount()) {
+            if (metaService.addRoute(newRoute(latest.getVersion() + 1, topicCount,
+                    System.currentTimeMillis() + delay, migrateWindow))) {
+                LOGGER.info("Routing table version {} added with {} topics.", latest.getVersion() + 1, topicCount);
+            }
+            load();
+        } else if (latest != null && topicCount < latest.getTopicCount()) {
+            LOGGER.warn("Topic count {} is less than {} of routing table, keep the table.", topicCount, latest.getTopicCount());
+        }
+        if (routes.length == 0) {
+            throw new IOException("Routing table is empty.");
+        }
+        this.refresher = Executors.newSingleThreadScheduledExecutor(new DefaultThreadFactory("group-router", true));
+        refresher.scheduleWithFixedDelay(this::refresh, refreshInterval, refreshInterval, TimeUnit.MILLISECONDS);
+    }
+
+    private static Chat.Route newRoute(int version, int topicCount, long startAt, long migrateWindow) {
+        Chat.Route.Builder builder = Chat.Route.newBuilder();
+        builder.setVersion(version);
+        builder.setTopicCount(topicCount);
+        builder.setStartAt(startAt);
+        builder.setMigrateWindow(migrateWindow);
+        return builder.build();
+    }
+
+    private void load() throws IOException {
+        List<Chat.Route> list = new ArrayList<>();
+        for (Chat.Route route : metaService.listRoutes()) {
+            list.add(route);
+        }
+        list.sort(Comparator.comparingInt(Chat.Route::getVersion));
+        routes = list.toArray(new Chat.Route[list.size()]);
+    }
+
+    private void refresh() {
+        int before = maxTopicCount();
+        try {
+            load();
+        } catch (IOException | RuntimeException e) {
+            LOGGER.error("Refresh routing table error.", e);
+            return;
+        }
+        int after = maxTopicCount();
+        if (after > before && topicCountListener != null) {
+            topicCountListener.accept(after);
+        }
+    }
+
+    private Chat.Route latest() {
+        Chat.Route[] routes = this.routes;
+        return routes.length == 0 ? null : routes[routes.length - 1];
+    }
+
+    private static long groupNumber(String groupID) {
+        return Long.parseLong(groupID);
+    }
+
+    private static long effectiveAt(Chat.Route route, long group) {
+        long window = route.getMigrateWindow();
+        return window <= 0 ? route.getStartAt() : route.getStartAt() + Long.remainderUnsigned(group * 0x9E3779B97F4A7C15L, window);
+    }
+
+    private static int versionAt(Chat.Route[] routes, long group, long timestamp) {
+        for (int i = routes.length - 1; i > 0; i--) {
+            if (effectiveAt(routes[i], group) <= timestamp) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    private static int topicIndex(Chat.Route route, long group) {
+        return (int) (group % route.getTopicCount());
+    }
+
+    public int topicIndex(String groupID) {
+        Chat.Route[] routes = this.routes;
+        long group = groupNumber(groupID);
+        return topicIndex(routes[versionAt(routes, group, System.currentTimeMillis())], group);
+    }
+
+    // topics the group has been routed to since the timestamp, oldest first
+    public List<Integer> topicIndexes(String groupID, long since) {
+        Chat.Route[] routes = this.routes;
+        long group = groupNumber(groupID);
+        List<Integer> indexes = new ArrayList<>(1);
+        for (int i = versionAt(routes, group, since); i < routes.length; i++) {
+            if (i > 0 && effectiveAt(routes[i], group) > System.currentTimeMillis()) {
+                break;
+            }
+            Integer index = topicIndex(routes[i], group);
+            if (!indexes.contains(index)) {
+                indexes.add(index);
+            }
+        }
+        return indexes;
+    }
+
+    public int maxTopicCount() {
+        int max = 0;
+        for (Chat.Route route : routes) {
+            max = Math.max(max, route.getTopicCount());
+        }
+        return max;
+    }
+
+    @Override
+    public void close() {
+        refresher.shutdownNow();
+    }
+}
@@ -0,0 +1,11 @@
+package com.github.sosozhuang.service;
+
+import java.util.List;
+
+// Reads a group's history backwards, so older messages are paged in on demand
+// instead of replaying everything since a point in time.
+public interface HistoryService {
+    // at most limit records of the group stored before the timestamp, oldest first,
+    // each with the time it was stored
+    public <K, V> List<MessageRecord<K, V>> history(String groupID, long before, int limit);
+}
@@ -0,0 +1,11 @@
+package com.github.sosozhuang.service;
+
+import com.github.sosozhuang.protobuf.Chat;
+
+// Per server delivery channel for live traffic, so a server only reads the records
+// of groups it has members of instead of everything sent to the history stream.
+public interface InboxService {
+    public void openInbox(long serverID);
+    public void sendToInbox(long serverID, Chat.Group group, MessageRecord record, SendCallback callback);
+    public <K, V> Iterable<MessageRecord<K, V>> receiveInbox();
+}
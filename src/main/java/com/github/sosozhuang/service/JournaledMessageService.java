@@ -0,0 +1,468 @@
+package com.github.sosozhuang.service;
+
+import com.github.sosozhuang.conf.JournalConfig;
+import com.github.sosozhuang.protobuf.Chat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Store and forward in front of another message service. send appends the record to a local
+// memory-mapped journal and returns, a shipper thread sends journaled records on to the
+// delegate in batches and retries a failed batch with backoff, so a slow or failing broker
+// neither stalls senders nor loses messages. A checkpoint file keeps the shipped position,
+// records are sent at least once. Receiving goes to the delegate directly.
+// Record layout: size(4) timestamp(8) server_id(8) type(1) user length(4) key length(4) user key value,
+// type is the message type ordinal plus one, zero when the record has no headers. The timestamp
+// is when the record was journaled, the delegate stores it instead of the time it was shipped.
+public class JournaledMessageService implements CloseableMessageService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(JournaledMessageService.class);
+    private static final String SEGMENT_SUFFIX = ".jnl";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    private static final int HEADER_SIZE = 4 + 8 + 8 + 1 + 4 + 4;
+    private static final Chat.MessageType[] TYPES = Chat.MessageType.values();
+    private final CloseableMessageService delegate;
+    private final File dir;
+    private final int segmentSize;
+    private final int batchSize;
+    private final long retryBackoff;
+    private final long maxRetryBackoff;
+    private final FileChannel checkpoint;
+    private final ByteBuffer checkpointBuffer;
+    private volatile Segment[] segments;
+    private volatile long end;
+    private volatile long shipped;
+    private final ReentrantLock lock;
+    private final Condition appended;
+    private volatile boolean waiting;
+    private volatile boolean running;
+    private final Thread shipper;
+    private final ScheduledExecutorService scheduler;
+
+    public JournaledMessageService(JournalConfig config, CloseableMessageService delegate) throws IOException {
+        this.delegate = delegate;
+        dir = new File(config.getDir("journal"));
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Unable to create journal directory " + dir.getAbsolutePath());
+        }
+        segmentSize = config.getSegmentSize(16 * 1024 * 1024);
+        batchSize = Math.max(1, config.getBatch(256));
+        retryBackoff = Math.max(1L, config.getRetryBackoff(100L));
+        maxRetryBackoff = Math.max(retryBackoff, config.getMaxRetryBackoff(5000L));
+        checkpoint = FileChannel.open(new File(dir, CHECKPOINT_FILE).toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        checkpointBuffer = ByteBuffer.allocate(8);
+        lock = new ReentrantLock();
+        appended = lock.newCondition();
+        load();
+        running = true;
+        shipper = new Thread(this::ship, "journal-shipper");
+        shipper.setDaemon(true);
+        shipper.start();
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "journal-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long flushInterval = config.getFlushInterval(1000L);
+        if (flushInterval > 0) {
+            scheduler.scheduleWithFixedDelay(this::flush, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public MessageService getDelegate() {
+        return delegate;
+    }
+
+    private void load() throws IOException {
+        File[] files = dir.listFiles((d, name) -> name.endsWith(SEGMENT_SUFFIX));
+        List<Segment> list = new ArrayList<>();
+        if (files != null) {
+            Arrays.sort(files);
+            for (File file : files) {
+                long base;
+                try {
+                    base = Long.parseLong(file.getName().substring(0, file.getName().length() - SEGMENT_SUFFIX.length()));
+                } catch (NumberFormatException e) {
+                    LOGGER.warn("Skip unknown journal file {}.", file);
+                    continue;
+                }
+                list.add(new Segment(base, file, Math.max((int) file.length(), segmentSize)));
+            }
+        }
+        if (list.isEmpty()) {
+            list.add(newSegment(0L));
+        }
+        segments = list.toArray(new Segment[list.size()]);
+        // a segment starts where the previous one ends
+        for (Segment segment : segments) {
+            segment.limit = scan(segment.buffer);
+            end = segment.base + segment.limit;
+        }
+        long position = -1L;
+        if (checkpoint.size() >= 8) {
+            checkpointBuffer.clear();
+            checkpoint.read(checkpointBuffer, 0);
+            checkpointBuffer.flip();
+            position = checkpointBuffer.getLong();
+        }
+        shipped = Math.min(Math.max(position, segments[0].base), end);
+        deleteShipped();
+        LOGGER.info("Journal loaded, {} bytes to ship.", end - shipped);
+    }
+
+    // returns the position behind the last complete record
+    private static int scan(ByteBuffer buffer) {
+        int position = 0;
+        while (position + HEADER_SIZE <= buffer.capacity()) {
+            int size = buffer.getInt(position);
+            if (size < HEADER_SIZE - 4 || position + 4 + size > buffer.capacity()) {
+                break;
+            }
+            position += 4 + size;
+        }
+        return position;
+    }
+
+    private Segment newSegment(long base) throws IOException {
+        return new Segment(base, new File(dir, String.format("%020d%s", base, SEGMENT_SUFFIX)), segmentSize);
+    }
+
+    private Segment segment(long position) {
+        Segment[] segments = this.segments;
+        int low = 0, high = segments.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (segments[mid].base <= position) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return high < 0 ? null : segments[high];
+    }
+
+    @Override
+    public void send(String user, Chat.Group group, MessageRecord record) {
+        byte[] userBytes = user.getBytes(StandardCharsets.UTF_8);
+        byte[] key = ((String) record.getKey()).getBytes(StandardCharsets.UTF_8);
+        byte[] value = (byte[]) record.getValue();
+        MessageHeaders headers = record.getHeaders();
+        int total = HEADER_SIZE + userBytes.length + key.length + value.length;
+        if (total > segmentSize) {
+            throw new IllegalArgumentException("Record of " + total + " bytes exceeds segment size " + segmentSize);
+        }
+        synchronized (this) {
+            Segment segment = segments[segments.length - 1];
+            if (segment.limit + total > segment.buffer.capacity()) {
+                try {
+                    segment = newSegment(end);
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+                Segment[] rolled = Arrays.copyOf(segments, segments.length + 1);
+                rolled[rolled.length - 1] = segment;
+                segments = rolled;
+            }
+            ByteBuffer buffer = segment.buffer;
+            int offset = segment.limit;
+            buffer.putLong(offset + 4, record.getTimestamp() > 0 ? record.getTimestamp() : System.currentTimeMillis());
+            buffer.putLong(offset + 12, headers == null ? 0L : headers.getServerID());
+            buffer.put(offset + 20, (byte) (headers == null ? 0 : headers.getType().ordinal() + 1));
+            buffer.putInt(offset + 21, userBytes.length);
+            buffer.putInt(offset + 25, key.length);
+            ByteBuffer duplicate = buffer.duplicate();
+            duplicate.position(offset + HEADER_SIZE);
+            duplicate.put(userBytes);
+            duplicate.put(key);
+            duplicate.put(value);
+            buffer.putInt(offset, total - 4);
+            segment.limit += total;
+            end = segment.base + segment.limit;
+        }
+        if (waiting) {
+            lock.lock();
+            try {
+                appended.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public <K, V> Iterable<MessageRecord<K, V>> receive() {
+        return delegate.receive();
+    }
+
+    @Override
+    public <K, V> Iterable<MessageRecord<K, V>> receive(String user, Chat.Group group, long timestamp) {
+        return delegate.receive(user, group, timestamp);
+    }
+
+    private void ship() {
+        List<Entry> batch = new ArrayList<>(batchSize);
+        long backoff = retryBackoff;
+        // keeps shipping what is journaled until closed and drained
+        while (running || shipped < end) {
+            if (shipped == end) {
+                awaitAppend();
+                continue;
+            }
+            batch.clear();
+            long position = shipped;
+            Throwable cause;
+            try {
+                long limit = end;
+                while (position < limit && batch.size() < batchSize) {
+                    Entry entry = read(position);
+                    if (entry.record != null) {
+                        batch.add(entry);
+                    }
+                    position = entry.next;
+                }
+                cause = sendBatch(batch);
+            } catch (InterruptedException e) {
+                if (running) {
+                    continue;
+                }
+                LOGGER.warn("Journal shipper interrupted, {} bytes left to ship.", end - shipped);
+                break;
+            } catch (Throwable e) {
+                // keeps the shipper alive, the batch is read again after the backoff
+                cause = e;
+            }
+            if (cause != null) {
+                LOGGER.warn("Ship journal records error, retry in {}ms.", backoff, cause);
+                if (!sleep(backoff)) {
+                    break;
+                }
+                backoff = Math.min(backoff << 1, maxRetryBackoff);
+                continue;
+            }
+            backoff = retryBackoff;
+            shipped = position;
+            try {
+                writeCheckpoint(position);
+            } catch (IOException e) {
+                LOGGER.error("Write journal checkpoint error.", e);
+            }
+            deleteShipped();
+        }
+        LOGGER.info("Journal shipper stopped.");
+    }
+
+    // returns the first failure of the batch, null when all records are sent
+    private Throwable sendBatch(List<Entry> batch) throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(batch.size());
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        for (Entry entry : batch) {
+            try {
+                delegate.send(entry.user, entry.group, entry.record, cause -> {
+                    if (cause != null) {
+                        failure.compareAndSet(null, cause);
+                    }
+                    latch.countDown();
+                });
+            } catch (RuntimeException e) {
+                failure.compareAndSet(null, e);
+                latch.countDown();
+            }
+        }
+        latch.await();
+        return failure.get();
+    }
+
+    private void awaitAppend() {
+        lock.lock();
+        try {
+            waiting = true;
+            if (shipped == end && running) {
+                appended.await(100, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            // woken to stop
+        } finally {
+            waiting = false;
+            lock.unlock();
+        }
+    }
+
+    private boolean sleep(long millis) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            return running;
+        }
+    }
+
+    // an entry without record for what cannot be parsed, its next skips the rest of the segment
+    private Entry read(long position) {
+        Segment segment = segment(position);
+        ByteBuffer buffer = segment.buffer.duplicate();
+        int offset = (int) (position - segment.base);
+        if (offset >= segment.limit) {
+            // a truncated segment ends before the next one begins
+            return new Entry(null, null, null, following(segment));
+        }
+        int size = buffer.getInt(offset);
+        int type = buffer.get(offset + 20) & 0xff;
+        long userLength = offset + HEADER_SIZE <= segment.limit ? buffer.getInt(offset + 21) : -1;
+        long keyLength = offset + HEADER_SIZE <= segment.limit ? buffer.getInt(offset + 25) : -1;
+        if (size < HEADER_SIZE - 4 || offset + 4L + size > segment.limit || type > TYPES.length
+                || userLength < 0 || keyLength < 0 || userLength + keyLength > size + 4 - HEADER_SIZE) {
+            long next = following(segment);
+            LOGGER.error("Invalid journal record at {} of segment {}, skip to {}.", position, segment.file, next);
+            return new Entry(null, null, null, next);
+        }
+        byte[] user = new byte[(int) userLength];
+        byte[] key = new byte[(int) keyLength];
+        byte[] value = new byte[size + 4 - HEADER_SIZE - user.length - key.length];
+        buffer.position(offset + HEADER_SIZE);
+        buffer.get(user);
+        buffer.get(key);
+        buffer.get(value);
+        String groupID = new String(key, StandardCharsets.UTF_8);
+        MessageHeaders headers = type == 0 ? null : new MessageHeaders(buffer.getLong(offset + 12), groupID, TYPES[type - 1]);
+        // message services only route on the group id
+        Chat.Group group = Chat.Group.newBuilder().setId(groupID).buildPartial();
+        MessageRecord<String, byte[]> record = new MessageRecord<>(groupID, value, headers);
+        record.setTimestamp(buffer.getLong(offset + 4));
+        return new Entry(new String(user, StandardCharsets.UTF_8), group, record, position + 4 + size);
+    }
+
+    // where the segment after this one begins, its own end for the last one
+    private long following(Segment segment) {
+        for (Segment next : segments) {
+            if (next.base > segment.base) {
+                return next.base;
+            }
+        }
+        return segment.base + segment.limit;
+    }
+
+    private void writeCheckpoint(long position) throws IOException {
+        checkpointBuffer.clear();
+        checkpointBuffer.putLong(position);
+        checkpointBuffer.flip();
+        checkpoint.write(checkpointBuffer, 0);
+    }
+
+    // deletes fully shipped segments, never the active one
+    private void deleteShipped() {
+        long position = shipped;
+        List<Segment> deleted = new ArrayList<>();
+        synchronized (this) {
+            int n = 0;
+            while (n < segments.length - 1 && segments[n + 1].base <= position) {
+                deleted.add(segments[n]);
+                n++;
+            }
+            if (n > 0) {
+                segments = Arrays.copyOfRange(segments, n, segments.length);
+            }
+        }
+        for (Segment segment : deleted) {
+            segment.close();
+            if (!segment.file.delete()) {
+                LOGGER.warn("Delete shipped journal segment {} error.", segment.file);
+            }
+        }
+    }
+
+    private void flush() {
+        for (Segment segment : segments) {
+            segment.buffer.force();
+        }
+        try {
+            checkpoint.force(false);
+        } catch (IOException e) {
+            LOGGER.error("Flush journal checkpoint error.", e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        lock.lock();
+        try {
+            appended.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            // give the shipper a moment to drain, the rest ships on next start
+            shipper.join(TimeUnit.SECONDS.toMillis(5));
+            if (shipper.isAlive()) {
+                shipper.interrupt();
+                shipper.join(TimeUnit.SECONDS.toMillis(1));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        scheduler.shutdownNow();
+        synchronized (this) {
+            flush();
+            for (Segment segment : segments) {
+                segment.close();
+            }
+        }
+        checkpoint.close();
+        delegate.close();
+    }
+
+    private static final class Segment {
+        final long base;
+        final File file;
+        final FileChannel channel;
+        final MappedByteBuffer buffer;
+        // written under the service monitor, only the last segment grows
+        int limit;
+
+        Segment(long base, File file, int size) throws IOException {
+            this.base = base;
+            this.file = file;
+            this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                LOGGER.warn("Close journal segment {} error.", file, e);
+            }
+        }
+    }
+
+    private static final class Entry {
+        final String user;
+        final Chat.Group group;
+        final MessageRecord record;
+        final long next;
+
+        Entry(String user, Chat.Group group, MessageRecord record, long next) {
+            this.user = user;
+            this.group = group;
+            this.record = record;
+            this.next = next;
+        }
+    }
+}
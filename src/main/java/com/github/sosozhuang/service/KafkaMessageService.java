@@ -7,49 +7,80 @@ import org.apache.kafka.clients.admin.AdminClientConfig;
 import org.apache.kafka.clients.admin.NewTopic;
 import org.apache.kafka.clients.admin.TopicDescription;
 import org.apache.kafka.clients.consumer.*;
-import org.apache.kafka.clients.consumer.internals.NoOpConsumerRebalanceListener;
 import org.apache.kafka.clients.producer.KafkaProducer;
 import org.apache.kafka.clients.producer.Producer;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
 import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.common.config.TopicConfig;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeUnit;
-import java.util.function.Function;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
-public class KafkaMessageService implements CloseableMessageService {
+public class KafkaMessageService implements CloseableMessageService, InboxService {
     private static final Logger LOGGER = LoggerFactory.getLogger(KafkaMessageService.class);
-    private static final ConsumerRebalanceListener NO_OP_LISTENER = new NoOpConsumerRebalanceListener();
+    // bytes saved show in compression-rate-avg (compressed / raw size) against the batch sizes
+    private static final Set<String> PRODUCER_METRICS = new HashSet<>(Arrays.asList("compression-rate-avg",
+            "batch-size-avg", "record-size-avg", "records-per-request-avg", "outgoing-byte-rate", "io-ratio"));
     private KafkaConfig config;
     private Pattern pattern;
     private Properties producerProps;
     private Producer producer;
     private Properties consumerProps;
     private ThreadLocal<ConsumerTask> tasks;
-    private Map<Chat.Access, ConsumerTask> tempTasks;
+    private ThreadLocal<ConsumerTask> inboxTasks;
+    private volatile String inboxTopic;
+    private Set<TopicPartition> inboxAssigned;
+    // group topics ever assigned to the consumers of this server
+    private Set<String> groupTopics;
+    private KafkaOffsetIndex index;
+    private KafkaReplayService replayService;
+    private GroupRouter router;
     private List<Consumer> consumers;
 
-    public KafkaMessageService(KafkaConfig config) {
+    public KafkaMessageService(KafkaConfig config, MetaService metaService) throws IOException {
         this.config = config;
-        pattern = Pattern.compile("^" + config.getTopicPattern("chat") + "-\\d$");
+        pattern = Pattern.compile("^" + config.getTopicPattern("chat") + "-(\\d+|presence)$");
         initProps();
+        if (config.getRoutingDelay(60000L) <= config.getRoutingRefreshInterval(30000L)) {
+            LOGGER.warn("Kafka routing delay should exceed refresh interval, servers may miss a new routing version.");
+        }
+        router = new GroupRouter(metaService, config.getTopicCount(8), config.getRoutingDelay(60000L),
+                config.getRoutingMigrateWindow(3600000L), config.getRoutingRefreshInterval(30000L), topicCount -> {
+            if (config.getTopicCreate()) {
+                createTopicsIfNotExists();
+            }
+        });
         if (config.getTopicCreate()) {
             createTopicsIfNotExists();
+            // presence only matters to live members, keep it briefly
+            createTopicIfNotExists(getPresenceTopic(), config.getPresencePartition(8), config.getPresenceRetention(600000L));
         }
         producer = new KafkaProducer<>(producerProps);
         consumers = Collections.synchronizedList(new ArrayList<>(8));
         tasks = new ThreadLocal<>();
-        tempTasks = new ConcurrentHashMap<>();
+        inboxTasks = new ThreadLocal<>();
+        inboxAssigned = ConcurrentHashMap.newKeySet();
+        groupTopics = ConcurrentHashMap.newKeySet();
+        if (config.getIndexEnable()) {
+            index = new KafkaOffsetIndex(config);
+        }
+        replayService = new KafkaReplayService(config, index, (groupID, timestamp) -> {
+            return router.topicIndexes(groupID, timestamp).stream().map(this::getTopic).collect(Collectors.toList());
+        });
     }
 
     private void initProps() {
@@ -57,8 +88,10 @@ public class KafkaMessageService implements CloseableMessageService {
         producerProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, config.getServers("localhost:9092"));
         producerProps.put(ProducerConfig.ACKS_CONFIG, "all");
         producerProps.put(ProducerConfig.RETRIES_CONFIG, 0);
-        producerProps.put(ProducerConfig.BATCH_SIZE_CONFIG, 1024);
-        producerProps.put(ProducerConfig.LINGER_MS_CONFIG, 1);
+        // compression works on a whole producer batch, larger batches compress better
+        producerProps.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, config.getProducerCompression("lz4"));
+        producerProps.put(ProducerConfig.BATCH_SIZE_CONFIG, config.getProducerBatchSize(16384));
+        producerProps.put(ProducerConfig.LINGER_MS_CONFIG, config.getProducerLinger(5L));
         producerProps.put(ProducerConfig.BUFFER_MEMORY_CONFIG, 262144);
         producerProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, "org.apache.kafka.common.serialization.StringSerializer");
         producerProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, "org.apache.kafka.common.serialization.ByteArraySerializer");
@@ -69,6 +102,10 @@ public class KafkaMessageService implements CloseableMessageService {
         consumerProps.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, config.getServers("localhost:9092"));
         consumerProps.put(ConsumerConfig.GROUP_ID_CONFIG, config.getConsumerGroupId(String.valueOf(System.currentTimeMillis())));
         consumerProps.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
+        // the pattern subscription finds topics added by the router on a metadata refresh,
+        // which has to happen well within the delay before groups move to them
+        consumerProps.put(ConsumerConfig.METADATA_MAX_AGE_CONFIG,
+                (int) Math.min(300000L, Math.max(1000L, config.getRoutingDelay(60000L) / 3)));
         consumerProps.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, "org.apache.kafka.common.serialization.StringDeserializer");
         consumerProps.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, "org.apache.kafka.common.serialization.ByteArrayDeserializer");
     }
@@ -81,13 +118,51 @@ public class KafkaMessageService implements CloseableMessageService {
         return String.format("%s-%d", config.getTopicPattern("chat"), topic);
     }
 
+    private String getInboxTopic(long serverID) {
+        return String.format("%s-inbox-%s", config.getTopicPattern("chat"), Long.toUnsignedString(serverID));
+    }
+
+    private String getPresenceTopic() {
+        return String.format("%s-presence", config.getTopicPattern("chat"));
+    }
+
+    private void createTopicIfNotExists(String topic, int partitions, long retention) {
+        Properties props = new Properties();
+        props.put(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, config.getServers("localhost:9092"));
+        props.put(AdminClientConfig.REQUEST_TIMEOUT_MS_CONFIG, 50000);
+        props.put(AdminClientConfig.RETRIES_CONFIG, 3);
+        AdminClient client = AdminClient.create(props);
+        try {
+            try {
+                client.describeTopics(Collections.singletonList(topic)).all().get();
+                return;
+            } catch (ExecutionException e) {
+                if (!e.getMessage().contains("UnknownTopicOrPartitionException")) {
+                    throw e;
+                }
+            }
+            Map<String, String> configs = new HashMap<>();
+            configs.put(TopicConfig.CLEANUP_POLICY_CONFIG, TopicConfig.CLEANUP_POLICY_DELETE);
+            configs.put(TopicConfig.RETENTION_MS_CONFIG, String.valueOf(retention));
+            configs.put(TopicConfig.MAX_MESSAGE_BYTES_CONFIG, "102400");
+            configs.put(TopicConfig.MESSAGE_TIMESTAMP_TYPE_CONFIG, "CreateTime");
+            NewTopic newTopic = new NewTopic(topic, partitions, config.getTopicReplication((short) 3))
+                    .configs(Collections.unmodifiableMap(configs));
+            client.createTopics(Collections.singletonList(newTopic)).all().get();
+        } catch (InterruptedException | ExecutionException e) {
+            LOGGER.warn("Kafka creates topic {} error.", topic, e);
+        } finally {
+            client.close();
+        }
+    }
+
     public void createTopicsIfNotExists() {
         Properties props = new Properties();
         props.put(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, config.getServers("localhost:9092"));
         props.put(AdminClientConfig.REQUEST_TIMEOUT_MS_CONFIG, 50000);
         props.put(AdminClientConfig.RETRIES_CONFIG, 3);
         AdminClient client = AdminClient.create(props);
-        List<String> topicNames = IntStream.range(0, config.getTopicCount()).mapToObj(this::getTopic).collect(Collectors.toList());
+        List<String> topicNames = IntStream.range(0, router.maxTopicCount()).mapToObj(this::getTopic).collect(Collectors.toList());
         try {
             List<NewTopic> newTopics;
             try {
@@ -121,12 +196,47 @@ public class KafkaMessageService implements CloseableMessageService {
     }
 
     private int mapGroupIDToIndex(String groupID) {
-        return (int) (Long.parseLong(groupID) % config.getTopicCount(8));
+        return router.topicIndex(groupID);
+    }
+
+    static List<Header> toKafkaHeaders(MessageHeaders headers) {
+        if (headers == null) {
+            return null;
+        }
+        List<Header> list = new ArrayList<>(3);
+        list.add(new RecordHeader(MessageHeaders.SERVER_ID, Long.toUnsignedString(headers.getServerID()).getBytes(StandardCharsets.UTF_8)));
+        list.add(new RecordHeader(MessageHeaders.GROUP_ID, headers.getGroupID().getBytes(StandardCharsets.UTF_8)));
+        list.add(new RecordHeader(MessageHeaders.TYPE, headers.getType().name().getBytes(StandardCharsets.UTF_8)));
+        return list;
+    }
+
+    static MessageHeaders fromKafkaHeaders(Headers headers) {
+        return MessageHeaders.parse(headerValue(headers, MessageHeaders.SERVER_ID),
+                headerValue(headers, MessageHeaders.GROUP_ID),
+                headerValue(headers, MessageHeaders.TYPE));
+    }
+
+    private static String headerValue(Headers headers, String key) {
+        Header header = headers.lastHeader(key);
+        return header == null || header.value() == null ? null : new String(header.value(), StandardCharsets.UTF_8);
+    }
+
+    private ProducerRecord<String, byte[]> toProducerRecord(Chat.Group group, MessageRecord record) {
+        // control events never enter the history topics read by replay
+        String topic = MessageHeaders.isControl(record.getHeaders()) ? getPresenceTopic() : getTopic(mapGroupIDToIndex(group.getId()));
+        long timestamp = record.getTimestamp() > 0 ? record.getTimestamp() : System.currentTimeMillis();
+        return new ProducerRecord<>(topic, null, timestamp,
+                (String) record.getKey(), (byte[]) record.getValue(), toKafkaHeaders(record.getHeaders()));
     }
 
     @Override
     public void send(String user, Chat.Group group, MessageRecord record) {
-        producer.send(new ProducerRecord<String, byte[]>(getTopic(mapGroupIDToIndex(group.getId())), null, System.currentTimeMillis(), (String) record.getKey(), (byte[]) record.getValue()));
+        producer.send(toProducerRecord(group, record));
+    }
+
+    @Override
+    public void send(String user, Chat.Group group, MessageRecord record, SendCallback callback) {
+        producer.send(toProducerRecord(group, record), (metadata, exception) -> callback.onCompletion(exception));
     }
 
     @Override
@@ -134,8 +244,31 @@ public class KafkaMessageService implements CloseableMessageService {
         ConsumerTask task = tasks.get();
         if (task == null) {
             KafkaConsumer<String, String> consumer = new KafkaConsumer<>(consumerProps);
-            consumer.subscribe(pattern, NO_OP_LISTENER);
-            consumer.seekToEnd(Collections.emptyList());
+            consumer.subscribe(pattern, new ConsumerRebalanceListener() {
+                private boolean assigned;
+
+                @Override
+                public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+                }
+
+                // topics found after the first assignment are read from their beginning,
+                // groups may have moved to them before the subscription caught up
+                @Override
+                public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
+                    List<TopicPartition> added = new ArrayList<>();
+                    for (TopicPartition partition : partitions) {
+                        if (assigned && !groupTopics.contains(partition.topic())) {
+                            added.add(partition);
+                        }
+                    }
+                    partitions.forEach(partition -> groupTopics.add(partition.topic()));
+                    assigned = true;
+                    if (!added.isEmpty()) {
+                        LOGGER.info("Kafka reads new topic partitions {} from beginning.", added);
+                        consumer.seekToBeginning(added);
+                    }
+                }
+            });
             consumers.add(consumer);
             task = new ConsumerTask(consumer);
             tasks.set(task);
@@ -146,73 +279,115 @@ public class KafkaMessageService implements CloseableMessageService {
         }
         List<MessageRecord<K, V>> messages = new ArrayList<>(records.count());
         records.forEach(record -> {
-            messages.add(new MessageRecord(record.key(), record.value()));
+            if (index != null && !MessageHeaders.isControl(fromKafkaHeaders(record.headers()))) {
+                index.append(record.topic(), record.partition(), record.offset(), record.key(), record.timestamp());
+            }
+            messages.add(new MessageRecord(record.key(), record.value(), fromKafkaHeaders(record.headers())));
         });
         return messages;
     }
 
-    private ConsumerTask createTempTask(Chat.Access access) {
-        Properties props = new Properties();
-        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, config.getServers("localhost:9092"));
-        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
-        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, "org.apache.kafka.common.serialization.StringDeserializer");
-        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, "org.apache.kafka.common.serialization.ByteArrayDeserializer");
-        KafkaConsumer<String, String> consumer = new KafkaConsumer<>(props);
-        String topicName = getTopic(mapGroupIDToIndex(access.getGroupId()));
-        List<TopicPartition> partitions = consumer.partitionsFor(topicName).stream().map(partitionInfo -> {
-            return new TopicPartition(topicName, partitionInfo.partition());
-        }).collect(Collectors.toList());
-        Map<TopicPartition, Long> timestamps = partitions.stream().collect(Collectors.toMap(Function.identity(), partition -> {
-            return access.getTimestamp();
-        }));
-        Map<TopicPartition, OffsetAndTimestamp> offsets = consumer.offsetsForTimes(timestamps);
-        if (offsets.size() == 0) {
-            return null;
+    @Override
+    public void openInbox(long serverID) {
+        String topic = getInboxTopic(serverID);
+        if (config.getTopicCreate()) {
+            // live traffic only, history stays in the group topics
+            createTopicIfNotExists(topic, config.getInboxPartition(1), config.getInboxRetention(3600000L));
+        }
+        inboxTopic = topic;
+        if (index != null) {
+            // group topics are no longer consumed, the index would stop at this point
+            // while claiming to cover the partitions
+            LOGGER.warn("Kafka offset index is not updated with inbox in use, index disabled.");
+            replayService.disableIndex();
+            try {
+                index.close();
+            } catch (IOException e) {
+                LOGGER.warn("Close kafka offset index error.", e);
+            }
+            index = null;
         }
-        consumer.assign(offsets.keySet());
-        offsets.forEach((topicPartition, offsetAndTimestamp) -> {
-            consumer.seek(topicPartition, offsetAndTimestamp.offset());
-        });
-        return new ConsumerTask(consumer);
     }
 
     @Override
-    public <K, V> Iterable<MessageRecord<K, V>> receive(String user, Chat.Group group, long timestamp) {
-        Chat.Access.Builder builder = Chat.Access.newBuilder();
-        builder.setUser(user);
-        builder.setGroupId(group.getId());
-        builder.setTimestamp(timestamp);
-        Chat.Access access = builder.build();
-        ConsumerTask task = tempTasks.computeIfAbsent(access, this::createTempTask);
-        try {
-            ConsumerRecords<String, byte[]> records = task.pollMessage();
-            if (records == null || records.count() == 0) {
-                LOGGER.info("No more message to poll.");
-                task.consumer.close(100, TimeUnit.MILLISECONDS);
-                tempTasks.remove(access, task);
-                return Collections.emptyList();
+    public void sendToInbox(long serverID, Chat.Group group, MessageRecord record, SendCallback callback) {
+        long timestamp = record.getTimestamp() > 0 ? record.getTimestamp() : System.currentTimeMillis();
+        producer.send(new ProducerRecord<>(getInboxTopic(serverID), null, timestamp,
+                (String) record.getKey(), (byte[]) record.getValue(), toKafkaHeaders(record.getHeaders())),
+                (metadata, exception) -> callback.onCompletion(exception));
+    }
+
+    @Override
+    public <K, V> Iterable<MessageRecord<K, V>> receiveInbox() {
+        ConsumerTask task = inboxTasks.get();
+        if (task == null) {
+            if (inboxTopic == null) {
+                throw new IllegalStateException("Inbox is not opened.");
             }
-            List<MessageRecord<K, V>> messages = new ArrayList<>(records.count());
-            records.forEach(record -> {
-                messages.add(new MessageRecord(record.key(), record.value()));
+            KafkaConsumer<String, String> consumer = new KafkaConsumer<>(consumerProps);
+            // positions exist only after assignment, skip what was sent before this server
+            // came up, but not what another inbox consumer left behind on a rebalance
+            consumer.subscribe(Collections.singletonList(inboxTopic), new ConsumerRebalanceListener() {
+                @Override
+                public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+                }
+
+                @Override
+                public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
+                    List<TopicPartition> first = partitions.stream()
+                            .filter(inboxAssigned::add).collect(Collectors.toList());
+                    if (!first.isEmpty()) {
+                        consumer.seekToEnd(first);
+                    }
+                }
             });
-            return messages;
-        } catch (RuntimeException e) {
-            task.consumer.close(100, TimeUnit.MILLISECONDS);
-            tempTasks.remove(access, task);
-            throw e;
+            consumers.add(consumer);
+            task = new ConsumerTask(consumer);
+            inboxTasks.set(task);
         }
+        ConsumerRecords<String, byte[]> records = task.pollMessage();
+        if (records == null || records.count() == 0) {
+            return Collections.emptyList();
+        }
+        List<MessageRecord<K, V>> messages = new ArrayList<>(records.count());
+        records.forEach(record -> {
+            messages.add(new MessageRecord(record.key(), record.value(), fromKafkaHeaders(record.headers())));
+        });
+        return messages;
+    }
+
+    @Override
+    public <K, V> Iterable<MessageRecord<K, V>> receive(String user, Chat.Group group, long timestamp) {
+        return replayService.receive(user, group, timestamp);
     }
 
     @Override
     public void close() throws IOException {
+        router.close();
+        replayService.close();
         closeConsumers();
         closeProducer();
+        if (index != null) {
+            index.close();
+        }
+    }
+
+    private void logProducerMetrics() {
+        Map<String, Double> values = new TreeMap<>();
+        Map<MetricName, ? extends Metric> metrics = producer.metrics();
+        for (Map.Entry<MetricName, ? extends Metric> entry : metrics.entrySet()) {
+            MetricName name = entry.getKey();
+            if ("producer-metrics".equals(name.group()) && PRODUCER_METRICS.contains(name.name())) {
+                values.put(name.name(), entry.getValue().value());
+            }
+        }
+        LOGGER.info("Kafka producer compression {}, metrics {}.", producerProps.get(ProducerConfig.COMPRESSION_TYPE_CONFIG), values);
     }
 
     private void closeProducer() {
         if (producer != null) {
             producer.flush();
+            logProducerMetrics();
             producer.close();
             producer = null;
         }
@@ -226,10 +401,6 @@ public class KafkaMessageService implements CloseableMessageService {
             }
             consumers = null;
         }
-        tempTasks.values().forEach(task -> {
-            task.consumer.wakeup();
-            task.consumer.close();
-        });
     }
 
     private class ConsumerTask {
@@ -240,7 +411,7 @@ public class KafkaMessageService implements CloseableMessageService {
         }
 
         ConsumerRecords pollMessage() {
-            ConsumerRecords records = consumer.poll(config.getConsumerPollTimeout(80));
+            ConsumerRecords records = consumer.poll(config.getConsumerPollTimeout(1000));
             consumer.commitAsync();
             return records;
         }
@@ -0,0 +1,528 @@
+package com.github.sosozhuang.service;
+
+import com.github.sosozhuang.conf.KafkaConfig;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Offsets of each group's records per partition, written to one file per partition and day.
+// Only the day checkpoints and coverage stay in heap, a group's offsets are read from the
+// files when replay first asks for them and kept in a bounded least recently used cache.
+public class KafkaOffsetIndex implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(KafkaOffsetIndex.class);
+    private static final String INDEX_SUFFIX = ".idx";
+    private static final String COVERAGE_SUFFIX = ".cov";
+    private static final int ENTRY_SIZE = 24;
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+    private final File dir;
+    private final int retentionDays;
+    // access ordered, guarded by itself
+    private final LinkedHashMap<Long, GroupEntry> groups;
+    private final Map<TopicPartition, PartitionEntry> partitions;
+    private final ScheduledExecutorService scheduler;
+
+    public KafkaOffsetIndex(KafkaConfig config) throws IOException {
+        dir = new File(config.getIndexDir("index"));
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Unable to create index directory " + dir.getAbsolutePath());
+        }
+        retentionDays = config.getIndexRetentionDays(30);
+        int maxGroups = Math.max(1, config.getIndexMaxGroups(10000));
+        groups = new LinkedHashMap<Long, GroupEntry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, GroupEntry> eldest) {
+                return size() > maxGroups;
+            }
+        };
+        partitions = new ConcurrentHashMap<>();
+        load();
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "kafka-index");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::flush, 1, 1, TimeUnit.SECONDS);
+        scheduler.scheduleWithFixedDelay(this::trim, 1, 1, TimeUnit.HOURS);
+    }
+
+    private static long parseGroupID(String key) {
+        if (key == null || key.isEmpty()) {
+            return -1L;
+        }
+        try {
+            return Long.parseLong(key);
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+
+    private long oldestDay() {
+        return System.currentTimeMillis() / DAY - retentionDays;
+    }
+
+    private PartitionEntry partition(TopicPartition topicPartition) {
+        return partitions.computeIfAbsent(topicPartition, PartitionEntry::new);
+    }
+
+    private void load() throws IOException {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        long oldest = oldestDay();
+        Arrays.sort(files);
+        for (File file : files) {
+            String name = file.getName();
+            if (name.endsWith(COVERAGE_SUFFIX)) {
+                TopicPartition topicPartition = parseTopicPartition(name.substring(0, name.length() - COVERAGE_SUFFIX.length()));
+                if (topicPartition != null) {
+                    partition(topicPartition).loadCoverage(file);
+                }
+            }
+        }
+        for (File file : files) {
+            String name = file.getName();
+            if (!name.endsWith(INDEX_SUFFIX)) {
+                continue;
+            }
+            String prefix = name.substring(0, name.length() - INDEX_SUFFIX.length());
+            int n = prefix.lastIndexOf('.');
+            TopicPartition topicPartition = n < 0 ? null : parseTopicPartition(prefix.substring(0, n));
+            long day;
+            try {
+                day = n < 0 ? -1L : Long.parseLong(prefix.substring(n + 1));
+            } catch (NumberFormatException e) {
+                day = -1L;
+            }
+            if (topicPartition == null || day < 0) {
+                LOGGER.warn("Skip unknown index file {}.", file);
+                continue;
+            }
+            if (day < oldest) {
+                if (!file.delete()) {
+                    LOGGER.warn("Delete expired index file {} error.", file);
+                }
+                continue;
+            }
+            loadEntries(topicPartition, day, file);
+        }
+        for (PartitionEntry entry : partitions.values()) {
+            entry.trim(oldest);
+        }
+    }
+
+    // only the first offset of the day is kept, group offsets are loaded on demand
+    private void loadEntries(TopicPartition topicPartition, long day, File file) throws IOException {
+        PartitionEntry entry = partition(topicPartition);
+        readEntries(file, (groupID, offset) -> entry.checkpoint(day, offset));
+    }
+
+    private static void readEntries(File file, EntryConsumer consumer) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(ENTRY_SIZE * 4096);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            while (channel.read(buffer) > 0 || buffer.position() > 0) {
+                buffer.flip();
+                if (buffer.remaining() < ENTRY_SIZE) {
+                    break;
+                }
+                while (buffer.remaining() >= ENTRY_SIZE) {
+                    long groupID = buffer.getLong();
+                    long offset = buffer.getLong();
+                    buffer.getLong();
+                    consumer.accept(groupID, offset);
+                }
+                buffer.compact();
+            }
+        }
+    }
+
+    private GroupEntry cachedGroup(long groupID) {
+        synchronized (groups) {
+            return groups.get(groupID);
+        }
+    }
+
+    // the group's offsets within the partition, read from the index files on first use
+    private GroupEntry loadGroup(long groupID, TopicPartition topicPartition) {
+        GroupEntry entry;
+        synchronized (groups) {
+            entry = groups.computeIfAbsent(groupID, GroupEntry::new);
+        }
+        if (entry.isLoaded(topicPartition)) {
+            return entry;
+        }
+        // cached before reading, so appends from now on are not missed
+        PartitionEntry partition = partitions.get(topicPartition);
+        List<Long> offsets = new ArrayList<>();
+        try {
+            if (partition != null) {
+                partition.flush();
+            }
+            String prefix = topicPartition.topic() + "-" + topicPartition.partition() + ".";
+            File[] files = dir.listFiles((d, name) -> name.startsWith(prefix) && name.endsWith(INDEX_SUFFIX));
+            if (files != null) {
+                for (File file : files) {
+                    readEntries(file, (id, offset) -> {
+                        if (id == groupID) {
+                            offsets.add(offset);
+                        }
+                    });
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.error("Load index of group[{}] from {} error.", groupID, topicPartition, e);
+            return null;
+        }
+        entry.load(topicPartition, offsets);
+        return entry;
+    }
+
+    private static TopicPartition parseTopicPartition(String name) {
+        int n = name.lastIndexOf('-');
+        if (n <= 0) {
+            return null;
+        }
+        try {
+            return new TopicPartition(name.substring(0, n), Integer.parseInt(name.substring(n + 1)));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public void append(String topic, int partition, long offset, String key, long timestamp) {
+        TopicPartition topicPartition = new TopicPartition(topic, partition);
+        PartitionEntry entry = partition(topicPartition);
+        long groupID = parseGroupID(key);
+        entry.append(groupID, offset, timestamp);
+        if (groupID >= 0) {
+            // groups not cached are read from the files when needed
+            GroupEntry group = cachedGroup(groupID);
+            if (group != null) {
+                group.add(topicPartition, offset);
+            }
+        }
+    }
+
+    // offset from which every record of the partition is indexed, -1 if nothing is
+    public long coveredFrom(TopicPartition topicPartition) {
+        PartitionEntry entry = partitions.get(topicPartition);
+        return entry == null ? -1L : entry.coveredFrom();
+    }
+
+    // offset up to which (exclusive) records of the partition are indexed
+    public long coveredTo(TopicPartition topicPartition) {
+        PartitionEntry entry = partitions.get(topicPartition);
+        return entry == null ? -1L : entry.coveredTo();
+    }
+
+    // first indexed offset of the group within [from, to), to if there is none
+    public long nextOffset(String groupID, TopicPartition topicPartition, long from, long to) {
+        long id = parseGroupID(groupID);
+        GroupEntry entry = id < 0 ? null : loadGroup(id, topicPartition);
+        if (entry == null) {
+            // unknown, read through
+            return from;
+        }
+        return entry.next(topicPartition, from, to);
+    }
+
+    private void flush() {
+        for (PartitionEntry entry : partitions.values()) {
+            try {
+                entry.flush();
+            } catch (IOException e) {
+                LOGGER.error("Flush index of {} error.", entry.topicPartition, e);
+            }
+        }
+    }
+
+    private void trim() {
+        long oldest = oldestDay();
+        Map<TopicPartition, Long> retained = new HashMap<>(partitions.size());
+        for (PartitionEntry entry : partitions.values()) {
+            retained.put(entry.topicPartition, entry.trim(oldest));
+        }
+        synchronized (groups) {
+            groups.values().removeIf(entry -> entry.trim(retained));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        scheduler.shutdownNow();
+        flush();
+        for (PartitionEntry entry : partitions.values()) {
+            entry.close();
+        }
+    }
+
+    private static class LongArray {
+        long[] values = new long[4];
+        int size;
+
+        void add(long value) {
+            if (size > 0 && values[size - 1] >= value) {
+                if (values[size - 1] == value) {
+                    return;
+                }
+                // out of order after a rebalance, keep the array sorted
+                int n = Arrays.binarySearch(values, 0, size, value);
+                if (n >= 0) {
+                    return;
+                }
+                insert(-n - 1, value);
+                return;
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size << 1);
+            }
+            values[size++] = value;
+        }
+
+        private void insert(int index, long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size << 1);
+            }
+            System.arraycopy(values, index, values, index + 1, size - index);
+            values[index] = value;
+            size++;
+        }
+
+        long ceiling(long value, long defaultValue) {
+            int n = Arrays.binarySearch(values, 0, size, value);
+            if (n < 0) {
+                n = -n - 1;
+            }
+            return n < size ? values[n] : defaultValue;
+        }
+
+        void removeBelow(long value) {
+            int n = Arrays.binarySearch(values, 0, size, value);
+            if (n < 0) {
+                n = -n - 1;
+            }
+            if (n > 0) {
+                System.arraycopy(values, n, values, 0, size - n);
+                size -= n;
+            }
+        }
+    }
+
+    private interface EntryConsumer {
+        void accept(long groupID, long offset);
+    }
+
+    private static class GroupEntry {
+        final Map<TopicPartition, LongArray> offsets;
+        final Set<TopicPartition> loaded;
+
+        GroupEntry(long groupID) {
+            offsets = new HashMap<>(2);
+            loaded = new HashSet<>(2);
+        }
+
+        synchronized boolean isLoaded(TopicPartition topicPartition) {
+            return loaded.contains(topicPartition);
+        }
+
+        synchronized void load(TopicPartition topicPartition, List<Long> values) {
+            LongArray array = offsets.computeIfAbsent(topicPartition, key -> new LongArray());
+            for (long value : values) {
+                array.add(value);
+            }
+            loaded.add(topicPartition);
+        }
+
+        synchronized void add(TopicPartition topicPartition, long offset) {
+            offsets.computeIfAbsent(topicPartition, key -> new LongArray()).add(offset);
+        }
+
+        synchronized long next(TopicPartition topicPartition, long from, long to) {
+            LongArray array = offsets.get(topicPartition);
+            if (array == null) {
+                return to;
+            }
+            return Math.min(array.ceiling(from, to), to);
+        }
+
+        synchronized boolean trim(Map<TopicPartition, Long> retained) {
+            Iterator<Map.Entry<TopicPartition, LongArray>> iterator = offsets.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<TopicPartition, LongArray> entry = iterator.next();
+                Long offset = retained.get(entry.getKey());
+                if (offset != null) {
+                    entry.getValue().removeBelow(offset);
+                }
+                if (entry.getValue().size == 0) {
+                    iterator.remove();
+                    loaded.remove(entry.getKey());
+                }
+            }
+            return offsets.isEmpty();
+        }
+    }
+
+    private class PartitionEntry {
+        final TopicPartition topicPartition;
+        final TreeMap<Long, Long> days;
+        final ByteBuffer pending;
+        long coveredFrom;
+        long coveredTo;
+        long day;
+        long channelDay;
+        FileChannel channel;
+        boolean dirty;
+
+        PartitionEntry(TopicPartition topicPartition) {
+            this.topicPartition = topicPartition;
+            this.days = new TreeMap<>();
+            this.pending = ByteBuffer.allocate(ENTRY_SIZE * 1024);
+            this.coveredFrom = -1L;
+            this.coveredTo = -1L;
+            this.day = -1L;
+            this.channelDay = -1L;
+        }
+
+        private String prefix() {
+            return topicPartition.topic() + "-" + topicPartition.partition();
+        }
+
+        synchronized void loadCoverage(File file) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(16);
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                while (buffer.hasRemaining() && channel.read(buffer) > 0) {
+                }
+            }
+            if (buffer.position() == 16) {
+                buffer.flip();
+                coveredFrom = buffer.getLong();
+                coveredTo = buffer.getLong();
+            }
+        }
+
+        synchronized void checkpoint(long day, long offset) {
+            Long first = days.get(day);
+            if (first == null || offset < first) {
+                days.put(day, offset);
+            }
+        }
+
+        synchronized long coveredFrom() {
+            return coveredFrom;
+        }
+
+        synchronized long coveredTo() {
+            return coveredTo;
+        }
+
+        synchronized void append(long groupID, long offset, long timestamp) {
+            if (offset != coveredTo || coveredFrom < 0) {
+                // a gap in consumption, only claim coverage from here on
+                coveredFrom = offset;
+            }
+            coveredTo = offset + 1;
+            dirty = true;
+            long d = timestamp / DAY;
+            checkpoint(Math.max(d, days.isEmpty() ? d : days.lastKey()), offset);
+            if (groupID < 0) {
+                return;
+            }
+            if (d != day && day >= 0) {
+                try {
+                    flush();
+                } catch (IOException e) {
+                    LOGGER.error("Flush index of {} error.", topicPartition, e);
+                }
+            }
+            day = d;
+            if (!pending.hasRemaining()) {
+                try {
+                    flush();
+                } catch (IOException e) {
+                    LOGGER.error("Flush index of {} error.", topicPartition, e);
+                    pending.clear();
+                }
+            }
+            pending.putLong(groupID).putLong(offset).putLong(timestamp);
+        }
+
+        synchronized void flush() throws IOException {
+            if (pending.position() > 0) {
+                if (channel == null || channelDay != day) {
+                    if (channel != null) {
+                        channel.close();
+                    }
+                    File file = new File(dir, prefix() + "." + day + INDEX_SUFFIX);
+                    channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                            StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                    channelDay = day;
+                }
+                pending.flip();
+                while (pending.hasRemaining()) {
+                    channel.write(pending);
+                }
+                pending.clear();
+            }
+            if (dirty) {
+                ByteBuffer buffer = ByteBuffer.allocate(16);
+                buffer.putLong(coveredFrom).putLong(coveredTo).flip();
+                File file = new File(dir, prefix() + COVERAGE_SUFFIX);
+                try (FileChannel c = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                    while (buffer.hasRemaining()) {
+                        c.write(buffer);
+                    }
+                }
+                dirty = false;
+            }
+        }
+
+        synchronized long trim(long oldest) {
+            long retained = -1L;
+            while (!days.isEmpty() && days.firstKey() < oldest) {
+                days.pollFirstEntry();
+            }
+            if (!days.isEmpty()) {
+                retained = days.firstEntry().getValue();
+            }
+            if (retained > coveredFrom && coveredFrom >= 0) {
+                coveredFrom = Math.min(retained, coveredTo);
+                dirty = true;
+            }
+            File[] files = dir.listFiles((d, name) -> name.startsWith(prefix() + ".") && name.endsWith(INDEX_SUFFIX));
+            if (files != null) {
+                for (File file : files) {
+                    String name = file.getName();
+                    try {
+                        long day = Long.parseLong(name.substring(prefix().length() + 1, name.length() - INDEX_SUFFIX.length()));
+                        if (day < oldest && !file.delete()) {
+                            LOGGER.warn("Delete expired index file {} error.", file);
+                        }
+                    } catch (NumberFormatException e) {
+                        LOGGER.warn("Skip unknown index file {}.", file);
+                    }
+                }
+            }
+            return retained;
+        }
+
+        synchronized void close() throws IOException {
+            if (channel != null) {
+                channel.close();
+                channel = null;
+            }
+        }
+    }
+}
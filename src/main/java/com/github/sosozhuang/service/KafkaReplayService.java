@@ -0,0 +1,463 @@
+package com.github.sosozhuang.service;
+
+import com.github.sosozhuang.conf.KafkaConfig;
+import com.github.sosozhuang.protobuf.Chat;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndTimestamp;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+public class KafkaReplayService implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(KafkaReplayService.class);
+    private static final int MAX_BATCH = 100;
+    private static final int SKIP_THRESHOLD = 512;
+    private final KafkaConfig config;
+    private volatile KafkaOffsetIndex index;
+    private final BiFunction<String, Long, List<String>> topicMapper;
+    private final Properties props;
+    private final ScheduledExecutorService readers;
+    private final ThreadLocal<KafkaConsumer<String, byte[]>> reader;
+    private final List<KafkaConsumer<String, byte[]>> consumers;
+    private final Map<String, List<Scan>> scans;
+    private final Map<Chat.Access, Cursor> cursors;
+    // cursors dropped from a running scan, a reader coming back skips what it already got
+    private final Map<Chat.Access, Cursor> parked;
+    private final int bufferSize;
+    private final long pollTimeout;
+    private final long idleTimeout;
+
+    public KafkaReplayService(KafkaConfig config, KafkaOffsetIndex index, BiFunction<String, Long, List<String>> topicMapper) {
+        this.config = config;
+        this.index = index;
+        this.topicMapper = topicMapper;
+        props = new Properties();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, config.getServers("localhost:9092"));
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, 1000);
+        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, "org.apache.kafka.common.serialization.StringDeserializer");
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, "org.apache.kafka.common.serialization.ByteArrayDeserializer");
+
+        AtomicInteger counter = new AtomicInteger();
+        readers = Executors.newScheduledThreadPool(Math.max(1, config.getReplayReaders(2)), r -> {
+            Thread thread = new Thread(r, "kafka-replay-" + counter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        reader = new ThreadLocal<>();
+        consumers = Collections.synchronizedList(new ArrayList<>(4));
+        scans = new HashMap<>();
+        cursors = new ConcurrentHashMap<>();
+        parked = new ConcurrentHashMap<>();
+        bufferSize = config.getReplayBufferSize(4096);
+        pollTimeout = config.getConsumerPollTimeout(1000);
+        idleTimeout = config.getReplayIdleTimeout(60000);
+        readers.scheduleWithFixedDelay(this::expire, idleTimeout, idleTimeout, TimeUnit.MILLISECONDS);
+    }
+
+    private KafkaConsumer<String, byte[]> reader() {
+        KafkaConsumer<String, byte[]> consumer = reader.get();
+        if (consumer == null) {
+            consumer = new KafkaConsumer<>(props);
+            consumers.add(consumer);
+            reader.set(consumer);
+        }
+        return consumer;
+    }
+
+    public <K, V> Iterable<MessageRecord<K, V>> receive(String user, Chat.Group group, long timestamp) {
+        Chat.Access.Builder builder = Chat.Access.newBuilder();
+        builder.setUser(user);
+        builder.setGroupId(group.getId());
+        builder.setTimestamp(timestamp);
+        Chat.Access access = builder.build();
+        Cursor cursor = cursors.computeIfAbsent(access, this::openCursor);
+        List<ConsumerRecord<String, byte[]>> records = cursor.next();
+        if (records == null) {
+            LOGGER.info("No more message to replay.");
+            cursors.remove(access, cursor);
+            return null;
+        }
+        List<MessageRecord<K, V>> messages = new ArrayList<>(records.size());
+        records.forEach(record -> {
+            messages.add(new MessageRecord(record.key(), record.value(), KafkaMessageService.fromKafkaHeaders(record.headers())));
+        });
+        return messages;
+    }
+
+    private Cursor openCursor(Chat.Access access) {
+        Cursor cursor = new Cursor(access, parked.remove(access));
+        String groupID = access.getGroupId();
+        synchronized (scans) {
+            List<Scan> list = scans.computeIfAbsent(groupID, key -> new ArrayList<>(1));
+            for (Scan scan : list) {
+                if (scan.join(cursor)) {
+                    return cursor;
+                }
+            }
+            Scan scan = new Scan(groupID, topicMapper.apply(groupID, access.getTimestamp()), access.getTimestamp());
+            scan.join(cursor);
+            list.add(scan);
+            readers.execute(scan);
+        }
+        return cursor;
+    }
+
+    // scans read through every record from now on
+    void disableIndex() {
+        index = null;
+    }
+
+    // drops idle cursors so they no longer hold the buffer of their scan, a slow reader
+    // coming back reopens its cursor and skips the records it already got
+    private void expire() {
+        long now = System.currentTimeMillis();
+        parked.values().removeIf(cursor -> now - cursor.lastAccess >= 2 * idleTimeout);
+        cursors.values().removeIf(cursor -> {
+            if (now - cursor.lastAccess < idleTimeout) {
+                return false;
+            }
+            cursor.scan.leave(cursor);
+            parked.put(cursor.access, cursor);
+            return true;
+        });
+    }
+
+    @Override
+    public void close() throws IOException {
+        readers.shutdownNow();
+        try {
+            readers.awaitTermination(config.getConsumerCloseTimeout(100) + pollTimeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (consumers) {
+            for (KafkaConsumer<String, byte[]> consumer : consumers) {
+                consumer.wakeup();
+                consumer.close(config.getConsumerCloseTimeout(100), TimeUnit.MILLISECONDS);
+            }
+            consumers.clear();
+        }
+        cursors.clear();
+        parked.clear();
+    }
+
+    private class Scan implements Runnable {
+        final String groupID;
+        // read one after another, oldest routing first
+        final List<String> topics;
+        int topicIndex;
+        String topic;
+        final long timestamp;
+        final List<ConsumerRecord<String, byte[]>> buffer;
+        final List<Cursor> members;
+        long base;
+        long trimmedTimestamp;
+        Map<TopicPartition, Long> positions;
+        Map<TopicPartition, Long> endOffsets;
+        // a cursor joined after the end offsets were taken
+        boolean extend;
+        volatile boolean finished;
+
+        Scan(String groupID, List<String> topics, long timestamp) {
+            this.groupID = groupID;
+            this.topics = topics;
+            this.topicIndex = 0;
+            this.topic = topics.isEmpty() ? null : topics.get(0);
+            this.timestamp = timestamp;
+            this.buffer = new ArrayList<>();
+            this.members = new ArrayList<>();
+            this.base = 0L;
+            this.trimmedTimestamp = -1L;
+            this.finished = false;
+        }
+
+        synchronized boolean join(Cursor cursor) {
+            // a scan only serves cursors whose records have not been trimmed yet
+            if (finished || cursor.timestamp < timestamp || cursor.timestamp <= trimmedTimestamp) {
+                return false;
+            }
+            cursor.scan = this;
+            cursor.index = base;
+            members.add(cursor);
+            extend = true;
+            return true;
+        }
+
+        synchronized void leave(Cursor cursor) {
+            cursor.left = true;
+            members.remove(cursor);
+            trim();
+        }
+
+        private synchronized boolean extended() {
+            boolean value = extend;
+            extend = false;
+            return value;
+        }
+
+        synchronized List<ConsumerRecord<String, byte[]>> take(Cursor cursor) {
+            if (cursor.left) {
+                // expired while being read, the next receive reopens it
+                return Collections.emptyList();
+            }
+            long end = base + buffer.size();
+            if (cursor.index >= end) {
+                if (finished) {
+                    members.remove(cursor);
+                    return null;
+                }
+                return Collections.emptyList();
+            }
+            List<ConsumerRecord<String, byte[]>> records = new ArrayList<>(MAX_BATCH);
+            while (cursor.index < end && records.size() < MAX_BATCH) {
+                ConsumerRecord<String, byte[]> record = buffer.get((int) (cursor.index++ - base));
+                if (record.timestamp() >= cursor.timestamp && cursor.pass(record)) {
+                    records.add(record);
+                }
+            }
+            trim();
+            return records;
+        }
+
+        private void trim() {
+            long min = base + buffer.size();
+            for (Cursor member : members) {
+                min = Math.min(min, member.index);
+            }
+            int n = (int) (min - base);
+            if (n <= 0 || (n < MAX_BATCH && n < buffer.size())) {
+                return;
+            }
+            List<ConsumerRecord<String, byte[]>> trimmed = buffer.subList(0, n);
+            for (ConsumerRecord<String, byte[]> record : trimmed) {
+                trimmedTimestamp = Math.max(trimmedTimestamp, record.timestamp());
+            }
+            trimmed.clear();
+            base += n;
+        }
+
+        private synchronized boolean full() {
+            return buffer.size() >= bufferSize;
+        }
+
+        private synchronized void append(List<ConsumerRecord<String, byte[]>> records) {
+            buffer.addAll(records);
+        }
+
+        // a scan only finishes when no cursor has joined since the end offsets were
+        // taken, unless forced by an error
+        private boolean finish(boolean force) {
+            synchronized (this) {
+                if (extend && !force) {
+                    return false;
+                }
+                finished = true;
+            }
+            synchronized (scans) {
+                List<Scan> list = scans.get(groupID);
+                if (list != null) {
+                    list.remove(this);
+                    if (list.isEmpty()) {
+                        scans.remove(groupID);
+                    }
+                }
+            }
+            return true;
+        }
+
+        private void seek(KafkaConsumer<String, byte[]> consumer) {
+            List<TopicPartition> partitions = consumer.partitionsFor(topic).stream().map(partitionInfo -> {
+                return new TopicPartition(topic, partitionInfo.partition());
+            }).collect(Collectors.toList());
+            Map<TopicPartition, Long> timestamps = partitions.stream().collect(Collectors.toMap(Function.identity(), partition -> {
+                return timestamp;
+            }));
+            Map<TopicPartition, OffsetAndTimestamp> offsets = consumer.offsetsForTimes(timestamps);
+            synchronized (this) {
+                // cursors joined so far are covered by these end offsets
+                extend = false;
+            }
+            endOffsets = consumer.endOffsets(partitions);
+            positions = new HashMap<>(partitions.size());
+            offsets.forEach((topicPartition, offsetAndTimestamp) -> {
+                if (offsetAndTimestamp != null) {
+                    positions.put(topicPartition, offsetAndTimestamp.offset());
+                }
+            });
+            skip();
+        }
+
+        // moves the end offsets of the newest topic forward for cursors that joined late,
+        // older topics no longer receive messages of the group
+        private void extend(KafkaConsumer<String, byte[]> consumer) {
+            if (!extended() || topicIndex < topics.size() - 1) {
+                return;
+            }
+            Map<TopicPartition, Long> ends = consumer.endOffsets(endOffsets.keySet());
+            ends.forEach((topicPartition, end) -> {
+                long previous = endOffsets.getOrDefault(topicPartition, 0L);
+                if (end > previous && !positions.containsKey(topicPartition)) {
+                    // everything before the previous end has been read or was too old
+                    positions.put(topicPartition, previous);
+                }
+            });
+            endOffsets = ends;
+        }
+
+        // jump over records of other groups where the offset index covers the partition
+        private void skip() {
+            KafkaOffsetIndex index = KafkaReplayService.this.index;
+            if (index == null) {
+                return;
+            }
+            Iterator<Map.Entry<TopicPartition, Long>> iterator = positions.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<TopicPartition, Long> entry = iterator.next();
+                TopicPartition topicPartition = entry.getKey();
+                long position = entry.getValue();
+                long from = index.coveredFrom(topicPartition);
+                long to = index.coveredTo(topicPartition);
+                if (from < 0 || position < from || position >= to) {
+                    continue;
+                }
+                long next = index.nextOffset(groupID, topicPartition, position, to);
+                if (next - position < SKIP_THRESHOLD) {
+                    // cheaper to read through than to issue another fetch
+                    continue;
+                }
+                if (next >= endOffsets.getOrDefault(topicPartition, 0L)) {
+                    iterator.remove();
+                } else {
+                    entry.setValue(next);
+                }
+            }
+        }
+
+        private void poll(KafkaConsumer<String, byte[]> consumer) {
+            Set<TopicPartition> assigned = positions.keySet();
+            if (!consumer.assignment().equals(assigned)) {
+                consumer.assign(assigned);
+                positions.forEach(consumer::seek);
+            } else {
+                positions.forEach((topicPartition, offset) -> {
+                    if (consumer.position(topicPartition) != offset) {
+                        consumer.seek(topicPartition, offset);
+                    }
+                });
+            }
+
+            ConsumerRecords<String, byte[]> records = consumer.poll(pollTimeout);
+            List<ConsumerRecord<String, byte[]>> matched = new ArrayList<>();
+            for (TopicPartition topicPartition : assigned) {
+                long end = endOffsets.getOrDefault(topicPartition, 0L);
+                for (ConsumerRecord<String, byte[]> record : records.records(topicPartition)) {
+                    if (record.offset() >= end) {
+                        break;
+                    }
+                    if (groupID.equals(record.key())) {
+                        matched.add(record);
+                    }
+                }
+            }
+            append(matched);
+            Iterator<Map.Entry<TopicPartition, Long>> iterator = positions.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<TopicPartition, Long> entry = iterator.next();
+                long position = consumer.position(entry.getKey());
+                if (position >= endOffsets.getOrDefault(entry.getKey(), 0L)) {
+                    iterator.remove();
+                } else {
+                    entry.setValue(position);
+                }
+            }
+            skip();
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (full()) {
+                    readers.schedule(this, 10, TimeUnit.MILLISECONDS);
+                    return;
+                }
+                KafkaConsumer<String, byte[]> consumer = reader();
+                if (topic == null) {
+                    finish(true);
+                    return;
+                }
+                if (positions == null) {
+                    seek(consumer);
+                } else {
+                    extend(consumer);
+                }
+                if (!positions.isEmpty()) {
+                    poll(consumer);
+                }
+                if (positions.isEmpty()) {
+                    if (topicIndex < topics.size() - 1) {
+                        topic = topics.get(++topicIndex);
+                        positions = null;
+                    } else if (finish(false)) {
+                        return;
+                    }
+                }
+                readers.execute(this);
+            } catch (RejectedExecutionException e) {
+                finish(true);
+            } catch (RuntimeException e) {
+                LOGGER.error("Replay group[{}] from topic {} error.", groupID, topic, e);
+                finish(true);
+            }
+        }
+    }
+
+    private static class Cursor {
+        final Chat.Access access;
+        final long timestamp;
+        volatile Scan scan;
+        long index;
+        volatile long lastAccess;
+        boolean left;
+        // highest offset taken per partition, records of a partition are taken in order
+        final Map<TopicPartition, Long> taken;
+
+        Cursor(Chat.Access access, Cursor previous) {
+            this.access = access;
+            this.timestamp = access.getTimestamp();
+            this.lastAccess = System.currentTimeMillis();
+            this.taken = previous == null ? new HashMap<>() : previous.taken;
+        }
+
+        boolean pass(ConsumerRecord<String, byte[]> record) {
+            TopicPartition topicPartition = new TopicPartition(record.topic(), record.partition());
+            Long offset = taken.get(topicPartition);
+            if (offset != null && record.offset() <= offset) {
+                return false;
+            }
+            taken.put(topicPartition, record.offset());
+            return true;
+        }
+
+        List<ConsumerRecord<String, byte[]>> next() {
+            lastAccess = System.currentTimeMillis();
+            return scan.take(this);
+        }
+    }
+}
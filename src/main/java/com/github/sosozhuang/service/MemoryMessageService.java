@@ -0,0 +1,257 @@
+package com.github.sosozhuang.service;
+
+import com.github.sosozhuang.conf.MemoryConfig;
+import com.github.sosozhuang.protobuf.Chat;
+import io.netty.util.internal.MathUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Message service inside the JVM for a single server and for benchmarks without a broker.
+// Records go to a ring of preallocated slots, a producer claims a sequence and publishes
+// the slot, consumers claim runs of published sequences. The ring overwrites its oldest
+// slots, so it is also the recent history replay reads from.
+public class MemoryMessageService implements CloseableMessageService, HistoryService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MemoryMessageService.class);
+    private final AtomicReferenceArray<Entry> ring;
+    private final int mask;
+    private final int batchSize;
+    private final long pollTimeout;
+    private final long idleTimeout;
+    private final AtomicLong nextExpire;
+    // next sequence to publish
+    private final AtomicLong claimed;
+    // next sequence to deliver live
+    private final AtomicLong consumed;
+    private final AtomicLong dropped;
+    private final Map<Chat.Access, Cursor> cursors;
+    private final ReentrantLock lock;
+    private final Condition published;
+    // changed under the lock
+    private volatile int waiters;
+
+    public MemoryMessageService(MemoryConfig config) {
+        int capacity = MathUtil.safeFindNextPositivePowerOfTwo(config.getCapacity(65536));
+        ring = new AtomicReferenceArray<>(capacity);
+        mask = capacity - 1;
+        batchSize = Math.max(1, config.getBatch(256));
+        pollTimeout = config.getPollTimeout(100L);
+        idleTimeout = Math.max(1000L, config.getIdleTimeout(60000L));
+        nextExpire = new AtomicLong();
+        claimed = new AtomicLong();
+        consumed = new AtomicLong();
+        dropped = new AtomicLong();
+        cursors = new ConcurrentHashMap<>();
+        lock = new ReentrantLock();
+        published = lock.newCondition();
+    }
+
+    @Override
+    public void send(String user, Chat.Group group, MessageRecord record) {
+        long sequence = claimed.getAndIncrement();
+        Entry entry = new Entry(sequence, record.getTimestamp() > 0 ? record.getTimestamp() : System.currentTimeMillis(), record);
+        int index = (int) sequence & mask;
+        Entry current;
+        // a slow producer must not overwrite a later lap
+        while (((current = ring.get(index)) == null || current.sequence < sequence)
+                && !ring.compareAndSet(index, current, entry)) {
+            // retry
+        }
+        if (waiters > 0) {
+            lock.lock();
+            try {
+                published.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public <K, V> Iterable<MessageRecord<K, V>> receive() {
+        List<MessageRecord<K, V>> records = poll();
+        if (records.isEmpty()) {
+            lock.lock();
+            try {
+                waiters++;
+                // recheck once registered, a send may have just missed the waiter
+                records = poll();
+                if (records.isEmpty()) {
+                    published.await(pollTimeout, TimeUnit.MILLISECONDS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                waiters--;
+                lock.unlock();
+            }
+            if (records.isEmpty()) {
+                records = poll();
+            }
+        }
+        return records;
+    }
+
+    // claims a run of published sequences, skipping what the ring has overwritten
+    private <K, V> List<MessageRecord<K, V>> poll() {
+        while (true) {
+            long from = consumed.get();
+            long oldest = claimed.get() - ring.length();
+            if (from < oldest) {
+                if (consumed.compareAndSet(from, oldest)) {
+                    LOGGER.warn("Live consumers fell behind, {} records dropped.", dropped.addAndGet(oldest - from));
+                }
+                continue;
+            }
+            List<MessageRecord<K, V>> records = null;
+            long to = from;
+            Entry entry;
+            while (to - from < batchSize && (entry = ring.get((int) to & mask)) != null && entry.sequence == to) {
+                if (records == null) {
+                    records = new ArrayList<>();
+                }
+                records.add((MessageRecord<K, V>) entry.record);
+                to++;
+            }
+            if (to == from) {
+                return Collections.emptyList();
+            }
+            if (consumed.compareAndSet(from, to)) {
+                return records;
+            }
+        }
+    }
+
+    @Override
+    public <K, V> Iterable<MessageRecord<K, V>> receive(String user, Chat.Group group, long timestamp) {
+        Chat.Access.Builder builder = Chat.Access.newBuilder();
+        builder.setUser(user);
+        builder.setGroupId(group.getId());
+        builder.setTimestamp(timestamp);
+        Chat.Access access = builder.build();
+        // replay stops at the sequence it began with, later messages arrive live
+        Cursor cursor = cursors.computeIfAbsent(access, key -> {
+            long end = claimed.get();
+            return new Cursor(search(Math.max(0L, end - ring.length()), end, timestamp), end);
+        });
+        long now = System.currentTimeMillis();
+        cursor.accessAt = now;
+        expire(now);
+        String groupID = group.getId();
+        List<MessageRecord<K, V>> records = new ArrayList<>();
+        long next = Math.max(cursor.next, claimed.get() - ring.length());
+        Entry entry;
+        for (; next < cursor.end && records.size() < batchSize; next++) {
+            entry = ring.get((int) next & mask);
+            // overwritten or not yet published
+            if (entry == null || entry.sequence != next || entry.timestamp < timestamp) {
+                continue;
+            }
+            MessageRecord record = entry.record;
+            if (groupID.equals(record.getKey()) && !MessageHeaders.isControl(record.getHeaders())) {
+                records.add((MessageRecord<K, V>) record);
+            }
+        }
+        cursor.next = next;
+        if (records.isEmpty() && next >= cursor.end) {
+            cursors.remove(access, cursor);
+            return null;
+        }
+        return records;
+    }
+
+    // first sequence in [from, to) sent at or after the timestamp, the ring is in send
+    // order and a slot is stamped right after its sequence is claimed
+    private long search(long from, long to, long timestamp) {
+        long low = from;
+        long high = to;
+        Entry entry;
+        while (low < high) {
+            long middle = (low + high) >>> 1;
+            entry = ring.get((int) middle & mask);
+            if (entry != null && (entry.sequence > middle || entry.sequence == middle && entry.timestamp < timestamp)) {
+                // overwritten by a later lap or sent before the timestamp
+                low = middle + 1;
+            } else {
+                // not yet published slots are kept, the scan skips them
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    // drops cursors of replays abandoned before reading to the end
+    private void expire(long now) {
+        long next = nextExpire.get();
+        if (now < next || !nextExpire.compareAndSet(next, now + idleTimeout / 2)) {
+            return;
+        }
+        cursors.values().removeIf(cursor -> now - cursor.accessAt > idleTimeout);
+    }
+
+    @Override
+    public <K, V> List<MessageRecord<K, V>> history(String groupID, long before, int limit) {
+        List<MessageRecord<K, V>> records = new ArrayList<>();
+        long end = claimed.get();
+        long oldest = Math.max(0L, end - ring.length());
+        Entry entry;
+        for (long sequence = end - 1; sequence >= oldest && records.size() < limit; sequence--) {
+            entry = ring.get((int) sequence & mask);
+            if (entry == null || entry.sequence != sequence || entry.timestamp >= before) {
+                continue;
+            }
+            MessageRecord record = entry.record;
+            if (groupID.equals(record.getKey()) && !MessageHeaders.isControl(record.getHeaders())) {
+                // the slot's record is shared with live consumers
+                MessageRecord<K, V> copy = new MessageRecord<>((K) record.getKey(), (V) record.getValue(), record.getHeaders());
+                copy.setTimestamp(entry.timestamp);
+                records.add(copy);
+            }
+        }
+        Collections.reverse(records);
+        return records;
+    }
+
+    @Override
+    public void close() throws IOException {
+        cursors.clear();
+        for (int i = 0; i < ring.length(); i++) {
+            ring.set(i, null);
+        }
+    }
+
+    private static final class Entry {
+        final long sequence;
+        final long timestamp;
+        final MessageRecord record;
+
+        Entry(long sequence, long timestamp, MessageRecord record) {
+            this.sequence = sequence;
+            this.timestamp = timestamp;
+            this.record = record;
+        }
+    }
+
+    private static final class Cursor {
+        final long end;
+        volatile long next;
+        volatile long accessAt;
+
+        Cursor(long next, long end) {
+            this.next = next;
+            this.end = end;
+            this.accessAt = System.currentTimeMillis();
+        }
+    }
+}
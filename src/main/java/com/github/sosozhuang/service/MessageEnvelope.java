@@ -0,0 +1,52 @@
+package com.github.sosozhuang.service;
+
+import com.github.sosozhuang.protobuf.Chat;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.UnsafeByteOperations;
+import com.google.protobuf.WireFormat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// A broker record carries either one serialized Chat.Message or a Chat.MessageBatch
+// of messages from the same group.
+public final class MessageEnvelope {
+    private static final int TYPE_TAG = Chat.Message.TYPE_FIELD_NUMBER << 3 | WireFormat.WIRETYPE_VARINT;
+
+    private MessageEnvelope() {}
+
+    // both start with the type field, a batch is told apart by its first two bytes
+    public static boolean isBatch(byte[] value) {
+        return value != null && value.length > 1 && value[0] == TYPE_TAG
+                && value[1] == Chat.MessageType.BATCH_VALUE;
+    }
+
+    public static byte[] pack(String groupID, long serverID, List<byte[]> messages) {
+        if (messages.size() == 1) {
+            return messages.get(0);
+        }
+        Chat.MessageBatch.Builder builder = Chat.MessageBatch.newBuilder();
+        builder.setType(Chat.MessageType.BATCH);
+        builder.setGroupId(groupID);
+        builder.setServerId(serverID);
+        builder.setCreateAt(System.currentTimeMillis());
+        for (byte[] message : messages) {
+            builder.addMessages(UnsafeByteOperations.unsafeWrap(message));
+        }
+        return builder.build().toByteArray();
+    }
+
+    public static List<byte[]> unpack(byte[] value) throws InvalidProtocolBufferException {
+        if (!isBatch(value)) {
+            return Collections.singletonList(value);
+        }
+        Chat.MessageBatch batch = Chat.MessageBatch.parseFrom(value);
+        List<byte[]> messages = new ArrayList<>(batch.getMessagesCount());
+        for (ByteString message : batch.getMessagesList()) {
+            messages.add(message.toByteArray());
+        }
+        return messages;
+    }
+}
@@ -0,0 +1,54 @@
+package com.github.sosozhuang.service;
+
+import com.github.sosozhuang.protobuf.Chat;
+
+// Routing fields of a record kept next to its value, so consumers can drop or route
+// a record without parsing it. Kafka stores them as record headers, ActiveMQ as
+// message properties.
+public class MessageHeaders {
+    public static final String SERVER_ID = "server_id";
+    public static final String GROUP_ID = "group_id";
+    public static final String TYPE = "type";
+    private final long serverID;
+    private final String groupID;
+    private final Chat.MessageType type;
+
+    public MessageHeaders(long serverID, String groupID, Chat.MessageType type) {
+        this.serverID = serverID;
+        this.groupID = groupID;
+        this.type = type;
+    }
+
+    public static MessageHeaders of(Chat.Message message) {
+        return new MessageHeaders(message.getServerId(), message.getGroupId(), message.getType());
+    }
+
+    // returns null unless all fields are present and valid
+    public static MessageHeaders parse(String serverID, String groupID, String type) {
+        if (serverID == null || groupID == null || type == null) {
+            return null;
+        }
+        try {
+            return new MessageHeaders(Long.parseUnsignedLong(serverID), groupID, Chat.MessageType.valueOf(type));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    // login, logout and other membership events, which are not part of history
+    public static boolean isControl(MessageHeaders headers) {
+        return headers != null && headers.type != Chat.MessageType.CHAT && headers.type != Chat.MessageType.BATCH;
+    }
+
+    public long getServerID() {
+        return serverID;
+    }
+
+    public String getGroupID() {
+        return groupID;
+    }
+
+    public Chat.MessageType getType() {
+        return type;
+    }
+}
@@ -3,11 +3,19 @@ package com.github.sosozhuang.service;
 public class MessageRecord <K, V> {
     private K key;
     private V value;
+    private MessageHeaders headers;
+    // time the record was first sent, zero when it is sent now
+    private long timestamp;
     public MessageRecord() {}
     public MessageRecord(K key, V value) {
         this.key = key;
         this.value = value;
     }
+    public MessageRecord(K key, V value, MessageHeaders headers) {
+        this.key = key;
+        this.value = value;
+        this.headers = headers;
+    }
 
     public K getKey() {
         return key;
@@ -24,4 +32,20 @@ public class MessageRecord <K, V> {
     public void setValue(V value) {
         this.value = value;
     }
+
+    public MessageHeaders getHeaders() {
+        return headers;
+    }
+
+    public void setHeaders(MessageHeaders headers) {
+        this.headers = headers;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
 }
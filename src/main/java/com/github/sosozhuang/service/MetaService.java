@@ -13,8 +13,14 @@ public interface MetaService {
     public Chat.Server serverInfo(String serverID) throws IOException;
     public Iterable<Chat.Server> listServers() throws IOException;
 
+    public Iterable<Chat.Route> listRoutes() throws IOException;
+    public boolean addRoute(Chat.Route route);
+
     public Chat.Group groupInfo(String groupID) throws IOException;
     public String nextGroupID();
+    // reserves the next count sequence numbers of the group's chat messages, starting
+    // from 1, returns the last of them
+    public long nextSequence(String groupID, int count);
     public boolean createGroup(Chat.Group group);
     public boolean deleteGroup(String groupID);
     public boolean joinGroup(String groupID, String user);
@@ -22,6 +28,10 @@ public interface MetaService {
     public long groupMembersCount(String groupID);
     public Iterable<String> groupMembers(String groupID);
     public Iterable<String> groupMembers(String groupID, int limit);
+    // servers having local members of a group, each entry expires unless refreshed
+    public void addGroupServer(String groupID, String serverID, long expireAt);
+    public boolean removeGroupServer(String groupID, String serverID);
+    public Iterable<String> groupServers(String groupID);
 
     public String lastLoginTime(String groupID, String user);
     public void setLastLoginTime(String groupID, String user, String time);
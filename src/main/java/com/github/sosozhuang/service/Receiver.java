@@ -4,5 +4,6 @@ import com.github.sosozhuang.protobuf.Chat;
 
 public interface Receiver {
     public <K, V> Iterable<MessageRecord<K, V>> receive();
+    // returns an empty iterable when no record is ready yet, null when replay completed
     public <K, V> Iterable<MessageRecord<K, V>> receive(String user, Chat.Group group, long timestamp);
 }
@@ -0,0 +1,440 @@
+package com.github.sosozhuang.service;
+
+import com.github.sosozhuang.conf.RedisConfig;
+import com.github.sosozhuang.protobuf.Chat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.JedisCluster;
+import redis.clients.jedis.Protocol;
+import redis.clients.jedis.exceptions.JedisMovedDataException;
+import redis.clients.util.RedisInputStream;
+import redis.clients.util.RedisOutputStream;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Message service on Redis Streams. A group's history is a stream of its own, so replay
+// is a range read by timestamp ID. Live traffic goes to one stream per shard as well,
+// the history stream shares the shard's hash tag so both are written by one script.
+// Jedis 2.9 has no stream commands, they are issued through EVAL, which cannot block,
+// so each shard stream is read by a thread of its own sending XREAD BLOCK over a plain
+// connection to the node holding it, and live delivery takes from what they queue.
+public class RedisMessageService implements CloseableMessageService, HistoryService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RedisMessageService.class);
+    private static final byte[] KEY_FIELD = "k".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] VALUE_FIELD = "v".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] SERVER_ID_FIELD = MessageHeaders.SERVER_ID.getBytes(StandardCharsets.UTF_8);
+    private static final byte[] GROUP_ID_FIELD = MessageHeaders.GROUP_ID.getBytes(StandardCharsets.UTF_8);
+    private static final byte[] TYPE_FIELD = MessageHeaders.TYPE.getBytes(StandardCharsets.UTF_8);
+    // KEYS[1] shard stream, KEYS[2] optional history stream
+    // ARGV[1] shard length, ARGV[2] history length, ARGV[3] history retention, ARGV[4..] fields
+    private static final byte[] SEND_SCRIPT = ("local id = redis.call('XADD', KEYS[1], 'MAXLEN', '~', ARGV[1], '*', unpack(ARGV, 4)) "
+            + "if KEYS[2] then "
+            + "redis.call('XADD', KEYS[2], 'MAXLEN', '~', ARGV[2], '*', unpack(ARGV, 4)) "
+            + "redis.call('PEXPIRE', KEYS[2], ARGV[3]) "
+            + "end "
+            + "return id").getBytes(StandardCharsets.UTF_8);
+    private static final byte[] LAST_ID_SCRIPT = ("local entries = redis.call('XREVRANGE', KEYS[1], '+', '-', 'COUNT', 1) "
+            + "if entries[1] then return entries[1][1] end "
+            + "return '0-0'").getBytes(StandardCharsets.UTF_8);
+    private static final byte[] XREAD = "XREAD".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] COUNT = "COUNT".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] BLOCK = "BLOCK".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] STREAMS = "STREAMS".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] RANGE_SCRIPT = "return redis.call('XRANGE', KEYS[1], ARGV[1], ARGV[2], 'COUNT', ARGV[3])"
+            .getBytes(StandardCharsets.UTF_8);
+    private static final byte[] REVERSE_RANGE_SCRIPT = "return redis.call('XREVRANGE', KEYS[1], ARGV[1], '-', 'COUNT', ARGV[2])"
+            .getBytes(StandardCharsets.UTF_8);
+    private final RedisConfig config;
+    private volatile JedisCluster jedisCluster;
+    private final String STREAM_KEY;
+    private final String separator;
+    private final Shard[] shards;
+    // records read by the shard threads, bounded so they stop reading while dispatch lags
+    private final BlockingQueue<MessageRecord> live;
+    private final AtomicBoolean started;
+    private volatile boolean running;
+    private final Map<Chat.Access, Cursor> cursors;
+    private final byte[] liveLength;
+    private final byte[] historyLength;
+    private final byte[] retention;
+    private final byte[] batch;
+    private final int batchSize;
+    private final long pollTimeout;
+    private final byte[] blockTimeout;
+    private final int readTimeout;
+    private final long idleTimeout;
+    private final AtomicLong nextExpire;
+
+    public RedisMessageService(RedisConfig config) {
+        this.config = config;
+        jedisCluster = RedisMetaService.createJedisCluster(config);
+        separator = config.getKeySeparator("::");
+        STREAM_KEY = String.format("%s%s%s%s", config.getKeyPrefix("chat"), separator, "stm", separator);
+        shards = new Shard[Math.max(1, config.getStreamShard(16))];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new Shard(getShardKey(i));
+        }
+        cursors = new ConcurrentHashMap<>();
+        liveLength = String.valueOf(config.getStreamLiveLength(100000L)).getBytes(StandardCharsets.UTF_8);
+        historyLength = String.valueOf(config.getStreamHistoryLength(10000L)).getBytes(StandardCharsets.UTF_8);
+        retention = String.valueOf(config.getStreamRetention(604800000L)).getBytes(StandardCharsets.UTF_8);
+        batchSize = Math.max(1, config.getStreamBatch(256));
+        batch = String.valueOf(batchSize).getBytes(StandardCharsets.UTF_8);
+        pollTimeout = config.getStreamPollTimeout(100L);
+        long block = Math.max(1L, config.getStreamBlockTimeout(1000L));
+        blockTimeout = String.valueOf(block).getBytes(StandardCharsets.UTF_8);
+        readTimeout = (int) (block + config.getSoTimeout(10000));
+        live = new LinkedBlockingQueue<>(batchSize * shards.length);
+        started = new AtomicBoolean(false);
+        running = true;
+        idleTimeout = Math.max(1000L, config.getStreamIdleTimeout(60000L));
+        nextExpire = new AtomicLong();
+    }
+
+    private int mapGroupIDToShard(String groupID) {
+        return (int) (Long.parseLong(groupID) % shards.length);
+    }
+
+    // hash tag keeps a shard and the history of its groups in one slot
+    private byte[] getShardKey(int shard) {
+        return String.format("%s{%d}%slive", STREAM_KEY, shard, separator).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private byte[] getHistoryKey(String groupID) {
+        return String.format("%s{%d}%s%s", STREAM_KEY, mapGroupIDToShard(groupID), separator, groupID).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void send(String user, Chat.Group group, MessageRecord record) {
+        List<byte[]> keys = new ArrayList<>(2);
+        keys.add(shards[mapGroupIDToShard(group.getId())].key);
+        MessageHeaders headers = record.getHeaders();
+        if (!MessageHeaders.isControl(headers)) {
+            // history holds chat only
+            keys.add(getHistoryKey(group.getId()));
+        }
+        List<byte[]> args = new ArrayList<>(13);
+        args.add(liveLength);
+        args.add(historyLength);
+        args.add(retention);
+        args.add(KEY_FIELD);
+        args.add(((String) record.getKey()).getBytes(StandardCharsets.UTF_8));
+        args.add(VALUE_FIELD);
+        args.add((byte[]) record.getValue());
+        if (headers != null) {
+            args.add(SERVER_ID_FIELD);
+            args.add(Long.toUnsignedString(headers.getServerID()).getBytes(StandardCharsets.UTF_8));
+            args.add(GROUP_ID_FIELD);
+            args.add(headers.getGroupID().getBytes(StandardCharsets.UTF_8));
+            args.add(TYPE_FIELD);
+            args.add(headers.getType().name().getBytes(StandardCharsets.UTF_8));
+        }
+        jedisCluster.eval(SEND_SCRIPT, keys, args);
+    }
+
+    @Override
+    public <K, V> Iterable<MessageRecord<K, V>> receive() {
+        if (started.compareAndSet(false, true)) {
+            // live delivery starts from the tails at the first receive
+            for (Shard shard : shards) {
+                shard.start();
+            }
+        }
+        List<MessageRecord<K, V>> records = new ArrayList<>();
+        try {
+            MessageRecord record = live.poll(pollTimeout, TimeUnit.MILLISECONDS);
+            if (record != null) {
+                records.add(record);
+                live.drainTo((List) records, batchSize - 1);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return records;
+    }
+
+    @Override
+    public <K, V> Iterable<MessageRecord<K, V>> receive(String user, Chat.Group group, long timestamp) {
+        Chat.Access.Builder builder = Chat.Access.newBuilder();
+        builder.setUser(user);
+        builder.setGroupId(group.getId());
+        builder.setTimestamp(timestamp);
+        Chat.Access access = builder.build();
+        // replay stops at the time it began, later messages arrive live
+        Cursor cursor = cursors.computeIfAbsent(access, key -> new Cursor(getHistoryKey(group.getId()),
+                String.valueOf(timestamp), String.valueOf(System.currentTimeMillis())));
+        long now = System.currentTimeMillis();
+        cursor.accessAt = now;
+        expire(now);
+        List<Object> entries;
+        try {
+            entries = (List<Object>) jedisCluster.eval(RANGE_SCRIPT, Collections.singletonList(cursor.key),
+                    Arrays.asList(cursor.start.getBytes(StandardCharsets.UTF_8), cursor.end, batch));
+        } catch (RuntimeException e) {
+            cursors.remove(access, cursor);
+            throw e;
+        }
+        if (entries == null || entries.isEmpty()) {
+            LOGGER.info("No more message to poll.");
+            cursors.remove(access, cursor);
+            return null;
+        }
+        List<MessageRecord<K, V>> records = new ArrayList<>(entries.size());
+        String lastID = toRecords(entries, records);
+        cursor.start = nextID(lastID);
+        return records;
+    }
+
+    // drops cursors of replays abandoned before reading to the end
+    private void expire(long now) {
+        long next = nextExpire.get();
+        if (now < next || !nextExpire.compareAndSet(next, now + idleTimeout / 2)) {
+            return;
+        }
+        cursors.values().removeIf(cursor -> now - cursor.accessAt > idleTimeout);
+    }
+
+    @Override
+    public <K, V> List<MessageRecord<K, V>> history(String groupID, long before, int limit) {
+        // entry IDs start with the time they were added, the end ID is inclusive
+        List<Object> entries = (List<Object>) jedisCluster.eval(REVERSE_RANGE_SCRIPT,
+                Collections.singletonList(getHistoryKey(groupID)),
+                Arrays.asList(String.valueOf(before - 1).getBytes(StandardCharsets.UTF_8),
+                        String.valueOf(limit).getBytes(StandardCharsets.UTF_8)));
+        if (entries == null || entries.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<MessageRecord<K, V>> records = new ArrayList<>(entries.size());
+        toRecords(entries, records);
+        Collections.reverse(records);
+        return records;
+    }
+
+    // appends the records of XRANGE/XREAD entries, returns the last entry ID
+    private static <K, V> String toRecords(List<Object> entries, List<MessageRecord<K, V>> records) {
+        String lastID = null;
+        for (Object entry : entries) {
+            List<Object> idFields = (List<Object>) entry;
+            lastID = new String((byte[]) idFields.get(0), StandardCharsets.UTF_8);
+            MessageRecord<K, V> record = toRecord((List<Object>) idFields.get(1));
+            if (record != null) {
+                // IDs are "<milliseconds>-<sequence>"
+                int dash = lastID.indexOf('-');
+                try {
+                    record.setTimestamp(Long.parseLong(dash < 0 ? lastID : lastID.substring(0, dash)));
+                } catch (NumberFormatException e) {
+                    LOGGER.warn("Invalid stream entry id {}.", lastID);
+                }
+                records.add(record);
+            }
+        }
+        return lastID;
+    }
+
+    private static <K, V> MessageRecord<K, V> toRecord(List<Object> fields) {
+        String key = null, serverID = null, groupID = null, type = null;
+        byte[] value = null;
+        for (int i = 0; i + 1 < fields.size(); i += 2) {
+            byte[] field = (byte[]) fields.get(i);
+            byte[] data = (byte[]) fields.get(i + 1);
+            if (Arrays.equals(VALUE_FIELD, field)) {
+                value = data;
+            } else if (Arrays.equals(KEY_FIELD, field)) {
+                key = new String(data, StandardCharsets.UTF_8);
+            } else if (Arrays.equals(SERVER_ID_FIELD, field)) {
+                serverID = new String(data, StandardCharsets.UTF_8);
+            } else if (Arrays.equals(GROUP_ID_FIELD, field)) {
+                groupID = new String(data, StandardCharsets.UTF_8);
+            } else if (Arrays.equals(TYPE_FIELD, field)) {
+                type = new String(data, StandardCharsets.UTF_8);
+            }
+        }
+        if (value == null) {
+            LOGGER.warn("Stream entry without value.");
+            return null;
+        }
+        return new MessageRecord<>((K) key, (V) value, MessageHeaders.parse(serverID, groupID, type));
+    }
+
+    // the smallest ID after the given one, XRANGE start is inclusive
+    private static String nextID(String id) {
+        int index = id.indexOf('-');
+        return id.substring(0, index + 1) + (Long.parseLong(id.substring(index + 1)) + 1);
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        for (Shard shard : shards) {
+            shard.stop();
+        }
+        cursors.clear();
+        if (jedisCluster != null) {
+            synchronized (this) {
+                if (jedisCluster != null) {
+                    jedisCluster.close();
+                    jedisCluster = null;
+                }
+            }
+        }
+    }
+
+    private final class Shard implements Runnable {
+        final byte[] key;
+        byte[] lastID;
+        // node holding the shard, learned from redirections
+        HostAndPort node;
+        volatile Thread thread;
+        volatile Socket socket;
+        RedisOutputStream output;
+        RedisInputStream input;
+
+        Shard(byte[] key) {
+            this.key = key;
+        }
+
+        void start() {
+            thread = new Thread(this, "redis-stream-" + new String(key, StandardCharsets.UTF_8));
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        void stop() {
+            Thread thread = this.thread;
+            if (thread != null) {
+                thread.interrupt();
+            }
+            // unblocks a pending read
+            disconnect();
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                try {
+                    read();
+                } catch (JedisMovedDataException e) {
+                    disconnect();
+                    node = e.getTargetNode();
+                } catch (InterruptedException e) {
+                    break;
+                } catch (IOException | RuntimeException e) {
+                    if (!running) {
+                        break;
+                    }
+                    LOGGER.error("Read shard stream {} error.", new String(key, StandardCharsets.UTF_8), e);
+                    disconnect();
+                    node = null;
+                    try {
+                        TimeUnit.MILLISECONDS.sleep(pollTimeout);
+                    } catch (InterruptedException ie) {
+                        break;
+                    }
+                }
+            }
+            disconnect();
+        }
+
+        private void read() throws IOException, InterruptedException {
+            if (lastID == null) {
+                lastID = (byte[]) jedisCluster.eval(LAST_ID_SCRIPT, Collections.singletonList(key), Collections.emptyList());
+            }
+            if (socket == null) {
+                connect();
+            }
+            write(XREAD, COUNT, batch, BLOCK, blockTimeout, STREAMS, key, lastID);
+            List<Object> streams = (List<Object>) Protocol.read(input);
+            if (streams == null || streams.isEmpty()) {
+                return;
+            }
+            List<Object> entries = (List<Object>) ((List<Object>) streams.get(0)).get(1);
+            List<MessageRecord<Object, Object>> records = new ArrayList<>(entries.size());
+            String id = toRecords(entries, records);
+            for (MessageRecord record : records) {
+                live.put(record);
+            }
+            if (id != null) {
+                lastID = id.getBytes(StandardCharsets.UTF_8);
+            }
+        }
+
+        private void connect() throws IOException {
+            HostAndPort target = node;
+            if (target == null) {
+                // any node, a redirection points to the one holding the shard
+                String address = jedisCluster.getClusterNodes().keySet().iterator().next();
+                int colon = address.lastIndexOf(':');
+                target = new HostAndPort(address.substring(0, colon), Integer.parseInt(address.substring(colon + 1)));
+            }
+            Socket socket = new Socket();
+            try {
+                socket.setTcpNoDelay(true);
+                socket.setKeepAlive(true);
+                socket.connect(new InetSocketAddress(target.getHost(), target.getPort()), config.getConnTimeout(10000));
+                socket.setSoTimeout(readTimeout);
+                output = new RedisOutputStream(socket.getOutputStream());
+                input = new RedisInputStream(socket.getInputStream());
+            } catch (IOException e) {
+                socket.close();
+                throw e;
+            }
+            this.socket = socket;
+            if (!running) {
+                disconnect();
+            }
+        }
+
+        private void write(byte[]... args) throws IOException {
+            output.write(Protocol.ASTERISK_BYTE);
+            output.writeIntCrLf(args.length);
+            for (byte[] arg : args) {
+                output.write(Protocol.DOLLAR_BYTE);
+                output.writeIntCrLf(arg.length);
+                output.write(arg);
+                output.writeCrLf();
+            }
+            output.flush();
+        }
+
+        private void disconnect() {
+            Socket socket = this.socket;
+            this.socket = null;
+            if (socket != null) {
+                try {
+                    socket.close();
+                } catch (IOException e) {
+                    LOGGER.debug("Close shard stream connection error.", e);
+                }
+            }
+        }
+    }
+
+    private static final class Cursor {
+        final byte[] key;
+        final byte[] end;
+        volatile String start;
+        volatile long accessAt;
+
+        Cursor(byte[] key, String start, String end) {
+            this.key = key;
+            this.start = start;
+            this.end = end.getBytes(StandardCharsets.UTF_8);
+            this.accessAt = System.currentTimeMillis();
+        }
+    }
+}
@@ -10,7 +10,9 @@ import redis.clients.jedis.HostAndPort;
 import redis.clients.jedis.JedisCluster;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -21,13 +23,32 @@ public class RedisMetaService implements CloseableMetaService {
     private volatile JedisCluster jedisCluster;
     private final byte[] SERVER_KEY;
     private final byte[] GROUP_KEY;
+    private final byte[] ROUTE_KEY;
     private final String GROUP_MEMBER_KEY;
+    private final String GROUP_SERVER_KEY;
     private final String SEQUENCE_KEY;
+    private final String GROUP_SEQUENCE_KEY;
     private final String LAST_LOGIN_TIME_KEY;
     private final byte[] TOKEN_KEY;
 
     public RedisMetaService(RedisConfig config) {
         this.config = config;
+        jedisCluster = createJedisCluster(config);
+
+        String prefix = config.getKeyPrefix("chat");
+        String seperator = config.getKeySeparator("::");
+        SERVER_KEY = String.format("%s%s%s", prefix, seperator, "svr").getBytes();
+        GROUP_KEY = String.format("%s%s%s", prefix, seperator, "grp").getBytes();
+        ROUTE_KEY = String.format("%s%s%s", prefix, seperator, "rte").getBytes();
+        GROUP_MEMBER_KEY = String.format("%s%s%s%s", prefix, seperator, "grp", seperator);
+        GROUP_SERVER_KEY = String.format("%s%s%s%s", prefix, seperator, "gsv", seperator);
+        SEQUENCE_KEY = String.format("%s%s%s", prefix, seperator, "seq");
+        GROUP_SEQUENCE_KEY = String.format("%s%s%s%s", prefix, seperator, "gsq", seperator);
+        LAST_LOGIN_TIME_KEY = String.format("%s%s%s%s", prefix, seperator, "llt", seperator);
+        TOKEN_KEY = String.format("%s%s%s%s", prefix, seperator, "tok", seperator).getBytes();
+    }
+
+    static JedisCluster createJedisCluster(RedisConfig config) {
         String[] servers = config.getServers().split(",");
         Set<HostAndPort> nodes = new HashSet<>(servers.length);
         for (String server : servers) {
@@ -47,17 +68,8 @@ public class RedisMetaService implements CloseableMetaService {
         poolConfig.setMaxIdle(config.getMaxIdle(5));
         poolConfig.setMinIdle(config.getMinIdle(1));
         poolConfig.setMaxWaitMillis(config.getMaxWait(10000L));
-        jedisCluster = new JedisCluster(nodes, config.getConnTimeout(10000),
+        return new JedisCluster(nodes, config.getConnTimeout(10000),
                 config.getSoTimeout(10000), config.getMaxAttempt(3), poolConfig);
-
-        String prefix = config.getKeyPrefix("chat");
-        String seperator = config.getKeySeparator("::");
-        SERVER_KEY = String.format("%s%s%s", prefix, seperator, "svr").getBytes();
-        GROUP_KEY = String.format("%s%s%s", prefix, seperator, "grp").getBytes();
-        GROUP_MEMBER_KEY = String.format("%s%s%s%s", prefix, seperator, "grp", seperator);
-        SEQUENCE_KEY = String.format("%s%s%s", prefix, seperator, "seq");
-        LAST_LOGIN_TIME_KEY = String.format("%s%s%s%s", prefix, seperator, "llt", seperator);
-        TOKEN_KEY = String.format("%s%s%s%s", prefix, seperator, "tok", seperator).getBytes();
     }
 
     @Override
@@ -94,6 +106,23 @@ public class RedisMetaService implements CloseableMetaService {
         }).collect(Collectors.toList());
     }
 
+    @Override
+    public Iterable<Chat.Route> listRoutes() throws IOException {
+        Map<byte[], byte[]> routes = jedisCluster.hgetAll(ROUTE_KEY);
+        List<Chat.Route> list = new ArrayList<>(routes == null ? 0 : routes.size());
+        if (routes != null) {
+            for (byte[] route : routes.values()) {
+                list.add(Chat.Route.parseFrom(route));
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public boolean addRoute(Chat.Route route) {
+        return jedisCluster.hsetnx(ROUTE_KEY, String.valueOf(route.getVersion()).getBytes(), route.toByteArray()) == 1L ? true : false;
+    }
+
     @Override
     public Chat.Group groupInfo(String groupID) throws IOException {
         byte[] value = jedisCluster.hget(GROUP_KEY, groupID.getBytes());
@@ -108,6 +137,11 @@ public class RedisMetaService implements CloseableMetaService {
         return String.valueOf(jedisCluster.incr(SEQUENCE_KEY));
     }
 
+    @Override
+    public long nextSequence(String groupID, int count) {
+        return jedisCluster.incrBy(GROUP_SEQUENCE_KEY + groupID, count);
+    }
+
     @Override
     public boolean createGroup(Chat.Group group) {
         return jedisCluster.hsetnx(GROUP_KEY, group.getId().getBytes(), group.toByteArray()) == 1L ? true : false;
@@ -143,6 +177,24 @@ public class RedisMetaService implements CloseableMetaService {
         return jedisCluster.srandmember(GROUP_MEMBER_KEY + groupID, limit);
     }
 
+    @Override
+    public void addGroupServer(String groupID, String serverID, long expireAt) {
+        jedisCluster.zadd(GROUP_SERVER_KEY + groupID, expireAt, serverID);
+    }
+
+    @Override
+    public boolean removeGroupServer(String groupID, String serverID) {
+        return jedisCluster.zrem(GROUP_SERVER_KEY + groupID, serverID) == 1L ? true : false;
+    }
+
+    @Override
+    public Iterable<String> groupServers(String groupID) {
+        String key = GROUP_SERVER_KEY + groupID;
+        long now = System.currentTimeMillis();
+        jedisCluster.zremrangeByScore(key, 0, now);
+        return jedisCluster.zrangeByScore(key, now, Double.POSITIVE_INFINITY);
+    }
+
     @Override
     public String lastLoginTime(String groupID, String user) {
         return jedisCluster.hget(LAST_LOGIN_TIME_KEY + groupID, user);
@@ -0,0 +1,6 @@
+package com.github.sosozhuang.service;
+
+public interface SendCallback {
+    // cause is null when the record was delivered
+    public void onCompletion(Throwable cause);
+}
@@ -6,4 +6,14 @@ import java.util.concurrent.Future;
 
 public interface Sender {
     public void send(String user, Chat.Group group, MessageRecord record);
+
+    default public void send(String user, Chat.Group group, MessageRecord record, SendCallback callback) {
+        try {
+            send(user, group, record);
+        } catch (RuntimeException e) {
+            callback.onCompletion(e);
+            return;
+        }
+        callback.onCompletion(null);
+    }
 }
@@ -2,15 +2,37 @@ package com.github.sosozhuang.service;
 
 import com.github.sosozhuang.conf.ActiveMQConfig;
 import com.github.sosozhuang.conf.Configuration;
+import com.github.sosozhuang.conf.FileConfig;
+import com.github.sosozhuang.conf.JournalConfig;
 import com.github.sosozhuang.conf.KafkaConfig;
+import com.github.sosozhuang.conf.MemoryConfig;
 import com.github.sosozhuang.conf.RedisConfig;
 import io.netty.util.internal.StringUtil;
 
 import javax.jms.JMSException;
+import java.io.IOException;
 
 public class ServiceFactory {
     private ServiceFactory() {}
-    public static CloseableMessageService createMessageService(Configuration config) throws UnsupportedException, ServiceCreatedException {
+    public static CloseableMessageService createMessageService(Configuration config, MetaService metaService) throws UnsupportedException, ServiceCreatedException {
+        CloseableMessageService messageService = createBackendService(config, metaService);
+        JournalConfig journalConf = new JournalConfig(config);
+        if (!journalConf.getEnable(false)) {
+            return messageService;
+        }
+        try {
+            return new JournaledMessageService(journalConf, messageService);
+        } catch (IOException e) {
+            try {
+                messageService.close();
+            } catch (IOException ex) {
+                e.addSuppressed(ex);
+            }
+            throw new ServiceCreatedException(e);
+        }
+    }
+
+    private static CloseableMessageService createBackendService(Configuration config, MetaService metaService) throws UnsupportedException, ServiceCreatedException {
         String type = config.getString("message.service");
         if (StringUtil.isNullOrEmpty(type)) {
             throw new IllegalArgumentException("Message service type is empty.");
@@ -19,7 +41,11 @@ public class ServiceFactory {
         switch (type.trim().toLowerCase()) {
             case "kafka":
                 KafkaConfig kafkaConf = new KafkaConfig(config);
-                return new KafkaMessageService(kafkaConf);
+                try {
+                    return new KafkaMessageService(kafkaConf, metaService);
+                } catch (IOException e) {
+                    throw new ServiceCreatedException(e);
+                }
             case "activemq":
                 ActiveMQConfig activeMQConf = new ActiveMQConfig(config);
                 try {
@@ -27,6 +53,19 @@ public class ServiceFactory {
                 } catch (JMSException e) {
                     throw new ServiceCreatedException(e);
                 }
+            case "redis":
+                RedisConfig redisConf = new RedisConfig(config);
+                return new RedisMessageService(redisConf);
+            case "file":
+                FileConfig fileConf = new FileConfig(config);
+                try {
+                    return new FileMessageService(fileConf);
+                } catch (IOException e) {
+                    throw new ServiceCreatedException(e);
+                }
+            case "memory":
+                MemoryConfig memoryConf = new MemoryConfig(config);
+                return new MemoryMessageService(memoryConf);
             default:
                 throw new UnsupportedException("Message service type[" + type + "] is not supported");
         }